@@ -15,7 +15,12 @@
  */
 package com.github.secretx33.sccfg;
 
+import com.github.secretx33.sccfg.api.annotation.AfterReload;
+import com.github.secretx33.sccfg.api.annotation.BeforeReload;
 import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.api.annotation.Keyed;
+import com.github.secretx33.sccfg.config.ConfigWrapper;
+import com.github.secretx33.sccfg.config.SaveReport;
 import com.github.secretx33.sccfg.exception.ConfigDeserializationException;
 import com.github.secretx33.sccfg.exception.ConfigException;
 import com.github.secretx33.sccfg.exception.ConfigInstanceOverrideException;
@@ -25,10 +30,15 @@ import com.github.secretx33.sccfg.exception.MissingConfigAnnotationException;
 import com.github.secretx33.sccfg.exception.MissingNoArgsConstructorException;
 import com.github.secretx33.sccfg.platform.Platform;
 import com.github.secretx33.sccfg.platform.PlatformProvider;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Type;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
 import static com.github.secretx33.sccfg.util.Preconditions.notContainsNull;
@@ -39,10 +49,39 @@ import static com.github.secretx33.sccfg.util.Preconditions.notContainsNull;
  */
 public final class Config {
 
-    private static final Platform platform = PlatformProvider.getPlatform();
+    /**
+     * Wrapper of each config class, cached so that after the first {@link Config#getConfig(Class)} call for a
+     * class, getting its instance is just a couple of field reads (no hashing, locking or allocation). Cached
+     * wrappers that were discarded by their factory (e.g. evicted) are ignored, and replaced on the next call.
+     */
+    private static final ClassValue<ConfigHandle> handles = new ClassValue<ConfigHandle>() {
+        @Override
+        protected ConfigHandle computeValue(final Class<?> type) {
+            return new ConfigHandle();
+        }
+    };
 
     private Config() {}
 
+    /**
+     * Gets the platform, which is only looked up when first needed (its components are also only
+     * created when first needed).
+     */
+    private static Platform platform() {
+        return PlatformHolder.PLATFORM;
+    }
+
+    /**
+     * Start initializing everything sc-cfg needs (classpath scanning, file watcher, etc.) on a background
+     * thread, so that the first {@link Config#getConfig(Class)} call doesn't have to wait for it. Calling
+     * this method is entirely optional, since all of these are also initialized on first need.
+     *
+     * @return a future that completes when sc-cfg is fully initialized
+     */
+    public static CompletableFuture<Void> preload() {
+        return platform().preload();
+    }
+
     /**
      * Gets the instance of the {@code} configClass, instantiating it if it's not initiated yet. This method
      * is thread safe.
@@ -57,7 +96,59 @@ public final class Config {
      */
     public static <T> T getConfig(final Class<T> configClass) {
         checkNotNull(configClass, "configClass");
-        return platform.getConfigFactory().getWrapper(configClass).getInstance();
+        return getWrapper(configClass).getInstance();
+    }
+
+    /**
+     * Gets the version of the values of the singleton instance of {@code configClass}, instantiating it if
+     * it's not initiated yet. The version changes every time these values are reloaded, updated through
+     * {@link Config#update(Class, Consumer)} or saved, so values derived from them can be cached while it
+     * doesn't change. This method is thread safe.
+     *
+     * @param configClass the config class
+     * @return the version of the values of the singleton instance of {@code configClass}
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws MissingNoArgsConstructorException if {@code configClass} doesn't have an initiated
+     * instance registered yet, and doesn't have a no-args constructor
+     */
+    public static int getVersion(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        return getWrapper(configClass).getVersion();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ConfigWrapper<T> getWrapper(final Class<T> configClass) {
+        final ConfigHandle handle = handles.get(configClass);
+        final ConfigWrapper<?> wrapper = handle.wrapper;
+        if (wrapper != null && !wrapper.isDiscarded()) {
+            return (ConfigWrapper<T>) wrapper;
+        }
+        final ConfigWrapper<T> newWrapper = platform().getConfigFactory().getWrapper(configClass);
+        handle.wrapper = newWrapper;
+        return newWrapper;
+    }
+
+    /**
+     * Gets the instance of the {@code configClass} associated with {@code key}, loading it from its own
+     * file if it's not loaded yet. This allows many instances of the same config class (e.g. one per arena),
+     * each one stored in its own file, whose location is determined by the {@link Keyed} annotation
+     * (optional) present on the class. This method is thread safe.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance, which can only contain letters, digits, dots, hyphens and
+     * underscores
+     * @param <T> the type of the config class
+     * @return the instance of config T associated with {@code key}
+     * @throws IllegalArgumentException if {@code key} is not a valid key
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws MissingNoArgsConstructorException if {@code configClass} doesn't have a no-args constructor
+     */
+    public static <T> T getConfig(final Class<T> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(key, "key");
+        return platform().getConfigFactory().getWrapper(configClass, key).getInstance();
     }
 
     /**
@@ -75,14 +166,14 @@ public final class Config {
      */
     public static <T> T registerConfig(final T configInstance) {
         checkNotNull(configInstance, "configInstance");
-        platform.getConfigFactory().registerInstance(configInstance);
+        platform().getConfigFactory().registerInstance(configInstance);
         return configInstance;
     }
 
     /**
-     * Register multiple instances of config classes. This method is thread safe, as it guarantees that no overrides
-     * can happen when passing as argument instances of configs already registered, but the {@code ConfigInstanceOverrideException}
-     * thrown is only best-effort, so no guarantees can be made about it.
+     * Register multiple instances of config classes, loading them in parallel. This method is thread safe, as it
+     * guarantees that no overrides can happen when passing as argument instances of configs already registered, but
+     * the {@code ConfigInstanceOverrideException} thrown is only best-effort, so no guarantees can be made about it.
      *
      * @param configInstances the config instances
      * @throws MissingConfigAnnotationException if class of any instance inside {@code configInstances}
@@ -92,7 +183,7 @@ public final class Config {
      */
     public static void registerConfigs(final Object... configInstances) {
         notContainsNull(configInstances, "configInstances");
-        Arrays.stream(configInstances).forEach(platform.getConfigFactory()::registerInstance);
+        platform().getConfigFactory().registerInstances(configInstances);
     }
 
     /**
@@ -109,11 +200,12 @@ public final class Config {
      */
     public static void saveConfig(final Object configInstance) {
         checkNotNull(configInstance, "configInstance");
-        platform.getConfigFactory().saveInstance(configInstance.getClass());
+        platform().getConfigFactory().saveInstance(configInstance.getClass());
     }
 
     /**
-     * Persist (save) the instance associated with the {@code configClass} to the disk.
+     * Persist (save) the instance associated with the {@code configClass} to the disk. Nothing is written
+     * if the instance was not modified since it was last loaded or saved, see {@link Config#isDirty(Class)}.
      *
      * @param configClass the config class
      * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
@@ -126,7 +218,220 @@ public final class Config {
      */
     public static void saveConfig(final Class<?> configClass) {
         checkNotNull(configClass, "configClass");
-        platform.getConfigFactory().saveInstance(configClass);
+        platform().getConfigFactory().saveInstance(configClass);
+    }
+
+    /**
+     * Persist (save) the instance of {@code configClass} associated with {@code key} to the disk.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws ConfigNotInitializedException if the instance associated with {@code key} is not loaded
+     * (either because it was never requested, or because it was evicted)
+     * @throws ConfigSerializationException if serializer could not serialize a config entry
+     * (that happens when sc-cfg is missing a Type Adapter for that specific type)
+     * @throws ConfigException if an error occurs while saving the config to the disk
+     */
+    public static void saveConfig(final Class<?> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(key, "key");
+        platform().getConfigFactory().saveInstance(configClass, key);
+    }
+
+    /**
+     * Queues a save of a config instance, which is written to the disk on a background thread after the
+     * {@link Configuration#saveWindow() save window} of its class, so it's safe to call this method as often
+     * as needed (e.g. on every player join): all saves requested during that window are merged into a single
+     * write of the latest values. Queued saves are written when the platform is shut down, see
+     * {@link Config#shutdown()}.
+     *
+     * @param configInstance the config instance
+     * @return a future that completes once the instance is written to the disk, or completes exceptionally
+     * if it could not be written
+     * @throws MissingConfigAnnotationException if class of {@code configInstance} is not annotated
+     * with {@link Configuration}
+     * @throws ConfigNotInitializedException if class of {@code configInstance} was not initialized
+     * or registered yet
+     */
+    public static CompletableFuture<Void> saveConfigAsync(final Object configInstance) {
+        checkNotNull(configInstance, "configInstance");
+        return platform().getConfigFactory().saveInstanceAsync(configInstance.getClass());
+    }
+
+    /**
+     * Queues a save of the instance associated with the {@code configClass}.
+     *
+     * @param configClass the config class
+     * @return a future that completes once the instance is written to the disk
+     * @see Config#saveConfigAsync(Object)
+     */
+    public static CompletableFuture<Void> saveConfigAsync(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        return platform().getConfigFactory().saveInstanceAsync(configClass);
+    }
+
+    /**
+     * Queues a save of the instance of {@code configClass} associated with {@code key}.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @return a future that completes once the instance is written to the disk
+     * @see Config#saveConfigAsync(Object)
+     */
+    public static CompletableFuture<Void> saveConfigAsync(final Class<?> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(key, "key");
+        return platform().getConfigFactory().saveInstanceAsync(configClass, key);
+    }
+
+    /**
+     * Modifies the instance of {@code configClass} and queues a save of it. The modifications are applied
+     * while holding the lock of the instance, which is also held while saves copy its values and while
+     * reloads (including hot reloads) apply the values of its file, so an update is never written halfway
+     * nor interleaved with a reload.
+     *
+     * <pre>{@code
+     * Config.update(PlayerStats.class, stats -> stats.joins++);
+     * }</pre>
+     *
+     * @param configClass the config class
+     * @param update the modifications to apply to the instance
+     * @param <T> the type of the config class
+     * @return a future that completes once the updated instance is written to the disk
+     * @see Config#saveConfigAsync(Object)
+     */
+    public static <T> CompletableFuture<Void> update(final Class<T> configClass, final Consumer<? super T> update) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(update, "update");
+        return platform().getConfigFactory().updateInstance(configClass, update);
+    }
+
+    /**
+     * Checks if the instance associated with the {@code configClass} was modified since it was last
+     * loaded from, or saved to, its file. Instances that are not dirty are not written again when saved.
+     *
+     * @param configClass the config class
+     * @return true if saving the instance would change its file
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws ConfigNotInitializedException if {@code configClass} was not initialized or
+     * registered yet
+     */
+    public static boolean isDirty(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        return platform().getConfigFactory().isDirty(configClass);
+    }
+
+    /**
+     * Checks if the instance of {@code configClass} associated with {@code key} was modified since it
+     * was last loaded from, or saved to, its file.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @return true if saving the instance would change its file
+     * @see Config#isDirty(Class)
+     */
+    public static boolean isDirty(final Class<?> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(key, "key");
+        return platform().getConfigFactory().isDirty(configClass, key);
+    }
+
+    /**
+     * Reloads the instance associated with the {@code configClass} from its file right away, like it
+     * happens when its file is modified, running its {@link BeforeReload} and {@link AfterReload} methods
+     * and notifying its reload listeners. This method blocks until the instance is reloaded, so avoid
+     * calling it from the main thread.
+     *
+     * @param configClass the config class
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws ConfigNotInitializedException if {@code configClass} was not initialized or
+     * registered yet
+     */
+    public static void reloadConfig(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        platform().getConfigFactory().reloadInstance(configClass);
+    }
+
+    /**
+     * Registers a {@code listener} that is notified, on a background thread, every time the instance of
+     * {@code configClass} is reloaded.
+     *
+     * @param configClass the config class
+     * @param listener the listener that receives the reloaded instance
+     * @param <T> the config class
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     */
+    public static <T> void addReloadListener(final Class<T> configClass, final Consumer<? super T> listener) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(listener, "listener");
+        platform().getConfigFactory().addReloadListener(configClass, listener);
+    }
+
+    /**
+     * Unregisters a {@code listener} registered through {@link Config#addReloadListener(Class, Consumer)}.
+     *
+     * @param configClass the config class
+     * @param listener the listener
+     * @param <T> the config class
+     * @return true if the listener was registered
+     */
+    public static <T> boolean removeReloadListener(final Class<T> configClass, final Consumer<? super T> listener) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(listener, "listener");
+        return platform().getConfigFactory().removeReloadListener(configClass, listener);
+    }
+
+    /**
+     * Gets a new instance of {@code configClass} holding the current values of its singleton instance,
+     * which is not affected by later reloads of that instance.
+     *
+     * @param configClass the config class
+     * @param <T> the config class
+     * @return a snapshot of the instance of {@code configClass}
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws MissingNoArgsConstructorException if {@code configClass} does not have a no-args constructor
+     */
+    public static <T> T getSnapshot(final Class<T> configClass) {
+        checkNotNull(configClass, "configClass");
+        return platform().getConfigFactory().getSnapshot(configClass);
+    }
+
+    /**
+     * Immediately writes all queued async saves, waiting for them to be written.
+     */
+    public static void flushPendingSaves() {
+        platform().getConfigFactory().flushPendingSaves();
+    }
+
+    /**
+     * Shuts sc-cfg down, writing all queued async saves. Async saves requested afterwards are written right
+     * away, on the thread that requested them. On Bukkit this is done automatically when your plugin is
+     * disabled, on BungeeCord (which has no plugin disable event) call it from your plugin {@code onDisable}.
+     */
+    public static void shutdown() {
+        platform().shutdown();
+    }
+
+    /**
+     * Evicts the instance of {@code configClass} associated with {@code key} from memory, so it's not
+     * hot reloaded anymore, and the next {@link Config#getConfig(Class, String)} call for that key loads a
+     * new instance from its file. Evicted instances are <b>not</b> saved, so if you have modified it, save it
+     * first.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @return true if there was a loaded instance associated with {@code key}
+     */
+    public static boolean evictConfig(final Class<?> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(key, "key");
+        return platform().getConfigFactory().evictInstance(configClass, key);
     }
 
     /**
@@ -140,10 +445,55 @@ public final class Config {
      * @throws ConfigSerializationException if serializer could not serialize a config entry (that
      * happens when sc-cfg is missing a Type Adapter for that specific type)
      * @throws ConfigException if an error occurs while saving the config to the disk
+     * @see Config#saveBatch(boolean, Object...)
      */
     public static void saveConfigs(final Object... configInstances) {
         notContainsNull(configInstances, "configInstance");
-        Arrays.stream(configInstances).map(Object::getClass).forEach(platform.getConfigFactory()::saveInstance);
+        Arrays.stream(configInstances).map(Object::getClass).forEach(platform().getConfigFactory()::saveInstance);
+    }
+
+    /**
+     * Persist (save) the config instances to the disk, in parallel. A config that could not be saved doesn't
+     * prevent the others from being saved, its failure is recorded in the returned report instead. Instances
+     * that were not modified since they were last loaded or saved are not written.
+     *
+     * @param sync if true, the written files (and the folders holding them) are synced to the disk before
+     * this method returns, so they survive a system crash or power loss
+     * @param configInstances the config instances
+     * @return a summary of the time taken to save each config, and of the configs that failed to be saved
+     * @throws MissingConfigAnnotationException if class of any instance inside {@code configInstances}
+     * is not annotated with {@link Configuration}
+     * @throws ConfigNotInitializedException if class of any instance inside {@code configInstances} was
+     * not initialized or registered yet
+     */
+    public static SaveReport saveBatch(final boolean sync, final Object... configInstances) {
+        notContainsNull(configInstances, "configInstance");
+        final List<Class<?>> configClasses = Arrays.stream(configInstances).map(Object::getClass).collect(Collectors.toList());
+        return platform().getConfigFactory().saveInstances(configClasses, sync);
+    }
+
+    /**
+     * Persist (save) all loaded config instances to the disk, in parallel, including the loaded keyed
+     * instances. Meant to be called when your plugin is disabled.
+     *
+     * @return a summary of the time taken to save each config, and of the configs that failed to be saved
+     * @see Config#saveAll(boolean)
+     */
+    public static SaveReport saveAll() {
+        return saveAll(false);
+    }
+
+    /**
+     * Persist (save) all loaded config instances to the disk, in parallel, including the loaded keyed
+     * instances. A config that could not be saved doesn't prevent the others from being saved, its failure
+     * is recorded in the returned report instead.
+     *
+     * @param sync if true, the written files (and the folders holding them) are synced to the disk before
+     * this method returns, so they survive a system crash or power loss
+     * @return a summary of the time taken to save each config, and of the configs that failed to be saved
+     */
+    public static SaveReport saveAll(final boolean sync) {
+        return platform().getConfigFactory().saveAll(sync);
     }
 
     /**
@@ -223,7 +573,20 @@ public final class Config {
      */
     public static boolean saveDefaults(final Class<?> configClass, boolean overrideIfExists, boolean reloadAfterwards) {
         checkNotNull(configClass, "configClass");
-        return platform.getConfigFactory().saveDefaults(configClass, overrideIfExists, reloadAfterwards);
+        return platform().getConfigFactory().saveDefaults(configClass, overrideIfExists, reloadAfterwards);
+    }
+
+    /**
+     * Evicts the instance of {@code configClass} from memory, so it's not hot reloaded anymore, and the next
+     * {@link Config#getConfig(Class)} call for it loads a new instance from its file. Evicted instances are
+     * <b>not</b> saved, so if you have modified it, save it first.
+     *
+     * @param configClass the config class
+     * @return true if there was a loaded instance of {@code configClass}
+     */
+    public static boolean evictConfig(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        return platform().getConfigFactory().evictInstance(configClass);
     }
 
     /**
@@ -234,11 +597,12 @@ public final class Config {
      * @param typeAdapter the instance of a type adapter
      * @throws IllegalArgumentException if {@code typeAdapter} is not an instance of a valid type
      * adapter
+     * @throws IllegalStateException if type adapters were already {@link #freezeTypeAdapters() frozen}
      */
     public static void registerTypeAdapter(final Type type, final Object typeAdapter) {
         checkNotNull(type, "type");
         checkNotNull(typeAdapter, "typeAdapter");
-        platform.getGsonFactory().addTypeAdapter(type, typeAdapter);
+        platform().getGsonFactory().addTypeAdapter(type, typeAdapter);
     }
 
     /**
@@ -249,9 +613,46 @@ public final class Config {
      * the instance of a type adapter
      * @throws IllegalArgumentException if any of the values from {@code typeAdapters} map is not
      * an instance of a valid type adapter
+     * @throws IllegalStateException if type adapters were already {@link #freezeTypeAdapters() frozen}
      */
     public static void registerTypeAdapters(final Map<? extends Type, Object> typeAdapters) {
         notContainsNull(typeAdapters, "typeAdapters");
-        platform.getGsonFactory().addTypeAdapters(typeAdapters);
+        platform().getGsonFactory().addTypeAdapters(typeAdapters);
+    }
+
+    /**
+     * Register a type adapter for {@code baseType} and all of its subclasses, and all operations from
+     * now on will have this type adapter available. Prefer it over {@link #registerTypeAdapter(Type, Object)}
+     * for types that are subclassed at runtime, whose instances would otherwise be serialized reflectively.
+     *
+     * @param baseType the base class of the types that the {@code typeAdapter} handles
+     * @param typeAdapter the instance of a {@code JsonSerializer}, {@code JsonDeserializer} or
+     * {@code TypeAdapter}
+     * @throws IllegalArgumentException if {@code typeAdapter} is not an instance of a valid type
+     * hierarchy adapter
+     * @throws IllegalStateException if type adapters were already {@link #freezeTypeAdapters() frozen}
+     */
+    public static void registerTypeHierarchyAdapter(final Class<?> baseType, final Object typeAdapter) {
+        checkNotNull(baseType, "baseType");
+        checkNotNull(typeAdapter, "typeAdapter");
+        platform().getGsonFactory().addTypeHierarchyAdapter(baseType, typeAdapter);
+    }
+
+    /**
+     * Freezes the registered type adapters, rejecting any type adapter registered from now on. Call it after
+     * registering all your type adapters (preferably at once, through {@link #registerTypeAdapters(Map)}), so
+     * the Gson instance used by sc-cfg is built only once, and never discarded.
+     */
+    public static void freezeTypeAdapters() {
+        platform().getGsonFactory().freeze();
+    }
+
+    private static final class ConfigHandle {
+        @Nullable
+        private volatile ConfigWrapper<?> wrapper;
+    }
+
+    private static final class PlatformHolder {
+        private static final Platform PLATFORM = PlatformProvider.getPlatform();
     }
 }
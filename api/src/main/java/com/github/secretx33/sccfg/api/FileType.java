@@ -19,6 +19,11 @@ package com.github.secretx33.sccfg.api;
  * The type the config file will be.
  */
 public enum FileType {
+    /**
+     * Compact binary format, for configs that are generated and managed by code and never edited by hand,
+     * such as big drop tables. Files of this type have no comments.
+     */
+    CBOR(".cbor", "CborSerializer"),
     HOCON(".conf", "HoconSerializer"),
     JSON(".json", "JsonSerializer"),
     YAML(".yml", "YamlSerializer");
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.api.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a folder of config files to a {@code Map<String, T>} field of a configuration class, where
+ * {@code T} is another configuration class (annotated with {@link Configuration}, and with a no-args
+ * constructor). Each file inside the folder with the extension of {@code T}'s {@link Configuration#type()}
+ * becomes an entry of the map, keyed by the file name (without extension).<br><br>
+ *
+ * The map is kept in sync with the folder: when a file is modified, only that entry is reloaded (and its
+ * reload hooks run), and creating or deleting a file adds or removes its entry. The map is replaced by a
+ * thread safe one when the config is loaded, and should be treated as read only, since changes made to it
+ * are not persisted.<br><br>
+ *
+ * Fields annotated with this annotation are not serialized into the config file of their class.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConfigDirectory {
+
+    /**
+     * The relative path of the folder, e.g. {@code arenas}. Just like {@link Configuration#value()}, it's
+     * relative to the folder where the configs are stored (for Bukkit, plugin's data folder). If the folder
+     * doesn't exist, it'll be created.
+     */
+    String value();
+}
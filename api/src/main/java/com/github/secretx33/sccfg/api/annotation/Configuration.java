@@ -70,4 +70,53 @@ public @interface Configuration {
      * @return the comment block to be placed as the first thing in the config file, before any property
      */
     String[] header() default {};
+
+    /**
+     * If true, after loading the config file, sc-cfg stores its parsed values in a compact binary snapshot,
+     * and on the next loads (e.g. when the server restarts) reads the values from that snapshot instead of
+     * parsing the file again, as long as the file was not modified. Only worth it for big config files, which
+     * are slow to parse.<br><br>
+     *
+     * Snapshots are stored in the folder set by the {@code sccfg.snapshot.dir} system property (by default,
+     * a folder inside the temporary folder of the system), and they are safe to delete at any time.
+     *
+     * @return true if the values of the config file should be cached in a binary snapshot
+     */
+    boolean snapshot() default false;
+
+    /**
+     * How long, in milliseconds, asynchronous saves of this config (like the ones requested through
+     * {@link com.github.secretx33.sccfg.Config#saveConfigAsync(Class)}) wait before being written to the
+     * disk. All saves requested during that window are merged into a single write of the latest values.
+     *
+     * @return the delay in milliseconds between an async save being requested and it being written
+     */
+    long saveWindow() default 1000L;
+
+    /**
+     * If true, when the config file is loaded and some properties are missing from it (e.g. because they
+     * were added by an update of your plugin), sc-cfg inserts only these properties into the file, together
+     * with their {@link Comment comments}, keeping everything else on the file exactly as it was. Otherwise,
+     * missing properties are only written to the file the next time the config is saved.<br><br>
+     *
+     * Supported by {@link FileType#YAML}, {@link FileType#HOCON} and {@link FileType#JSON} files. Properties
+     * that would have to be inserted into a section written inline (like {@code section: {key: value}}) are
+     * left out.
+     *
+     * @return true if properties missing from the config file should be inserted into it when it is loaded
+     */
+    boolean mergeMissingKeys() default false;
+
+    /**
+     * If true, saving this config replaces only the values that changed since the file was last loaded or
+     * saved, right where they are on the file (and inserts the ones missing from it), instead of writing the
+     * whole file from scratch. That keeps the formatting, ordering, comments and unknown keys of hand edited
+     * files, and avoids serializing the whole file when only a few values changed. When the changed values
+     * cannot be patched (e.g. the file has a layout that is not supported), the whole file is written as usual.<br><br>
+     *
+     * Supported by {@link FileType#YAML}, {@link FileType#HOCON} and {@link FileType#JSON} files.
+     *
+     * @return true if saves should only patch the changed values into the config file
+     */
+    boolean patchOnSave() default false;
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.api.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures how keyed instances of a configuration class (the ones obtained through
+ * {@code Config.getConfig(SomeClass.class, "some-key")}) are stored and kept in memory. Using this
+ * annotation is optional, keyed instances of classes without it use the defaults documented below.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Keyed {
+
+    /**
+     * Placeholder that is replaced by the key of the instance in {@link Keyed#value()}.
+     */
+    String KEY_PLACEHOLDER = "{key}";
+
+    /**
+     * The relative path and name template of the config files of keyed instances, which must contain the
+     * {@value #KEY_PLACEHOLDER} placeholder. Extensions are optional, just like in {@link Configuration#value()}.
+     * <br><br>
+     *
+     * For example, {@code arenas/{key}} will store the instance of key "desert" in a file called "desert"
+     * inside a folder called "arenas". If not specified, the keyed files are stored in a folder named after
+     * the config file of that class (e.g. {@code arenas/{key}} for a class annotated with
+     * {@code @Configuration("arenas")}).
+     */
+    String value() default "";
+
+    /**
+     * Max amount of keyed instances of this class that are kept in memory. When that amount is exceeded, the
+     * least recently used instances are evicted (and loaded again from their files when requested later). Zero
+     * or negative values means no limit.
+     * <br><br>
+     *
+     * Evicted instances are not saved, so instances with changes that were not saved yet, or with an async save
+     * that was not written yet, are never evicted. While there are such instances, more than this amount of
+     * instances may be kept in memory.
+     */
+    int maxResident() default 0;
+}
@@ -34,4 +34,12 @@ public @interface RegisterTypeAdapter {
      * The class that this TypeAdapter serialized and/or deserializes.
      */
     Class<?> value();
+
+    /**
+     * Whether this TypeAdapter should also handle all subclasses of {@link #value()}, instead of only that
+     * exact class. Useful for types that are usually subclassed at runtime, so their instances don't fall
+     * back to Gson reflective type adapter. Type hierarchy adapters must implement {@code JsonSerializer},
+     * {@code JsonDeserializer} or {@code TypeAdapter}, and exact type adapters take precedence over them.
+     */
+    boolean hierarchy() default false;
 }
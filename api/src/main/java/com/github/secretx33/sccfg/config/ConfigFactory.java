@@ -16,6 +16,7 @@
 package com.github.secretx33.sccfg.config;
 
 import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.exception.ConfigCircularLoadException;
 import com.github.secretx33.sccfg.exception.ConfigException;
 import com.github.secretx33.sccfg.exception.ConfigInstanceOverrideException;
 import com.github.secretx33.sccfg.exception.ConfigNotInitializedException;
@@ -23,6 +24,10 @@ import com.github.secretx33.sccfg.exception.ConfigSerializationException;
 import com.github.secretx33.sccfg.exception.MissingConfigAnnotationException;
 import com.github.secretx33.sccfg.exception.MissingNoArgsConstructorException;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 /**
  * Represents the factory responsible for creating, registering and holding all configuration instances.
  */
@@ -39,9 +44,26 @@ public interface ConfigFactory {
      * {@link Configuration}
      * @throws MissingNoArgsConstructorException if {@code configClass} doesn't have a registered
      * instance yet, and doesn't have a no-args constructor
+     * @throws ConfigCircularLoadException if {@code configClass} is requested again by the same thread while
+     * it's still being loaded
      */
     <T> ConfigWrapper<T> getWrapper(Class<T> configClass);
 
+    /**
+     * Gets the config wrapper of the instance of that class associated with {@code key}, loading it from its
+     * own file if necessary.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @param <T> the type of the config class
+     * @return a config wrapper containing the keyed config instance
+     * @throws IllegalArgumentException if {@code key} is not a valid key
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws MissingNoArgsConstructorException if {@code configClass} doesn't have a no-args constructor
+     */
+    <T> ConfigWrapper<T> getWrapper(Class<T> configClass, String key);
+
     /**
      * Register an instance of a config class.
      *
@@ -54,7 +76,21 @@ public interface ConfigFactory {
     void registerInstance(Object instance);
 
     /**
-     * Persist (save) the instance associated with the {@code configClass} to the disk.
+     * Register multiple instances of config classes, loading them in parallel. If any of them fail to
+     * be registered, the others are still registered, and the exception of the first failure is thrown
+     * after all of them have finished loading (with exceptions of other failures added as suppressed).
+     *
+     * @param instances the config instances
+     * @throws MissingConfigAnnotationException if class of any instance inside {@code instances} is not
+     * annotated with {@link Configuration}
+     * @throws ConfigInstanceOverrideException if class of any instance inside {@code instances} already
+     * got an instance associated with it
+     */
+    void registerInstances(Object... instances);
+
+    /**
+     * Persist (save) the instance associated with the {@code configClass} to the disk. The file is not
+     * written if the values of the instance didn't change since they were last loaded or saved.
      *
      * @param configClass the config class
      * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
@@ -67,6 +103,172 @@ public interface ConfigFactory {
      */
     void saveInstance(Class<?> configClass);
 
+    /**
+     * Persist (save) the instance of {@code configClass} associated with {@code key} to the disk.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @throws ConfigNotInitializedException if the instance associated with {@code key} is not loaded
+     * @throws ConfigException if an error occurs while saving the config to the disk
+     */
+    void saveInstance(Class<?> configClass, String key);
+
+    /**
+     * Queues a save of the instance associated with the {@code configClass}, which is written to the disk
+     * on a background thread after the {@link Configuration#saveWindow() save window} of that class. Saves
+     * queued during that window are merged into a single write of the latest values.
+     *
+     * @param configClass the config class
+     * @return a future that completes once the instance is written to the disk, or completes exceptionally
+     * if it could not be written
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws ConfigNotInitializedException if {@code configClass} was not initialized or
+     * registered yet
+     */
+    CompletableFuture<Void> saveInstanceAsync(Class<?> configClass);
+
+    /**
+     * Queues a save of the instance of {@code configClass} associated with {@code key}, like
+     * {@link ConfigFactory#saveInstanceAsync(Class)} does.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @return a future that completes once the instance is written to the disk
+     * @throws ConfigNotInitializedException if the instance associated with {@code key} is not loaded
+     */
+    CompletableFuture<Void> saveInstanceAsync(Class<?> configClass, String key);
+
+    /**
+     * Applies {@code update} to the instance of {@code configClass} (loading it if necessary) while holding
+     * the lock of that instance, then queues a save of it like {@link ConfigFactory#saveInstanceAsync(Class)}
+     * does. Saves copy the values of the instance and reloads apply the values of its file holding that same
+     * lock, so they never see an update applied halfway.
+     *
+     * @param configClass the config class
+     * @param update the modifications to apply to the instance
+     * @param <T> the type of the config class
+     * @return a future that completes once the updated instance is written to the disk
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     */
+    <T> CompletableFuture<Void> updateInstance(Class<T> configClass, Consumer<? super T> update);
+
+    /**
+     * Persist (save) the instances associated with {@code configClasses} to the disk, in parallel. A config
+     * that could not be saved doesn't prevent the others from being saved, its failure is recorded in the
+     * returned report instead. Instances that were not modified since they were last loaded or saved are not
+     * written.
+     *
+     * @param configClasses the config classes
+     * @param sync if true, the written files (and the folders holding them) are synced to the disk before
+     * this method returns, so they survive a system crash or power loss
+     * @return a summary of the time taken to save each config, and of the configs that failed to be saved
+     * @throws MissingConfigAnnotationException if any class of {@code configClasses} is not annotated with
+     * {@link Configuration}
+     * @throws ConfigNotInitializedException if any class of {@code configClasses} was not initialized or
+     * registered yet
+     */
+    SaveReport saveInstances(Collection<Class<?>> configClasses, boolean sync);
+
+    /**
+     * Persist (save) all loaded instances to the disk, including the loaded keyed instances, like
+     * {@link ConfigFactory#saveInstances(Collection, boolean)} does.
+     *
+     * @param sync if true, the written files (and the folders holding them) are synced to the disk before
+     * this method returns
+     * @return a summary of the time taken to save each config, and of the configs that failed to be saved
+     */
+    SaveReport saveAll(boolean sync);
+
+    /**
+     * Checks if the instance associated with the {@code configClass} has values that differ from the ones
+     * last loaded from, or saved to, its file.
+     *
+     * @param configClass the config class
+     * @return true if saving the instance would change its file
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws ConfigNotInitializedException if {@code configClass} was not initialized or
+     * registered yet
+     */
+    boolean isDirty(Class<?> configClass);
+
+    /**
+     * Checks if the instance of {@code configClass} associated with {@code key} has values that differ
+     * from the ones last loaded from, or saved to, its file.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @return true if saving the instance would change its file
+     * @throws ConfigNotInitializedException if the instance associated with {@code key} is not loaded
+     */
+    boolean isDirty(Class<?> configClass, String key);
+
+    /**
+     * Immediately writes all queued async saves, waiting for them to be written.
+     */
+    void flushPendingSaves();
+
+    /**
+     * Writes all queued async saves and stops queueing new ones, so async saves requested afterwards are
+     * written right away, on the thread that requested them. Called by the platform when it's disabled.
+     */
+    void shutdown();
+
+    /**
+     * Evicts the instance of {@code configClass} associated with {@code key} from memory, without saving it.
+     *
+     * @param configClass the config class
+     * @param key the key of the instance
+     * @return true if there was a loaded instance associated with {@code key}
+     */
+    boolean evictInstance(Class<?> configClass, String key);
+
+    /**
+     * Reloads the instance associated with the {@code configClass} from its file, exactly like when its
+     * file is modified, including running its before and after reload methods and its reload listeners.
+     * Blocks until the instance is reloaded.
+     *
+     * @param configClass the config class
+     * @throws MissingConfigAnnotationException if {@code configClass} is not annotated with
+     * {@link Configuration}
+     * @throws ConfigNotInitializedException if {@code configClass} was not initialized or
+     * registered yet
+     */
+    void reloadInstance(Class<?> configClass);
+
+    /**
+     * Registers a listener that is notified with the instance of {@code configClass} (loading it if
+     * necessary) every time it's reloaded, after its after reload methods are started.
+     *
+     * @param configClass the config class
+     * @param listener the listener
+     * @param <T> the config class
+     */
+    <T> void addReloadListener(Class<T> configClass, Consumer<? super T> listener);
+
+    /**
+     * Unregisters a listener previously registered through {@link ConfigFactory#addReloadListener(Class, Consumer)}.
+     *
+     * @param configClass the config class
+     * @param listener the listener
+     * @param <T> the config class
+     * @return true if the listener was registered
+     */
+    <T> boolean removeReloadListener(Class<T> configClass, Consumer<? super T> listener);
+
+    /**
+     * Gets a new instance of {@code configClass} holding the current values of its singleton instance
+     * (loading it if necessary). The values themselves are not copied, but reloads replace them with new
+     * ones, so snapshots are never affected by reloads.
+     *
+     * @param configClass the config class
+     * @param <T> the config class
+     * @return a snapshot of the instance of {@code configClass}
+     */
+    <T> T getSnapshot(Class<T> configClass);
+
     /**
      * Save the default values of this config class to the disk.
      *
@@ -78,4 +280,14 @@ public interface ConfigFactory {
      * @return true if the file was saved to the disk, false if the file already existed or some exception has occurred
      */
     boolean saveDefaults(final Class<?> configClass, final boolean overrideIfExists, final boolean reloadAfterwards);
+
+    /**
+     * Evicts the instance of {@code configClass} from memory, without saving it. Its wrapper is
+     * {@link ConfigWrapper#isDiscarded() discarded}, and the next request for {@code configClass} loads a new
+     * instance from its file.
+     *
+     * @param configClass the config class
+     * @return true if there was a loaded instance of {@code configClass}
+     */
+    boolean evictInstance(Class<?> configClass);
 }
@@ -124,4 +124,16 @@ public interface ConfigWrapper<T> {
      * Used to prevent trigger of reload methods when saving the config to the disk.
      */
     void registerFileModification();
+
+    /**
+     * Returns true once this wrapper was evicted from (or replaced in) the factory that created it, which
+     * means that its instance is no longer the one returned for its config class.
+     */
+    boolean isDiscarded();
+
+    /**
+     * Gets the version of the values of the configuration instance, which changes every time they are
+     * reloaded, updated or saved, so values derived from them can be cached while it doesn't change.
+     */
+    int getVersion();
 }
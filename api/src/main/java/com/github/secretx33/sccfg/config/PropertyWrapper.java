@@ -15,9 +15,12 @@
  */
 package com.github.secretx33.sccfg.config;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Type;
+import java.util.List;
 
 /**
  * Represents a single value within a configuration instance.
@@ -73,6 +76,14 @@ public interface PropertyWrapper {
      */
     String getFullPathOnFile();
 
+    /**
+     * Return the {@link PropertyWrapper#getFullPathOnFile() full path} of this entry already split in its
+     * segments, e.g. ["general", "my-entry"].
+     *
+     * @return an unmodifiable list with each segment of the "full path" of this entry
+     */
+    List<String> getFullPathSegments();
+
     /**
      * Get the class of the field.
      *
@@ -87,6 +98,15 @@ public interface PropertyWrapper {
      */
     Type getGenericType();
 
+    /**
+     * Get the Gson type adapter for the {@link PropertyWrapper#getGenericType() type} of this entry. The
+     * adapter is resolved only once per Gson instance, and shared by every instance of the config class.
+     *
+     * @param gson the Gson instance that should resolve the type adapter
+     * @return the type adapter for the type of this entry
+     */
+    TypeAdapter<Object> getTypeAdapter(Gson gson);
+
     /**
      * Get the config class.
      *
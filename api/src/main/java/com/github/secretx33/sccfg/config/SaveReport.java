@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.config;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Summary of a batch save, holding how long each config took to be saved, and why the ones that
+ * could not be saved failed.
+ */
+public final class SaveReport {
+
+    private final List<Entry> entries;
+    private final long elapsedNanos;
+
+    public SaveReport(final List<Entry> entries, final long elapsedNanos) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(checkNotNull(entries, "entries")));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the result of each config of the batch.
+     *
+     * @return an unmodifiable list with one entry per config
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the result of the configs that could not be saved.
+     *
+     * @return the entries that have a failure
+     */
+    public List<Entry> getFailures() {
+        return entries.stream().filter(entry -> !entry.isSuccessful()).collect(Collectors.toList());
+    }
+
+    /**
+     * Evaluates if all configs of the batch were saved (or skipped because they were not modified).
+     *
+     * @return true if no config failed to be saved
+     */
+    public boolean isSuccessful() {
+        return entries.stream().allMatch(Entry::isSuccessful);
+    }
+
+    /**
+     * Gets how long the whole batch took to be saved.
+     *
+     * @param unit the unit of the returned duration
+     * @return the duration of the batch, in {@code unit}
+     */
+    public long getElapsed(final TimeUnit unit) {
+        checkNotNull(unit, "unit");
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "SaveReport{" +
+                "configs=" + entries.size() +
+                ", failures=" + getFailures().size() +
+                ", elapsedMillis=" + getElapsed(TimeUnit.MILLISECONDS) +
+                '}';
+    }
+
+    /**
+     * Result of saving a single config of the batch.
+     */
+    public static final class Entry {
+
+        private final Class<?> configClass;
+        private final Path destination;
+        private final boolean written;
+        private final long serializeNanos;
+        private final long writeNanos;
+        @Nullable
+        private final RuntimeException failure;
+
+        public Entry(final Class<?> configClass, final Path destination, final boolean written, final long serializeNanos, final long writeNanos, @Nullable final RuntimeException failure) {
+            this.configClass = checkNotNull(configClass, "configClass");
+            this.destination = checkNotNull(destination, "destination");
+            this.written = written;
+            this.serializeNanos = serializeNanos;
+            this.writeNanos = writeNanos;
+            this.failure = failure;
+        }
+
+        public Class<?> getConfigClass() {
+            return configClass;
+        }
+
+        /**
+         * Gets the file of the config.
+         *
+         * @return the path of the config file
+         */
+        public Path getDestination() {
+            return destination;
+        }
+
+        /**
+         * Evaluates if the config file was written, configs that were not modified since they were last
+         * loaded or saved are not.
+         *
+         * @return true if the config file was written
+         */
+        public boolean isWritten() {
+            return written;
+        }
+
+        /**
+         * Gets how long it took to copy the values of the config instance.
+         *
+         * @param unit the unit of the returned duration
+         * @return the duration of the serialization, in {@code unit}
+         */
+        public long getSerializeTime(final TimeUnit unit) {
+            checkNotNull(unit, "unit");
+            return unit.convert(serializeNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets how long it took to write the config file (including syncing it to the disk, if requested).
+         *
+         * @param unit the unit of the returned duration
+         * @return the duration of the write, in {@code unit}
+         */
+        public long getWriteTime(final TimeUnit unit) {
+            checkNotNull(unit, "unit");
+            return unit.convert(writeNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public boolean isSuccessful() {
+            return failure == null;
+        }
+
+        /**
+         * Gets why the config could not be saved.
+         *
+         * @return the exception that prevented the config from being saved, or null if it was saved
+         */
+        @Nullable
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "configClass=" + configClass.getName() +
+                    ", destination=" + destination +
+                    ", written=" + written +
+                    ", serializeMicros=" + TimeUnit.NANOSECONDS.toMicros(serializeNanos) +
+                    ", writeMicros=" + TimeUnit.NANOSECONDS.toMicros(writeNanos) +
+                    ", failure=" + failure +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.exception;
+
+/**
+ * Thrown when a configuration class ends up (directly or indirectly) requesting an instance of itself
+ * while it is still being loaded, for example by calling {@code Config.getConfig(SomeClass.class)} from
+ * within its own no-args constructor. That also includes configs that request each other while being loaded
+ * by different threads, which would otherwise wait for each other forever.<br><br>
+ *
+ * The fix for that is to move that call somewhere that only runs after the config is fully loaded.
+ */
+public final class ConfigCircularLoadException extends ConfigException {
+
+    public ConfigCircularLoadException(final Class<?> clazz) {
+        super("Config " + clazz.getName() + " was requested while it was still being loaded, and its loading is (directly or through other configs being loaded) waiting for that request, which means that its loading depends on itself");
+    }
+}
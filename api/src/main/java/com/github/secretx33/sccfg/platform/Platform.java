@@ -18,6 +18,8 @@ package com.github.secretx33.sccfg.platform;
 import com.github.secretx33.sccfg.config.ConfigFactory;
 import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface used to delegate all platform-specific operations to their implementation.
  */
@@ -36,4 +38,18 @@ public interface Platform {
      * @return a valid {@code GsonFactory} for this platform.
      */
     GsonFactory getGsonFactory();
+
+    /**
+     * Starts initializing all components of this platform on a background thread, so that they're
+     * ready by the time they're first needed.
+     *
+     * @return a future that completes when all components are initialized
+     */
+    CompletableFuture<Void> preload();
+
+    /**
+     * Shuts down the components of this platform that were created, writing all queued async saves. Must
+     * be called while the platform classes can still be loaded (e.g. when the plugin is being disabled).
+     */
+    void shutdown();
 }
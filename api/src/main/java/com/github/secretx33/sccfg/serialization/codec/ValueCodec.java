@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization.codec;
+
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Converts the values of config properties from what is read from config files into the values of their
+ * fields, and back.<br><br>
+ *
+ * Codecs are discovered through {@link java.util.ServiceLoader}, so implementations must have a public no args
+ * constructor, and be listed on a {@code META-INF/services/com.github.secretx33.sccfg.serialization.codec.ValueCodec}
+ * file. Each property uses the codec with the highest {@link #priority() priority} that {@link #supports(PropertyWrapper)
+ * supports} it, and properties that no codec supports use the default codec, which relies on Gson and on its
+ * registered type adapters.<br><br>
+ *
+ * Values read from config files are always one of {@code Map<String, Object>}, {@code List<Object>},
+ * {@code String}, {@code Number} or {@code Boolean}, and codecs must encode field values into these same types.
+ */
+public interface ValueCodec {
+
+    /**
+     * Checks if this codec can convert the values of {@code property}. This is called only once per property,
+     * so codecs can be picked by the config class, by the type of the property, or by anything else about it.
+     *
+     * @param property the property that needs a codec
+     * @return true if this codec should be used for {@code property}
+     */
+    boolean supports(PropertyWrapper property);
+
+    /**
+     * Converts a value read from the config file into the value of {@code property} field.
+     *
+     * @param property the property being loaded
+     * @param fileValue the value read from the config file
+     * @return the value that should be set on the field, or null if the field should be left untouched
+     * @throws IllegalArgumentException if {@code fileValue} cannot be converted to the type of the field
+     */
+    @Nullable
+    Object decode(PropertyWrapper property, Object fileValue);
+
+    /**
+     * Converts the value of {@code property} field into a value that can be written to the config file.
+     *
+     * @param property the property being saved
+     * @param value the value of the field
+     * @return the value that should be written to the config file
+     * @throws RuntimeException if {@code value} could not be converted
+     */
+    @Nullable
+    Object encode(PropertyWrapper property, @Nullable Object value);
+
+    /**
+     * Codecs with higher priority are asked first whether they support a property.
+     *
+     * @return the priority of this codec
+     */
+    default int priority() {
+        return 0;
+    }
+}
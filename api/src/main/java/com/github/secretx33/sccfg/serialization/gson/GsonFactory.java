@@ -26,4 +26,32 @@ public interface GsonFactory {
     void addTypeAdapter(Type adapterFor, Object typeAdapter);
 
     void addTypeAdapters(Map<? extends Type, Object> typeAdapters);
+
+    /**
+     * Registers {@code typeAdapter} for {@code baseType} and all of its subclasses, so runtime subclasses
+     * don't fall back to Gson reflective type adapter.
+     *
+     * @param baseType the base class of the types handled by {@code typeAdapter}
+     * @param typeAdapter a {@code JsonSerializer}, {@code JsonDeserializer} or {@code TypeAdapter}
+     */
+    void addTypeHierarchyAdapter(Class<?> baseType, Object typeAdapter);
+
+    /**
+     * Gets the version of the registered type adapters, which is incremented every time type adapters are
+     * registered, so anything derived from the {@link Gson} instance can tell when it became stale.
+     *
+     * @return the version of the registered type adapters
+     */
+    long getVersion();
+
+    /**
+     * Rejects any type adapter registered from now on, so the current {@link Gson} instance is the last one
+     * that will ever be built.
+     */
+    void freeze();
+
+    /**
+     * @return true if type adapters were frozen
+     */
+    boolean isFrozen();
 }
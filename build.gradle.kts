@@ -5,6 +5,8 @@ plugins {
     id("maven-publish")
     id("com.github.hierynomus.license") version "0.16.1"
     kotlin("jvm") version "1.5.31"
+    kotlin("plugin.serialization") version "1.5.31" apply false
+    id("me.champeau.jmh") version "0.6.6" apply false
 }
 
 allprojects {
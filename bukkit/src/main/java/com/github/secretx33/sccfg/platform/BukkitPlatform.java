@@ -16,46 +16,67 @@
 package com.github.secretx33.sccfg.platform;
 
 import com.github.secretx33.sccfg.Config;
-import com.github.secretx33.sccfg.config.ConfigFactoryImpl;
-import com.github.secretx33.sccfg.config.ConfigFactory;
+import com.github.secretx33.sccfg.executor.SyncExecutor;
 import com.github.secretx33.sccfg.executor.SyncMethodExecutor;
 import com.github.secretx33.sccfg.scanner.BaseScanner;
 import com.github.secretx33.sccfg.scanner.Scanner;
-import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
-import com.github.secretx33.sccfg.serialization.gson.GsonFactoryImpl;
-import com.github.secretx33.sccfg.storage.FileWatcher;
-import com.github.secretx33.sccfg.storage.FileWatcherProvider;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
 @SuppressWarnings("unused")
-final class BukkitPlatform implements Platform {
+final class BukkitPlatform extends AbstractPlatform {
 
-    private final GsonFactory gsonFactory;
-    private final ConfigFactory configFactory;
+    private final Plugin plugin;
 
     public BukkitPlatform() {
-        final Plugin plugin = JavaPlugin.getProvidingPlugin(Config.class);
-        final Scanner scanner = new BaseScanner(plugin);
-        final FileWatcher fileWatcher = FileWatcherProvider.get(plugin.getDataFolder().toPath());
-        this.gsonFactory = new GsonFactoryImpl(plugin.getLogger(), scanner);
-        this.configFactory = new ConfigFactoryImpl(
-                plugin.getLogger(),
-                gsonFactory,
-                plugin.getDataFolder().toPath(),
-                scanner,
-                fileWatcher,
-                new SyncMethodExecutor(plugin, plugin.getLogger())
-        );
+        this.plugin = JavaPlugin.getProvidingPlugin(Config.class);
+        registerDisableListener();
+    }
+
+    /**
+     * Shuts this platform down when the plugin is disabled, which happens before its classloader is closed,
+     * so queued saves are still written. Plugins can only register listeners while enabled, if sc-cfg is
+     * first used before that (e.g. on {@code onLoad}), the plugin must call {@link Config#shutdown()} itself.
+     */
+    private void registerDisableListener() {
+        if (!plugin.isEnabled()) {
+            plugin.getLogger().fine("sc-cfg was initialized before the plugin was enabled, so it cannot shut itself down when the plugin is disabled, call Config.shutdown() on your plugin onDisable.");
+            return;
+        }
+        plugin.getServer().getPluginManager().registerEvents(new Listener() {
+            @EventHandler(priority = EventPriority.MONITOR)
+            public void onPluginDisable(final PluginDisableEvent event) {
+                if (event.getPlugin() == plugin) {
+                    shutdown();
+                }
+            }
+        }, plugin);
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return plugin.getLogger();
+    }
+
+    @Override
+    protected Path getBasePath() {
+        return plugin.getDataFolder().toPath();
     }
 
     @Override
-    public ConfigFactory getConfigFactory() {
-        return configFactory;
+    protected Scanner createScanner() {
+        return new BaseScanner(plugin);
     }
 
     @Override
-    public GsonFactory getGsonFactory() {
-        return gsonFactory;
+    protected SyncExecutor createSyncExecutor() {
+        return new SyncMethodExecutor(plugin, plugin.getLogger());
     }
 }
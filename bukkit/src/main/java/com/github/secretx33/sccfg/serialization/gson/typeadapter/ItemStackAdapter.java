@@ -38,7 +38,7 @@ import java.lang.reflect.Type;
 import java.util.Base64;
 import java.util.Map;
 
-@RegisterTypeAdapter(ItemStack.class)
+@RegisterTypeAdapter(value = ItemStack.class, hierarchy = true)
 final class ItemStackAdapter implements JsonSerializer<ItemStack>, JsonDeserializer<ItemStack> {
 
     @Nullable
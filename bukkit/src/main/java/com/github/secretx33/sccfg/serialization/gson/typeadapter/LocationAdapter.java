@@ -30,7 +30,7 @@ import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.Type;
 import java.util.Optional;
 
-@RegisterTypeAdapter(Location.class)
+@RegisterTypeAdapter(value = Location.class, hierarchy = true)
 final class LocationAdapter implements JsonSerializer<Location>, JsonDeserializer<Location> {
 
     @Nullable
@@ -15,43 +15,28 @@
  */
 package com.github.secretx33.sccfg.platform;
 
-import com.github.secretx33.sccfg.config.ConfigFactoryImpl;
-import com.github.secretx33.sccfg.config.ConfigFactory;
 import com.github.secretx33.sccfg.exception.ConfigException;
 import com.github.secretx33.sccfg.exception.ConfigReflectiveOperationException;
+import com.github.secretx33.sccfg.executor.SyncExecutor;
 import com.github.secretx33.sccfg.executor.SyncMethodExecutor;
 import com.github.secretx33.sccfg.scanner.BaseScanner;
 import com.github.secretx33.sccfg.scanner.Scanner;
-import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
-import com.github.secretx33.sccfg.serialization.gson.GsonFactoryImpl;
-import com.github.secretx33.sccfg.storage.FileWatcher;
-import com.github.secretx33.sccfg.storage.FileWatcherProvider;
 import net.md_5.bungee.api.plugin.Plugin;
 
 import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.logging.Logger;
 
 @SuppressWarnings("unused")
-final class BungeePlatform implements Platform {
+final class BungeePlatform extends AbstractPlatform {
 
-    private final GsonFactory gsonFactory;
-    private final ConfigFactory configFactory;
+    private final Plugin plugin;
 
     public BungeePlatform() {
-        final Plugin plugin = getProvidingPlugin();
-        final Scanner scanner = new BaseScanner(plugin);
-        final FileWatcher fileWatcher = FileWatcherProvider.get(plugin.getDataFolder().toPath());
-        this.gsonFactory = new GsonFactoryImpl(plugin.getLogger(), scanner);
-        this.configFactory = new ConfigFactoryImpl(
-                plugin.getLogger(),
-                gsonFactory,
-                plugin.getDataFolder().toPath(),
-                scanner,
-                fileWatcher,
-                new SyncMethodExecutor(plugin, plugin.getLogger())
-        );
+        this.plugin = getProvidingPlugin();
     }
 
-    private Plugin getProvidingPlugin() {
+    private static Plugin getProvidingPlugin() {
         final Object pluginClassLoader = BungeePlatform.class.getClassLoader();
         final Class<?> pluginClassLoaderClass = pluginClassLoader.getClass();
         if (!pluginClassLoaderClass.getCanonicalName().equals("net.md_5.bungee.api.plugin.PluginClassloader")) {
@@ -67,12 +52,22 @@ final class BungeePlatform implements Platform {
     }
 
     @Override
-    public ConfigFactory getConfigFactory() {
-        return configFactory;
+    protected Logger getLogger() {
+        return plugin.getLogger();
     }
 
     @Override
-    public GsonFactory getGsonFactory() {
-        return gsonFactory;
+    protected Path getBasePath() {
+        return plugin.getDataFolder().toPath();
+    }
+
+    @Override
+    protected Scanner createScanner() {
+        return new BaseScanner(plugin);
+    }
+
+    @Override
+    protected SyncExecutor createSyncExecutor() {
+        return new SyncMethodExecutor(plugin, plugin.getLogger());
     }
 }
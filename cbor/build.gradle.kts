@@ -0,0 +1,8 @@
+dependencies {
+    compileOnly(project(":sccfg-common"))
+    compileOnly("com.google.code.gson:gson:2.8.8")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor:2.13.0") {
+        // only the streaming API is used
+        exclude(group = "com.fasterxml.jackson.core", module = "jackson-databind")
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Adapts a Jackson CBOR {@link JsonParser} to the Gson {@link JsonReader} API, so Gson type adapters can
+ * read values straight from CBOR files.<br><br>
+ *
+ * Gson map adapters read keys by "promoting" the next name to a string value, which is done by changing
+ * the private peek state of the {@link JsonReader}, so this reader mirrors names on that state to tell
+ * whether a name was promoted.
+ */
+final class CborReader extends JsonReader {
+
+    // values of JsonReader#peeked
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_DOUBLE_QUOTED = 9;
+    private static final int PEEKED_DOUBLE_QUOTED_NAME = 13;
+
+    private static final MethodHandle GET_PEEKED;
+    private static final MethodHandle SET_PEEKED;
+
+    static {
+        try {
+            final Field field = JsonReader.class.getDeclaredField("peeked");
+            field.setAccessible(true);
+            GET_PEEKED = MethodHandles.lookup().unreflectGetter(field);
+            SET_PEEKED = MethodHandles.lookup().unreflectSetter(field);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final Reader UNREADABLE_READER = new Reader() {
+        @Override
+        public int read(final char[] buffer, final int offset, final int count) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private final JsonParser parser;
+    private boolean peeked;
+
+    CborReader(final JsonParser parser) {
+        super(UNREADABLE_READER);
+        this.parser = checkNotNull(parser, "parser");
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if (!peeked) {
+            if (parser.nextToken() == com.fasterxml.jackson.core.JsonToken.FIELD_NAME) {
+                setGsonPeeked(PEEKED_DOUBLE_QUOTED_NAME);
+            }
+            peeked = true;
+        }
+        final com.fasterxml.jackson.core.JsonToken token = parser.currentToken();
+        if (token == null) return JsonToken.END_DOCUMENT;
+        if (token == com.fasterxml.jackson.core.JsonToken.FIELD_NAME && getGsonPeeked() == PEEKED_DOUBLE_QUOTED) {
+            // name was promoted to a value
+            return JsonToken.STRING;
+        }
+
+        switch (token) {
+            case START_OBJECT: return JsonToken.BEGIN_OBJECT;
+            case END_OBJECT: return JsonToken.END_OBJECT;
+            case START_ARRAY: return JsonToken.BEGIN_ARRAY;
+            case END_ARRAY: return JsonToken.END_ARRAY;
+            case FIELD_NAME: return JsonToken.NAME;
+            case VALUE_STRING:
+            case VALUE_EMBEDDED_OBJECT: return JsonToken.STRING;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT: return JsonToken.NUMBER;
+            case VALUE_TRUE:
+            case VALUE_FALSE: return JsonToken.BOOLEAN;
+            case VALUE_NULL: return JsonToken.NULL;
+            default: throw new MalformedJsonException("Unexpected token " + token + " at path " + getPath());
+        }
+    }
+
+    private void consume(final JsonToken expected) throws IOException {
+        final JsonToken token = peek();
+        if (token != expected) {
+            throw new IllegalStateException("Expected " + expected + " but was " + token + " at path " + getPath());
+        }
+        advance();
+    }
+
+    private void advance() {
+        if (parser.currentToken() == com.fasterxml.jackson.core.JsonToken.FIELD_NAME) {
+            setGsonPeeked(PEEKED_NONE);
+        }
+        peeked = false;
+    }
+
+    private int getGsonPeeked() {
+        try {
+            return (int) GET_PEEKED.invokeExact((JsonReader) this);
+        } catch (final Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private void setGsonPeeked(final int value) {
+        try {
+            SET_PEEKED.invokeExact((JsonReader) this, value);
+        } catch (final Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        consume(JsonToken.BEGIN_ARRAY);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        consume(JsonToken.END_ARRAY);
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        consume(JsonToken.BEGIN_OBJECT);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        consume(JsonToken.END_OBJECT);
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        final JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        final String name = parser.currentName();
+        consume(JsonToken.NAME);
+        return name;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        final JsonToken token = peek();
+        if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected " + JsonToken.STRING + " but was " + token + " at path " + getPath());
+        }
+        final String value = parser.getText();
+        advance();
+        return value;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        final boolean value = peek() == JsonToken.BOOLEAN && parser.getBooleanValue();
+        consume(JsonToken.BOOLEAN);
+        return value;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        consume(JsonToken.NULL);
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        final JsonToken token = peek();
+        final double value;
+        if (token == JsonToken.NUMBER) {
+            value = parser.getDoubleValue();
+        } else if (token == JsonToken.STRING) {
+            value = Double.parseDouble(parser.getText());
+        } else {
+            throw new IllegalStateException("Expected " + JsonToken.NUMBER + " but was " + token + " at path " + getPath());
+        }
+        advance();
+        return value;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        final JsonToken token = peek();
+        final long value;
+        if (parser.currentToken() == com.fasterxml.jackson.core.JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+            value = parser.getLongValue();
+        } else if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            value = parseLong(parser.getText());
+        } else {
+            throw new IllegalStateException("Expected " + JsonToken.NUMBER + " but was " + token + " at path " + getPath());
+        }
+        advance();
+        return value;
+    }
+
+    private long parseLong(final String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (final NumberFormatException e) {
+            final double asDouble = Double.parseDouble(text);
+            final long asLong = (long) asDouble;
+            if (asLong != asDouble) {
+                throw new NumberFormatException("Expected a long but was " + text + " at path " + getPath());
+            }
+            return asLong;
+        }
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        final long value = nextLong();
+        if ((int) value != value) {
+            throw new NumberFormatException("Expected an int but was " + value + " at path " + getPath());
+        }
+        return (int) value;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        final JsonToken token = peek();
+        advance();
+        if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+            parser.skipChildren();
+        }
+    }
+
+    @Override
+    public String getPath() {
+        final StringBuilder path = new StringBuilder();
+        appendPath(path, parser.getParsingContext());
+        return path.toString();
+    }
+
+    private static void appendPath(final StringBuilder path, final JsonStreamContext context) {
+        if (context == null || context.inRoot()) {
+            path.append('$');
+            return;
+        }
+        appendPath(path, context.getParent());
+        if (context.inArray()) {
+            path.append('[').append(Math.max(context.getCurrentIndex(), 0)).append(']');
+        } else if (context.getCurrentName() != null) {
+            path.append('.').append(context.getCurrentName());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        peeked = false;
+        parser.close();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " at path " + getPath();
+    }
+}
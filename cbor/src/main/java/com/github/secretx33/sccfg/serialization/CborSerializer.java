@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Logger;
+
+@SuppressWarnings("unused")
+public final class CborSerializer extends AbstractStreamingSerializer {
+
+    private final CBORFactory factory = new CBORFactory();
+
+    public CborSerializer(final Logger logger, final GsonFactory gsonFactory) {
+        super(logger, gsonFactory);
+    }
+
+    @Override
+    JsonReader newReader(final InputStream input) throws IOException {
+        return new CborReader(factory.createParser(input));
+    }
+
+    @Override
+    JsonWriter newWriter(final OutputStream output) throws IOException {
+        return new CborWriter(factory.createGenerator(output));
+    }
+}
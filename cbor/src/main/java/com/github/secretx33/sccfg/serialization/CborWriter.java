@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Adapts a Jackson CBOR {@link JsonGenerator} to the Gson {@link JsonWriter} API, so Gson type adapters can
+ * write values straight into CBOR files.
+ */
+final class CborWriter extends JsonWriter {
+
+    private static final Writer UNWRITABLE_WRITER = new Writer() {
+        @Override
+        public void write(final char[] buffer, final int offset, final int counter) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void flush() {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private final JsonGenerator generator;
+    @Nullable
+    private String pendingName;
+
+    CborWriter(final JsonGenerator generator) {
+        super(UNWRITABLE_WRITER);
+        this.generator = checkNotNull(generator, "generator");
+    }
+
+    /**
+     * Names are only written along with their value, so entries with null values can be left out.
+     */
+    private void writePendingName() throws IOException {
+        if (pendingName != null) {
+            generator.writeFieldName(pendingName);
+            pendingName = null;
+        }
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        writePendingName();
+        generator.writeStartArray();
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        generator.writeEndArray();
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        writePendingName();
+        generator.writeStartObject();
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        if (pendingName != null) {
+            throw new IllegalStateException("Name '" + pendingName + "' has no value");
+        }
+        generator.writeEndObject();
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(final String name) throws IOException {
+        checkNotNull(name, "name");
+        if (pendingName != null || !generator.getOutputContext().inObject()) {
+            throw new IllegalStateException("Name '" + name + "' is not expected here");
+        }
+        pendingName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(@Nullable final String value) throws IOException {
+        if (value == null) return nullValue();
+        writePendingName();
+        generator.writeString(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(@Nullable final String value) {
+        throw new UnsupportedOperationException("Raw JSON values cannot be written to CBOR files");
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        if (pendingName != null && !getSerializeNulls()) {
+            pendingName = null;
+            return this;
+        }
+        writePendingName();
+        generator.writeNull();
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(final boolean value) throws IOException {
+        writePendingName();
+        generator.writeBoolean(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(@Nullable final Boolean value) throws IOException {
+        if (value == null) return nullValue();
+        return value((boolean) value);
+    }
+
+    @Override
+    public JsonWriter value(final double value) throws IOException {
+        if (!isLenient() && (Double.isNaN(value) || Double.isInfinite(value))) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        writePendingName();
+        generator.writeNumber(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(final long value) throws IOException {
+        writePendingName();
+        generator.writeNumber(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(@Nullable final Number value) throws IOException {
+        if (value == null) return nullValue();
+
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(value.longValue());
+        }
+        if (value instanceof Float) {
+            writePendingName();
+            generator.writeNumber(value.floatValue());
+            return this;
+        }
+        if (value instanceof Double) {
+            return value(value.doubleValue());
+        }
+        writePendingName();
+        if (value instanceof BigInteger) {
+            generator.writeNumber((BigInteger) value);
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else {
+            // lazily parsed numbers, atomic numbers and so on
+            final String text = value.toString();
+            try {
+                generator.writeNumber(Long.parseLong(text));
+            } catch (final NumberFormatException e) {
+                generator.writeNumber(new BigDecimal(text));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
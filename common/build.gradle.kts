@@ -1,3 +1,7 @@
+plugins {
+    id("me.champeau.jmh")
+}
+
 dependencies {
     api(project(":sccfg-api"))
     api("org.spongepowered:configurate-core:4.1.2")
@@ -6,7 +10,16 @@ dependencies {
     compileOnly("com.google.guava:guava:31.0.1-jre")
     testImplementation("com.google.code.gson:gson:2.8.8")
     testImplementation("com.google.guava:guava:31.0.1-jre")
+    testImplementation(project(":sccfg-cbor"))
     testImplementation(project(":sccfg-hocon"))
     testImplementation(project(":sccfg-json"))
     testImplementation(project(":sccfg-yaml"))
+    jmh(project(":sccfg-cbor"))
+    jmh(project(":sccfg-json"))
+    jmh("com.google.code.gson:gson:2.8.8")
+}
+
+jmh {
+    jmhVersion.set("1.33")
+    profilers.add("gc")
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.benchmark;
+
+import com.github.secretx33.sccfg.Config;
+import com.github.secretx33.sccfg.api.FileType;
+import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.config.ConfigFactory;
+import com.github.secretx33.sccfg.platform.StandalonePlatform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of getting an already loaded config instance. Run it with the {@code gc} profiler
+ * ({@code -prof gc}) to check that {@link Config#getConfig(Class)} stays allocation free, that is,
+ * {@code gc.alloc.rate.norm} should be {@code ≈ 0 B/op}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetConfigBenchmark {
+
+    private ConfigFactory configFactory;
+
+    @Setup
+    public void setup() {
+        Config.getConfig(BenchmarkConfig.class);
+        configFactory = new StandalonePlatform().getConfigFactory();
+        configFactory.getWrapper(BenchmarkConfig.class);
+    }
+
+    @Benchmark
+    public BenchmarkConfig getConfig() {
+        return Config.getConfig(BenchmarkConfig.class);
+    }
+
+    /**
+     * Lookup through the config factory registry, which is what {@link Config#getConfig(Class)} did for
+     * every call before caching config instances per class.
+     */
+    @Benchmark
+    public BenchmarkConfig getWrapperInstance() {
+        return configFactory.getWrapper(BenchmarkConfig.class).getInstance();
+    }
+
+    @Configuration(type = FileType.JSON)
+    public static class BenchmarkConfig {
+        public int someInt = 10;
+        public String someString = "value";
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.benchmark;
+
+import com.github.secretx33.sccfg.api.FileType;
+import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.config.ConfigFactory;
+import com.github.secretx33.sccfg.config.ConfigWrapper;
+import com.github.secretx33.sccfg.platform.StandalonePlatform;
+import com.github.secretx33.sccfg.serialization.Serializer;
+import com.github.secretx33.sccfg.serialization.SerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Compares loading and saving a machine generated config with 100k entries on each file type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LargeConfigBenchmark {
+
+    private static final int ENTRIES = 100_000;
+
+    @Param({"JSON", "CBOR"})
+    public FileType fileType;
+
+    private Serializer serializer;
+    private ConfigWrapper<?> wrapper;
+
+    @Setup
+    public void setup() {
+        final StandalonePlatform platform = new StandalonePlatform();
+        final ConfigFactory configFactory = platform.getConfigFactory();
+        final Class<? extends LootTable> configClass = fileType == FileType.JSON ? JsonLootTable.class : CborLootTable.class;
+
+        wrapper = configFactory.getWrapper(configClass);
+        final Map<String, Drop> drops = new HashMap<>(ENTRIES * 2);
+        for (int i = 0; i < ENTRIES; i++) {
+            drops.put("drop-" + i, new Drop("item_" + (i % 500), (i % 1000) / 1000.0, i % 3, 1 + i % 5));
+        }
+        ((LootTable) wrapper.getInstance()).drops = drops;
+        configFactory.saveInstance(configClass);
+        serializer = new SerializerFactory(Logger.getLogger("sc-cfg"), platform.getGsonFactory()).getSerializer(fileType);
+    }
+
+    @Benchmark
+    public Object load() {
+        return serializer.loadConfig(wrapper);
+    }
+
+    @Benchmark
+    public void save() {
+        serializer.saveConfig(wrapper);
+    }
+
+    public static class LootTable {
+        public Map<String, Drop> drops = new HashMap<>();
+    }
+
+    @Configuration(value = "loot", type = FileType.JSON)
+    public static class JsonLootTable extends LootTable {
+    }
+
+    @Configuration(value = "loot", type = FileType.CBOR)
+    public static class CborLootTable extends LootTable {
+    }
+
+    public static class Drop {
+        public String item;
+        public double chance;
+        public int min;
+        public int max;
+
+        public Drop() {
+        }
+
+        public Drop(final String item, final double chance, final int min, final int max) {
+            this.item = item;
+            this.chance = chance;
+            this.min = min;
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.benchmark;
+
+import com.github.secretx33.sccfg.api.FileType;
+import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.config.ConfigWrapper;
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import com.github.secretx33.sccfg.platform.StandalonePlatform;
+import com.github.secretx33.sccfg.serialization.codec.GsonValueCodec;
+import com.github.secretx33.sccfg.serialization.codec.ValueCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares value codecs converting the same property, a map with 1k entries, from and to its file value.
+ * New codecs can be measured against the default Gson based one by adding them to {@link #codec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueCodecBenchmark {
+
+    private static final int ENTRIES = 1_000;
+
+    @Param({"gson", "handwritten"})
+    public String codec;
+
+    private ValueCodec valueCodec;
+    private PropertyWrapper property;
+    private Object fileValue;
+
+    @Setup
+    public void setup() {
+        final StandalonePlatform platform = new StandalonePlatform();
+        final ConfigWrapper<DropTable> wrapper = platform.getConfigFactory().getWrapper(DropTable.class);
+        for (int i = 0; i < ENTRIES; i++) {
+            wrapper.getInstance().drops.put("drop-" + i, new Drop("item_" + (i % 500), (i % 1000) / 1000.0, i % 3, 1 + i % 5));
+        }
+        property = wrapper.getProperties().iterator().next();
+        valueCodec = "gson".equals(codec) ? new GsonValueCodec(platform.getGsonFactory()) : new DropsCodec();
+        fileValue = valueCodec.encode(property, property.get());
+    }
+
+    @Benchmark
+    public Object decode() {
+        return valueCodec.decode(property, fileValue);
+    }
+
+    @Benchmark
+    public Object encode() {
+        return valueCodec.encode(property, property.get());
+    }
+
+    @Configuration(value = "drop-table", type = FileType.JSON)
+    public static class DropTable {
+        public Map<String, Drop> drops = new HashMap<>();
+    }
+
+    public static class Drop {
+        public String item;
+        public double chance;
+        public int min;
+        public int max;
+
+        public Drop() {
+        }
+
+        public Drop(final String item, final double chance, final int min, final int max) {
+            this.item = item;
+            this.chance = chance;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    /**
+     * Converts the drops of {@link DropTable} field by field, without any reflection.
+     */
+    public static final class DropsCodec implements ValueCodec {
+
+        @Override
+        public boolean supports(final PropertyWrapper property) {
+            return property.getOwnerClass() == DropTable.class;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object decode(final PropertyWrapper property, final Object fileValue) {
+            final Map<String, Map<String, Object>> values = (Map<String, Map<String, Object>>) fileValue;
+            final Map<String, Drop> drops = new HashMap<>(values.size() * 2);
+            values.forEach((name, drop) -> drops.put(name, new Drop(
+                    (String) drop.get("item"),
+                    ((Number) drop.get("chance")).doubleValue(),
+                    ((Number) drop.get("min")).intValue(),
+                    ((Number) drop.get("max")).intValue())));
+            return drops;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object encode(final PropertyWrapper property, final Object value) {
+            final Map<String, Object> values = new LinkedHashMap<>();
+            ((Map<String, Drop>) value).forEach((name, drop) -> {
+                final Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("item", drop.item);
+                fields.put("chance", drop.chance);
+                fields.put("min", drop.min);
+                fields.put("max", drop.max);
+                values.put(name, fields);
+            });
+            return values;
+        }
+    }
+}
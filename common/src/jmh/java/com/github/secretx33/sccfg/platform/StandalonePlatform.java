@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.platform;
+
+import com.github.secretx33.sccfg.config.MethodWrapper;
+import com.github.secretx33.sccfg.exception.ConfigException;
+import com.github.secretx33.sccfg.executor.SyncExecutor;
+import com.github.secretx33.sccfg.scanner.BaseScanner;
+import com.github.secretx33.sccfg.scanner.Scanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+/**
+ * Minimal platform used by the benchmarks, storing all config files inside a temporary folder and running
+ * "sync" methods on the calling thread.
+ */
+@SuppressWarnings("unused")
+public final class StandalonePlatform extends AbstractPlatform {
+
+    private final Logger logger = Logger.getLogger("sc-cfg");
+    private final Path basePath;
+
+    public StandalonePlatform() {
+        try {
+            this.basePath = Files.createTempDirectory("sccfg-benchmark");
+        } catch (final IOException e) {
+            throw new ConfigException(e);
+        }
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return logger;
+    }
+
+    @Override
+    protected Path getBasePath() {
+        return basePath;
+    }
+
+    @Override
+    protected Scanner createScanner() {
+        return new BaseScanner("com.github.secretx33.sccfg.benchmark", Collections.emptySet());
+    }
+
+    @Override
+    protected SyncExecutor createSyncExecutor() {
+        return new SyncExecutor() {
+            @Override
+            public void runMethodsSync(final Object instance, final Set<MethodWrapper> tasks) {
+                tasks.forEach(task -> invoke(instance, task));
+            }
+
+            @Override
+            public void runMethodsSyncWithLatch(final Object instance, final Set<MethodWrapper> tasks, final CountDownLatch latch) {
+                tasks.forEach(task -> {
+                    try {
+                        invoke(instance, task);
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+        };
+    }
+
+    private static void invoke(final Object instance, final MethodWrapper wrapper) {
+        try {
+            wrapper.getMethod().invoke(instance);
+        } catch (final ReflectiveOperationException e) {
+            throw new ConfigException(e);
+        }
+    }
+}
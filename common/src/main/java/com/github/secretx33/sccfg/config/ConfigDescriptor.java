@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.config;
+
+import com.github.secretx33.sccfg.api.FileType;
+import com.github.secretx33.sccfg.api.Naming;
+import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.api.annotation.Keyed;
+import com.github.secretx33.sccfg.serialization.PathTrie;
+import com.github.secretx33.sccfg.util.Lazy;
+import com.github.secretx33.sccfg.util.Sets;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkArgument;
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotBlank;
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+import static com.github.secretx33.sccfg.util.Preconditions.notContainsNull;
+
+/**
+ * Immutable description of a configuration class: everything about it that doesn't depend on a config
+ * instance (annotation, header, property descriptors, comments and reload hooks). It's created once per
+ * config class and shared by all {@link ConfigWrapperImpl} of that class, so each additional instance of
+ * a config class only costs its field values.
+ */
+public final class ConfigDescriptor {
+
+    private final Class<?> configClass;
+    private final Configuration configAnnotation;
+    @Nullable
+    private final String header;
+    private final String configPath;
+    private final String keyedPathTemplate;
+    private final int maxResidentKeys;
+    private final Set<PropertyDescriptor> properties;
+    private final Lazy<PathTrie<PropertyDescriptor>> propertyPaths;
+    private final Set<DirectoryDescriptor> directories;
+    private final Map<String, String[]> comments;
+    private final Set<MethodWrapper> runBeforeReloadMethods;
+    private final Set<MethodWrapper> runBeforeReloadAsyncMethods;
+    private final Set<MethodWrapper> runBeforeReloadSyncMethods;
+    private final Set<MethodWrapper> runAfterReloadMethods;
+    private final Set<MethodWrapper> runAfterReloadAsyncMethods;
+    private final Set<MethodWrapper> runAfterReloadSyncMethods;
+
+    public ConfigDescriptor(
+            final Class<?> configClass,
+            final Configuration configAnnotation,
+            final String configPath,
+            final String keyedPathTemplate,
+            final int maxResidentKeys,
+            final Set<PropertyDescriptor> properties,
+            final Set<DirectoryDescriptor> directories,
+            final Set<MethodWrapper> runBeforeReload,
+            final Set<MethodWrapper> runAfterReload
+    ) {
+        this.configClass = checkNotNull(configClass, "configClass");
+        this.configAnnotation = checkNotNull(configAnnotation, "configAnnotation");
+        this.header = notContainsNull(configAnnotation.header(), "header").length > 0 ? String.join("\n", configAnnotation.header()) : null;
+        this.configPath = checkNotBlank(configPath, "configPath");
+        this.keyedPathTemplate = checkNotBlank(keyedPathTemplate, "keyedPathTemplate");
+        checkArgument(keyedPathTemplate.contains(Keyed.KEY_PLACEHOLDER), () -> "keyed path template of config class " + configClass.getName() + " must contain the placeholder " + Keyed.KEY_PLACEHOLDER + ", but it was '" + keyedPathTemplate + "'");
+        this.maxResidentKeys = maxResidentKeys;
+        this.properties = notContainsNull(properties, "properties");
+        this.propertyPaths = Lazy.of(() -> PathTrie.ofDescriptors(configClass, properties));
+        this.directories = notContainsNull(directories, "directories");
+        this.comments = mapComments(properties);
+        this.runBeforeReloadMethods = notContainsNull(runBeforeReload, "runBeforeReload");
+        this.runBeforeReloadAsyncMethods = Sets.filter(runBeforeReload, MethodWrapper::isAsync);
+        this.runBeforeReloadSyncMethods = Sets.filter(runBeforeReload, MethodWrapper::isSync);
+        this.runAfterReloadMethods = notContainsNull(runAfterReload, "runAfterReload");
+        this.runAfterReloadAsyncMethods = Sets.filter(runAfterReload, MethodWrapper::isAsync);
+        this.runAfterReloadSyncMethods = Sets.filter(runAfterReload, MethodWrapper::isSync);
+    }
+
+    private static Map<String, String[]> mapComments(final Set<PropertyDescriptor> properties) {
+        final Map<String, String[]> comments = new LinkedHashMap<>();
+        for (final PropertyDescriptor property : properties) {
+            final String[] commentLines = property.getCommentLines();
+            if (commentLines == null || commentLines.length == 0) continue;
+            comments.put(property.getFullPathOnFile(), commentLines);
+        }
+        return comments.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(comments);
+    }
+
+    public Class<?> getConfigClass() {
+        return configClass;
+    }
+
+    public Configuration getConfigAnnotation() {
+        return configAnnotation;
+    }
+
+    @Nullable
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the path of the config file, relative to the base path of the platform.
+     */
+    public String getConfigPath() {
+        return configPath;
+    }
+
+    /**
+     * Returns the path of the config file of the instance associated with {@code key}, relative to the base
+     * path of the platform.
+     *
+     * @param key an already validated key
+     * @return the relative path of the keyed config file
+     */
+    public String getKeyedConfigPath(final String key) {
+        return keyedPathTemplate.replace(Keyed.KEY_PLACEHOLDER, key);
+    }
+
+    /**
+     * Returns the max amount of keyed instances of this class that should be kept in memory, zero or less
+     * means no limit.
+     */
+    public int getMaxResidentKeys() {
+        return maxResidentKeys;
+    }
+
+    public FileType getFileType() {
+        return configAnnotation.type();
+    }
+
+    public Naming getNameStrategy() {
+        return configAnnotation.naming();
+    }
+
+    public Set<PropertyDescriptor> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns the tree with the paths on the file of the properties of this class, built on first need.
+     */
+    public PathTrie<PropertyDescriptor> getPropertyPaths() {
+        return propertyPaths.get();
+    }
+
+    /**
+     * Returns the fields of this class which are bound to a folder of config files.
+     */
+    public Set<DirectoryDescriptor> getDirectories() {
+        return directories;
+    }
+
+    public Map<String, String[]> getComments() {
+        return comments;
+    }
+
+    public Set<MethodWrapper> getRunBeforeReloadMethods() {
+        return runBeforeReloadMethods;
+    }
+
+    public Set<MethodWrapper> getRunBeforeReloadAsyncMethods() {
+        return runBeforeReloadAsyncMethods;
+    }
+
+    public Set<MethodWrapper> getRunBeforeReloadSyncMethods() {
+        return runBeforeReloadSyncMethods;
+    }
+
+    public Set<MethodWrapper> getRunAfterReloadMethods() {
+        return runAfterReloadMethods;
+    }
+
+    public Set<MethodWrapper> getRunAfterReloadAsyncMethods() {
+        return runAfterReloadAsyncMethods;
+    }
+
+    public Set<MethodWrapper> getRunAfterReloadSyncMethods() {
+        return runAfterReloadSyncMethods;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigDescriptor{" +
+                "configClass=" + configClass +
+                ", configAnnotation=" + configAnnotation +
+                ", properties=" + properties +
+                ", runBeforeReloadMethods=" + runBeforeReloadMethods +
+                ", runAfterReloadMethods=" + runAfterReloadMethods +
+                '}';
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.config;
+
+import com.github.secretx33.sccfg.exception.ConfigException;
+import com.github.secretx33.sccfg.exception.ConfigReflectiveOperationException;
+import com.github.secretx33.sccfg.executor.AsyncExecutor;
+import com.github.secretx33.sccfg.storage.FileModificationType;
+import com.github.secretx33.sccfg.storage.FileWatcher;
+import com.github.secretx33.sccfg.storage.FileWatcherEvent;
+import com.github.secretx33.sccfg.storage.FileWatcherEventConsumer;
+import com.github.secretx33.sccfg.util.Sets;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Keeps the map of a {@link DirectoryDescriptor directory field} in sync with the files inside its folder.
+ * Each file is loaded as a config instance of its own, which is hot reloaded independently, so this binding
+ * only has to add entries for new files and remove the entries of deleted files.
+ */
+final class ConfigDirectoryBinding {
+
+    private final DirectoryDescriptor descriptor;
+    private final Path directory;
+    private final Path absoluteDirectory;
+    private final Function<Path, ConfigWrapperImpl<?>> entryLoader;
+    private final AsyncExecutor asyncExecutor;
+    private final Logger logger;
+    private final FileWatcher.WatchedLocation watchedLocation;
+    private final Map<String, Object> entries = new ConcurrentHashMap<>();
+    private final Map<String, ConfigWrapperImpl<?>> wrappers = new ConcurrentHashMap<>();
+    private final List<FileWatcherEventConsumer> listeners = new ArrayList<>();
+
+    /**
+     * @param descriptor the directory field descriptor
+     * @param basePath the base path of the platform
+     * @param fileWatcher the file watcher of the platform
+     * @param entryLoader creates, wraps and loads a config instance from the file at the given path (relative to
+     * {@code basePath})
+     * @param asyncExecutor executor used to process file events
+     * @param logger the logger
+     */
+    ConfigDirectoryBinding(
+            final DirectoryDescriptor descriptor,
+            final Path basePath,
+            final FileWatcher fileWatcher,
+            final Function<Path, ConfigWrapperImpl<?>> entryLoader,
+            final AsyncExecutor asyncExecutor,
+            final Logger logger
+    ) {
+        this.descriptor = checkNotNull(descriptor, "descriptor");
+        this.directory = checkNotNull(basePath, "basePath").getFileSystem().getPath(descriptor.getPath());
+        this.absoluteDirectory = basePath.resolve(directory).toAbsolutePath().normalize();
+        this.entryLoader = checkNotNull(entryLoader, "entryLoader");
+        this.asyncExecutor = checkNotNull(asyncExecutor, "asyncExecutor");
+        this.logger = checkNotNull(logger, "logger");
+        this.watchedLocation = checkNotNull(fileWatcher, "fileWatcher").getWatcher(directory);
+    }
+
+    /**
+     * Loads all files currently present in the folder, sets the map on the field of {@code instance}, and starts
+     * listening for files being created or deleted.
+     *
+     * @param instance the config instance that owns the directory field
+     */
+    synchronized void bind(final Object instance) {
+        checkNotNull(instance, "instance");
+        try {
+            Files.createDirectories(absoluteDirectory);
+            try (final DirectoryStream<Path> files = Files.newDirectoryStream(absoluteDirectory)) {
+                for (final Path file : files) {
+                    if (Files.isRegularFile(file)) loadEntry(file);
+                }
+            }
+        } catch (final IOException e) {
+            throw new ConfigException("Could not read files of folder '" + absoluteDirectory + "'", e);
+        }
+        try {
+            descriptor.getField().set(instance, entries);
+        } catch (final IllegalAccessException e) {
+            // this should never be thrown
+            throw new ConfigReflectiveOperationException(e);
+        }
+        // separated listeners, so a deletion right after a modification is not discarded as a duplicated event
+        listeners.add(watchedLocation.addListener(Sets.of(FileModificationType.CREATE), this::onFileEvent));
+        listeners.add(watchedLocation.addListener(Sets.of(FileModificationType.DELETE), this::onFileEvent));
+    }
+
+    /**
+     * Stops keeping the map in sync with the folder.
+     */
+    synchronized void unbind() {
+        listeners.forEach(watchedLocation::removeListener);
+        listeners.clear();
+        wrappers.values().forEach(ConfigWrapperImpl::discard);
+    }
+
+    private void onFileEvent(final FileWatcherEvent event) {
+        final Path file = event.getFile().toAbsolutePath().normalize();
+        if (!absoluteDirectory.equals(file.getParent()) || getKey(file) == null) return;
+        // wait a bit, since files are usually created or deleted in many steps (and events)
+        asyncExecutor.delayedRun(200L, () -> syncEntry(file));
+    }
+
+    private synchronized void syncEntry(final Path file) {
+        if (listeners.isEmpty()) return;
+        try {
+            final String key = getKey(file);
+            if (key == null) return;
+            final boolean exists = Files.isRegularFile(file);
+            // modifications of existing files are handled by the entry wrapper itself
+            if (exists && !entries.containsKey(key)) {
+                loadEntry(file);
+            } else if (!exists && entries.containsKey(key)) {
+                entries.remove(key);
+                final ConfigWrapperImpl<?> wrapper = wrappers.remove(key);
+                if (wrapper != null) wrapper.discard();
+            }
+        } catch (final RuntimeException e) {
+            logger.log(Level.SEVERE, "An error has occurred while loading file '" + file + "' of folder '" + descriptor.getPath() + "' into field '" + descriptor.getField().getName() + "'", e);
+        }
+    }
+
+    private void loadEntry(final Path file) {
+        final String key = getKey(file);
+        if (key == null) return;
+        final ConfigWrapperImpl<?> wrapper = entryLoader.apply(directory.resolve(file.getFileName().toString()));
+        wrappers.put(key, wrapper);
+        entries.put(key, wrapper.getInstance());
+    }
+
+    /**
+     * Returns the key of the entry of that file, or {@code null} if the file is not an entry of this folder
+     * (hidden files, and files with a different extension).
+     */
+    @Nullable
+    private String getKey(final Path file) {
+        final String fileName = file.getFileName().toString();
+        final String extension = descriptor.getExtension();
+        if (fileName.startsWith(".") || fileName.length() <= extension.length()
+                || !fileName.toLowerCase(Locale.US).endsWith(extension)) {
+            return null;
+        }
+        return fileName.substring(0, fileName.length() - extension.length());
+    }
+}
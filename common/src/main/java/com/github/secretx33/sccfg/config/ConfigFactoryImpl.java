@@ -17,12 +17,18 @@ package com.github.secretx33.sccfg.config;
 
 import com.github.secretx33.sccfg.api.Naming;
 import com.github.secretx33.sccfg.api.annotation.Comment;
+import com.github.secretx33.sccfg.api.annotation.ConfigDirectory;
 import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.api.annotation.Keyed;
 import com.github.secretx33.sccfg.api.annotation.Name;
 import com.github.secretx33.sccfg.api.annotation.NamedPath;
+import com.github.secretx33.sccfg.scanner.ConfigClassMetadata;
+import com.github.secretx33.sccfg.scanner.ConfigClassMetadata.FieldMetadata;
+import com.github.secretx33.sccfg.exception.ConfigCircularLoadException;
 import com.github.secretx33.sccfg.exception.ConfigException;
 import com.github.secretx33.sccfg.exception.ConfigInstanceOverrideException;
 import com.github.secretx33.sccfg.exception.ConfigNotInitializedException;
+import com.github.secretx33.sccfg.exception.ConfigReflectiveOperationException;
 import com.github.secretx33.sccfg.exception.MissingConfigAnnotationException;
 import com.github.secretx33.sccfg.exception.MissingNoArgsConstructorException;
 import com.github.secretx33.sccfg.executor.AsyncExecutor;
@@ -42,20 +48,44 @@ import com.github.secretx33.sccfg.util.Sets;
 import com.github.secretx33.sccfg.util.Valid;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.github.secretx33.sccfg.util.Preconditions.checkArgument;
@@ -65,7 +95,45 @@ import static com.github.secretx33.sccfg.util.Preconditions.notContainsNull;
 
 public final class ConfigFactoryImpl implements ConfigFactory {
 
-    private final Map<Class<?>, ConfigWrapper<?>> instances = new ConcurrentHashMap<>();
+    /**
+     * Max amount of configs that can be loaded in parallel by {@link ConfigFactoryImpl#registerInstances(Object...)}.
+     */
+    private static final int MAX_PARALLEL_LOADS = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+    /**
+     * Max amount of configs that can be saved in parallel by {@link ConfigFactoryImpl#saveAll(boolean)} and
+     * {@link ConfigFactoryImpl#saveInstances(Collection, boolean)}.
+     */
+    private static final int MAX_PARALLEL_SAVES = MAX_PARALLEL_LOADS;
+
+    /**
+     * Keys of keyed instances can only contain letters, digits, dots, hyphens and underscores (and cannot
+     * start with a dot), so they can't be used to escape the folder of the keyed config files.
+     */
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9_.-]*");
+
+    /**
+     * How long a thread waiting for a config being loaded by another thread waits before checking again if
+     * that load ended up waiting (directly or through other loads) for the waiting thread.
+     */
+    private static final long CIRCULAR_LOAD_CHECK_INTERVAL_MILLIS = 50L;
+
+    // loading happens outside the map, the map only holds the (maybe still in-flight) future of each config
+    private final Map<Class<?>, CompletableFuture<ConfigWrapperImpl<?>>> instances = new ConcurrentHashMap<>();
+    private final Map<Class<?>, KeyedInstances> keyedInstances = new ConcurrentHashMap<>();
+    // configs being loaded (their classes, or class and key for keyed instances) mapped to the thread loading them,
+    // and threads waiting for a config mapped to the config they are waiting for, used to detect circular loads
+    private final Map<Object, Thread> loadingThreads = new ConcurrentHashMap<>();
+    private final Map<Thread, Object> awaitedLoads = new ConcurrentHashMap<>();
+    private final ExecutorService loadExecutor = newBoundedExecutor("sc-cfg-loader-", MAX_PARALLEL_LOADS);
+    private final ExecutorService saveExecutor = newBoundedExecutor("sc-cfg-batch-saver-", MAX_PARALLEL_SAVES);
+    private final ClassValue<ConfigDescriptor> descriptors = new ClassValue<ConfigDescriptor>() {
+        @Override
+        protected ConfigDescriptor computeValue(final Class<?> type) {
+            return newConfigDescriptor(type);
+        }
+    };
+    private final Logger logger;
     private final Path basePath;
     private final Scanner scanner;
     private final FileWatcher fileWatcher;
@@ -73,6 +141,7 @@ public final class ConfigFactoryImpl implements ConfigFactory {
     private final AsyncExecutor asyncExecutor;
     private final SyncExecutor syncExecutor;
     private final NameMapperFactory nameMapperFactory;
+    private final SaveQueue saveQueue;
 
     public ConfigFactoryImpl(
             final Logger logger,
@@ -82,6 +151,7 @@ public final class ConfigFactoryImpl implements ConfigFactory {
             final FileWatcher fileWatcher,
             final SyncExecutor syncExecutor
     ) {
+        this.logger = checkNotNull(logger, "logger");
         this.basePath = checkNotNull(basePath, "basePath");
         this.scanner = checkNotNull(scanner, "scanner");
         this.fileWatcher = checkNotNull(fileWatcher, "fileWatcher");
@@ -89,48 +159,191 @@ public final class ConfigFactoryImpl implements ConfigFactory {
         this.asyncExecutor = new AsyncMethodExecutor(checkNotNull(logger, "logger"));
         this.syncExecutor = checkNotNull(syncExecutor, "syncExecutor");
         this.nameMapperFactory = new NameMapperFactory();
+        this.saveQueue = new SaveQueue(logger);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> ConfigWrapper<T> getWrapper(final Class<T> configClass) {
         checkNotNull(configClass, "configClass");
-        return (ConfigWrapper<T>) instances.computeIfAbsent(configClass, this::newWrappedConfigInstance);
+        final CompletableFuture<ConfigWrapperImpl<?>> existing = instances.get(configClass);
+        if (existing != null) {
+            return (ConfigWrapper<T>) await(configClass, configClass, existing);
+        }
+        final CompletableFuture<ConfigWrapperImpl<?>> future = new CompletableFuture<>();
+        final CompletableFuture<ConfigWrapperImpl<?>> previous = instances.putIfAbsent(configClass, future);
+        if (previous != null) {
+            return (ConfigWrapper<T>) await(configClass, configClass, previous);
+        }
+        return (ConfigWrapper<T>) load(configClass, future,
+                () -> wrapInstance(newInstance(configClass), Paths.get(descriptors.get(configClass).getConfigPath())),
+                () -> instances.remove(configClass, future));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> ConfigWrapper<T> getWrapper(final Class<T> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        validateKey(key);
+
+        final ConfigDescriptor descriptor = descriptors.get(configClass);
+        final KeyedInstances keyed = keyedInstances.computeIfAbsent(configClass, c -> new KeyedInstances(descriptor.getMaxResidentKeys()));
+        final List<Object> loadingKey = Arrays.asList(configClass, key);
+        final CompletableFuture<ConfigWrapperImpl<?>> existing = keyed.get(key);
+        if (existing != null) {
+            return (ConfigWrapper<T>) await(configClass, loadingKey, existing);
+        }
+        final CompletableFuture<ConfigWrapperImpl<?>> future = new CompletableFuture<>();
+        final CompletableFuture<ConfigWrapperImpl<?>> previous = keyed.putIfAbsent(key, future);
+        if (previous != null) {
+            return (ConfigWrapper<T>) await(configClass, loadingKey, previous);
+        }
+        final ConfigWrapperImpl<?> wrapper = load(loadingKey, future,
+                () -> wrapInstance(newInstance(configClass), Paths.get(descriptor.getKeyedConfigPath(key))),
+                () -> keyed.remove(key, future));
+        // the instance just loaded is the one being requested, so it's never evicted
+        keyed.trim(evicted -> evicted != wrapper && isEvictable(evicted)).forEach(ConfigWrapperImpl::discard);
+        return (ConfigWrapper<T>) wrapper;
+    }
+
+    /**
+     * Checks if a keyed instance can be evicted to keep its class within its max resident instances, which is
+     * only the case when it has no queued save and no changes that weren't saved, since evicted instances are
+     * not saved.
+     */
+    private boolean isEvictable(final ConfigWrapper<?> wrapper) {
+        return !saveQueue.isQueued(wrapper) && !serializerFactory.getSerializer(wrapper.getFileType()).isDirty(wrapper);
     }
 
-    private <T> ConfigWrapper<T> newWrappedConfigInstance(final Class<T> clazz) {
+    private void validateKey(final String key) {
+        checkNotNull(key, "key");
+        checkArgument(VALID_KEY.matcher(key).matches() && !key.contains(".."), () -> "key '" + key + "' is not valid, keys can only contain letters, digits, dots, hyphens and underscores (and cannot start with a dot)");
+    }
+
+    /**
+     * Runs {@code loader} on the current thread, completing {@code future} with its result. If loading fails,
+     * {@code onFailure} is run to remove {@code future} from the registry, so a later call can try again.
+     */
+    private <W> W load(final Object loadingKey, final CompletableFuture<W> future, final Supplier<W> loader, final Runnable onFailure) {
+        loadingThreads.put(loadingKey, Thread.currentThread());
+        try {
+            final W wrapper = loader.get();
+            future.complete(wrapper);
+            return wrapper;
+        } catch (final Throwable t) {
+            onFailure.run();
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            loadingThreads.remove(loadingKey);
+        }
+    }
+
+    /**
+     * Waits for {@code future}, failing with {@link ConfigCircularLoadException} if the config it belongs to
+     * is being loaded by a thread that is (directly or through other threads loading configs) waiting for
+     * the current thread, since that would wait forever. The check is repeated while waiting, because the
+     * loading thread may only start waiting for the current one after this wait began.
+     */
+    private <W> W await(final Class<?> clazz, final Object loadingKey, final CompletableFuture<W> future) {
+        if (future.isDone()) {
+            return join(future);
+        }
+        final Thread currentThread = Thread.currentThread();
+        awaitedLoads.put(currentThread, loadingKey);
+        try {
+            while (true) {
+                if (isWaitingFor(loadingKey, currentThread)) {
+                    throw new ConfigCircularLoadException(clazz);
+                }
+                try {
+                    return future.get(CIRCULAR_LOAD_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (final TimeoutException ignored) {
+                    // still loading, check again
+                }
+            }
+        } catch (final ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConfigException("Interrupted while waiting for config " + clazz.getName() + " to be loaded", e);
+        } finally {
+            awaitedLoads.remove(currentThread);
+        }
+    }
+
+    /**
+     * Follows the chain of "config is being loaded by thread, which is waiting for config" starting from
+     * {@code loadingKey}, returning true if it leads to {@code thread}.
+     */
+    private boolean isWaitingFor(final Object loadingKey, final Thread thread) {
+        final Set<Thread> visited = new HashSet<>();
+        Thread loadingThread = loadingThreads.get(loadingKey);
+        while (loadingThread != null && visited.add(loadingThread)) {
+            if (loadingThread == thread) return true;
+            final Object awaited = awaitedLoads.get(loadingThread);
+            if (awaited == null) return false;
+            loadingThread = loadingThreads.get(awaited);
+        }
+        return false;
+    }
+
+    private static <W> W join(final CompletableFuture<W> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(final Throwable cause) {
+        if (cause instanceof RuntimeException) return (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return new ConfigException(cause);
+    }
+
+    private <T> T newInstance(final Class<T> clazz) {
         Valid.validateConfigClassWithDefaultConstructor(clazz);
         final Constructor<T> constructor = getDefaultConstructor(clazz);
         try {
-            final T instance = constructor.newInstance();
-            return wrapInstance(instance);
-        } catch (final ConfigException e) {
-            throw e;
+            return constructor.newInstance();
+        } catch (final InvocationTargetException e) {
+            // errors of sc-cfg itself (e.g. the constructor requesting a config) are kept as they are
+            if (e.getCause() instanceof ConfigException) throw (ConfigException) e.getCause();
+            throw new ConfigException(e);
         } catch (final Exception e) {
             throw new ConfigException(e);
         }
     }
 
-    private <T> ConfigWrapper<T> wrapInstance(final T instance) {
+    /**
+     * Wraps {@code instance}, starts watching its file and loads its values from the file.
+     *
+     * @param instance the config instance
+     * @param configPath the path of the config file, relative to the {@link ConfigFactoryImpl#basePath}
+     * @return the loaded config wrapper
+     */
+    private <T> ConfigWrapperImpl<T> wrapInstance(final T instance, final Path configPath) {
         checkNotNull(instance, "instance");
         checkArgument(!(instance instanceof Class<?>), "cannot register classes as instances of configuration");
 
         final Class<?> clazz = instance.getClass();
-        final Configuration annotation = getConfigAnnotation(clazz);
-        final Serializer serializer = serializerFactory.getSerializer(annotation.type());
-        final Set<Field> configFields = scanner.getConfigurationFields(clazz);
-        final Set<PropertyWrapper> properties = mapConfigFieldsToProperties(instance, configFields, annotation.naming());
-        final Map<String, Object> defaults = serializer.getCurrentValues(instance, properties);
+        final ConfigDescriptor descriptor = descriptors.get(clazz);
+        final Serializer serializer = serializerFactory.getSerializer(descriptor.getFileType());
+        final Set<PropertyWrapper> properties = bindProperties(instance, descriptor);
+        // keep the default values as they are, they are only serialized if needed
+        final Map<PropertyWrapper, Object> defaultValues = new IdentityHashMap<>(properties.size());
+        properties.forEach(property -> defaultValues.put(property, property.get()));
         try {
-            final Path configPath = Paths.get(parseConfigPath(clazz, annotation));
             final Path destination = basePath.resolve(configPath);
-            final Set<MethodWrapper> runBeforeReload = scanner.getBeforeReloadMethods(clazz);
-            final Set<MethodWrapper> runAfterReload = scanner.getAfterReloadMethods(clazz);
 
             final FileWatcher.WatchedLocation watchedLocation = fileWatcher.getWatcher(configPath);
-            final ConfigWrapper<T> wrapper = new ConfigWrapperImpl<>(instance, annotation, destination, defaults, properties, runBeforeReload, runAfterReload, watchedLocation);
-            watchedLocation.addListener(FileModificationType.CREATE_AND_MODIFICATION, handleReload(wrapper));
-            return serializer.loadConfig(wrapper);
+            final ConfigWrapperImpl<T> wrapper = new ConfigWrapperImpl<>(instance, descriptor, destination,
+                    () -> serializer.getValues(instance, properties, defaultValues::get), properties, watchedLocation);
+            wrapper.watch(FileModificationType.CREATE_AND_MODIFICATION, handleReload(wrapper));
+            serializer.loadNewConfig(wrapper);
+            bindDirectories(wrapper);
+            return wrapper;
         } catch (final ConfigException e) {
             throw e;
         } catch (final Exception e) {
@@ -138,24 +351,69 @@ public final class ConfigFactoryImpl implements ConfigFactory {
         }
     }
 
-    private Configuration getConfigAnnotation(final Class<?> clazz) {
-        final Configuration annotation = clazz.getDeclaredAnnotation(Configuration.class);
+    private void bindDirectories(final ConfigWrapperImpl<?> wrapper) {
+        for (final DirectoryDescriptor directory : wrapper.getDescriptor().getDirectories()) {
+            final ConfigDirectoryBinding binding = new ConfigDirectoryBinding(directory, basePath, fileWatcher,
+                    path -> wrapInstance(newInstance(directory.getEntryClass()), path), asyncExecutor, logger);
+            binding.bind(wrapper.getInstance());
+            wrapper.addDirectoryBinding(binding);
+        }
+    }
+
+    private Configuration getConfigAnnotation(final ConfigClassMetadata metadata) {
+        final Configuration annotation = metadata.getConfigAnnotation();
         if (annotation == null) {
-            throw new MissingConfigAnnotationException(clazz);
+            throw new MissingConfigAnnotationException(metadata.getConfigClass());
         }
         return annotation;
     }
 
-    private Set<PropertyWrapper> mapConfigFieldsToProperties(final Object instance, final Set<Field> fields, final Naming naming) {
-        checkNotNull(instance, "instance");
+    private ConfigDescriptor newConfigDescriptor(final Class<?> clazz) {
+        final ConfigClassMetadata metadata = scanner.getClassMetadata(clazz);
+        final Configuration annotation = getConfigAnnotation(metadata);
+        final Set<PropertyDescriptor> properties = mapConfigFieldsToProperties(metadata.getFields(), annotation.naming());
+        final String configPath = parseConfigPath(clazz, annotation);
+        final Keyed keyedAnnotation = metadata.getKeyedAnnotation();
+        final String keyedPathTemplate = parseKeyedPathTemplate(configPath, annotation, keyedAnnotation);
+        final int maxResidentKeys = keyedAnnotation != null ? keyedAnnotation.maxResident() : 0;
+        final Set<DirectoryDescriptor> directories = metadata.getDirectoryFields().stream()
+                .map(this::newDirectoryDescriptor)
+                .collect(Sets.toSet());
+        return new ConfigDescriptor(clazz, annotation, configPath, keyedPathTemplate, maxResidentKeys, properties, directories, metadata.getBeforeReloadMethods(), metadata.getAfterReloadMethods());
+    }
+
+    private DirectoryDescriptor newDirectoryDescriptor(final Field field) {
+        final String fieldName = "'" + field.getName() + "' (which belongs to class '" + field.getDeclaringClass().getSimpleName() + "')";
+        final String path = checkNotBlank(field.getDeclaredAnnotation(ConfigDirectory.class).value(), () -> "@ConfigDirectory annotation does not support null, empty or blank values, but you passed one of these three as value of @ConfigDirectory annotation on your field " + fieldName).trim();
+
+        final Type type = field.getGenericType();
+        checkArgument(field.getType() == Map.class && type instanceof ParameterizedType
+                && ((ParameterizedType) type).getActualTypeArguments()[0] == String.class
+                && ((ParameterizedType) type).getActualTypeArguments()[1] instanceof Class<?>,
+                () -> "@ConfigDirectory can only be used on fields of type Map<String, T> (where T is a configuration class), but your field " + fieldName + " is of type " + type.getTypeName());
+        final Class<?> entryClass = (Class<?>) ((ParameterizedType) type).getActualTypeArguments()[1];
+        Valid.validateConfigClassWithDefaultConstructor(entryClass);
+
+        final Configuration entryAnnotation = getConfigAnnotation(scanner.getClassMetadata(entryClass));
+        return new DirectoryDescriptor(field, path, entryClass, entryAnnotation.type().getExtension());
+    }
+
+    private Set<PropertyWrapper> bindProperties(final Object instance, final ConfigDescriptor descriptor) {
+        return descriptor.getProperties().stream()
+                .map(property -> new PropertyWrapperImpl(instance, property))
+                .collect(Sets.toSet());
+    }
+
+    private Set<PropertyDescriptor> mapConfigFieldsToProperties(final Set<FieldMetadata> fields, final Naming naming) {
         notContainsNull(fields, "fields");
         checkNotNull(naming, "naming");
 
         final NameMapper mapper = nameMapperFactory.getMapper(naming);
 
-        return fields.stream().sequential().map(field -> {
-            final NamedPath namedPathAnnotation = field.getDeclaredAnnotation(NamedPath.class);
-            final com.github.secretx33.sccfg.api.annotation.Path pathAnnotation = field.getDeclaredAnnotation(com.github.secretx33.sccfg.api.annotation.Path.class);
+        return fields.stream().sequential().map(fieldMetadata -> {
+            final Field field = fieldMetadata.getField();
+            final NamedPath namedPathAnnotation = fieldMetadata.getNamedPath();
+            final com.github.secretx33.sccfg.api.annotation.Path pathAnnotation = fieldMetadata.getPath();
             String path = firstPresent(Optional.ofNullable(pathAnnotation).map(com.github.secretx33.sccfg.api.annotation.Path::value), Optional.ofNullable(namedPathAnnotation).map(NamedPath::path));
 
             if (path == null) {
@@ -164,7 +422,7 @@ public final class ConfigFactoryImpl implements ConfigFactory {
                 checkNotBlank(path, () -> "@Path annotation does not support null, empty or blank values, but you passed one of these three as parameter on your field " + field.getName() + " (which belongs to class " + field.getDeclaringClass().getSimpleName() + ")");
             }
 
-            final Name nameAnnotation = field.getDeclaredAnnotation(Name.class);
+            final Name nameAnnotation = fieldMetadata.getName();
             String nameOnFile = firstPresent(Optional.ofNullable(nameAnnotation).map(Name::value), Optional.ofNullable(namedPathAnnotation).map(NamedPath::name));
 
             if (nameOnFile == null) {
@@ -173,13 +431,13 @@ public final class ConfigFactoryImpl implements ConfigFactory {
                 checkNotBlank(nameOnFile, () -> "@Name annotation does not support null, empty or blank values, but you passed one of these three as value of @Name annotation on your field '" + field.getName() + "' (which belongs to class '" + field.getDeclaringClass().getSimpleName() + "')");
             }
 
-            final Comment commentAnnotation = field.getDeclaredAnnotation(Comment.class);
+            final Comment commentAnnotation = fieldMetadata.getComment();
             String[] comment = firstPresent(Optional.ofNullable(commentAnnotation).map(Comment::value), Optional.ofNullable(namedPathAnnotation).map(NamedPath::comment));
 
             if (comment == null) {
                 comment = new String[0];
             }
-            return new PropertyWrapperImpl(instance, field, nameOnFile, path, comment);
+            return new PropertyDescriptor(field, nameOnFile, path, comment);
         }).collect(Sets.toSet());
     }
 
@@ -197,11 +455,25 @@ public final class ConfigFactoryImpl implements ConfigFactory {
     private String parseConfigPath(final Class<?> clazz, final Configuration configuration) {
         String value = configuration.value().trim();
         if (value.isEmpty()) value = configuration.name().trim();
-        final String lowerCasedValue = value.toLowerCase(Locale.US);
         final String extension = configuration.type().getExtension();
         if (value.isEmpty()) {
             return clazz.getName() + extension;
         }
+        return withExtension(value, extension);
+    }
+
+    private String parseKeyedPathTemplate(final String configPath, final Configuration configuration, @Nullable final Keyed keyed) {
+        final String extension = configuration.type().getExtension();
+        final String value = keyed != null ? keyed.value().trim() : "";
+        if (value.isEmpty()) {
+            // keyed files are stored in a folder named after the config file
+            return configPath.substring(0, configPath.length() - extension.length()) + "/" + Keyed.KEY_PLACEHOLDER + extension;
+        }
+        return withExtension(value, extension);
+    }
+
+    private String withExtension(final String value, final String extension) {
+        final String lowerCasedValue = value.toLowerCase(Locale.US);
         if (lowerCasedValue.endsWith(extension)) {
             return value.substring(0, lowerCasedValue.lastIndexOf(extension)) + extension;
         }
@@ -209,43 +481,105 @@ public final class ConfigFactoryImpl implements ConfigFactory {
     }
 
     @SuppressWarnings("unchecked")
-    private <T> Constructor<T> getDefaultConstructor(Class<T> clazz) {
-        return Arrays.stream(clazz.getDeclaredConstructors())
-                .filter(c -> c.getParameterCount() == 0)
-                .findAny()
-                .map(c -> (Constructor<T>) c)
-                .orElseThrow(() -> new MissingNoArgsConstructorException(clazz));
+    private <T> Constructor<T> getDefaultConstructor(final Class<T> clazz) {
+        final Constructor<T> constructor = (Constructor<T>) scanner.getClassMetadata(clazz).getNoArgsConstructor();
+        if (constructor == null) {
+            throw new MissingNoArgsConstructorException(clazz);
+        }
+        return constructor;
     }
 
-    private Consumer<FileWatcherEvent> handleReload(final ConfigWrapper<?> configWrapper) {
+    private Consumer<FileWatcherEvent> handleReload(final ConfigWrapperImpl<?> configWrapper) {
         checkNotNull(configWrapper, "configWrapper");
         return event -> handleReloadAsync(configWrapper);
     }
 
-    private void handleReloadAsync(final ConfigWrapper<?> configWrapper) {
+    private void handleReloadAsync(final ConfigWrapperImpl<?> configWrapper) {
         asyncExecutor.delayedRun(200L, () -> {
-            final Object instance = configWrapper.getInstance();
-            final Set<MethodWrapper> asyncBefore = configWrapper.getRunBeforeReloadAsyncMethods();
-            final Set<MethodWrapper> syncBefore = configWrapper.getRunBeforeReloadSyncMethods();
-            final Set<MethodWrapper> syncAfter = configWrapper.getRunAfterReloadSyncMethods();
-            final Set<MethodWrapper> asyncAfter = configWrapper.getRunAfterReloadAsyncMethods();
-            final int runBeforeCount = asyncBefore.size() + syncBefore.size();
-            final CountDownLatch latch = new CountDownLatch(runBeforeCount);
-
-            asyncExecutor.runMethodsAsyncWithLatch(instance, asyncBefore, latch);
-            syncExecutor.runMethodsSyncWithLatch(instance, syncBefore, latch);
-
-            if (runBeforeCount > 0) {
+            if (configWrapper.isDiscarded()) return;
+            reloadWithHooks(configWrapper);
+        });
+    }
+
+    /**
+     * Reloads the config from its file, running the methods that should run before and after reloads, and
+     * notifying its reload listeners afterwards.
+     */
+    private <T> void reloadWithHooks(final ConfigWrapperImpl<T> configWrapper) {
+        final T instance = configWrapper.getInstance();
+        final Set<MethodWrapper> asyncBefore = configWrapper.getRunBeforeReloadAsyncMethods();
+        final Set<MethodWrapper> syncBefore = configWrapper.getRunBeforeReloadSyncMethods();
+        final Set<MethodWrapper> syncAfter = configWrapper.getRunAfterReloadSyncMethods();
+        final Set<MethodWrapper> asyncAfter = configWrapper.getRunAfterReloadAsyncMethods();
+        final int runBeforeCount = asyncBefore.size() + syncBefore.size();
+        final CountDownLatch latch = new CountDownLatch(runBeforeCount);
+
+        asyncExecutor.runMethodsAsyncWithLatch(instance, asyncBefore, latch);
+        syncExecutor.runMethodsSyncWithLatch(instance, syncBefore, latch);
+
+        if (runBeforeCount > 0) {
+            try {
+                latch.await(4L, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        reloadInstance(configWrapper);
+        asyncExecutor.runMethodsAsync(instance, asyncAfter);
+        syncExecutor.runMethodsSync(instance, syncAfter);
+
+        for (final Consumer<? super T> listener : configWrapper.getReloadListeners()) {
+            try {
+                listener.accept(instance);
+            } catch (final RuntimeException e) {
+                logger.log(Level.SEVERE, "A reload listener of config " + instance.getClass().getName() + " has thrown an exception.", e);
+            }
+        }
+    }
+
+    @Override
+    public void reloadInstance(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        reloadWithHooks((ConfigWrapperImpl<?>) getLoadedWrapper(configClass));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void addReloadListener(final Class<T> configClass, final Consumer<? super T> listener) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(listener, "listener");
+        ((ConfigWrapperImpl<T>) getWrapper(configClass)).addReloadListener(listener);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> boolean removeReloadListener(final Class<T> configClass, final Consumer<? super T> listener) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(listener, "listener");
+        final CompletableFuture<ConfigWrapperImpl<?>> future = instances.get(configClass);
+        if (future == null) return false;
+        return ((ConfigWrapperImpl<T>) await(configClass, configClass, future)).removeReloadListener(listener);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getSnapshot(final Class<T> configClass) {
+        checkNotNull(configClass, "configClass");
+        final ConfigWrapperImpl<T> wrapper = (ConfigWrapperImpl<T>) getWrapper(configClass);
+        final T instance = wrapper.getInstance();
+        final T snapshot = newInstance(configClass);
+        synchronized (instance) {
+            for (final PropertyDescriptor property : wrapper.getDescriptor().getProperties()) {
+                final Field field = property.getField();
                 try {
-                    latch.await(4L, TimeUnit.SECONDS);
-                } catch (InterruptedException e) {
-                    return;
+                    field.set(snapshot, field.get(instance));
+                } catch (final IllegalAccessException e) {
+                    throw new ConfigReflectiveOperationException(e);
                 }
             }
-            reloadInstance(configWrapper);
-            asyncExecutor.runMethodsAsync(instance, asyncAfter);
-            syncExecutor.runMethodsSync(instance, syncAfter);
-        });
+        }
+        return snapshot;
     }
 
     @Override
@@ -256,16 +590,252 @@ public final class ConfigFactoryImpl implements ConfigFactory {
         final Class<?> clazz = instance.getClass();
         Valid.validateConfigClass(clazz);
 
-        if (instances.containsKey(clazz)) {
+        final CompletableFuture<ConfigWrapperImpl<?>> future = new CompletableFuture<>();
+        if (instances.putIfAbsent(clazz, future) != null) {
             throw new ConfigInstanceOverrideException(clazz);
         }
-        instances.computeIfAbsent(clazz, c -> wrapInstance(instance));
+        load(clazz, future,
+                () -> wrapInstance(instance, Paths.get(descriptors.get(clazz).getConfigPath())),
+                () -> instances.remove(clazz, future));
+    }
+
+    @Override
+    public void registerInstances(final Object... instances) {
+        notContainsNull(instances, "instances");
+        if (instances.length == 1) {
+            registerInstance(instances[0]);
+            return;
+        }
+        final List<CompletableFuture<Void>> futures = Arrays.stream(instances)
+                .map(instance -> CompletableFuture.runAsync(() -> registerInstance(instance), loadExecutor))
+                .collect(Collectors.toList());
+
+        RuntimeException exception = null;
+        for (final CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (final CompletionException e) {
+                final RuntimeException cause = unwrap(e.getCause());
+                if (exception == null) exception = cause;
+                else exception.addSuppressed(cause);
+            }
+        }
+        if (exception != null) throw exception;
     }
 
     @Override
     public void saveInstance(final Class<?> configClass) {
         checkNotNull(configClass, "configClass");
-        validateConfigClassAndUseSerializer(configClass, (wrapper, serializer) -> serializer.saveConfig(wrapper));
+        validateConfigClassAndUseSerializer(configClass, this::save);
+    }
+
+    @Override
+    public void saveInstance(final Class<?> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        final ConfigWrapper<?> wrapper = getKeyedWrapper(configClass, key);
+        save(wrapper, serializerFactory.getSerializer(wrapper.getFileType()));
+    }
+
+    /**
+     * Saves the config holding the lock of its instance, so an update (or a reload) is never saved halfway.
+     */
+    private void save(final ConfigWrapper<?> wrapper, final Serializer serializer) {
+        synchronized (wrapper.getInstance()) {
+            incrementVersion(wrapper);
+            serializer.saveConfig(wrapper);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> saveInstanceAsync(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        return enqueueSave(getLoadedWrapper(configClass));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveInstanceAsync(final Class<?> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        return enqueueSave(getKeyedWrapper(configClass, key));
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> updateInstance(final Class<T> configClass, final Consumer<? super T> update) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(update, "update");
+        final ConfigWrapper<T> wrapper = getWrapper(configClass);
+        final T instance = wrapper.getInstance();
+        synchronized (instance) {
+            update.accept(instance);
+        }
+        return enqueueSave(wrapper);
+    }
+
+    @Override
+    public boolean isDirty(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        final ConfigWrapper<?> wrapper = getLoadedWrapper(configClass);
+        return serializerFactory.getSerializer(wrapper.getFileType()).isDirty(wrapper);
+    }
+
+    @Override
+    public boolean isDirty(final Class<?> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        final ConfigWrapper<?> wrapper = getKeyedWrapper(configClass, key);
+        return serializerFactory.getSerializer(wrapper.getFileType()).isDirty(wrapper);
+    }
+
+    @Override
+    public void flushPendingSaves() {
+        saveQueue.flush();
+    }
+
+    @Override
+    public void shutdown() {
+        saveQueue.shutdown();
+    }
+
+    /**
+     * Queues an async save of the config, which is skipped if its values didn't change since they were
+     * last persisted. Its values are copied while holding the lock of the config
+     * instance (the same one held by {@link ConfigFactoryImpl#updateInstance(Class, Consumer)}), so they
+     * are never written halfway through an update, and then written without holding it.
+     */
+    private CompletableFuture<Void> enqueueSave(final ConfigWrapper<?> wrapper) {
+        // the values are marked as changed when the save is requested, not when it's written
+        incrementVersion(wrapper);
+        final Serializer serializer = serializerFactory.getSerializer(wrapper.getFileType());
+        return saveQueue.enqueue(wrapper, wrapper.getConfigAnnotation().saveWindow(), () -> {
+            final Runnable save;
+            synchronized (wrapper.getInstance()) {
+                save = serializer.prepareSave(wrapper);
+            }
+            if (save != null) {
+                save.run();
+            }
+        });
+    }
+
+    @Override
+    public SaveReport saveInstances(final Collection<Class<?>> configClasses, final boolean sync) {
+        notContainsNull(configClasses, "configClasses");
+        final List<ConfigWrapper<?>> wrappers = configClasses.stream()
+                .distinct()
+                .map(this::getLoadedWrapper)
+                .collect(Collectors.toList());
+        return saveBatch(wrappers, sync);
+    }
+
+    @Override
+    public SaveReport saveAll(final boolean sync) {
+        final List<ConfigWrapper<?>> wrappers = new ArrayList<>();
+        instances.values().stream()
+                .filter(future -> future.isDone() && !future.isCompletedExceptionally())
+                .map(CompletableFuture::join)
+                .forEach(wrappers::add);
+        keyedInstances.values().forEach(keyed -> wrappers.addAll(keyed.loaded()));
+        return saveBatch(wrappers, sync);
+    }
+
+    /**
+     * Saves all {@code wrappers} in parallel, each one being serialized and written by a thread of the
+     * {@link ConfigFactoryImpl#saveExecutor}. If {@code sync} is true, each written file is synced to the
+     * disk by the thread that wrote it, and the folders holding them are synced once all files are written,
+     * so their renames are durable too.
+     */
+    private SaveReport saveBatch(final List<ConfigWrapper<?>> wrappers, final boolean sync) {
+        final long start = System.nanoTime();
+        final List<CompletableFuture<SaveReport.Entry>> futures = wrappers.stream()
+                .map(wrapper -> CompletableFuture.supplyAsync(() -> saveBatchEntry(wrapper, sync), saveExecutor))
+                .collect(Collectors.toList());
+        final List<SaveReport.Entry> entries = futures.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+
+        if (sync) {
+            entries.stream()
+                    .filter(SaveReport.Entry::isWritten)
+                    .map(entry -> entry.getDestination().toAbsolutePath().getParent())
+                    .distinct()
+                    .forEach(this::syncDirectory);
+        }
+        return new SaveReport(entries, System.nanoTime() - start);
+    }
+
+    private SaveReport.Entry saveBatchEntry(final ConfigWrapper<?> wrapper, final boolean sync) {
+        final Class<?> configClass = wrapper.getInstance().getClass();
+        final Serializer serializer = serializerFactory.getSerializer(wrapper.getFileType());
+        final long start = System.nanoTime();
+        long serialized = start;
+
+        try {
+            final Runnable save;
+            synchronized (wrapper.getInstance()) {
+                incrementVersion(wrapper);
+                save = serializer.prepareSave(wrapper);
+            }
+            serialized = System.nanoTime();
+            if (save == null) {
+                return new SaveReport.Entry(configClass, wrapper.getDestination(), false, serialized - start, 0L, null);
+            }
+            save.run();
+            if (sync) {
+                syncFile(wrapper.getDestination());
+            }
+            return new SaveReport.Entry(configClass, wrapper.getDestination(), true, serialized - start, System.nanoTime() - serialized, null);
+        } catch (final RuntimeException e) {
+            final long end = System.nanoTime();
+            return new SaveReport.Entry(configClass, wrapper.getDestination(), false, serialized - start, end - serialized, e);
+        }
+    }
+
+    private void syncFile(final Path file) {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            logger.log(Level.SEVERE, "Could not sync file '" + file + "' to the disk.", e);
+            throw new ConfigException(e);
+        }
+    }
+
+    private void syncDirectory(final Path directory) {
+        // not every platform allows opening folders (e.g. Windows), on these the renames are already durable
+        try (final FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            logger.log(Level.FINE, "Could not sync folder '" + directory + "' to the disk.", e);
+        }
+    }
+
+    private ConfigWrapper<?> getKeyedWrapper(final Class<?> configClass, final String key) {
+        validateKey(key);
+        Valid.validateConfigClass(configClass);
+        final KeyedInstances keyed = keyedInstances.get(configClass);
+        final CompletableFuture<ConfigWrapperImpl<?>> future = keyed != null ? keyed.get(key) : null;
+        if (future == null) {
+            throw new ConfigNotInitializedException(configClass);
+        }
+        return await(configClass, Arrays.asList(configClass, key), future);
+    }
+
+    @Override
+    public boolean evictInstance(final Class<?> configClass) {
+        checkNotNull(configClass, "configClass");
+        return discard(instances.remove(configClass));
+    }
+
+    @Override
+    public boolean evictInstance(final Class<?> configClass, final String key) {
+        checkNotNull(configClass, "configClass");
+        validateKey(key);
+        final KeyedInstances keyed = keyedInstances.get(configClass);
+        return discard(keyed != null ? keyed.remove(key) : null);
+    }
+
+    private boolean discard(@Nullable final CompletableFuture<ConfigWrapperImpl<?>> future) {
+        if (future == null) return false;
+        // instances still being loaded are discarded as soon as they finish loading
+        future.thenAccept(ConfigWrapperImpl::discard);
+        return true;
     }
 
     @Override
@@ -281,18 +851,52 @@ public final class ConfigFactoryImpl implements ConfigFactory {
 
     @SuppressWarnings("unchecked")
     private <T> void validateConfigClassAndUseSerializer(final Class<T> configClass, final BiConsumer<ConfigWrapper<T>, Serializer> consumer) {
+        final ConfigWrapper<T> wrapper = (ConfigWrapper<T>) getLoadedWrapper(configClass);
+        final Serializer serializer = serializerFactory.getSerializer(wrapper.getFileType());
+        consumer.accept(wrapper, serializer);
+    }
+
+    private ConfigWrapper<?> getLoadedWrapper(final Class<?> configClass) {
         Valid.validateConfigClass(configClass);
-        final ConfigWrapper<T> wrapper = (ConfigWrapper<T>) instances.get(configClass);
-        if (wrapper == null) {
+        final CompletableFuture<ConfigWrapperImpl<?>> future = instances.get(configClass);
+        if (future == null) {
             throw new ConfigNotInitializedException(configClass);
         }
-        final Serializer serializer = serializerFactory.getSerializer(wrapper.getFileType());
-        consumer.accept(wrapper, serializer);
+        return await(configClass, configClass, future);
     }
 
+    /**
+     * Reloads the config from its file holding the lock of its instance, the same one held by
+     * {@link ConfigFactoryImpl#updateInstance(Class, Consumer)} and by saves, so a reload never interleaves
+     * with an update and a save never copies values of a reload applied halfway.
+     */
     protected void reloadInstance(final ConfigWrapper<?> configWrapper) {
         checkNotNull(configWrapper, "configWrapper");
         final Serializer serializer = serializerFactory.getSerializer(configWrapper.getFileType());
-        serializer.loadConfig(configWrapper);
+        synchronized (configWrapper.getInstance()) {
+            serializer.loadConfig(configWrapper);
+            incrementVersion(configWrapper);
+        }
+    }
+
+    /**
+     * Marks the values of the config as changed. Besides reloads and updates, saves also do it, since saving
+     * is how values changed directly on the instance are committed.
+     */
+    private static void incrementVersion(final ConfigWrapper<?> wrapper) {
+        ((ConfigWrapperImpl<?>) wrapper).incrementVersion();
+    }
+
+    private static ExecutorService newBoundedExecutor(final String threadPrefix, final int maxThreads) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        // threads are only kept alive while there are configs being loaded or saved
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 }
@@ -18,71 +18,97 @@ package com.github.secretx33.sccfg.config;
 import com.github.secretx33.sccfg.api.FileType;
 import com.github.secretx33.sccfg.api.Naming;
 import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.storage.FileModificationType;
 import com.github.secretx33.sccfg.storage.FileWatcher;
-import com.github.secretx33.sccfg.util.Sets;
+import com.github.secretx33.sccfg.storage.FileWatcherEvent;
+import com.github.secretx33.sccfg.storage.FileWatcherEventConsumer;
+import com.github.secretx33.sccfg.util.Lazy;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+import static com.github.secretx33.sccfg.util.Preconditions.checkState;
 import static com.github.secretx33.sccfg.util.Preconditions.notContainsNull;
 
+/**
+ * Binds a config instance to the {@link ConfigDescriptor} of its class, together with the per-instance data
+ * (file destination, default values and the instance properties). Default values are only serialized when
+ * first needed, from the values the instance properties held when it was wrapped. Wrappers are used as keys
+ * while their instances are modified, so they're only equal to themselves.
+ *
+ * @param <T> the configuration class
+ */
 public final class ConfigWrapperImpl<T> implements ConfigWrapper<T> {
 
     private final T instance;
-    private final Configuration configAnnotation;
-    @Nullable
-    private final String header;
+    private final ConfigDescriptor descriptor;
     private final Path destination;
-    private final FileType fileType;
-    private final Naming nameStrategy;
-    private final Map<String, Object> defaults;
+    private final Lazy<Map<String, Object>> defaults;
     private final Set<PropertyWrapper> properties;
-    private final Set<MethodWrapper> runBeforeReloadMethods;
-    private final Set<MethodWrapper> runAfterReloadMethods;
+    private final Map<PropertyDescriptor, PropertyWrapper> propertiesByDescriptor;
     private final FileWatcher.WatchedLocation watchedLocation;
+    @Nullable
+    private volatile FileWatcherEventConsumer reloadListener;
+    private final List<ConfigDirectoryBinding> directoryBindings = new CopyOnWriteArrayList<>();
+    private final Set<Consumer<? super T>> reloadListeners = new CopyOnWriteArraySet<>();
+    private volatile boolean discarded;
+    private final AtomicInteger version = new AtomicInteger();
 
     public ConfigWrapperImpl(
             final T instance,
-            final Configuration configAnnotation,
+            final ConfigDescriptor descriptor,
             final Path destination,
-            final Map<String, Object> defaults,
+            final Supplier<Map<String, Object>> defaults,
             final Set<PropertyWrapper> properties,
-            final Set<MethodWrapper> runBeforeReload,
-            final Set<MethodWrapper> runAfterReload,
             final FileWatcher.WatchedLocation watchedLocation
     ) {
         this.instance = checkNotNull(instance, "instance");
-        this.configAnnotation = checkNotNull(configAnnotation, "configAnnotation");
-        this.header = notContainsNull(configAnnotation.header(), "header").length > 0 ? String.join("\n", configAnnotation.header()) : null;
+        this.descriptor = checkNotNull(descriptor, "descriptor");
         this.destination = checkNotNull(destination, "destination");
-        this.fileType = checkNotNull(configAnnotation.type(), "type");
-        this.nameStrategy = checkNotNull(configAnnotation.naming(), "nameStrategy");
-        this.defaults = checkNotNull(defaults, "defaults");
+        this.defaults = Lazy.of(checkNotNull(defaults, "defaults"));
         this.properties = notContainsNull(properties, "properties");
-        this.runBeforeReloadMethods = notContainsNull(runBeforeReload, "runBeforeReload");
-        this.runAfterReloadMethods = notContainsNull(runAfterReload, "runAfterReload");
+        this.propertiesByDescriptor = mapByDescriptor(properties);
         this.watchedLocation = checkNotNull(watchedLocation, "watchedLocation");
     }
 
+    private static Map<PropertyDescriptor, PropertyWrapper> mapByDescriptor(final Set<PropertyWrapper> properties) {
+        final Map<PropertyDescriptor, PropertyWrapper> propertiesByDescriptor = new IdentityHashMap<>(properties.size());
+        for (final PropertyWrapper property : properties) {
+            if (property instanceof PropertyWrapperImpl) {
+                propertiesByDescriptor.put(((PropertyWrapperImpl) property).getDescriptor(), property);
+            }
+        }
+        return propertiesByDescriptor;
+    }
+
     @Override
     public T getInstance() {
         return instance;
     }
 
+    public ConfigDescriptor getDescriptor() {
+        return descriptor;
+    }
+
     @Override
     public Configuration getConfigAnnotation() {
-        return configAnnotation;
+        return descriptor.getConfigAnnotation();
     }
 
     @Nullable
     @Override
     public String getHeader() {
-        return header;
+        return descriptor.getHeader();
     }
 
     @Override
@@ -92,17 +118,17 @@ public final class ConfigWrapperImpl<T> implements ConfigWrapper<T> {
 
     @Override
     public FileType getFileType() {
-        return fileType;
+        return descriptor.getFileType();
     }
 
     @Override
     public Naming getNameStrategy() {
-        return nameStrategy;
+        return descriptor.getNameStrategy();
     }
 
     @Override
     public Map<String, Object> getDefaults() {
-        return defaults;
+        return defaults.get();
     }
 
     @Override
@@ -110,34 +136,46 @@ public final class ConfigWrapperImpl<T> implements ConfigWrapper<T> {
         return properties;
     }
 
+    /**
+     * Gets the property of this instance described by {@code descriptor}.
+     *
+     * @param descriptor one of the property descriptors of this config class
+     * @return the property of this instance
+     */
+    public PropertyWrapper getProperty(final PropertyDescriptor descriptor) {
+        final PropertyWrapper property = propertiesByDescriptor.get(checkNotNull(descriptor, "descriptor"));
+        checkState(property != null, () -> "property " + descriptor + " is not one of the properties of config class " + this.descriptor.getConfigClass().getName());
+        return property;
+    }
+
     @Override
     public Set<MethodWrapper> getRunBeforeReloadMethods() {
-        return runBeforeReloadMethods;
+        return descriptor.getRunBeforeReloadMethods();
     }
 
     @Override
     public Set<MethodWrapper> getRunBeforeReloadAsyncMethods() {
-        return Sets.filter(runBeforeReloadMethods, MethodWrapper::isAsync);
+        return descriptor.getRunBeforeReloadAsyncMethods();
     }
 
     @Override
     public Set<MethodWrapper> getRunBeforeReloadSyncMethods() {
-        return Sets.filter(runBeforeReloadMethods, MethodWrapper::isSync);
+        return descriptor.getRunBeforeReloadSyncMethods();
     }
 
     @Override
     public Set<MethodWrapper> getRunAfterReloadMethods() {
-        return runAfterReloadMethods;
+        return descriptor.getRunAfterReloadMethods();
     }
 
     @Override
     public Set<MethodWrapper> getRunAfterReloadAsyncMethods() {
-        return Sets.filter(runAfterReloadMethods, MethodWrapper::isAsync);
+        return descriptor.getRunAfterReloadAsyncMethods();
     }
 
     @Override
     public Set<MethodWrapper> getRunAfterReloadSyncMethods() {
-        return Sets.filter(runAfterReloadMethods, MethodWrapper::isSync);
+        return descriptor.getRunAfterReloadSyncMethods();
     }
 
     @Override
@@ -146,55 +184,84 @@ public final class ConfigWrapperImpl<T> implements ConfigWrapper<T> {
     }
 
     @Override
-    public Map<String, String[]> getComments() {
-        final Map<String, String[]> comments = new LinkedHashMap<>();
-        for (final PropertyWrapper entry : getProperties()) {
-            final String comment = entry.getComment();
-            if (comment == null || !entry.hasComment()) continue;
-
-            final String[] commentLines = comment.split("\\n");
-            if (commentLines.length > 0) {
-                final String key = entry.getFullPathOnFile();
-                comments.put(key, commentLines);
-            }
-        }
-        return comments;
+    public boolean isDiscarded() {
+        return discarded;
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        ConfigWrapperImpl<?> that = (ConfigWrapperImpl<?>) o;
-        return instance.equals(that.instance)
-                && configAnnotation.equals(that.configAnnotation)
-                && destination.equals(that.destination)
-                && fileType == that.fileType
-                && nameStrategy == that.nameStrategy
-                && defaults.equals(that.defaults)
-                && properties.equals(that.properties)
-                && runBeforeReloadMethods.equals(that.runBeforeReloadMethods)
-                && runAfterReloadMethods.equals(that.runAfterReloadMethods)
-                && watchedLocation.equals(that.watchedLocation);
+    public int getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Marks the values of the instance as changed, so values derived from them are computed again.
+     */
+    void incrementVersion() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Marks this wrapper as discarded, which also stops listening to modifications of the config file.
+     */
+    void discard() {
+        discarded = true;
+        unwatch();
+    }
+
+    /**
+     * Starts listening to modifications of the config file.
+     *
+     * @param modificationTypes the modification types that should trigger the listener
+     * @param listener the listener
+     */
+    public void watch(final Set<FileModificationType> modificationTypes, final Consumer<FileWatcherEvent> listener) {
+        checkNotNull(modificationTypes, "modificationTypes");
+        checkNotNull(listener, "listener");
+        checkState(reloadListener == null, () -> "config wrapper of " + descriptor.getConfigClass().getName() + " is already watching its file");
+        reloadListener = watchedLocation.addListener(modificationTypes, listener);
+    }
+
+    /**
+     * Stops listening to modifications of the config file (and folders bound to its directory fields), if it
+     * was listening to them.
+     */
+    public void unwatch() {
+        directoryBindings.forEach(ConfigDirectoryBinding::unbind);
+        directoryBindings.clear();
+        final FileWatcherEventConsumer listener = reloadListener;
+        if (listener == null) return;
+        watchedLocation.removeListener(listener);
+        reloadListener = null;
+    }
+
+    void addReloadListener(final Consumer<? super T> listener) {
+        reloadListeners.add(checkNotNull(listener, "listener"));
+    }
+
+    boolean removeReloadListener(final Consumer<? super T> listener) {
+        return reloadListeners.remove(checkNotNull(listener, "listener"));
+    }
+
+    Set<Consumer<? super T>> getReloadListeners() {
+        return reloadListeners;
+    }
+
+    void addDirectoryBinding(final ConfigDirectoryBinding binding) {
+        directoryBindings.add(checkNotNull(binding, "binding"));
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(instance, configAnnotation, destination, fileType, nameStrategy, defaults, properties, runBeforeReloadMethods, runAfterReloadMethods, watchedLocation);
+    public Map<String, String[]> getComments() {
+        return descriptor.getComments();
     }
 
     @Override
     public String toString() {
         return "ConfigWrapper{" +
                 "instance=" + instance +
-                ", configAnnotation=" + configAnnotation +
+                ", descriptor=" + descriptor +
                 ", destination=" + destination +
-                ", fileType=" + fileType +
-                ", nameStrategy=" + nameStrategy +
-                ", defaults=" + defaults +
                 ", properties=" + properties +
-                ", runBeforeReloadMethods=" + runBeforeReloadMethods +
-                ", runAfterReloadMethods=" + runAfterReloadMethods +
                 ", watchedLocation=" + watchedLocation +
                 '}';
     }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.config;
+
+import java.lang.reflect.Field;
+import java.util.Objects;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotBlank;
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Immutable description of a field annotated with {@link com.github.secretx33.sccfg.api.annotation.ConfigDirectory},
+ * which binds a folder of config files of class {@code entryClass} to a map.
+ */
+public final class DirectoryDescriptor {
+
+    private final Field field;
+    private final String path;
+    private final Class<?> entryClass;
+    private final String extension;
+
+    public DirectoryDescriptor(final Field field, final String path, final Class<?> entryClass, final String extension) {
+        this.field = checkNotNull(field, "field");
+        this.path = checkNotBlank(path, "path");
+        this.entryClass = checkNotNull(entryClass, "entryClass");
+        this.extension = checkNotBlank(extension, "extension");
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * Returns the path of the folder, relative to the base path of the platform.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the config class of the map values.
+     */
+    public Class<?> getEntryClass() {
+        return entryClass;
+    }
+
+    /**
+     * Returns the extension of the files that are entries of the map.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final DirectoryDescriptor that = (DirectoryDescriptor) o;
+        return field.equals(that.field) && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, path);
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryDescriptor{" +
+                "field=" + field +
+                ", path='" + path + '\'' +
+                ", entryClass=" + entryClass +
+                ", extension='" + extension + '\'' +
+                '}';
+    }
+}
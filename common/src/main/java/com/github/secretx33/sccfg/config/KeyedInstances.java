@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.config;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Holds the (maybe still in-flight) keyed instances of a single config class, in least recently used
+ * order, so the ones that weren't used for the longest time can be evicted when there are more than
+ * {@code maxResident} instances loaded.
+ */
+final class KeyedInstances {
+
+    private final int maxResident;
+    // access ordered, so iteration starts at the least recently used key
+    private final Map<String, CompletableFuture<ConfigWrapperImpl<?>>> instances = new LinkedHashMap<>(16, 0.75f, true);
+
+    KeyedInstances(final int maxResident) {
+        this.maxResident = maxResident;
+    }
+
+    @Nullable
+    synchronized CompletableFuture<ConfigWrapperImpl<?>> get(final String key) {
+        return instances.get(key);
+    }
+
+    /**
+     * Associates {@code future} with {@code key}, unless {@code key} is already associated with another future.
+     *
+     * @return the future previously associated with {@code key}, or {@code null} if {@code future} was associated
+     * with it
+     */
+    @Nullable
+    synchronized CompletableFuture<ConfigWrapperImpl<?>> putIfAbsent(final String key, final CompletableFuture<ConfigWrapperImpl<?>> future) {
+        return instances.putIfAbsent(key, future);
+    }
+
+    @Nullable
+    synchronized CompletableFuture<ConfigWrapperImpl<?>> remove(final String key) {
+        return instances.remove(key);
+    }
+
+    synchronized void remove(final String key, final CompletableFuture<ConfigWrapperImpl<?>> future) {
+        instances.remove(key, future);
+    }
+
+    /**
+     * Gets the instances that are already loaded, without marking them as used.
+     *
+     * @return the wrappers of the loaded instances
+     */
+    synchronized List<ConfigWrapperImpl<?>> loaded() {
+        final List<ConfigWrapperImpl<?>> loaded = new ArrayList<>(instances.size());
+        for (final CompletableFuture<ConfigWrapperImpl<?>> future : instances.values()) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                loaded.add(future.join());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Removes the least recently used instances that are already loaded and {@code evictable}, until there are at
+     * most {@code maxResident} instances left (or no more instances can be removed).
+     *
+     * @param evictable tests if a loaded instance can be removed
+     * @return the wrappers of the removed instances
+     */
+    synchronized List<ConfigWrapperImpl<?>> trim(final Predicate<? super ConfigWrapperImpl<?>> evictable) {
+        if (maxResident <= 0 || instances.size() <= maxResident) return Collections.emptyList();
+
+        final List<ConfigWrapperImpl<?>> evicted = new ArrayList<>();
+        final Iterator<CompletableFuture<ConfigWrapperImpl<?>>> iterator = instances.values().iterator();
+        int excess = instances.size() - maxResident;
+        while (excess > 0 && iterator.hasNext()) {
+            final CompletableFuture<ConfigWrapperImpl<?>> future = iterator.next();
+            // instances still being loaded are never evicted
+            if (!future.isDone() || future.isCompletedExceptionally()) continue;
+            final ConfigWrapperImpl<?> wrapper = future.join();
+            if (!evictable.test(wrapper)) continue;
+            iterator.remove();
+            evicted.add(wrapper);
+            excess--;
+        }
+        return evicted;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.config;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotBlank;
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+import static com.github.secretx33.sccfg.util.Preconditions.checkState;
+import static com.github.secretx33.sccfg.util.Preconditions.notContainsNull;
+
+/**
+ * Immutable description of a single entry of a configuration class, which holds everything about that
+ * field that doesn't depend on a config instance, like where it should be stored at (relative to the root
+ * of the file), what name should be used, its comments, etc. It's shared by all {@link PropertyWrapperImpl}
+ * of that field.
+ */
+public final class PropertyDescriptor {
+
+    /**
+     * A field belonging to a config class (or any of its parents) which will be saved to and read from a
+     * configuration file.
+     */
+    private final Field field;
+
+    /**
+     * What name should be used when saving this entry to the file, will never be empty.
+     */
+    private final String nameOnFile;
+
+    /**
+     * Holds the path inside the file where this config entry should be placed at, use dots to separate
+     * between layers (on a Map style), empty means "root of the file".
+     */
+    private final String path;
+
+    private final String fullPath;
+    private final List<String> fullPathSegments;
+    @Nullable
+    private final String comment;
+    @Nullable
+    private final String[] commentLines;
+
+    /**
+     * The type adapter of this field, along with the Gson instance it was resolved from.
+     */
+    @Nullable
+    private volatile ResolvedTypeAdapter typeAdapter;
+
+    public PropertyDescriptor(final Field field, final String nameOnFile, final String path, final String[] comments) {
+        this.field = checkNotNull(field, "field");
+        this.nameOnFile = checkNotBlank(nameOnFile, "nameOnFile");
+        this.path = checkNotNull(path, "path");
+        this.fullPath = path.isEmpty() ? nameOnFile : (path + "." + nameOnFile);
+        this.fullPathSegments = Collections.unmodifiableList(Arrays.asList(fullPath.split("\\.")));
+        this.comment = notContainsNull(comments, "comments").length > 0 ? String.join("\n", comments) : null;
+        this.commentLines = comment != null ? comment.split("\\n") : null;
+        checkState(field.isAccessible(), () -> "field must be made accessible in order to be wrapped into a PropertyWrapper (since sc-cfg library relies on accessing it), but field '" + field.getName() + "' from class '" + field.getDeclaringClass().getName() + "' was not!");
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * Gets the type adapter for the generic type of this field, resolving it only once per Gson instance. A new
+     * Gson instance is built every time the registered type adapters change, which invalidates the adapter
+     * resolved from the previous instance.
+     *
+     * @param gson the Gson instance to resolve the type adapter from
+     * @return the type adapter for the generic type of this field
+     */
+    @SuppressWarnings("unchecked")
+    public TypeAdapter<Object> getTypeAdapter(final Gson gson) {
+        checkNotNull(gson, "gson");
+        final ResolvedTypeAdapter resolved = typeAdapter;
+        if (resolved != null && resolved.gson == gson) {
+            return resolved.adapter;
+        }
+        final TypeAdapter<Object> adapter = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(field.getGenericType()));
+        typeAdapter = new ResolvedTypeAdapter(gson, adapter);
+        return adapter;
+    }
+
+    public String getNameOnFile() {
+        return nameOnFile;
+    }
+
+    public String getPathOnFile() {
+        return path;
+    }
+
+    public String getFullPathOnFile() {
+        return fullPath;
+    }
+
+    /**
+     * Returns {@link PropertyDescriptor#getFullPathOnFile()} already split on each dot.
+     */
+    public List<String> getFullPathSegments() {
+        return fullPathSegments;
+    }
+
+    @Nullable
+    public String getComment() {
+        return comment;
+    }
+
+    /**
+     * Returns the comment split in lines, or {@code null} if this entry has no comment. The returned array
+     * is shared, and <b>must not</b> be modified.
+     */
+    @Nullable
+    String[] getCommentLines() {
+        return commentLines;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final PropertyDescriptor that = (PropertyDescriptor) o;
+        return field.equals(that.field)
+                && nameOnFile.equals(that.nameOnFile)
+                && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, nameOnFile, path);
+    }
+
+    @Override
+    public String toString() {
+        return "PropertyDescriptor{" +
+                "field=" + field +
+                ", nameOnFile='" + nameOnFile + '\'' +
+                ", path='" + path + '\'' +
+                '}';
+    }
+
+    private static final class ResolvedTypeAdapter {
+
+        private final Gson gson;
+        private final TypeAdapter<Object> adapter;
+
+        private ResolvedTypeAdapter(final Gson gson, final TypeAdapter<Object> adapter) {
+            this.gson = gson;
+            this.adapter = adapter;
+        }
+    }
+}
@@ -16,20 +16,21 @@
 package com.github.secretx33.sccfg.config;
 
 import com.github.secretx33.sccfg.exception.ConfigReflectiveOperationException;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
-import java.util.Objects;
+import java.util.List;
 
-import static com.github.secretx33.sccfg.util.Preconditions.checkNotBlank;
 import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
 import static com.github.secretx33.sccfg.util.Preconditions.checkState;
-import static com.github.secretx33.sccfg.util.Preconditions.notContainsNull;
 
 /**
- * Represents an entry of a config instance, and holds relevant data of that particular field, like
- * where it should be stored at (relative to the root of the file), what name should be used, etc.
+ * Represents an entry of a config instance, binding a config instance to the {@link PropertyDescriptor} of
+ * one of its fields, which holds relevant data of that particular field, like where it should be stored at
+ * (relative to the root of the file), what name should be used, etc.
  */
 public final class PropertyWrapperImpl implements PropertyWrapper {
 
@@ -39,74 +40,65 @@ public final class PropertyWrapperImpl implements PropertyWrapper {
     private final Object instance;
 
     /**
-     * A field belonging to {@link PropertyWrapperImpl#instance} class (or any of its parents) which will be
-     * saved to and read from a configuration file.
+     * Describes a field belonging to {@link PropertyWrapperImpl#instance} class (or any of its parents).
      */
-    private final Field field;
+    private final PropertyDescriptor descriptor;
 
-    /**
-     * What name should be used when saving this entry to the file, will never be empty.
-     */
-    private final String nameOnFile;
-
-    /**
-     * Holds the path inside the file where this config entry should be placed at, use dots to separate
-     * between layers (on a Map style), empty means "root of the file".
-     */
-    private final String path;
-
-    @Nullable
-    private final String comment;
-
-    public PropertyWrapperImpl(final Object instance, final Field field, final String nameOnFile, final String path, final String[] comments) {
+    public PropertyWrapperImpl(final Object instance, final PropertyDescriptor descriptor) {
         this.instance = checkNotNull(instance, "instance");
-        this.field = checkNotNull(field, "field");
-        this.nameOnFile = checkNotBlank(nameOnFile, "nameOnFile");
-        this.path = checkNotNull(path, "path");
-        this.comment = notContainsNull(comments, "comments").length > 0 ? String.join("\n", comments) : null;
+        this.descriptor = checkNotNull(descriptor, "descriptor");
+        final Field field = descriptor.getField();
         checkState(field.getDeclaringClass().isAssignableFrom(instance.getClass()), () -> "field passed as argument belongs to class '" + field.getDeclaringClass().getName() + "', but instance passed as argument is an instance of '" + instance.getClass().getName() + "' which does not inherit from class '" + field.getDeclaringClass().getName() + "'!");
-        checkState(field.isAccessible(), () -> "field must be made accessible in order to be wrapped into a PropertyWrapper (since sc-cfg library relies on accessing it), but field '" + field.getName() + "' from class '" + field.getDeclaringClass().getName() + "' was not!");
+    }
+
+    public PropertyDescriptor getDescriptor() {
+        return descriptor;
     }
 
     @Override
     public String getName() {
-        return field.getName();
+        return descriptor.getField().getName();
     }
 
     @Nullable
     @Override
     public String getComment() {
-        return comment;
+        return descriptor.getComment();
     }
 
     @Override
     public boolean hasComment() {
-        return comment != null;
+        return descriptor.getComment() != null;
     }
 
     @Override
     public String getNameOnFile() {
-        return nameOnFile;
+        return descriptor.getNameOnFile();
     }
 
     @Override
     public String getPathOnFile() {
-        return path;
+        return descriptor.getPathOnFile();
     }
 
     @Override
     public String getFullPathOnFile() {
-        return isAtRoot() ? getNameOnFile() : (getPathOnFile() + "." + getNameOnFile());
+        return descriptor.getFullPathOnFile();
+    }
+
+    @Override
+    public List<String> getFullPathSegments() {
+        return descriptor.getFullPathSegments();
     }
 
     @Override
     public Class<?> getType() {
-        return field.getType();
+        return descriptor.getField().getType();
     }
 
     @Override
     public Type getGenericType() {
-        return field.getGenericType();
+        return descriptor.getField().getGenericType();
     }
 
     @Override
@@ -114,15 +106,20 @@ public final class PropertyWrapperImpl implements PropertyWrapper {
         return instance.getClass();
     }
 
+    @Override
+    public TypeAdapter<Object> getTypeAdapter(final Gson gson) {
+        return descriptor.getTypeAdapter(gson);
+    }
+
     @Override
     public boolean isAtRoot() {
-        return path.isEmpty();
+        return descriptor.getPathOnFile().isEmpty();
     }
 
     @Override
     public Object get() {
         try {
-            return field.get(instance);
+            return descriptor.getField().get(instance);
         } catch (final IllegalAccessException e) {
             // this should never be thrown
             throw new ConfigReflectiveOperationException(e);
@@ -132,7 +129,7 @@ public final class PropertyWrapperImpl implements PropertyWrapper {
     @Override
     public void set(final Object value) throws IllegalArgumentException {
         try {
-            field.set(instance, value);
+            descriptor.getField().set(instance, value);
         } catch (final IllegalAccessException e) {
             // this should never be thrown
             throw new ConfigReflectiveOperationException(e);
@@ -144,24 +141,21 @@ public final class PropertyWrapperImpl implements PropertyWrapper {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         final PropertyWrapperImpl that = (PropertyWrapperImpl) o;
-        return instance.equals(that.instance)
-                && field.equals(that.field)
-                && nameOnFile.equals(that.nameOnFile)
-                && path.equals(that.path);
+        // properties are used as keys while their instances are modified, so instances are compared by identity
+        return instance == that.instance
+                && descriptor.equals(that.descriptor);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(instance, field, nameOnFile, path);
+        return 31 * System.identityHashCode(instance) + descriptor.hashCode();
     }
 
     @Override
     public String toString() {
         return "PropertyWrapper{" +
                 "instance=" + instance +
-                ", field=" + field +
-                ", nameOnFile='" + nameOnFile + '\'' +
-                ", path='" + path + '\'' +
+                ", descriptor=" + descriptor +
                 '}';
     }
 }
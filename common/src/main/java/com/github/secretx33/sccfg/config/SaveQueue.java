@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkArgument;
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Write-behind queue for asynchronous saves. A save is only written some time after being requested, and
+ * all saves of the same config requested until then are merged into that single write, which is made on a
+ * background thread. Once the write starts, new saves of that config are queued for another write, so the
+ * latest values always end up on the disk.<br><br>
+ *
+ * The queue must be {@link SaveQueue#shutdown() shut down} by the platform while it's being disabled (and its
+ * classes can still be loaded), since the saver thread is a daemon thread and queued saves would be lost.
+ */
+final class SaveQueue {
+
+    private final Logger logger;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<ConfigWrapper<?>, PendingSave> pending = new ConcurrentHashMap<>();
+    private volatile boolean shutdown;
+
+    SaveQueue(final Logger logger) {
+        this.logger = checkNotNull(logger, "logger");
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "sc-cfg-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queues a save of a config, merging it with the save of that config that is already queued, if any.
+     *
+     * @param configWrapper the config to be saved
+     * @param delayMillis how long to wait before writing, if no save of that config is queued yet
+     * @param write the action that writes the config to the disk
+     * @return a future that completes once the config is written
+     */
+    CompletableFuture<Void> enqueue(final ConfigWrapper<?> configWrapper, final long delayMillis, final Runnable write) {
+        checkNotNull(configWrapper, "configWrapper");
+        checkArgument(delayMillis >= 0, () -> "delayMillis cannot be negative, but was " + delayMillis);
+        checkNotNull(write, "write");
+
+        if (shutdown) {
+            final PendingSave save = new PendingSave(write);
+            write(configWrapper, save);
+            return save.future;
+        }
+        final PendingSave save = pending.computeIfAbsent(configWrapper, wrapper -> schedule(wrapper, new PendingSave(write), delayMillis));
+        // the queue was shut down while the save was being queued, so it's written right away
+        if (save.task == null && pending.remove(configWrapper, save)) {
+            write(configWrapper, save);
+        }
+        return save.future;
+    }
+
+    private PendingSave schedule(final ConfigWrapper<?> configWrapper, final PendingSave save, final long delayMillis) {
+        try {
+            save.task = scheduler.schedule(() -> run(configWrapper, save), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException ignored) {
+            // the queue was shut down
+        }
+        return save;
+    }
+
+    private void run(final ConfigWrapper<?> configWrapper, final PendingSave save) {
+        // saves requested from now on must capture values that may not be written by this one, and saves
+        // already removed were written by a flush
+        if (pending.remove(configWrapper, save)) {
+            write(configWrapper, save);
+        }
+    }
+
+    private void write(final ConfigWrapper<?> configWrapper, final PendingSave save) {
+        try {
+            save.write.run();
+            save.future.complete(null);
+        } catch (final Throwable t) {
+            logger.log(Level.SEVERE, "An error has occurred when saving config '" + configWrapper.getInstance().getClass().getName() + "' asynchronously.", t);
+            save.future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Checks if a save of a config is queued, and was not written yet.
+     *
+     * @param configWrapper the config
+     * @return true if a save of {@code configWrapper} is waiting to be written
+     */
+    boolean isQueued(final ConfigWrapper<?> configWrapper) {
+        checkNotNull(configWrapper, "configWrapper");
+        return pending.containsKey(configWrapper);
+    }
+
+    /**
+     * Immediately writes all queued saves on the calling thread, and waits for the ones already being written.
+     */
+    void flush() {
+        final List<Map.Entry<ConfigWrapper<?>, PendingSave>> saves = new ArrayList<>(pending.entrySet());
+        for (final Map.Entry<ConfigWrapper<?>, PendingSave> entry : saves) {
+            final PendingSave save = entry.getValue();
+            final ScheduledFuture<?> task = save.task;
+            if ((task == null || task.cancel(false)) && pending.remove(entry.getKey(), save)) {
+                write(entry.getKey(), save);
+                continue;
+            }
+            try {
+                save.future.join();
+            } catch (final CompletionException ignored) {
+                // already logged
+            }
+        }
+    }
+
+    /**
+     * Writes all queued saves on the calling thread and stops the saver thread. Saves requested after this
+     * method is called are written right away, on the thread that requested them.
+     */
+    void shutdown() {
+        shutdown = true;
+        scheduler.shutdown();
+        flush();
+    }
+
+    private static final class PendingSave {
+        private final Runnable write;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> task;
+
+        private PendingSave(final Runnable write) {
+            this.write = write;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.platform;
+
+import com.github.secretx33.sccfg.config.ConfigFactory;
+import com.github.secretx33.sccfg.config.ConfigFactoryImpl;
+import com.github.secretx33.sccfg.executor.SyncExecutor;
+import com.github.secretx33.sccfg.scanner.Scanner;
+import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
+import com.github.secretx33.sccfg.serialization.gson.GsonFactoryImpl;
+import com.github.secretx33.sccfg.storage.FileWatcher;
+import com.github.secretx33.sccfg.storage.FileWatcherProvider;
+import com.github.secretx33.sccfg.util.Lazy;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+/**
+ * Base {@link Platform} that only creates its components when they're first needed, so that enabling a
+ * plugin doesn't pay for the classpath scan, the file watcher and so on until a config is actually used.<br><br>
+ *
+ * Components that don't depend on each other are created concurrently: when the {@link ConfigFactory} is
+ * first requested, the {@link FileWatcher} is set up in background while the classpath is being scanned.
+ */
+public abstract class AbstractPlatform implements Platform {
+
+    private final Lazy<Scanner> scanner = Lazy.of(this::createScanner);
+    private final Lazy<FileWatcher> fileWatcher = Lazy.of(() -> FileWatcherProvider.get(getBasePath()));
+    private final Lazy<GsonFactory> gsonFactory = Lazy.of(() -> new GsonFactoryImpl(getLogger(), scanner.get()));
+    private final Lazy<ConfigFactory> configFactory = Lazy.of(this::createConfigFactory);
+
+    protected abstract Logger getLogger();
+
+    /**
+     * Gets the folder in which all config files of this platform are stored.
+     */
+    protected abstract Path getBasePath();
+
+    protected abstract Scanner createScanner();
+
+    protected abstract SyncExecutor createSyncExecutor();
+
+    private ConfigFactory createConfigFactory() {
+        // set up the file watcher in background while the classpath is being scanned
+        fileWatcher.getAsync(backgroundExecutor());
+        return new ConfigFactoryImpl(
+                getLogger(),
+                gsonFactory.get(),
+                getBasePath(),
+                scanner.get(),
+                fileWatcher.get(),
+                createSyncExecutor()
+        );
+    }
+
+    @Override
+    public final ConfigFactory getConfigFactory() {
+        return configFactory.get();
+    }
+
+    @Override
+    public final GsonFactory getGsonFactory() {
+        return gsonFactory.get();
+    }
+
+    @Override
+    public CompletableFuture<Void> preload() {
+        final Executor executor = backgroundExecutor();
+        return CompletableFuture.allOf(scanner.getAsync(executor), fileWatcher.getAsync(executor))
+                .thenCompose(ignored -> configFactory.getAsync(executor))
+                .thenApply(ignored -> null);
+    }
+
+    @Override
+    public void shutdown() {
+        // components that were never created have nothing to shut down
+        if (configFactory.isInitialized()) {
+            configFactory.get().shutdown();
+        }
+    }
+
+    protected Executor backgroundExecutor() {
+        return ForkJoinPool.commonPool();
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.scanner;
+
+import com.github.secretx33.sccfg.api.annotation.AfterReload;
+import com.github.secretx33.sccfg.api.annotation.BeforeReload;
+import com.github.secretx33.sccfg.api.annotation.Comment;
+import com.github.secretx33.sccfg.api.annotation.ConfigDirectory;
+import com.github.secretx33.sccfg.api.annotation.Configuration;
+import com.github.secretx33.sccfg.api.annotation.IgnoreField;
+import com.github.secretx33.sccfg.api.annotation.Keyed;
+import com.github.secretx33.sccfg.api.annotation.Name;
+import com.github.secretx33.sccfg.api.annotation.NamedPath;
+import com.github.secretx33.sccfg.api.annotation.Path;
+import com.github.secretx33.sccfg.config.MethodWrapper;
+import com.github.secretx33.sccfg.config.MethodWrapperImpl;
+import com.github.secretx33.sccfg.exception.ConfigReflectiveOperationException;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Immutable snapshot of everything sc-cfg needs to know about a configuration class that can only be
+ * obtained through reflection: its {@link Configuration} and {@link Keyed} annotations, no-args constructor, serializable
+ * and ignored fields (with their annotations) and reload hooks.<br><br>
+ *
+ * The class hierarchy is walked only once per class, and the result is cached for as long as the class
+ * itself is loaded, so all callers should get it through {@link ConfigClassMetadata#of(Class)}.
+ */
+public final class ConfigClassMetadata {
+
+    private static final ClassValue<ConfigClassMetadata> CACHE = new ClassValue<ConfigClassMetadata>() {
+        @Override
+        protected ConfigClassMetadata computeValue(final Class<?> type) {
+            return new ConfigClassMetadata(type);
+        }
+    };
+
+    @Nullable
+    private static final Field MODIFIERS_FIELD;
+
+    static {
+        Field modifiersField = null;
+        try {
+            modifiersField = Field.class.getDeclaredField("modifiers");
+            modifiersField.setAccessible(true);
+        } catch (final NoSuchFieldException e) {
+            // Java 9+ throws NoSuchFieldException for that operation, is safe to ignore it
+        } finally {
+            MODIFIERS_FIELD = modifiersField;
+        }
+    }
+
+    private final Class<?> configClass;
+    @Nullable
+    private final Configuration configAnnotation;
+    @Nullable
+    private final Keyed keyedAnnotation;
+    @Nullable
+    private final Constructor<?> noArgsConstructor;
+    private final Set<FieldMetadata> fields;
+    private final Set<Field> configurationFields;
+    private final Set<Field> ignoredFields;
+    private final Set<Field> directoryFields;
+    private final Set<MethodWrapper> beforeReloadMethods;
+    private final Set<MethodWrapper> afterReloadMethods;
+
+    private ConfigClassMetadata(final Class<?> configClass) {
+        this.configClass = checkNotNull(configClass, "configClass");
+        this.configAnnotation = configClass.getDeclaredAnnotation(Configuration.class);
+        this.keyedAnnotation = configClass.getDeclaredAnnotation(Keyed.class);
+        this.noArgsConstructor = Arrays.stream(configClass.getDeclaredConstructors())
+                .filter(c -> c.getParameterCount() == 0)
+                .findAny()
+                .orElse(null);
+
+        // only configuration classes have their members scanned (and made accessible), any other class
+        // only needs to tell that it's not a configuration class
+        if (configAnnotation == null) {
+            this.fields = Collections.emptySet();
+            this.configurationFields = Collections.emptySet();
+            this.ignoredFields = Collections.emptySet();
+            this.directoryFields = Collections.emptySet();
+            this.beforeReloadMethods = Collections.emptySet();
+            this.afterReloadMethods = Collections.emptySet();
+            return;
+        }
+
+        final List<Class<?>> hierarchy = getHierarchy(configClass);
+        final Set<FieldMetadata> fields = new LinkedHashSet<>();
+        final Set<Field> configurationFields = new LinkedHashSet<>();
+        final Set<Field> ignoredFields = new LinkedHashSet<>();
+        final Set<Field> directoryFields = new LinkedHashSet<>();
+
+        for (final Field field : getAllFields(hierarchy)) {
+            final int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers)) continue;
+
+            if (field.getDeclaredAnnotation(IgnoreField.class) != null) {
+                field.setAccessible(true);
+                ignoredFields.add(field);
+                continue;
+            }
+            if (Modifier.isTransient(modifiers)) continue;
+
+            if (field.getDeclaredAnnotation(ConfigDirectory.class) != null) {
+                turnAccessibleNonFinalField(field);
+                directoryFields.add(field);
+                continue;
+            }
+            turnAccessibleNonFinalField(field);
+            configurationFields.add(field);
+            fields.add(new FieldMetadata(field));
+        }
+
+        final Set<MethodWrapper> beforeReloadMethods = new LinkedHashSet<>();
+        final Set<MethodWrapper> afterReloadMethods = new LinkedHashSet<>();
+
+        for (final Method method : getAllMethods(hierarchy)) {
+            if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())) continue;
+
+            final BeforeReload beforeReload = method.getDeclaredAnnotation(BeforeReload.class);
+            final AfterReload afterReload = method.getDeclaredAnnotation(AfterReload.class);
+            if (beforeReload == null && afterReload == null) continue;
+
+            method.setAccessible(true);
+            if (beforeReload != null) {
+                beforeReloadMethods.add(new MethodWrapperImpl(method, beforeReload.async()));
+            }
+            if (afterReload != null) {
+                afterReloadMethods.add(new MethodWrapperImpl(method, afterReload.async()));
+            }
+        }
+
+        this.fields = Collections.unmodifiableSet(fields);
+        this.configurationFields = Collections.unmodifiableSet(configurationFields);
+        this.ignoredFields = Collections.unmodifiableSet(ignoredFields);
+        this.directoryFields = Collections.unmodifiableSet(directoryFields);
+        this.beforeReloadMethods = Collections.unmodifiableSet(beforeReloadMethods);
+        this.afterReloadMethods = Collections.unmodifiableSet(afterReloadMethods);
+    }
+
+    /**
+     * Gets the metadata of {@code clazz}, computing it only if this is the first time this class is
+     * requested.
+     *
+     * @param clazz the class to get the metadata of
+     * @return the cached metadata of {@code clazz}
+     */
+    public static ConfigClassMetadata of(final Class<?> clazz) {
+        checkNotNull(clazz, "clazz");
+        return CACHE.get(clazz);
+    }
+
+    public Class<?> getConfigClass() {
+        return configClass;
+    }
+
+    /**
+     * Returns the {@link Configuration} annotation present on the class, or {@code null} if the class
+     * is not a configuration class.
+     */
+    @Nullable
+    public Configuration getConfigAnnotation() {
+        return configAnnotation;
+    }
+
+    public boolean isConfigClass() {
+        return configAnnotation != null;
+    }
+
+    /**
+     * Returns the {@link Keyed} annotation present on the class, or {@code null} if there is none.
+     */
+    @Nullable
+    public Keyed getKeyedAnnotation() {
+        return keyedAnnotation;
+    }
+
+    /**
+     * Returns the no-args constructor of the class, or {@code null} if there is none. This constructor is
+     * <b>not</b> made accessible.
+     */
+    @Nullable
+    public Constructor<?> getNoArgsConstructor() {
+        return noArgsConstructor;
+    }
+
+    public boolean hasNoArgsConstructor() {
+        return noArgsConstructor != null;
+    }
+
+    /**
+     * Returns all fields that should be serialized, together with their sc-cfg annotations, in
+     * declaration order (child class fields first).
+     */
+    public Set<FieldMetadata> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns all fields that should be serialized, already accessible and with {@code final} modifier removed
+     * (when the current Java version allows it).
+     */
+    public Set<Field> getConfigurationFields() {
+        return configurationFields;
+    }
+
+    /**
+     * Returns all fields annotated with {@link IgnoreField}, already accessible.
+     */
+    public Set<Field> getIgnoredFields() {
+        return ignoredFields;
+    }
+
+    /**
+     * Returns all fields annotated with {@link ConfigDirectory}, already accessible. These fields are not
+     * present in {@link ConfigClassMetadata#getFields()}.
+     */
+    public Set<Field> getDirectoryFields() {
+        return directoryFields;
+    }
+
+    public Set<MethodWrapper> getBeforeReloadMethods() {
+        return beforeReloadMethods;
+    }
+
+    public Set<MethodWrapper> getAfterReloadMethods() {
+        return afterReloadMethods;
+    }
+
+    private static List<Class<?>> getHierarchy(final Class<?> clazz) {
+        final List<Class<?>> classes = new ArrayList<>();
+        Class<?> currentClass = clazz;
+        while (currentClass != null && !Object.class.equals(currentClass)) {
+            classes.add(currentClass);
+            currentClass = currentClass.getSuperclass();
+        }
+        return classes;
+    }
+
+    private static Set<Field> getAllFields(final List<Class<?>> hierarchy) {
+        // fields shadowed by a child class (same name) are not added again
+        final Set<Field> fields = new LinkedHashSet<>();
+        final Set<String> fieldNames = new HashSet<>();
+        for (final Class<?> clazz : hierarchy) {
+            for (final Field field : clazz.getDeclaredFields()) {
+                if (fieldNames.add(field.getName())) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static Set<Method> getAllMethods(final List<Class<?>> hierarchy) {
+        // methods overridden by a child class (same signature) are not added again
+        final Map<String, Method> methods = new LinkedHashMap<>();
+        for (final Class<?> clazz : hierarchy) {
+            for (final Method method : clazz.getDeclaredMethods()) {
+                if (method.isBridge() || method.isSynthetic()) continue;
+                methods.putIfAbsent(method.getName() + Arrays.toString(method.getParameterTypes()), method);
+            }
+        }
+        return new LinkedHashSet<>(methods.values());
+    }
+
+    private static void turnAccessibleNonFinalField(final Field field) {
+        field.setAccessible(true);
+        if (MODIFIERS_FIELD != null) {
+            try {
+                MODIFIERS_FIELD.setInt(field, field.getModifiers() & ~Modifier.FINAL);
+            } catch (final ReflectiveOperationException e) {
+                throw new ConfigReflectiveOperationException(e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigClassMetadata{" +
+                "configClass=" + configClass +
+                ", configAnnotation=" + configAnnotation +
+                ", keyedAnnotation=" + keyedAnnotation +
+                ", fields=" + fields +
+                ", ignoredFields=" + ignoredFields +
+                ", directoryFields=" + directoryFields +
+                ", beforeReloadMethods=" + beforeReloadMethods +
+                ", afterReloadMethods=" + afterReloadMethods +
+                '}';
+    }
+
+    /**
+     * A serializable field of a configuration class, together with all sc-cfg annotations present on it.
+     */
+    public static final class FieldMetadata {
+
+        private final Field field;
+        @Nullable
+        private final Name name;
+        @Nullable
+        private final Path path;
+        @Nullable
+        private final NamedPath namedPath;
+        @Nullable
+        private final Comment comment;
+
+        private FieldMetadata(final Field field) {
+            this.field = checkNotNull(field, "field");
+            this.name = field.getDeclaredAnnotation(Name.class);
+            this.path = field.getDeclaredAnnotation(Path.class);
+            this.namedPath = field.getDeclaredAnnotation(NamedPath.class);
+            this.comment = field.getDeclaredAnnotation(Comment.class);
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        @Nullable
+        public Name getName() {
+            return name;
+        }
+
+        @Nullable
+        public Path getPath() {
+            return path;
+        }
+
+        @Nullable
+        public NamedPath getNamedPath() {
+            return namedPath;
+        }
+
+        @Nullable
+        public Comment getComment() {
+            return comment;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final FieldMetadata that = (FieldMetadata) o;
+            return field.equals(that.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field);
+        }
+
+        @Override
+        public String toString() {
+            return "FieldMetadata{" +
+                    "field=" + field +
+                    ", name=" + name +
+                    ", path=" + path +
+                    ", namedPath=" + namedPath +
+                    ", comment=" + comment +
+                    '}';
+        }
+    }
+}
@@ -34,6 +34,11 @@ public interface Scanner {
      */
     Set<Class<?>> getCustomRegisterTypeAdapters();
 
+    /**
+     * Return the cached metadata of {@code clazz}, which is computed only once per class.
+     */
+    ConfigClassMetadata getClassMetadata(final Class<?> clazz);
+
     /**
      * Return a set containing all methods that should be run before reloading the config instance.
      */
@@ -24,7 +24,6 @@ import com.github.secretx33.sccfg.exception.ConfigOverlappingPathException;
 import com.github.secretx33.sccfg.exception.ConfigSerializationException;
 import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
 import com.github.secretx33.sccfg.util.Maps;
-import com.google.gson.Gson;
 import org.jetbrains.annotations.Nullable;
 import org.spongepowered.configurate.CommentedConfigurationNodeIntermediary;
 import org.spongepowered.configurate.ConfigurateException;
@@ -33,12 +32,13 @@ import org.spongepowered.configurate.loader.AbstractConfigurationLoader;
 import org.spongepowered.configurate.serialize.SerializationException;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -71,7 +71,7 @@ abstract class AbstractConfigurateSerializer<U extends AbstractConfigurationLoad
      * @return a map holding the "java names" mapped to "file values"
      */
     @Override
-    protected final Map<String, Object> loadFromFile(final ConfigWrapper<?> configWrapper) {
+    protected Map<String, Object> loadFromFile(final ConfigWrapper<?> configWrapper) {
         final Path filePath = configWrapper.getDestination();
         final ConfigurationNode file;
 
@@ -86,8 +86,7 @@ abstract class AbstractConfigurateSerializer<U extends AbstractConfigurationLoad
         final Map<String, Object> values = new LinkedHashMap<>();
 
         properties.forEach(entry -> {
-            final String pathOnFile = entry.getFullPathOnFile();
-            final Object value = file.node(Arrays.asList(pathOnFile.split("\\."))).raw();
+            final Object value = file.node(entry.getFullPathSegments()).raw();
             if (value != null) {
                 values.put(entry.getName(), value);
             }
@@ -101,7 +100,6 @@ abstract class AbstractConfigurateSerializer<U extends AbstractConfigurationLoad
 
     @Override
     protected final void saveToFile(final ConfigWrapper<?> configWrapper, final Map<String, Object> newValues) {
-        final Path path = configWrapper.getDestination();
         final String serializedFile;
 
         try {
@@ -118,21 +116,19 @@ abstract class AbstractConfigurateSerializer<U extends AbstractConfigurationLoad
             throw ex;
         }
 
-        final ConfigurationNode fileNode;
+        final String fileContent;
         try {
-            fileNode = fileBuilder(configWrapper).buildAndLoadString(serializedFile);
+            final ConfigurationNode fileNode = fileBuilder(configWrapper).buildAndLoadString(serializedFile);
+            applyComments(configWrapper, fileNode);
+            fileContent = decorateFile(configWrapper, fileBuilder(configWrapper).buildAndSaveString(fileNode));
         } catch (final ConfigurateException e) {
             final ConfigSerializationException ex = new ConfigSerializationException(e);
             logger.log(Level.SEVERE, "An error has occurred when converting the config class " + configWrapper.getInstance().getClass().getName() + " to " + configWrapper.getFileType() + ".", ex);
             throw ex;
         }
-        applyComments(configWrapper, fileNode);
 
-        configWrapper.registerFileModification();
         try {
-            fileBuilder(configWrapper).path(path).build().save(fileNode);
-            configWrapper.registerFileModification();
-            afterSave(configWrapper);
+            writeFileAtomically(configWrapper, output -> output.write(fileContent.getBytes(StandardCharsets.UTF_8)));
         } catch (final IOException e) {
             logger.log(Level.SEVERE, "An error has occurred when saving your config file '" + configWrapper.getInstance().getClass().getName() + " to the disk.", e);
             throw new ConfigException(e);
@@ -141,14 +137,19 @@ abstract class AbstractConfigurateSerializer<U extends AbstractConfigurationLoad
 
     private void applyComments(final ConfigWrapper<?> configWrapper, final ConfigurationNode fileNode) {
         if (!(fileNode instanceof CommentedConfigurationNodeIntermediary<?>)) return;
-        final CommentedConfigurationNodeIntermediary<?> commentedFileNode = (CommentedConfigurationNodeIntermediary<?>) fileNode;
         // insert header in root node
-        commentedFileNode.comment(configWrapper.getHeader());
+        ((CommentedConfigurationNodeIntermediary<?>) fileNode).comment(configWrapper.getHeader());
+        applyPropertyComments(configWrapper, fileNode);
+    }
+
+    private void applyPropertyComments(final ConfigWrapper<?> configWrapper, final ConfigurationNode fileNode) {
+        if (!(fileNode instanceof CommentedConfigurationNodeIntermediary<?>)) return;
+        final CommentedConfigurationNodeIntermediary<?> commentedFileNode = (CommentedConfigurationNodeIntermediary<?>) fileNode;
         // insert comments on config entries
         configWrapper.getProperties().stream()
             .filter(PropertyWrapper::hasComment)
             .forEach(entry -> {
-                final CommentedConfigurationNodeIntermediary<?> node = commentedFileNode.node(Arrays.asList(entry.getFullPathOnFile().split("\\.")));
+                final CommentedConfigurationNodeIntermediary<?> node = commentedFileNode.node(entry.getFullPathSegments());
                 if (!node.virtual()) {
                     node.comment(entry.getComment());
                 }
@@ -156,32 +157,97 @@ abstract class AbstractConfigurateSerializer<U extends AbstractConfigurationLoad
     }
 
     /**
-     * Must be run after saving the configuration file. This allows for specific serializer implementations to
-     * perform specific tasks that normalize the expected behavior between various implementations.
+     * Renders {@code values} the same way they would be written on the config file, together with the comments
+     * of their properties, but without the header of the file.
+     *
+     * @param configWrapper the config that holds the values
+     * @param values the serializable values to render, nested by their path on the file
+     * @return the rendered values
+     * @throws ConfigSerializationException if the values could not be rendered
+     */
+    final String renderValues(final ConfigWrapper<?> configWrapper, final Map<String, Object> values) {
+        return renderValues(configWrapper, values, fileBuilder(null));
+    }
+
+    /**
+     * Renders {@code values} like {@link AbstractConfigurateSerializer#renderValues(ConfigWrapper, Map)} does,
+     * but using the loader built by {@code builder}.
+     *
+     * @param configWrapper the config that holds the values
+     * @param values the serializable values to render, nested by their path on the file
+     * @param builder the builder of the loader that renders the values
+     * @return the rendered values
+     * @throws ConfigSerializationException if the values could not be rendered
+     */
+    final String renderValues(final ConfigWrapper<?> configWrapper, final Map<String, Object> values, final AbstractConfigurationLoader.Builder<U, L> builder) {
+        try {
+            final ConfigurationNode node = builder.buildAndLoadString(convertValuesMapToSerializedFile(values));
+            applyPropertyComments(configWrapper, node);
+            return decorateFile(configWrapper, builder.buildAndSaveString(node));
+        } catch (final ConfigurateException e) {
+            throw new ConfigSerializationException(e);
+        }
+    }
+
+    /**
+     * Renders {@code values} the same way they would be written on the config file, without any comments.
+     *
+     * @param values the serializable values to render, nested by their path on the file
+     * @return the rendered values
+     * @throws ConfigSerializationException if the values could not be rendered
+     */
+    final String renderValues(final Map<String, Object> values) {
+        return renderValues(values, fileBuilder(null));
+    }
+
+    /**
+     * Renders {@code values} like {@link AbstractConfigurateSerializer#renderValues(Map)} does, but using the
+     * loader built by {@code builder}.
+     *
+     * @param values the serializable values to render, nested by their path on the file
+     * @param builder the builder of the loader that renders the values
+     * @return the rendered values
+     * @throws ConfigSerializationException if the values could not be rendered
+     */
+    final String renderValues(final Map<String, Object> values, final AbstractConfigurationLoader.Builder<U, L> builder) {
+        try {
+            return builder.buildAndSaveString(builder.buildAndLoadString(convertValuesMapToSerializedFile(values)));
+        } catch (final ConfigurateException e) {
+            throw new ConfigSerializationException(e);
+        }
+    }
+
+    /**
+     * Allows specific serializer implementations to adjust the final content of the configuration file before
+     * it is written to the disk, in order to normalize the expected behavior between various implementations.
+     *
+     * @param configWrapper the config being saved
+     * @param fileContent the content of the file, as produced by Configurate
+     * @return the content that should be written to the file
      */
-    protected void afterSave(final ConfigWrapper<?> configWrapper) throws IOException {
+    protected String decorateFile(final ConfigWrapper<?> configWrapper, final String fileContent) {
+        return fileContent;
     }
 
     @Override
     @SuppressWarnings("unchecked")
-    public final Map<String, Object> getCurrentValues(final Object configInstance, final Set<PropertyWrapper> properties) {
+    public final Map<String, Object> getValues(final Object configInstance, final Set<PropertyWrapper> properties, final Function<PropertyWrapper, Object> values) {
         checkNotNull(configInstance, "configInstance");
         checkNotNull(properties, "properties");
+        checkNotNull(values, "values");
 
         final ConfigurationNode root = emptyNode();
-        final Gson gson = gsonFactory.getInstance();
 
         properties.forEach(configEntry -> {
             final Object serializableValue;
 
             try {
-                serializableValue = mapToSerializableValue(gson, configEntry);
+                serializableValue = mapToSerializableValue(configEntry, values.apply(configEntry));
             } catch (final RuntimeException e) {
                 throw new ConfigSerializationException("sc-cfg doesn't know how to serialize field '" + configEntry.getName() + "' in config class '" + configInstance.getClass().getName() + "', consider adding a Type Adapter for " + configEntry.getGenericType() + ".", e);
             }
 
-            final String pathOnFile = configEntry.getFullPathOnFile();
-            final ConfigurationNode node = root.node(Arrays.asList(pathOnFile.split("\\.")));
+            final ConfigurationNode node = root.node(configEntry.getFullPathSegments());
 
             if (!node.isNull()) {
                 throw new ConfigOverlappingPathException("There is an overlapping config on key '" + configEntry.getPathOnFile() + "' of config instance of class " + configInstance.getClass().getSimpleName() + ", which prevented the serialization of field '" + configEntry.getName() + "'. Please structure your paths in a way that ensure that there is no possibility of collision between two properties.");
@@ -18,20 +18,34 @@ package com.github.secretx33.sccfg.serialization;
 import com.github.secretx33.sccfg.config.PropertyWrapper;
 import com.github.secretx33.sccfg.exception.ConfigException;
 import com.github.secretx33.sccfg.exception.ConfigSerializationException;
+import com.github.secretx33.sccfg.serialization.codec.ValueCodec;
+import com.github.secretx33.sccfg.serialization.codec.ValueCodecs;
 import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
 import com.github.secretx33.sccfg.config.ConfigWrapper;
+import com.google.common.collect.MapMaker;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,10 +55,19 @@ abstract class AbstractSerializer implements Serializer {
 
     protected final Logger logger;
     protected final GsonFactory gsonFactory;
+    protected final ValueCodecs valueCodecs;
+    private final SnapshotStore snapshotStore;
+    /**
+     * Fingerprints of the values that each config last loaded from, or saved to, its file. Configs are
+     * compared by identity, since their values change while they're keys of this map.
+     */
+    private final Map<ConfigWrapper<?>, Map<String, Long>> persistedFingerprints = new MapMaker().weakKeys().makeMap();
 
     public AbstractSerializer(final Logger logger, final GsonFactory gsonFactory) {
         this.logger = checkNotNull(logger, "logger");
         this.gsonFactory = checkNotNull(gsonFactory, "gsonFactory");
+        this.valueCodecs = new ValueCodecs(logger, gsonFactory);
+        this.snapshotStore = new SnapshotStore(logger);
     }
 
     @Override
@@ -52,23 +75,142 @@ abstract class AbstractSerializer implements Serializer {
         checkNotNull(configWrapper, "configWrapper");
 
         saveDefaults(configWrapper, false);
+        final Set<PropertyWrapper> loadedProperties = loadFileIntoInstance(configWrapper);
+        persistedFingerprints.put(configWrapper, fingerprints(mergeMissingKeys(configWrapper, loadedProperties)));
+        return configWrapper;
+    }
+
+    @Override
+    public final <T> ConfigWrapper<T> loadNewConfig(final ConfigWrapper<T> configWrapper) {
+        checkNotNull(configWrapper, "configWrapper");
+
+        if (!fileExists(configWrapper)) {
+            // the fields already hold the values that are written, so there's nothing to read back
+            saveToFile(configWrapper, configWrapper.getDefaults());
+            persistedFingerprints.put(configWrapper, fingerprints(configWrapper.getProperties()));
+            return configWrapper;
+        }
+        final Set<PropertyWrapper> loadedProperties = loadFileIntoInstance(configWrapper);
+        persistedFingerprints.put(configWrapper, fingerprints(mergeMissingKeys(configWrapper, loadedProperties)));
+        if (loadedProperties.size() < configWrapper.getProperties().size()) {
+            // the properties missing from the file still hold their default values, which the defaults are
+            // lazily computed from, so compute them before these values can be modified
+            configWrapper.getDefaults();
+        }
+        return configWrapper;
+    }
+
+    /**
+     * Inserts the properties that were not loaded from the config file into it, if its config asks for that
+     * and its file type supports it.
+     *
+     * @param configWrapper the config that had its file loaded
+     * @param loadedProperties the properties loaded from the file
+     * @return the properties whose values are now on the file
+     */
+    private Set<PropertyWrapper> mergeMissingKeys(final ConfigWrapper<?> configWrapper, final Set<PropertyWrapper> loadedProperties) {
         final Set<PropertyWrapper> properties = configWrapper.getProperties();
-        final Map<String, Object> fileValues = loadFromFile(configWrapper);
+        if (!configWrapper.getConfigAnnotation().mergeMissingKeys() || loadedProperties.size() >= properties.size()) {
+            return loadedProperties;
+        }
+        final KeyInsertions.Format format = keyInsertionFormat(configWrapper);
+        if (format == null) return loadedProperties;
+
+        // properties are told apart by their path, which is unique within a config, so this doesn't rely on how
+        // the loaded properties implement equals
+        final Set<String> loadedPaths = new HashSet<>();
+        loadedProperties.forEach(property -> loadedPaths.add(property.getFullPathOnFile()));
+        final Set<PropertyWrapper> missingProperties = new LinkedHashSet<>();
+        for (final PropertyWrapper property : properties) {
+            if (!loadedPaths.contains(property.getFullPathOnFile())) {
+                missingProperties.add(property);
+            }
+        }
+        try {
+            final String content = new String(Files.readAllBytes(configWrapper.getDestination()), StandardCharsets.UTF_8);
+            final KeyInsertions.Section root = format.parse(content);
+            if (root == null) {
+                logger.fine("Could not insert the missing keys of config class " + configWrapper.getInstance().getClass().getName() + " into its file because the file layout is not supported, they'll be written on the next save.");
+                return loadedProperties;
+            }
+            final Map<String, Object> values = getValues(configWrapper.getInstance(), missingProperties, PropertyWrapper::get);
+            final List<KeyInsertions.Insertion> insertions = KeyInsertions.plan(root, missingProperties, values);
+            if (insertions.isEmpty()) return loadedProperties;
+
+            final byte[] merged = KeyInsertions.apply(content, insertions, format).getBytes(StandardCharsets.UTF_8);
+            writeFileAtomically(configWrapper, output -> output.write(merged));
+
+            final Set<PropertyWrapper> persistedProperties = new HashSet<>(loadedProperties);
+            insertions.forEach(insertion -> persistedProperties.addAll(insertion.getProperties()));
+            return persistedProperties;
+        } catch (final IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not insert the missing keys of config class " + configWrapper.getInstance().getClass().getName() + " into its file '" + configWrapper.getDestination().getFileName() + "', they'll be written on the next save.", e);
+            return loadedProperties;
+        }
+    }
+
+    /**
+     * Gets how keys can be inserted into the config file, without rewriting it.
+     *
+     * @param configWrapper the config whose file will have keys inserted into
+     * @return the format of the config file, or null if this file type doesn't support inserting keys
+     */
+    @Nullable
+    KeyInsertions.Format keyInsertionFormat(final ConfigWrapper<?> configWrapper) {
+        return null;
+    }
+
+    /**
+     * Reads the values of the config file, and sets them on the matching fields of the config instance.
+     *
+     * @param configWrapper the config that should have its file read
+     * @return the properties that had their values set from the file
+     */
+    Set<PropertyWrapper> loadFileIntoInstance(final ConfigWrapper<?> configWrapper) {
+        final Set<PropertyWrapper> properties = configWrapper.getProperties();
+        final Map<String, Object> fileValues = readValues(configWrapper);
+        final Set<PropertyWrapper> loadedProperties = new HashSet<>();
 
         properties.stream()
             .filter(configEntry -> fileValues.containsKey(configEntry.getName()))
             .forEach(configEntry -> {
                 final Object newValue = fileValues.get(configEntry.getName());
                 try {
-                    setValueOnField(configEntry, newValue);
+                    if (setValueOnField(configEntry, newValue)) {
+                        loadedProperties.add(configEntry);
+                    }
                 } catch (final IllegalArgumentException | JsonSyntaxException e) {
                     // field type does not match the value deserialized
                     final String msg = "Could not deserialize config field '" + configEntry.getName() + "' from file '" + configWrapper.getDestination().getFileName() + "' because the deserialized type '" + newValue.getClass().getSimpleName() + "' does not match the expected type '" + configEntry.getType().getSimpleName() + "'. That usually happens when you make a typo in your configuration file, so please check out that config field and correct any mistakes.";
                     logger.warning(msg);
                 }
             });
+        return loadedProperties;
+    }
 
-        return configWrapper;
+    /**
+     * Reads the values of the config file, from its snapshot if the config has them enabled and the file
+     * was not modified since the snapshot was made, or by parsing the file otherwise.
+     */
+    private Map<String, Object> readValues(final ConfigWrapper<?> configWrapper) {
+        if (!configWrapper.getConfigAnnotation().snapshot()) {
+            return loadFromFile(configWrapper);
+        }
+        // stamp the file before parsing it, so changes made while it is being parsed invalidate the snapshot
+        final SnapshotStore.SourceStamp stamp = snapshotStore.stamp(configWrapper);
+        if (stamp == null) {
+            return loadFromFile(configWrapper);
+        }
+        final Map<String, Object> snapshotValues = snapshotStore.read(configWrapper, stamp);
+        if (snapshotValues != null) {
+            return snapshotValues;
+        }
+        final Map<String, Object> fileValues = loadFromFile(configWrapper);
+        // files that could not be parsed also yield no values, and these should keep failing loudly
+        if (!fileValues.isEmpty()) {
+            snapshotStore.write(configWrapper, stamp, fileValues);
+        }
+        return fileValues;
     }
 
     /**
@@ -94,94 +236,236 @@ abstract class AbstractSerializer implements Serializer {
     public final boolean saveDefaults(final ConfigWrapper<?> configWrapper, final boolean overrideIfExists) {
         checkNotNull(configWrapper, "configWrapper");
 
+        if (fileExists(configWrapper) && !overrideIfExists) return false;
+        saveToFile(configWrapper, configWrapper.getDefaults());
+        persistedFingerprints.remove(configWrapper);
+        return true;
+    }
+
+    private boolean fileExists(final ConfigWrapper<?> configWrapper) {
         final Path path = configWrapper.getDestination();
-        if (overrideIfExists && Files.isRegularFile(path)) {
+        if (!Files.exists(path)) return false;
+        if (!Files.isRegularFile(path)) {
+            throw new ConfigException("File '" + path.getFileName() + "' was expected to be a file, but it's not (it's probably a folder).");
+        }
+        return true;
+    }
+
+    /**
+     * Writes the complete content of the config file into a hidden temporary file next to it, then moves
+     * that file over the config file. This way the config file is replaced in a single step, so external
+     * readers never see a partially written file, and the file watcher gets a single event per save.
+     *
+     * @param configWrapper the config whose file should be written
+     * @param content writes the whole content of the file
+     * @throws IOException if the file could not be written or moved
+     */
+    final void writeFileAtomically(final ConfigWrapper<?> configWrapper, final FileContent content) throws IOException {
+        final Path path = configWrapper.getDestination().toAbsolutePath();
+        final Path parent = path.getParent();
+        Files.createDirectories(parent);
+        final Path tempFile = parent.resolve("." + path.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        boolean moved = false;
+
+        try {
+            try (final OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+                content.write(output);
+            }
             configWrapper.registerFileModification();
             try {
-                Files.delete(path);
-            } catch (final IOException e) {
-                logger.log(Level.SEVERE, "Could not delete the file located at '" + path + "' to override it with default values.", e);
-                return false;
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+            configWrapper.registerFileModification();
+        } finally {
+            if (!moved) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (final IOException ignored) {
+                }
             }
         }
-        if (!createFileIfMissing(configWrapper)) return false;
-        saveToFile(configWrapper, configWrapper.getDefaults());
-        return true;
     }
 
-    protected final boolean createFileIfMissing(final ConfigWrapper<?> configWrapper) {
+    @FunctionalInterface
+    interface FileContent {
+        void write(OutputStream output) throws IOException;
+    }
+
+    @Override
+    public final void saveConfig(final ConfigWrapper<?> configWrapper) {
         checkNotNull(configWrapper, "configWrapper");
-        final Path path = configWrapper.getDestination();
 
-        if (Files.exists(path)) {
-            if (!Files.isRegularFile(path)) {
-                throw new ConfigException("File '" + path.getFileName() + "' was expected to be a file, but it's not (it's probably a folder).");
+        final Set<PropertyWrapper> properties = configWrapper.getProperties();
+        final Map<String, Long> fingerprints = fingerprints(properties);
+        final Map<String, Long> persisted = persistedFingerprints.get(configWrapper);
+        if (isPersisted(properties, fingerprints, persisted) && Files.isRegularFile(configWrapper.getDestination())) return;
+        final Set<PropertyWrapper> changedProperties = patchableProperties(configWrapper, fingerprints, persisted);
+        if (changedProperties == null || !patchFile(configWrapper, changedProperties, getValues(configWrapper.getInstance(), changedProperties, PropertyWrapper::get))) {
+            saveInstanceValues(configWrapper);
+        }
+        persistedFingerprints.put(configWrapper, fingerprints);
+    }
+
+    @Override
+    @Nullable
+    public final Runnable prepareSave(final ConfigWrapper<?> configWrapper) {
+        checkNotNull(configWrapper, "configWrapper");
+
+        final Set<PropertyWrapper> properties = configWrapper.getProperties();
+        final Map<String, Long> fingerprints = fingerprints(properties);
+        final Map<String, Long> persisted = persistedFingerprints.get(configWrapper);
+        if (isPersisted(properties, fingerprints, persisted) && Files.isRegularFile(configWrapper.getDestination())) return null;
+        final Map<String, Object> values = getCurrentValues(configWrapper.getInstance(), properties);
+        final Set<PropertyWrapper> changedProperties = patchableProperties(configWrapper, fingerprints, persisted);
+        return () -> {
+            if (changedProperties == null || !patchFile(configWrapper, changedProperties, values)) {
+                saveToFile(configWrapper, values);
+            }
+            persistedFingerprints.put(configWrapper, fingerprints);
+        };
+    }
+
+    /**
+     * Gets the properties whose values changed since the config file was last loaded or saved, if the config
+     * asks for its file to be patched.
+     *
+     * @return the changed properties, or null if the whole file should be written
+     */
+    @Nullable
+    private Set<PropertyWrapper> patchableProperties(final ConfigWrapper<?> configWrapper, final Map<String, Long> fingerprints, @Nullable final Map<String, Long> persisted) {
+        if (!configWrapper.getConfigAnnotation().patchOnSave() || persisted == null) return null;
+        final Set<PropertyWrapper> changedProperties = new HashSet<>();
+        for (final PropertyWrapper property : configWrapper.getProperties()) {
+            final Long fingerprint = fingerprints.get(property.getName());
+            if (fingerprint == null || !fingerprint.equals(persisted.get(property.getName()))) {
+                changedProperties.add(property);
             }
-            return false;
         }
+        return changedProperties;
+    }
+
+    /**
+     * Patches the values of {@code changedProperties} into the config file, keeping the rest of the file as it is.
+     *
+     * @param configWrapper the config whose file should be patched
+     * @param changedProperties the properties whose values should be patched
+     * @param values the serializable values of (at least) {@code changedProperties}
+     * @return true if the file was patched, false if it should be fully written instead
+     */
+    private boolean patchFile(final ConfigWrapper<?> configWrapper, final Set<PropertyWrapper> changedProperties, final Map<String, Object> values) {
+        final ValuePatches.Patcher patcher = valuePatcher(configWrapper);
+        final Path path = configWrapper.getDestination();
+        if (patcher == null || !Files.isRegularFile(path)) return false;
 
         try {
-            configWrapper.registerFileModification();
-            final Path parent = path.getParent();
-            if (parent != null) {
-                Files.createDirectories(parent);
+            final String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            final String patched = patcher.patch(content, changedProperties, values);
+            if (patched == null) {
+                logger.fine("Could not patch the changed values of config class " + configWrapper.getInstance().getClass().getName() + " into its file, writing the whole file instead.");
+                return false;
+            }
+            if (!patched.equals(content)) {
+                final byte[] bytes = patched.getBytes(StandardCharsets.UTF_8);
+                writeFileAtomically(configWrapper, output -> output.write(bytes));
             }
-            Files.createFile(path);
-        } catch (final IOException e) {
-            logger.log(Level.SEVERE, "An error has occurred when creating config file for class " + configWrapper.getInstance().getClass().getName() + ".", e);
-            throw new ConfigException(e);
+            return true;
+        } catch (final IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Could not patch the changed values of config class " + configWrapper.getInstance().getClass().getName() + " into its file, writing the whole file instead.", e);
+            return false;
         }
-        return true;
+    }
+
+    /**
+     * Gets how the values of the config file can be replaced, without rewriting it.
+     *
+     * @param configWrapper the config whose file will be patched
+     * @return the patcher for the config file, or null if this file type doesn't support patching values
+     */
+    @Nullable
+    ValuePatches.Patcher valuePatcher(final ConfigWrapper<?> configWrapper) {
+        final KeyInsertions.Format format = keyInsertionFormat(configWrapper);
+        return format instanceof ValuePatches.Format ? ValuePatches.of((ValuePatches.Format) format) : null;
     }
 
     @Override
-    public final void saveConfig(final ConfigWrapper<?> configWrapper) {
+    public final boolean isDirty(final ConfigWrapper<?> configWrapper) {
         checkNotNull(configWrapper, "configWrapper");
+        final Set<PropertyWrapper> properties = configWrapper.getProperties();
+        return !isPersisted(properties, fingerprints(properties), persistedFingerprints.get(configWrapper));
+    }
+
+    /**
+     * Checks if the current values of {@code properties} are the ones last persisted. Properties missing
+     * from {@code fingerprints} (because their values could not be serialized) are never considered
+     * persisted, so saving their config is always attempted, and fails loudly if they still can't be
+     * serialized.
+     */
+    private static boolean isPersisted(final Set<PropertyWrapper> properties, final Map<String, Long> fingerprints, @Nullable final Map<String, Long> persisted) {
+        return fingerprints.size() == properties.size() && fingerprints.equals(persisted);
+    }
+
+    /**
+     * Fingerprints the current values of {@code properties}, by hashing them while they are serialized.
+     * Properties whose values could not be serialized are left out (and logged), so they are always
+     * considered dirty. Values are hashed in their serialized order, so maps holding the same entries in
+     * another order have different fingerprints, and are considered dirty too.
+     */
+    private Map<String, Long> fingerprints(final Collection<PropertyWrapper> properties) {
+        final Gson gson = gsonFactory.getInstance();
+        final Map<String, Long> fingerprints = new HashMap<>();
 
-        createFileIfMissing(configWrapper);
-        saveCurrentInstanceValues(configWrapper);
+        for (final PropertyWrapper property : properties) {
+            final FingerprintWriter writer = new FingerprintWriter();
+            final ValueCodec codec = valueCodecs.codecFor(property);
+            try {
+                if (codec == valueCodecs.getDefaultCodec()) {
+                    valueCodecs.getDefaultCodec().write(property, property.get(), writer);
+                } else {
+                    gson.toJson(codec.encode(property, property.get()), writer);
+                }
+            } catch (final RuntimeException e) {
+                logger.log(Level.FINE, "Could not fingerprint the value of property '" + property.getName() + "' of config class " + property.getOwnerClass().getName() + ", so its config is always considered dirty.", e);
+                continue;
+            }
+            fingerprints.put(property.getName(), writer.getHash());
+        }
+        return fingerprints;
     }
 
-    private void saveCurrentInstanceValues(final ConfigWrapper<?> configWrapper) {
+    /**
+     * Saves the current values of the config instance into its file.
+     *
+     * @param configWrapper the config that should have its values saved
+     */
+    void saveInstanceValues(final ConfigWrapper<?> configWrapper) {
         final Object instance = configWrapper.getInstance();
         final Set<PropertyWrapper> properties = configWrapper.getProperties();
         saveToFile(configWrapper, getCurrentValues(instance, properties));
     }
 
-    protected final void setValueOnField(final PropertyWrapper configEntry, final Object rawValue) throws IllegalArgumentException, JsonSyntaxException {
+    protected final boolean setValueOnField(final PropertyWrapper configEntry, final Object rawValue) throws IllegalArgumentException, JsonSyntaxException {
         checkNotNull(configEntry, "configEntry");
         checkNotNull(rawValue, "rawValue");
 
-        final Gson gson = gsonFactory.getInstance();
-        // serialize and deserialize the value to make sure it is the right type of the field, a.k.a. account for
-        // generics, and also make sure to use any registered type adapter for that type
-        final Object value = gson.fromJson(gson.toJson(rawValue), configEntry.getGenericType());
+        final Object value = valueCodecs.codecFor(configEntry).decode(configEntry, rawValue);
         if (value == null) {
-            logger.warning("[sc-cfg] Oops, seems like Gson conversion of file value to java value returned null for field " + configEntry.getName() + " (from class " + configEntry.getOwnerClass().getName() + "), skipping value set on this config entry.");
-            return;
+            logger.warning("[sc-cfg] Oops, seems like the conversion of file value to java value returned null for field " + configEntry.getName() + " (from class " + configEntry.getOwnerClass().getName() + "), skipping value set on this config entry.");
+            return false;
         }
         configEntry.set(value);
+        return true;
     }
 
-    protected final Object mapToSerializableValue(final Gson gson, final PropertyWrapper configEntry) {
-        final Class<?> fieldClass = configEntry.getType();
-        final Type fieldType = configEntry.getGenericType();
-        Type targetType = Object.class;
+    @Override
+    public final Map<String, Object> getCurrentValues(final Object configInstance, final Set<PropertyWrapper> properties) {
+        return getValues(configInstance, properties, PropertyWrapper::get);
+    }
 
-        if (fieldClass.isPrimitive() || Number.class.isAssignableFrom(fieldClass)) {
-            targetType = fieldClass;
-        } else if (fieldClass.isAssignableFrom(Map.class)) {
-            targetType = Map.class;
-        } else if (fieldClass.isAssignableFrom(Collection.class) ) {
-            targetType = List.class;
-        }
-        Object serializedValue = gson.fromJson(gson.toJson(configEntry.get(), fieldType), targetType);
-        if (serializedValue instanceof Map<?, ?>) {
-            // serializedValue is a representation of a Map, so we need to convert it back to and from json
-            // to remove any double as int fields
-            serializedValue = gson.fromJson(gson.toJson(serializedValue, GENERIC_MAP_TOKEN), GENERIC_MAP_TOKEN);
-        }
-        return serializedValue;
+    protected final Object mapToSerializableValue(final PropertyWrapper configEntry, @Nullable final Object value) {
+        return valueCodecs.codecFor(configEntry).encode(configEntry, value);
     }
 
     @SuppressWarnings("UnstableApiUsage")
@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.ConfigWrapper;
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import com.github.secretx33.sccfg.exception.ConfigDeserializationException;
+import com.github.secretx33.sccfg.exception.ConfigException;
+import com.github.secretx33.sccfg.exception.ConfigSerializationException;
+import com.github.secretx33.sccfg.serialization.codec.ValueCodec;
+import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
+import com.github.secretx33.sccfg.util.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Base for serializers that stream the config file through Gson {@link JsonReader}s and {@link JsonWriter}s,
+ * instead of parsing the whole file into a tree of nodes first. Values are read straight from the file (and
+ * written straight from the config fields) by the Gson type adapter of each field, and everything on the file
+ * that is not bound to any property is skipped without being materialized. The values read are only set on
+ * the config fields once the whole file was parsed.<br><br>
+ *
+ * These serializers don't write comments to the file.
+ */
+abstract class AbstractStreamingSerializer extends AbstractSerializer {
+
+    public AbstractStreamingSerializer(final Logger logger, final GsonFactory gsonFactory) {
+        super(logger, gsonFactory);
+    }
+
+    /**
+     * Creates a reader for the contents of a config file.
+     *
+     * @param input the contents of the config file, already buffered
+     * @return a reader for {@code input}
+     */
+    abstract JsonReader newReader(InputStream input) throws IOException;
+
+    /**
+     * Creates a writer for the contents of a config file.
+     *
+     * @param output where the contents of the config file should be written to, already buffered
+     * @return a writer for {@code output}
+     */
+    abstract JsonWriter newWriter(OutputStream output) throws IOException;
+
+    @Override
+    final Set<PropertyWrapper> loadFileIntoInstance(final ConfigWrapper<?> configWrapper) {
+        if (configWrapper.getConfigAnnotation().snapshot()) {
+            // values may come from the snapshot instead of the file, so they can't be streamed into the fields
+            return super.loadFileIntoInstance(configWrapper);
+        }
+        final PropertyPaths<?> paths = PropertyPaths.of(configWrapper);
+        final Gson gson = gsonFactory.getInstance();
+        // values are only set on the fields after the whole file was read, so a file that cannot be parsed
+        // doesn't leave the instance with just some of its values loaded
+        final Map<PropertyWrapper, Object> values = new LinkedHashMap<>();
+        boolean read;
+
+        try {
+            read = readFile(configWrapper, paths, (property, reader) -> putValue(configWrapper, property, readValue(gson, property, reader), values));
+        } catch (final IllegalArgumentException | IllegalStateException | JsonParseException e) {
+            // some value doesn't match the type of its field, and a reader cannot resume after a value that
+            // was read halfway, so read the file again, this time reading each value fully before converting it
+            values.clear();
+            read = readFile(configWrapper, paths, (property, reader) -> {
+                final JsonElement element = gson.getAdapter(JsonElement.class).read(reader);
+                try {
+                    putValue(configWrapper, property, readValue(gson, property, element), values);
+                } catch (final IllegalArgumentException | IllegalStateException | JsonParseException ex) {
+                    logger.warning("Could not deserialize config field '" + property.getName() + "' from file '" + configWrapper.getDestination().getFileName() + "' because its value does not match the expected type '" + property.getType().getSimpleName() + "'. That usually happens when you make a typo in your configuration file, so please check out that config field and correct any mistakes.");
+                }
+            });
+        }
+        if (!read) return Collections.emptySet();
+
+        values.forEach(PropertyWrapper::set);
+        return new HashSet<>(values.keySet());
+    }
+
+    /**
+     * Reads the value of {@code property} straight from {@code reader} when it uses the default codec, or
+     * reads the file value and then decodes it with the codec of {@code property} otherwise.
+     */
+    @Nullable
+    private Object readValue(final Gson gson, final PropertyWrapper property, final JsonReader reader) throws IOException {
+        final ValueCodec codec = valueCodecs.codecFor(property);
+        if (codec == valueCodecs.getDefaultCodec()) {
+            return property.getTypeAdapter(gson).read(reader);
+        }
+        final Object fileValue = gson.getAdapter(Object.class).read(reader);
+        return fileValue == null ? null : codec.decode(property, fileValue);
+    }
+
+    @Nullable
+    private Object readValue(final Gson gson, final PropertyWrapper property, final JsonElement element) {
+        final ValueCodec codec = valueCodecs.codecFor(property);
+        if (codec == valueCodecs.getDefaultCodec()) {
+            return property.getTypeAdapter(gson).fromJsonTree(element);
+        }
+        final Object fileValue = gson.getAdapter(Object.class).fromJsonTree(element);
+        return fileValue == null ? null : codec.decode(property, fileValue);
+    }
+
+    private void putValue(final ConfigWrapper<?> configWrapper, final PropertyWrapper property, final Object value, final Map<PropertyWrapper, Object> values) {
+        if (value == null) {
+            logger.warning("[sc-cfg] Oops, seems like the conversion of file value to java value returned null for field " + property.getName() + " (from class " + configWrapper.getInstance().getClass().getName() + "), skipping value set on this config entry.");
+            return;
+        }
+        values.put(property, value);
+    }
+
+    @Override
+    final Map<String, Object> loadFromFile(final ConfigWrapper<?> configWrapper) {
+        final TypeAdapter<Object> adapter = gsonFactory.getInstance().getAdapter(Object.class);
+        final Map<String, Object> values = new LinkedHashMap<>();
+        final boolean read = readFile(configWrapper, PropertyPaths.of(configWrapper), (property, reader) -> {
+            final Object value = adapter.read(reader);
+            if (value != null) {
+                values.put(property.getName(), value);
+            }
+        });
+        return read ? Maps.of(values) : Collections.emptyMap();
+    }
+
+    /**
+     * Reads the config file, passing the value of each property found on it to {@code propertyReader}.
+     *
+     * @return true if the whole file was read, or false if it could not be parsed, in which case the values
+     * already passed to {@code propertyReader} should be discarded
+     */
+    private boolean readFile(final ConfigWrapper<?> configWrapper, final PropertyPaths<?> paths, final PropertyReader propertyReader) {
+        final Path path = configWrapper.getDestination();
+
+        try {
+            if (Files.size(path) == 0) return true;
+            try (final JsonReader reader = newReader(new BufferedInputStream(Files.newInputStream(path)))) {
+                reader.setLenient(true);
+                final JsonToken token = reader.peek();
+                if (token != JsonToken.BEGIN_OBJECT) {
+                    if (token != JsonToken.END_DOCUMENT) {
+                        logger.warning("File '" + path.getFileName() + "' was expected to have a map of values at its root, but it has " + token + " instead, so its values could not be loaded.");
+                    }
+                    return true;
+                }
+                readObject(reader, paths, propertyReader);
+                final JsonToken next = reader.peek();
+                if (next != JsonToken.END_DOCUMENT) {
+                    throw new MalformedJsonException("Expected the end of the file after its map of values, but found " + next + " instead");
+                }
+                return true;
+            }
+        } catch (final IOException e) {
+            logger.log(Level.SEVERE, "An error has occurred when deserializing file '" + path.getFileName() + "' from " + configWrapper.getFileType() + ". There is probably some kind of typo on it, so it could not be parsed, please fix any typos on the file.", new ConfigDeserializationException(e));
+            return false;
+        }
+    }
+
+    private <P> void readObject(final JsonReader reader, final PropertyPaths<P> paths, final PropertyReader propertyReader) throws IOException {
+        readObject(reader, paths, paths.root(), propertyReader);
+    }
+
+    private <P> void readObject(final JsonReader reader, final PropertyPaths<P> paths, final PathTrie<P> node, final PropertyReader propertyReader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final PathTrie<P> child = node.child(reader.nextName());
+            if (child == null) {
+                reader.skipValue();
+                continue;
+            }
+            final PropertyWrapper property = paths.property(child);
+            if (property != null) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                } else {
+                    propertyReader.read(property, reader);
+                }
+            } else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readObject(reader, paths, child, propertyReader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    @Override
+    final void saveToFile(final ConfigWrapper<?> configWrapper, final Map<String, Object> newValues) {
+        final Gson gson = gsonFactory.getInstance();
+        writeFile(configWrapper, writer -> gson.toJson(newValues, GENERIC_MAP_TOKEN, writer));
+    }
+
+    @Override
+    final void saveInstanceValues(final ConfigWrapper<?> configWrapper) {
+        final PropertyPaths<?> paths = PropertyPaths.of(configWrapper);
+        final Gson gson = gsonFactory.getInstance();
+        writeFile(configWrapper, writer -> writeObject(configWrapper, gson, writer, paths));
+    }
+
+    private <P> void writeObject(final ConfigWrapper<?> configWrapper, final Gson gson, final JsonWriter writer, final PropertyPaths<P> paths) throws IOException {
+        writeObject(configWrapper, gson, writer, paths, paths.root());
+    }
+
+    private <P> void writeObject(final ConfigWrapper<?> configWrapper, final Gson gson, final JsonWriter writer, final PropertyPaths<P> paths, final PathTrie<P> node) throws IOException {
+        writer.beginObject();
+        for (final Map.Entry<String, PathTrie<P>> entry : node.children().entrySet()) {
+            writer.name(entry.getKey());
+            final PropertyWrapper property = paths.property(entry.getValue());
+            if (property == null) {
+                writeObject(configWrapper, gson, writer, paths, entry.getValue());
+                continue;
+            }
+            final ValueCodec codec = valueCodecs.codecFor(property);
+            try {
+                if (codec == valueCodecs.getDefaultCodec()) {
+                    property.getTypeAdapter(gson).write(writer, property.get());
+                } else {
+                    gson.getAdapter(Object.class).write(writer, codec.encode(property, property.get()));
+                }
+            } catch (final RuntimeException e) {
+                throw new ConfigSerializationException("sc-cfg doesn't know how to serialize field '" + property.getName() + "' in config class '" + configWrapper.getInstance().getClass().getName() + "', consider adding a Type Adapter for " + property.getGenericType() + ".", e);
+            }
+        }
+        writer.endObject();
+    }
+
+    private void writeFile(final ConfigWrapper<?> configWrapper, final FileWriter fileWriter) {
+        try {
+            writeFileAtomically(configWrapper, output -> {
+                try (final JsonWriter writer = newWriter(output)) {
+                    writer.setSerializeNulls(gsonFactory.getInstance().serializeNulls());
+                    fileWriter.write(writer);
+                }
+            });
+        } catch (final ConfigSerializationException e) {
+            logger.log(Level.SEVERE, "An error has occurred when serializing values of class '" + configWrapper.getInstance().getClass().getName() + "'. Read the nested exception for more details.", e);
+            throw e;
+        } catch (final IOException | JsonIOException e) {
+            logger.log(Level.SEVERE, "An error has occurred when saving your config file '" + configWrapper.getInstance().getClass().getName() + " to the disk.", e);
+            throw new ConfigException(e);
+        }
+    }
+
+    @Override
+    public final Map<String, Object> getValues(final Object configInstance, final Set<PropertyWrapper> properties, final Function<PropertyWrapper, Object> values) {
+        checkNotNull(configInstance, "configInstance");
+        checkNotNull(properties, "properties");
+        checkNotNull(values, "values");
+
+        final Gson gson = gsonFactory.getInstance();
+        return Maps.of(serializableValues(gson, configInstance, PathTrie.of(properties), values));
+    }
+
+    private Map<String, Object> serializableValues(final Gson gson, final Object configInstance, final PathTrie<PropertyWrapper> node, final Function<PropertyWrapper, Object> propertyValues) {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        node.children().forEach((name, child) -> {
+            final PropertyWrapper property = child.property();
+            if (property == null) {
+                values.put(name, serializableValues(gson, configInstance, child, propertyValues));
+                return;
+            }
+            try {
+                values.put(name, mapToSerializableValue(property, propertyValues.apply(property)));
+            } catch (final RuntimeException e) {
+                throw new ConfigSerializationException("sc-cfg doesn't know how to serialize field '" + property.getName() + "' in config class '" + configInstance.getClass().getName() + "', consider adding a Type Adapter for " + property.getGenericType() + ".", e);
+            }
+        });
+        return values;
+    }
+
+    @FunctionalInterface
+    private interface PropertyReader {
+        void read(PropertyWrapper property, JsonReader reader) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface FileWriter {
+        void write(JsonWriter writer) throws IOException;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import java.io.Writer;
+
+/**
+ * A writer that discards everything written into it, keeping only a 64-bit FNV-1a hash of the written
+ * characters, so values can be fingerprinted by serializing them without ever buffering their output.
+ */
+final class FingerprintWriter extends Writer {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long hash = FNV_OFFSET_BASIS;
+
+    long getHash() {
+        return hash;
+    }
+
+    @Override
+    public void write(final int c) {
+        hash = (hash ^ (c & 0xffff)) * FNV_PRIME;
+    }
+
+    @Override
+    public void write(final char[] chars, final int offset, final int length) {
+        long h = hash;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ chars[i]) * FNV_PRIME;
+        }
+        hash = h;
+    }
+
+    @Override
+    public void write(final String str, final int offset, final int length) {
+        long h = hash;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ str.charAt(i)) * FNV_PRIME;
+        }
+        hash = h;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
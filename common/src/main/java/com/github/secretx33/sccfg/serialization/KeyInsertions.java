@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkArgument;
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Inserts the keys missing from a text config file into it, leaving every other character of the file
+ * untouched. Each file type only has to describe the maps found on its file as a tree of {@link Section}s,
+ * and render the entries that should be inserted into each one of them.
+ */
+final class KeyInsertions {
+
+    private KeyInsertions() {
+    }
+
+    /**
+     * A file type that supports having keys inserted into its files.
+     */
+    interface Format {
+
+        /**
+         * Finds the maps of the file.
+         *
+         * @param content the content of the file
+         * @return the root map of the file, or null if keys cannot be inserted into this file
+         */
+        @Nullable
+        Section parse(String content);
+
+        /**
+         * Renders the entries of {@code insertion}, as they should be inserted at the end of its section.
+         *
+         * @param content the content of the file
+         * @param insertion the entries to insert, and where to insert them
+         * @return the text to insert at {@link Section#getEnd()}
+         */
+        String render(String content, Insertion insertion);
+    }
+
+    /**
+     * A map found on the file.
+     */
+    static final class Section {
+
+        private final List<String> path;
+        private final boolean appendable;
+        private final Set<String> keys = new HashSet<>();
+        private final Map<String, Section> sections = new HashMap<>();
+        private final Map<String, Span> spans = new HashMap<>();
+        private int keyIndent = -1;
+        private int indentStep = -1;
+        private int end = -1;
+
+        /**
+         * @param path the path of this map
+         * @param appendable false if entries cannot be inserted into this map (e.g. if it's written inline)
+         */
+        Section(final List<String> path, final boolean appendable) {
+            this.path = Collections.unmodifiableList(new ArrayList<>(checkNotNull(path, "path")));
+            this.appendable = appendable;
+        }
+
+        List<String> getPath() {
+            return path;
+        }
+
+        boolean isAppendable() {
+            return appendable;
+        }
+
+        boolean hasKeys() {
+            return !keys.isEmpty();
+        }
+
+        boolean hasKey(final String key) {
+            return keys.contains(key);
+        }
+
+        /**
+         * Gets the map held by {@code key}, or null if it holds something else, or is not on this map.
+         */
+        @Nullable
+        Section getSection(final String key) {
+            return sections.get(key);
+        }
+
+        /**
+         * Gets where the entry of {@code key} is on the file, or null if unknown.
+         */
+        @Nullable
+        Span getSpan(final String key) {
+            return spans.get(key);
+        }
+
+        /**
+         * Registers a key of this map.
+         *
+         * @param key the key
+         * @param section the map held by that key, or null if it holds something else
+         */
+        void addKey(final String key, @Nullable final Section section) {
+            addKey(key, section, null);
+        }
+
+        /**
+         * Registers a key of this map.
+         *
+         * @param key the key
+         * @param section the map held by that key, or null if it holds something else
+         * @param span where the entry of that key is on the file, or null if its value cannot be replaced
+         */
+        void addKey(final String key, @Nullable final Section section, @Nullable final Span span) {
+            keys.add(checkNotNull(key, "key"));
+            if (section != null) {
+                sections.put(key, section);
+            }
+            if (span != null) {
+                spans.put(key, span);
+            }
+        }
+
+        /**
+         * The indentation of the keys of this map, or -1 if unknown.
+         */
+        int getKeyIndent() {
+            return keyIndent;
+        }
+
+        void setKeyIndent(final int keyIndent) {
+            this.keyIndent = keyIndent;
+        }
+
+        /**
+         * How many spaces each nested map of the file is indented by, relative to the map holding it, or
+         * -1 if unknown.
+         */
+        int getIndentStep() {
+            return indentStep;
+        }
+
+        void setIndentStep(final int indentStep) {
+            this.indentStep = indentStep;
+        }
+
+        /**
+         * Where, in the content of the file, new entries of this map should be inserted.
+         */
+        int getEnd() {
+            return end;
+        }
+
+        void setEnd(final int end) {
+            this.end = end;
+        }
+    }
+
+    /**
+     * Where an entry of a map is on the file.
+     */
+    static final class Span {
+
+        private final int keyStart;
+        private final int valueStart;
+        private final int valueEnd;
+        private final int entryEnd;
+        private final boolean scalar;
+
+        /**
+         * @param keyStart where the key of the entry starts
+         * @param valueStart where the value of the entry starts
+         * @param valueEnd where the value of the entry ends
+         * @param entryEnd where the entry ends, including anything that follows its value on the same line
+         * @param scalar true if the value is a single scalar value
+         */
+        Span(final int keyStart, final int valueStart, final int valueEnd, final int entryEnd, final boolean scalar) {
+            checkArgument(keyStart <= valueStart && valueStart <= valueEnd && valueEnd <= entryEnd, () -> "invalid span [" + keyStart + ", " + valueStart + ", " + valueEnd + ", " + entryEnd + "]");
+            this.keyStart = keyStart;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+            this.entryEnd = entryEnd;
+            this.scalar = scalar;
+        }
+
+        int getKeyStart() {
+            return keyStart;
+        }
+
+        int getValueStart() {
+            return valueStart;
+        }
+
+        int getValueEnd() {
+            return valueEnd;
+        }
+
+        int getEntryEnd() {
+            return entryEnd;
+        }
+
+        boolean isScalar() {
+            return scalar;
+        }
+    }
+
+    /**
+     * The entries that should be inserted into a single map of the file.
+     */
+    static final class Insertion {
+
+        private final Section section;
+        private final Map<String, Object> entries = new LinkedHashMap<>();
+        private final Set<PropertyWrapper> properties = new HashSet<>();
+
+        private Insertion(final Section section) {
+            this.section = section;
+        }
+
+        Section getSection() {
+            return section;
+        }
+
+        /**
+         * The entries to insert, keyed by their path relative to the section (nested paths are nested maps).
+         */
+        Map<String, Object> getEntries() {
+            return entries;
+        }
+
+        /**
+         * The properties whose values are held by the entries.
+         */
+        Set<PropertyWrapper> getProperties() {
+            return properties;
+        }
+    }
+
+    /**
+     * Plans where the values of {@code missingProperties} should be inserted. Each value is inserted into
+     * the deepest map of the file that is part of its path, and properties that are already on the file, or
+     * whose path goes through a key that does not hold an appendable map, are left out.
+     *
+     * @param root the root map of the file
+     * @param missingProperties the properties that were not read from the file
+     * @param values the serializable values of {@code missingProperties}, nested by their path on the file
+     * @return the insertions, in the order they should be added to the file
+     */
+    static List<Insertion> plan(final Section root, final Set<PropertyWrapper> missingProperties, final Map<String, Object> values) {
+        checkNotNull(root, "root");
+        checkNotNull(missingProperties, "missingProperties");
+        checkNotNull(values, "values");
+        final Map<Section, Insertion> insertions = new IdentityHashMap<>();
+
+        for (final PropertyWrapper property : missingProperties) {
+            final List<String> segments = property.getFullPathSegments();
+            Section section = root;
+            int depth = 0;
+            while (depth < segments.size() - 1 && section.sections.containsKey(segments.get(depth))) {
+                section = section.sections.get(segments.get(depth));
+                depth++;
+            }
+            if (!section.appendable || section.keys.contains(segments.get(depth))) continue;
+            final Object value = valueAt(values, segments);
+            if (value == null) continue;
+
+            final Insertion insertion = insertions.computeIfAbsent(section, Insertion::new);
+            putAt(insertion.entries, segments.subList(depth, segments.size()), value);
+            insertion.properties.add(property);
+        }
+
+        final List<Insertion> ordered = new ArrayList<>(insertions.values());
+        // on the same spot, the entries of the inner maps go first, otherwise they'd end up inside the entries of the outer ones
+        ordered.sort(Comparator.comparingInt((Insertion insertion) -> insertion.section.end)
+            .thenComparing(Comparator.comparingInt((Insertion insertion) -> insertion.section.path.size()).reversed()));
+        return ordered;
+    }
+
+    /**
+     * Inserts the rendered entries of each insertion at the end of its section.
+     *
+     * @param content the content of the file
+     * @param insertions the insertions, as returned by {@link KeyInsertions#plan(Section, Set, Map)}
+     * @param format the format of the file
+     * @return the new content of the file
+     */
+    static String apply(final String content, final List<Insertion> insertions, final Format format) {
+        checkNotNull(content, "content");
+        checkNotNull(insertions, "insertions");
+        checkNotNull(format, "format");
+        final TextEdits edits = new TextEdits(content);
+        addTo(edits, content, insertions, format);
+        return edits.apply();
+    }
+
+    /**
+     * Adds the rendered entries of each insertion to {@code edits}.
+     */
+    static void addTo(final TextEdits edits, final String content, final List<Insertion> insertions, final Format format) {
+        insertions.forEach(insertion -> edits.insert(insertion.section.end, format.render(content, insertion)));
+    }
+
+    /**
+     * Gets the value at {@code segments}, from values nested by their path on the file.
+     */
+    @Nullable
+    static Object valueAt(final Map<String, Object> values, final List<String> segments) {
+        Object value = values;
+        for (final String segment : segments) {
+            if (!(value instanceof Map<?, ?>)) return null;
+            value = ((Map<?, ?>) value).get(segment);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putAt(final Map<String, Object> entries, final List<String> segments, final Object value) {
+        Map<String, Object> map = entries;
+        for (final String segment : segments.subList(0, segments.size() - 1)) {
+            map = (Map<String, Object>) map.computeIfAbsent(segment, key -> new LinkedHashMap<>());
+        }
+        map.put(segments.get(segments.size() - 1), value);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.PropertyDescriptor;
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import com.github.secretx33.sccfg.exception.ConfigOverlappingPathException;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Tree of the paths on the file of the properties of a config, where each node is a path segment, and
+ * leaves hold the property stored at that path. Used by the serializers that stream the config file, so
+ * they can tell, for each key they read, if it belongs to a property, leads to one, or can be skipped.
+ * Trees of {@link PropertyDescriptor}s don't depend on any config instance, so they're built once per
+ * config class.
+ *
+ * @param <P> the type of the properties
+ */
+public final class PathTrie<P> {
+
+    private final Map<String, PathTrie<P>> children = new LinkedHashMap<>();
+    @Nullable
+    private P property;
+
+    private PathTrie() {
+    }
+
+    /**
+     * Creates the tree with the paths of all {@code properties}.
+     *
+     * @param properties the properties of a config
+     * @return the root of the tree
+     * @throws ConfigOverlappingPathException if a property is stored at, or inside of, the path of another property
+     */
+    static PathTrie<PropertyWrapper> of(final Set<PropertyWrapper> properties) {
+        checkNotNull(properties, "properties");
+        return of(properties, PropertyWrapper::getFullPathSegments, property -> overlappingPath(property.getPathOnFile(), property.getOwnerClass(), property.getName()));
+    }
+
+    /**
+     * Creates the tree with the paths of all {@code properties} of {@code configClass}.
+     *
+     * @param configClass the config class
+     * @param properties the properties of {@code configClass}
+     * @return the root of the tree
+     * @throws ConfigOverlappingPathException if a property is stored at, or inside of, the path of another property
+     */
+    public static PathTrie<PropertyDescriptor> ofDescriptors(final Class<?> configClass, final Set<PropertyDescriptor> properties) {
+        checkNotNull(configClass, "configClass");
+        checkNotNull(properties, "properties");
+        return of(properties, PropertyDescriptor::getFullPathSegments, property -> overlappingPath(property.getPathOnFile(), configClass, property.getField().getName()));
+    }
+
+    private static <P> PathTrie<P> of(final Collection<P> properties, final Function<P, List<String>> pathSegments, final Function<P, ConfigOverlappingPathException> overlappingPath) {
+        final PathTrie<P> root = new PathTrie<>();
+
+        properties.forEach(property -> {
+            PathTrie<P> node = root;
+            for (final String segment : pathSegments.apply(property)) {
+                checkNotOverlapping(node, property, overlappingPath);
+                node = node.children.computeIfAbsent(segment, key -> new PathTrie<>());
+            }
+            checkNotOverlapping(node, property, overlappingPath);
+            if (!node.children.isEmpty()) {
+                throw overlappingPath.apply(property);
+            }
+            node.property = property;
+        });
+        return root;
+    }
+
+    private static <P> void checkNotOverlapping(final PathTrie<P> node, final P property, final Function<P, ConfigOverlappingPathException> overlappingPath) {
+        if (node.property != null) {
+            throw overlappingPath.apply(property);
+        }
+    }
+
+    private static ConfigOverlappingPathException overlappingPath(final String pathOnFile, final Class<?> configClass, final String fieldName) {
+        return new ConfigOverlappingPathException("There is an overlapping config on key '" + pathOnFile + "' of config class " + configClass.getSimpleName() + ", which prevented the serialization of field '" + fieldName + "'. Please structure your paths in a way that ensure that there is no possibility of collision between two properties.");
+    }
+
+    @Nullable
+    PathTrie<P> child(final String segment) {
+        return children.get(segment);
+    }
+
+    Map<String, PathTrie<P>> children() {
+        return Collections.unmodifiableMap(children);
+    }
+
+    /**
+     * Gets the property stored at the path of this node.
+     *
+     * @return the property stored at this path, or null if this node only leads to other properties
+     */
+    @Nullable
+    P property() {
+        return property;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.ConfigWrapper;
+import com.github.secretx33.sccfg.config.ConfigWrapperImpl;
+import com.github.secretx33.sccfg.config.PropertyDescriptor;
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * The {@link PathTrie} of the properties of a config, along with how to get the property of the config
+ * instance stored at each of its leaves. The tree of configs wrapped by sc-cfg is the one cached by the
+ * descriptor of their class, so it's not built again on every load and save.
+ *
+ * @param <P> the type of the properties held by the tree
+ */
+final class PropertyPaths<P> {
+
+    private final PathTrie<P> root;
+    private final Function<? super P, PropertyWrapper> properties;
+
+    private PropertyPaths(final PathTrie<P> root, final Function<? super P, PropertyWrapper> properties) {
+        this.root = root;
+        this.properties = properties;
+    }
+
+    /**
+     * Gets the paths of all properties of {@code configWrapper}.
+     *
+     * @param configWrapper the config
+     * @return the paths of the properties of {@code configWrapper}
+     */
+    static PropertyPaths<?> of(final ConfigWrapper<?> configWrapper) {
+        checkNotNull(configWrapper, "configWrapper");
+        if (configWrapper instanceof ConfigWrapperImpl) {
+            final ConfigWrapperImpl<?> wrapper = (ConfigWrapperImpl<?>) configWrapper;
+            return new PropertyPaths<PropertyDescriptor>(wrapper.getDescriptor().getPropertyPaths(), wrapper::getProperty);
+        }
+        return of(configWrapper.getProperties());
+    }
+
+    /**
+     * Gets the paths of {@code properties}, building their tree.
+     *
+     * @param properties the properties
+     * @return the paths of {@code properties}
+     */
+    static PropertyPaths<?> of(final Set<PropertyWrapper> properties) {
+        return new PropertyPaths<>(PathTrie.of(properties), Function.identity());
+    }
+
+    PathTrie<P> root() {
+        return root;
+    }
+
+    /**
+     * Gets the property of the config instance stored at the path of {@code node}.
+     *
+     * @param node a node of this tree
+     * @return the property stored at the path of {@code node}, or null if it only leads to other properties
+     */
+    @Nullable
+    PropertyWrapper property(final PathTrie<P> node) {
+        final P property = node.property();
+        return property != null ? properties.apply(property) : null;
+    }
+}
@@ -21,9 +21,11 @@ import com.github.secretx33.sccfg.exception.ConfigDeserializationException;
 import com.github.secretx33.sccfg.exception.ConfigException;
 import com.github.secretx33.sccfg.exception.ConfigReflectiveOperationException;
 import com.github.secretx33.sccfg.exception.ConfigSerializationException;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Represent classes responsible for loading and saving config files.
@@ -46,7 +48,24 @@ public interface Serializer {
     <T> ConfigWrapper<T> loadConfig(ConfigWrapper<T> configWrapper);
 
     /**
-     * Save current config values to the disk.
+     * Load a config whose instance was just created, so its fields still hold their default values. Unlike
+     * {@link Serializer#loadConfig(ConfigWrapper)}, if the file is not present the defaults are written to it
+     * straight from the instance, without reading them back.
+     *
+     * @param configWrapper the wrapped config
+     * @param <T> the inner type of that ConfigWrapper
+     * @return the ConfigWrapper passed as argument, for convenience
+     * @throws ConfigDeserializationException if serializer could not deserialize a config entry
+     * back to its java value (that happens when sc-cfg is missing a Type Adapter for that
+     * specific type)
+     * @throws ConfigSerializationException if serializer could not serialize a config entry
+     * (that happens when sc-cfg is missing a Type Adapter for that specific type)
+     */
+    <T> ConfigWrapper<T> loadNewConfig(ConfigWrapper<T> configWrapper);
+
+    /**
+     * Save current config values to the disk, unless they didn't change since they were last loaded
+     * from or saved to the disk, and the file still exists.
      *
      * @param configWrapper the wrapped config to be saved to the disk
      * @throws ConfigSerializationException if serializer could not serialize a config entry
@@ -57,6 +76,30 @@ public interface Serializer {
      */
     void saveConfig(ConfigWrapper<?> configWrapper);
 
+    /**
+     * Copy the current values of the config instance, returning a task that saves them to the disk
+     * later. Unlike {@link Serializer#saveConfig(ConfigWrapper)}, the returned task doesn't read anything
+     * from the config instance, so it can be run while the instance is being modified by other threads.
+     *
+     * @param configWrapper the wrapped config to be saved to the disk
+     * @return a task that saves the copied values to the disk, which throws {@link ConfigException} if an
+     * error occurs while saving them, or null if the values didn't change since they were last
+     * loaded from or saved to the disk
+     * @throws ConfigSerializationException if serializer could not serialize a config entry
+     * (that happens when sc-cfg is missing a Type Adapter for that specific type)
+     */
+    @Nullable
+    Runnable prepareSave(ConfigWrapper<?> configWrapper);
+
+    /**
+     * Check if the values of the config instance have changed since they were last loaded from or
+     * saved to the disk. Values are compared by a fingerprint of their serialized form.
+     *
+     * @param configWrapper the wrapped config
+     * @return true if saving the config would change its file
+     */
+    boolean isDirty(ConfigWrapper<?> configWrapper);
+
     /**
      * Save the default values of that config to the disk, creating a new file if it doesn't already
      * exist. Does <b>not</b> overrides anything if the file already exists, <i>except</i> if the
@@ -81,4 +124,17 @@ public interface Serializer {
      * (that happens when sc-cfg is missing a Type Adapter for that specific type)
      */
     Map<String, Object> getCurrentValues(Object configInstance, Set<PropertyWrapper> properties);
+
+    /**
+     * Like {@link Serializer#getCurrentValues(Object, Set)}, but takes the value of each property from
+     * {@code values} instead of reading it from the config instance.
+     *
+     * @param configInstance the config the values belong to
+     * @param properties set containing all the entries from {@code configInstance} that should have their value extracted
+     * @param values gives the value of each property
+     * @return the values in their serializable form (the keys are <b>FILE</b> names, not java names)
+     * @throws ConfigSerializationException if serializer could not serialize a config entry
+     * (that happens when sc-cfg is missing a Type Adapter for that specific type)
+     */
+    Map<String, Object> getValues(Object configInstance, Set<PropertyWrapper> properties, Function<PropertyWrapper, Object> values);
 }
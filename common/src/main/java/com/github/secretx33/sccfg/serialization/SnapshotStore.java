@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.ConfigWrapper;
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import com.github.secretx33.sccfg.util.Maps;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Stores the values read from config files in compact binary snapshots, so the next time that same file
+ * is loaded, its values can be read from the snapshot instead of being parsed again.<br><br>
+ *
+ * Every snapshot records the size, the last modified time and the checksum of the file it was made from,
+ * along with the properties of the config class at that time, and it's only used while all of them still
+ * match. Snapshots are just a cache, so any snapshot that is stale, corrupt or unreadable is ignored (and
+ * later replaced), and the whole snapshot folder can be deleted at any time.
+ */
+final class SnapshotStore {
+
+    /**
+     * System property that can be used to change the folder where the snapshots are stored.
+     */
+    static final String DIRECTORY_PROPERTY = "sccfg.snapshot.dir";
+
+    private static final int MAGIC = 0x53434346; // "SCCF"
+    private static final byte VERSION = 1;
+    private static final String EXTENSION = ".bin";
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte STRING = 7;
+    private static final byte LIST = 8;
+    private static final byte MAP = 9;
+    private static final byte BIG_INTEGER = 10;
+    private static final byte BIG_DECIMAL = 11;
+
+    private final Logger logger;
+    private final Path directory;
+
+    SnapshotStore(final Logger logger) {
+        this(logger, defaultDirectory());
+    }
+
+    SnapshotStore(final Logger logger, final Path directory) {
+        this.logger = checkNotNull(logger, "logger");
+        this.directory = checkNotNull(directory, "directory");
+    }
+
+    private static Path defaultDirectory() {
+        final String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory != null && !directory.trim().isEmpty()) {
+            return Paths.get(directory);
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "sc-cfg-snapshots");
+    }
+
+    /**
+     * Takes a picture of the current state of the config file, which is used to check whether a snapshot
+     * was made from the very same file contents.
+     *
+     * @param configWrapper the config whose file should be read
+     * @return the state of the config file, or null if the file could not be read
+     */
+    @Nullable
+    SourceStamp stamp(final ConfigWrapper<?> configWrapper) {
+        checkNotNull(configWrapper, "configWrapper");
+        final Path path = configWrapper.getDestination();
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            final CRC32 crc = new CRC32();
+            try (final InputStream input = Files.newInputStream(path)) {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+            return new SourceStamp(attributes.size(), attributes.lastModifiedTime().toMillis(), crc.getValue(), schemaHash(configWrapper));
+        } catch (final IOException e) {
+            logger.log(Level.FINE, "Could not read file '" + path + "' to check its snapshot.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the values stored in the snapshot of the config file.
+     *
+     * @param configWrapper the config whose snapshot should be read
+     * @param stamp the current state of the config file
+     * @return the values stored on the snapshot, or null if there's no snapshot that matches {@code stamp}
+     */
+    @Nullable
+    Map<String, Object> read(final ConfigWrapper<?> configWrapper, final SourceStamp stamp) {
+        checkNotNull(configWrapper, "configWrapper");
+        checkNotNull(stamp, "stamp");
+        final Path snapshot = snapshotPath(configWrapper);
+
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) return null;
+            if (!readString(input).equals(sourceName(configWrapper))) return null;
+            if (!stamp.equals(new SourceStamp(input.readLong(), input.readLong(), input.readLong(), input.readInt()))) return null;
+            final Object values = readValue(input);
+            if (!(values instanceof Map<?, ?>)) return null;
+            @SuppressWarnings("unchecked")
+            final Map<String, Object> map = (Map<String, Object>) values;
+            return Maps.of(map);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Ignoring unreadable snapshot '" + snapshot + "' of file '" + configWrapper.getDestination() + "'.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the snapshot of the config file by one holding {@code values}. Values that cannot be stored
+     * in a snapshot simply prevent the snapshot from being written.
+     *
+     * @param configWrapper the config whose snapshot should be written
+     * @param stamp the state of the config file when {@code values} were read from it
+     * @param values the values read from the config file
+     */
+    void write(final ConfigWrapper<?> configWrapper, final SourceStamp stamp, final Map<String, Object> values) {
+        checkNotNull(configWrapper, "configWrapper");
+        checkNotNull(stamp, "stamp");
+        checkNotNull(values, "values");
+        final Path snapshot = snapshotPath(configWrapper);
+        Path tempFile = null;
+
+        try {
+            Files.createDirectories(directory);
+            tempFile = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+            try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                output.writeInt(MAGIC);
+                output.writeByte(VERSION);
+                writeString(output, sourceName(configWrapper));
+                output.writeLong(stamp.size);
+                output.writeLong(stamp.lastModified);
+                output.writeLong(stamp.checksum);
+                output.writeInt(stamp.schemaHash);
+                writeValue(output, values);
+            }
+            try {
+                Files.move(tempFile, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempFile = null;
+        } catch (final IOException | IllegalArgumentException e) {
+            logger.log(Level.FINE, "Could not write snapshot of file '" + configWrapper.getDestination() + "'.", e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (final IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private Path snapshotPath(final ConfigWrapper<?> configWrapper) {
+        final String name = UUID.nameUUIDFromBytes(sourceName(configWrapper).getBytes(StandardCharsets.UTF_8)).toString();
+        return directory.resolve(name + EXTENSION);
+    }
+
+    private static String sourceName(final ConfigWrapper<?> configWrapper) {
+        return configWrapper.getDestination().toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Values are stored by property name, so snapshots made before the config class changed the name or
+     * the path of any of its properties should not be used anymore.
+     */
+    private static int schemaHash(final ConfigWrapper<?> configWrapper) {
+        final List<PropertyWrapper> properties = new ArrayList<>(configWrapper.getProperties());
+        properties.sort(Comparator.comparing(PropertyWrapper::getName));
+        int hash = configWrapper.getFileType().hashCode();
+        for (final PropertyWrapper property : properties) {
+            hash = 31 * hash + property.getName().hashCode();
+            hash = 31 * hash + property.getFullPathSegments().hashCode();
+        }
+        return hash;
+    }
+
+    private static void writeValue(final DataOutputStream output, @Nullable final Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            output.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            output.writeByte(INT);
+            output.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof BigInteger) {
+            output.writeByte(BIG_INTEGER);
+            writeString(output, value.toString());
+        } else if (value instanceof BigDecimal) {
+            output.writeByte(BIG_DECIMAL);
+            writeString(output, value.toString());
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            output.writeByte(STRING);
+            writeString(output, value.toString());
+        } else if (value instanceof List<?>) {
+            final List<?> list = (List<?>) value;
+            output.writeByte(LIST);
+            output.writeInt(list.size());
+            for (final Object element : list) {
+                writeValue(output, element);
+            }
+        } else if (value instanceof Map<?, ?>) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            output.writeByte(MAP);
+            output.writeInt(map.size());
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        } else {
+            throw new IllegalArgumentException("Values of type " + value.getClass().getName() + " cannot be stored in snapshots");
+        }
+    }
+
+    @Nullable
+    private static Object readValue(final DataInputStream input) throws IOException {
+        final byte tag = input.readByte();
+        switch (tag) {
+            case NULL: return null;
+            case TRUE: return Boolean.TRUE;
+            case FALSE: return Boolean.FALSE;
+            case INT: return input.readInt();
+            case LONG: return input.readLong();
+            case FLOAT: return input.readFloat();
+            case DOUBLE: return input.readDouble();
+            case BIG_INTEGER: return new BigInteger(readString(input));
+            case BIG_DECIMAL: return new BigDecimal(readString(input));
+            case STRING: return readString(input);
+            case LIST: {
+                final int size = readSize(input);
+                final List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(input));
+                }
+                return list;
+            }
+            case MAP: {
+                final int size = readSize(input);
+                final Map<Object, Object> map = new LinkedHashMap<>(Math.max(16, size * 4 / 3 + 1));
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(input), readValue(input));
+                }
+                return map;
+            }
+            default: throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static int readSize(final DataInputStream input) throws IOException {
+        final int size = input.readInt();
+        if (size < 0) throw new IOException("Negative size " + size);
+        return size;
+    }
+
+    /**
+     * {@link DataOutputStream#writeUTF(String)} only accepts strings up to 64KB, so strings are written as
+     * length prefixed UTF-8 instead.
+     */
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[readSize(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The state of a config file at some point in time.
+     */
+    static final class SourceStamp {
+
+        private final long size;
+        private final long lastModified;
+        private final long checksum;
+        private final int schemaHash;
+
+        SourceStamp(final long size, final long lastModified, final long checksum, final int schemaHash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+            this.schemaHash = schemaHash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final SourceStamp that = (SourceStamp) o;
+            return size == that.size && lastModified == that.lastModified && checksum == that.checksum && schemaHash == that.schemaHash;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(size);
+            result = 31 * result + Long.hashCode(lastModified);
+            result = 31 * result + Long.hashCode(checksum);
+            result = 31 * result + schemaHash;
+            return result;
+        }
+    }
+}
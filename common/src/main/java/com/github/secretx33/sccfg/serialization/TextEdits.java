@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkArgument;
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Collects changes to the content of a text file, and applies all of them at once, so every change can be
+ * made using the indexes of the original content.
+ */
+final class TextEdits {
+
+    private final String content;
+    private final List<Edit> edits = new ArrayList<>();
+
+    TextEdits(final String content) {
+        this.content = checkNotNull(content, "content");
+    }
+
+    /**
+     * Replaces the text between {@code start} (inclusive) and {@code end} (exclusive) by {@code text}.
+     */
+    void replace(final int start, final int end, final String text) {
+        checkArgument(start >= 0 && start <= end && end <= content.length(), () -> "invalid range [" + start + ", " + end + ") for content of length " + content.length());
+        edits.add(new Edit(start, end, checkNotNull(text, "text")));
+    }
+
+    /**
+     * Inserts {@code text} at {@code index}. Texts inserted at the same index keep the order they were added in,
+     * and texts inserted at the end of a content that does not end with a line break are put on a new line.
+     */
+    void insert(final int index, final String text) {
+        replace(index, index, text);
+    }
+
+    boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    /**
+     * Applies all edits to the content.
+     *
+     * @return the edited content
+     * @throws IllegalStateException if two replacements overlap
+     */
+    String apply() {
+        final List<Edit> sortedEdits = new ArrayList<>(edits);
+        // stable sort, so insertions at the same index keep their order
+        sortedEdits.sort(Comparator.comparingInt(edit -> edit.start));
+        final StringBuilder edited = new StringBuilder(content.length() + 64 * edits.size());
+        boolean lineBreakAdded = content.isEmpty() || content.endsWith("\n");
+        int copied = 0;
+
+        for (final Edit edit : sortedEdits) {
+            if (edit.start < copied) {
+                throw new IllegalStateException("Edit of range [" + edit.start + ", " + edit.end + ") overlaps with a previous edit ending at " + copied);
+            }
+            edited.append(content, copied, edit.start);
+            if (edit.start == content.length() && !lineBreakAdded) {
+                edited.append(content.contains("\r\n") ? "\r\n" : "\n");
+                lineBreakAdded = true;
+            }
+            edited.append(edit.text);
+            copied = edit.end;
+        }
+        return edited.append(content, copied, content.length()).toString();
+    }
+
+    private static final class Edit {
+
+        private final int start;
+        private final int end;
+        private final String text;
+
+        private Edit(final int start, final int end, final String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+}
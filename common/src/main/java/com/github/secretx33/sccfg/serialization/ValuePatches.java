@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Patches the values of some properties on the content of a text config file, replacing only the text of
+ * their current values, and inserting the ones missing from the file, so the rest of the file (formatting,
+ * ordering, comments and unknown keys) is kept exactly as it was.
+ */
+final class ValuePatches {
+
+    private ValuePatches() {
+    }
+
+    /**
+     * Patches the values of properties into the content of a config file.
+     */
+    @FunctionalInterface
+    interface Patcher {
+
+        /**
+         * Patches the values of {@code properties} into {@code content}.
+         *
+         * @param content the content of the file
+         * @param properties the properties whose values should be patched
+         * @param values the serializable values of (at least) {@code properties}, nested by their path on the file
+         * @return the patched content, or null if some of these values could not be patched
+         */
+        @Nullable
+        String patch(String content, Set<PropertyWrapper> properties, Map<String, Object> values);
+    }
+
+    /**
+     * A file type whose entries can have their values replaced.
+     */
+    interface Format extends KeyInsertions.Format {
+
+        /**
+         * Renders {@code value}, as it should replace the current value of {@code key}.
+         *
+         * @param content the content of the file
+         * @param section the map that holds {@code key}
+         * @param key the key whose value should be replaced
+         * @param span where the entry of that key is on the file
+         * @param value the new serializable value
+         * @return the replacement, or null if this value cannot be replaced
+         */
+        @Nullable
+        Replacement replace(String content, KeyInsertions.Section section, String key, KeyInsertions.Span span, Object value);
+    }
+
+    /**
+     * Text that should replace a range of the file.
+     */
+    static final class Replacement {
+
+        private final int start;
+        private final int end;
+        private final String text;
+
+        Replacement(final int start, final int end, final String text) {
+            this.start = start;
+            this.end = end;
+            this.text = checkNotNull(text, "text");
+        }
+    }
+
+    /**
+     * Creates a patcher that replaces the values found on the maps of the file, as described by {@code format}.
+     *
+     * @param format the format of the file
+     * @return the patcher
+     */
+    static Patcher of(final Format format) {
+        checkNotNull(format, "format");
+        return (content, properties, values) -> patch(format, content, properties, values);
+    }
+
+    @Nullable
+    private static String patch(final Format format, final String content, final Set<PropertyWrapper> properties, final Map<String, Object> values) {
+        final KeyInsertions.Section root = format.parse(content);
+        if (root == null) return null;
+        final TextEdits edits = new TextEdits(content);
+        final Set<PropertyWrapper> missingProperties = new HashSet<>();
+
+        for (final PropertyWrapper property : properties) {
+            final List<String> segments = property.getFullPathSegments();
+            KeyInsertions.Section section = root;
+            int depth = 0;
+            while (depth < segments.size() - 1 && section.getSection(segments.get(depth)) != null) {
+                section = section.getSection(segments.get(depth));
+                depth++;
+            }
+            final String key = segments.get(depth);
+            if (!section.hasKey(key)) {
+                missingProperties.add(property);
+                continue;
+            }
+            // the path goes through a key that holds something other than a map
+            if (depth < segments.size() - 1) return null;
+
+            final Object value = KeyInsertions.valueAt(values, segments);
+            final KeyInsertions.Span span = section.getSpan(key);
+            if (value == null || span == null) return null;
+            final Replacement replacement = format.replace(content, section, key, span, value);
+            if (replacement == null) return null;
+            edits.replace(replacement.start, replacement.end, replacement.text);
+        }
+
+        if (!missingProperties.isEmpty()) {
+            final List<KeyInsertions.Insertion> insertions = KeyInsertions.plan(root, missingProperties, values);
+            final int insertedCount = insertions.stream().mapToInt(insertion -> insertion.getProperties().size()).sum();
+            if (insertedCount < missingProperties.size()) return null;
+            KeyInsertions.addTo(edits, content, insertions, format);
+        }
+
+        try {
+            return edits.apply();
+        } catch (final IllegalStateException e) {
+            // entries of the same file are not expected to overlap, but never write a mangled file
+            return null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization.codec;
+
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
+import com.github.secretx33.sccfg.serialization.gson.typeadapter.MapDeserializerDoubleAsIntFix;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * The default {@link ValueCodec}, which converts values using Gson and the type adapters registered on a
+ * {@link GsonFactory}.
+ */
+public final class GsonValueCodec implements ValueCodec {
+
+    private final GsonFactory gsonFactory;
+
+    public GsonValueCodec(final GsonFactory gsonFactory) {
+        this.gsonFactory = checkNotNull(gsonFactory, "gsonFactory");
+    }
+
+    /**
+     * Supports every property, since any type can be converted by Gson, be it through a registered type
+     * adapter, or reflectively.
+     */
+    @Override
+    public boolean supports(final PropertyWrapper property) {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public Object decode(final PropertyWrapper property, final Object fileValue) {
+        checkNotNull(property, "property");
+        checkNotNull(fileValue, "fileValue");
+
+        final Gson gson = gsonFactory.getInstance();
+        // serialize and deserialize the value to make sure it is the right type of the field, a.k.a. account for
+        // generics, and also make sure to use any registered type adapter for that type
+        return readJson(property.getTypeAdapter(gson), gson.toJson(fileValue));
+    }
+
+    @Nullable
+    @Override
+    public Object encode(final PropertyWrapper property, @Nullable final Object value) {
+        checkNotNull(property, "property");
+
+        final Class<?> fieldClass = property.getType();
+        final StringWriter json = new StringWriter();
+        write(property, value, json);
+
+        if (fieldClass.isPrimitive() || Number.class.isAssignableFrom(fieldClass)) {
+            return gsonFactory.getInstance().fromJson(json.toString(), fieldClass);
+        }
+        // read whole numbers back as integers, even inside collections and maps, otherwise they would be
+        // written as doubles (e.g. 3.0 instead of 3)
+        return DOUBLE_AS_INT_FIX.read(JsonParser.parseString(json.toString()));
+    }
+
+    /**
+     * Writes {@code value} as json into {@code writer} using the type adapter of {@code property}, with the
+     * same writer settings {@link Gson#toJson(Object, Type, Appendable)} would use.
+     *
+     * @param property the property that holds {@code value}
+     * @param value the value of the field
+     * @param writer where the json should be written to
+     * @throws JsonIOException if {@code writer} throws an {@link IOException}
+     */
+    public void write(final PropertyWrapper property, @Nullable final Object value, final Writer writer) {
+        checkNotNull(property, "property");
+        checkNotNull(writer, "writer");
+
+        final Gson gson = gsonFactory.getInstance();
+        try {
+            final JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.setLenient(true);
+            property.getTypeAdapter(gson).write(jsonWriter, value);
+            jsonWriter.flush();
+        } catch (final IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Reads {@code json} using an already resolved type adapter, as leniently as {@link Gson#fromJson(String, Type)}
+     * would.
+     */
+    @Nullable
+    private static Object readJson(final TypeAdapter<Object> adapter, final String json) {
+        try {
+            final JsonReader reader = new JsonReader(new StringReader(json));
+            reader.setLenient(true);
+            return adapter.read(reader);
+        } catch (final IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static final MapDeserializerDoubleAsIntFix DOUBLE_AS_INT_FIX = new MapDeserializerDoubleAsIntFix();
+}
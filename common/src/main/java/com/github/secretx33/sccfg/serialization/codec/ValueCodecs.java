@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization.codec;
+
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
+import com.google.common.collect.MapMaker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Holds the {@link ValueCodec}s discovered through {@link ServiceLoader}, and picks which one each property
+ * uses. The codec of each property is picked only once, and properties that no discovered codec supports
+ * use the {@link GsonValueCodec}.
+ */
+public final class ValueCodecs {
+
+    private final GsonValueCodec defaultCodec;
+    private final List<ValueCodec> codecs;
+    private final Map<PropertyWrapper, ValueCodec> propertyCodecs = new MapMaker().weakKeys().makeMap();
+
+    public ValueCodecs(final Logger logger, final GsonFactory gsonFactory) {
+        this(new GsonValueCodec(gsonFactory), discover(checkNotNull(logger, "logger")));
+    }
+
+    ValueCodecs(final GsonValueCodec defaultCodec, final List<ValueCodec> codecs) {
+        this.defaultCodec = checkNotNull(defaultCodec, "defaultCodec");
+        final List<ValueCodec> sortedCodecs = new ArrayList<>(checkNotNull(codecs, "codecs"));
+        sortedCodecs.sort(Comparator.comparingInt(ValueCodec::priority).reversed());
+        this.codecs = Collections.unmodifiableList(sortedCodecs);
+    }
+
+    private static List<ValueCodec> discover(final Logger logger) {
+        final List<ValueCodec> codecs = new ArrayList<>();
+        final Iterator<ValueCodec> iterator = ServiceLoader.load(ValueCodec.class, ValueCodecs.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) break;
+                codecs.add(iterator.next());
+            } catch (final ServiceConfigurationError e) {
+                logger.log(Level.WARNING, "Could not load a value codec, so it was ignored. Make sure that all codecs listed on your META-INF/services files exist and have a public no args constructor.", e);
+            }
+        }
+        return codecs;
+    }
+
+    /**
+     * Gets the codec that should convert the values of {@code property}.
+     *
+     * @param property the property
+     * @return the codec of {@code property}
+     */
+    public ValueCodec codecFor(final PropertyWrapper property) {
+        checkNotNull(property, "property");
+        if (codecs.isEmpty()) return defaultCodec;
+        return propertyCodecs.computeIfAbsent(property, this::pickCodec);
+    }
+
+    private ValueCodec pickCodec(final PropertyWrapper property) {
+        for (final ValueCodec codec : codecs) {
+            if (codec.supports(property)) return codec;
+        }
+        return defaultCodec;
+    }
+
+    public GsonValueCodec getDefaultCodec() {
+        return defaultCodec;
+    }
+}
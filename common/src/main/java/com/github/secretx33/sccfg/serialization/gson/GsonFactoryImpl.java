@@ -37,8 +37,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 import static com.github.secretx33.sccfg.util.Preconditions.checkArgument;
@@ -49,31 +51,44 @@ public final class GsonFactoryImpl implements GsonFactory {
 
     private final Logger logger;
     private final Scanner scanner;
-    private Map<Type, Object> typeAdapters = Collections.emptyMap();
-    private Gson gson;
+    private final AtomicReference<TypeAdapterRegistry> registry;
 
     public GsonFactoryImpl(final Logger logger, final Scanner scanner) {
         this.logger = checkNotNull(logger, "logger");
         this.scanner = checkNotNull(scanner, "scanner");
-        parseTypeAdaptersOnClasspath();
+        final Map<Type, Object> typeAdapters = new HashMap<>();
+        final Map<Class<?>, Object> typeHierarchyAdapters = new LinkedHashMap<>();
+        parseTypeAdaptersOnClasspath(typeAdapters, typeHierarchyAdapters);
+        this.registry = new AtomicReference<>(TypeAdapterRegistry.of(typeAdapters, typeHierarchyAdapters, (adapters, hierarchyAdapters) -> newInstanceWithTypeAdapters(adapters, hierarchyAdapters, false)));
     }
 
     @Override
     public Gson getInstance() {
-        Gson instance = gson;
-        if (instance == null) {
-            instance = newInstanceWithTypeAdapters(false);
-            gson = instance;
-        }
-        return instance;
+        return registry.get().getGson();
+    }
+
+    @Override
+    public long getVersion() {
+        return registry.get().getVersion();
+    }
+
+    @Override
+    public void freeze() {
+        registry.updateAndGet(TypeAdapterRegistry::freeze);
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return registry.get().isFrozen();
     }
 
-    private void clearGsonInstances() {
-        gson = null;
+    private void register(final Map<Type, Object> newTypeAdapters) {
+        registry.updateAndGet(current -> current.with(newTypeAdapters));
     }
 
-    private Gson newInstanceWithTypeAdapters(final boolean prettyPrint) {
+    private Gson newInstanceWithTypeAdapters(final Map<Type, Object> typeAdapters, final Map<Class<?>, Object> typeHierarchyAdapters, final boolean prettyPrint) {
         checkNotNull(typeAdapters, "typeAdapters");
+        checkNotNull(typeHierarchyAdapters, "typeHierarchyAdapters");
         final GsonBuilder builder = new GsonBuilder().disableHtmlEscaping()
                 .excludeFieldsWithModifiers(Modifier.TRANSIENT, Modifier.STATIC)
                 .setExclusionStrategies(new GsonIgnoreFieldExclusionStrategy());
@@ -82,6 +97,9 @@ public final class GsonFactoryImpl implements GsonFactory {
         }
         builder.registerTypeAdapter(GENERIC_MAP_TOKEN, new MapDeserializerDoubleAsIntFix());
         typeAdapters.forEach(builder::registerTypeAdapter);
+        // Gson resolves the adapter of each concrete subclass only once, caching it by type, so runtime
+        // subclasses (like CraftItemStack) never fall back to the reflective adapter
+        typeHierarchyAdapters.forEach(builder::registerTypeHierarchyAdapter);
         return builder.create();
     }
 
@@ -91,8 +109,7 @@ public final class GsonFactoryImpl implements GsonFactory {
         checkNotNull(typeAdapter, "typeAdapter");
         checkArgument(isTypeAdapter(typeAdapter.getClass()), () -> "typeAdapter passed as argument does not implement any of Gson type adapter interfaces, so I could not register " + typeAdapter.getClass().getCanonicalName() + " since it is not a type adapter");
 
-        this.typeAdapters = Maps.copyPutting(typeAdapters, adapterFor, typeAdapter);
-        clearGsonInstances();
+        register(Collections.singletonMap(adapterFor, typeAdapter));
     }
 
     @Override
@@ -101,29 +118,40 @@ public final class GsonFactoryImpl implements GsonFactory {
         if (typeAdapters.isEmpty()) return;
         checkArgument(areTypeAdapters(typeAdapters.values()), "there are at least one value on the typeAdapters that is not a type adapter, please pass only type adapters as argument");
 
-        final Map<? extends Type, Object> newTypeAdapters = typeAdapters.entrySet().stream()
+        final Map<Type, Object> newTypeAdapters = typeAdapters.entrySet().stream()
                 .map(entry -> {
                     final Type type = TypeToken.get(entry.getKey()).getType();
-                    return new Pair<>(type, entry.getValue());
+                    return new Pair<Type, Object>(type, entry.getValue());
                 })
                 .collect(Maps.toMap());
-        this.typeAdapters = Maps.copyPutting(this.typeAdapters, newTypeAdapters);
-        clearGsonInstances();
+        register(newTypeAdapters);
+    }
+
+    @Override
+    public void addTypeHierarchyAdapter(final Class<?> baseType, final Object typeAdapter) {
+        checkNotNull(baseType, "baseType");
+        checkNotNull(typeAdapter, "typeAdapter");
+        checkArgument(isTypeHierarchyAdapter(typeAdapter.getClass()), () -> "typeAdapter passed as argument does not implement JsonSerializer, JsonDeserializer or TypeAdapter, so I could not register " + typeAdapter.getClass().getCanonicalName() + " as a type hierarchy adapter");
+
+        registry.updateAndGet(current -> current.withHierarchy(baseType, typeAdapter));
     }
 
-    private void parseTypeAdaptersOnClasspath() {
+    private void parseTypeAdaptersOnClasspath(final Map<Type, Object> newTypeAdapters, final Map<Class<?>, Object> newTypeHierarchyAdapters) {
         final Set<Class<?>> baseTypeAdaptersClasses = scanner.getBaseRegisterTypeAdapters();
         final Set<Class<?>> customTypeAdaptersClasses = scanner.getCustomRegisterTypeAdapters();
-        final Map<Type, Object> newTypeAdapters = new HashMap<>(customTypeAdaptersClasses.size());
 
         baseTypeAdaptersClasses.forEach(clazz -> {
-            final Class<?> annotationFor = clazz.getDeclaredAnnotation(RegisterTypeAdapter.class).value();
+            final RegisterTypeAdapter annotation = clazz.getDeclaredAnnotation(RegisterTypeAdapter.class);
 
             try {
                 final Constructor<?> constructor = clazz.getDeclaredConstructor();
                 constructor.setAccessible(true);
                 final Object instance = constructor.newInstance();
-                newTypeAdapters.put(annotationFor, checkNotNull(instance, "instance"));
+                if (annotation.hierarchy()) {
+                    newTypeHierarchyAdapters.put(annotation.value(), checkNotNull(instance, "instance"));
+                } else {
+                    newTypeAdapters.put(annotation.value(), checkNotNull(instance, "instance"));
+                }
             } catch (final ReflectiveOperationException e) {
                 throw new ConfigInternalErrorException("This exception should not be thrown, and will only if sc-cfg has messed up its base type adapters.", e);
             }
@@ -151,13 +179,21 @@ public final class GsonFactoryImpl implements GsonFactory {
             }
             final Class<?> typeAdapterFor = annotation.value();
 
+            if (annotation.hierarchy() && !isTypeHierarchyAdapter(clazz)) {
+                logger.warning("Class " + clazz.getCanonicalName() + " is annotated with @RegisterTypeAdapter(hierarchy = true), but type hierarchy adapters must extend JsonSerializer, JsonDeserializer or TypeAdapter, so it was not registered.");
+                continue;
+            }
+
             try {
-                newTypeAdapters.put(typeAdapterFor, constructor.newInstance());
+                if (annotation.hierarchy()) {
+                    newTypeHierarchyAdapters.put(typeAdapterFor, constructor.newInstance());
+                } else {
+                    newTypeAdapters.put(typeAdapterFor, constructor.newInstance());
+                }
             } catch (final ReflectiveOperationException e) {
                 throw new ConfigReflectiveOperationException(e);
             }
         }
-        typeAdapters = Maps.of(newTypeAdapters);
     }
 
     private boolean isTypeAdapter(final Class<?> clazz) {
@@ -167,6 +203,12 @@ public final class GsonFactoryImpl implements GsonFactory {
                 || TypeAdapter.class.isAssignableFrom(clazz);
     }
 
+    private boolean isTypeHierarchyAdapter(final Class<?> clazz) {
+        return JsonSerializer.class.isAssignableFrom(clazz)
+                || JsonDeserializer.class.isAssignableFrom(clazz)
+                || TypeAdapter.class.isAssignableFrom(clazz);
+    }
+
     private boolean areTypeAdapters(final Collection<?> typeAdapters) {
         return typeAdapters.stream().allMatch(adapter -> isTypeAdapter(adapter.getClass()));
     }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization.gson;
+
+import com.github.secretx33.sccfg.util.Lazy;
+import com.github.secretx33.sccfg.util.Maps;
+import com.google.gson.Gson;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+import static com.github.secretx33.sccfg.util.Preconditions.checkState;
+
+/**
+ * Immutable snapshot of the type adapters registered on a {@link GsonFactory}. Registering type adapters
+ * creates a new registry with the next version, so registries can be safely shared between threads, and
+ * each one of them builds its {@link Gson} instance only once, when it's first needed.
+ */
+final class TypeAdapterRegistry {
+
+    private final Map<Type, Object> typeAdapters;
+    private final Map<Class<?>, Object> typeHierarchyAdapters;
+    private final long version;
+    private final boolean frozen;
+    private final BiFunction<Map<Type, Object>, Map<Class<?>, Object>, Gson> gsonBuilder;
+    private final Lazy<Gson> gson;
+
+    private TypeAdapterRegistry(final Map<Type, Object> typeAdapters, final Map<Class<?>, Object> typeHierarchyAdapters, final long version, final boolean frozen, final BiFunction<Map<Type, Object>, Map<Class<?>, Object>, Gson> gsonBuilder, final Lazy<Gson> gson) {
+        this.typeAdapters = typeAdapters;
+        this.typeHierarchyAdapters = typeHierarchyAdapters;
+        this.version = version;
+        this.frozen = frozen;
+        this.gsonBuilder = gsonBuilder;
+        this.gson = gson;
+    }
+
+    /**
+     * Creates the first registry.
+     *
+     * @param typeAdapters the initial type adapters, mapped by the type they handle
+     * @param typeHierarchyAdapters the initial type adapters, mapped by the base class of the types they handle
+     * @param gsonBuilder builds a Gson instance with the type adapters and type hierarchy adapters passed to it
+     * @return the registry
+     */
+    static TypeAdapterRegistry of(final Map<Type, Object> typeAdapters, final Map<Class<?>, Object> typeHierarchyAdapters, final BiFunction<Map<Type, Object>, Map<Class<?>, Object>, Gson> gsonBuilder) {
+        checkNotNull(typeAdapters, "typeAdapters");
+        checkNotNull(typeHierarchyAdapters, "typeHierarchyAdapters");
+        checkNotNull(gsonBuilder, "gsonBuilder");
+        return create(Maps.of(typeAdapters), Maps.of(typeHierarchyAdapters), 0L, gsonBuilder);
+    }
+
+    private static TypeAdapterRegistry create(final Map<Type, Object> typeAdapters, final Map<Class<?>, Object> typeHierarchyAdapters, final long version, final BiFunction<Map<Type, Object>, Map<Class<?>, Object>, Gson> gsonBuilder) {
+        return new TypeAdapterRegistry(typeAdapters, typeHierarchyAdapters, version, false, gsonBuilder, Lazy.of(() -> gsonBuilder.apply(typeAdapters, typeHierarchyAdapters)));
+    }
+
+    /**
+     * Creates the next version of this registry, with {@code newTypeAdapters} added to it.
+     *
+     * @param newTypeAdapters the type adapters to add, mapped by the type they handle
+     * @return the new registry
+     * @throws IllegalStateException if this registry is frozen
+     */
+    TypeAdapterRegistry with(final Map<Type, Object> newTypeAdapters) {
+        checkNotNull(newTypeAdapters, "newTypeAdapters");
+        checkNotFrozen();
+        return create(Maps.copyPutting(typeAdapters, newTypeAdapters), typeHierarchyAdapters, version + 1, gsonBuilder);
+    }
+
+    /**
+     * Creates the next version of this registry, with {@code typeAdapter} added to it as a type hierarchy
+     * adapter, so it handles {@code baseType} and all of its subclasses. Type hierarchy adapters registered
+     * later take precedence over the ones registered before them.
+     *
+     * @param baseType the base class of the types handled by {@code typeAdapter}
+     * @param typeAdapter the type adapter to add
+     * @return the new registry
+     * @throws IllegalStateException if this registry is frozen
+     */
+    TypeAdapterRegistry withHierarchy(final Class<?> baseType, final Object typeAdapter) {
+        checkNotNull(baseType, "baseType");
+        checkNotNull(typeAdapter, "typeAdapter");
+        checkNotFrozen();
+        final Map<Class<?>, Object> newTypeHierarchyAdapters = Maps.copyApplying(typeHierarchyAdapters, map -> {
+            map.remove(baseType);
+            map.put(baseType, typeAdapter);
+        });
+        return create(typeAdapters, newTypeHierarchyAdapters, version + 1, gsonBuilder);
+    }
+
+    private void checkNotFrozen() {
+        checkState(!frozen, () -> "Type adapters were frozen, so no more type adapters can be registered. Register all of them before calling Config.freezeTypeAdapters.");
+    }
+
+    /**
+     * Gets a frozen copy of this registry, which rejects any further type adapter, and shares its Gson instance
+     * with this registry.
+     *
+     * @return the frozen registry
+     */
+    TypeAdapterRegistry freeze() {
+        if (frozen) return this;
+        return new TypeAdapterRegistry(typeAdapters, typeHierarchyAdapters, version, true, gsonBuilder, gson);
+    }
+
+    Map<Type, Object> getTypeAdapters() {
+        return typeAdapters;
+    }
+
+    Map<Class<?>, Object> getTypeHierarchyAdapters() {
+        return typeHierarchyAdapters;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    boolean isFrozen() {
+        return frozen;
+    }
+
+    Gson getGson() {
+        return gson.get();
+    }
+}
@@ -43,7 +43,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -66,7 +66,7 @@ public abstract class AbstractFileWatcher implements AutoCloseable  {
     /**
      * The Coroutine Thread that will be used only to monitor changes of this folder
      */
-    private final Executor singleThreadExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
 
     public AbstractFileWatcher(
         final FileSystem fileSystem,
@@ -179,8 +179,8 @@ public abstract class AbstractFileWatcher implements AutoCloseable  {
                 // resolve the context of the event against the directory being watched
                 Path file = directory.resolve(context);
 
-                // if the file is a regular file, send the event on to be processed
-                if (Files.isRegularFile(file)) {
+                // if the file is a regular file (or was deleted, so there's no way to tell), send the event on to be processed
+                if (Files.isRegularFile(file) || event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
                     processEvent(new FileWatcherEvent(file, FileModificationType.adapt(event)));
                 }
 
@@ -202,6 +202,9 @@ public abstract class AbstractFileWatcher implements AutoCloseable  {
         this.processingThread.compareAndSet(Thread.currentThread(), null);
     }
 
+    /**
+     * Stops watching the registered directories, and lets the thread that processes their events finish.
+     */
     @Override
     public void close() {
         try {
@@ -209,5 +212,6 @@ public abstract class AbstractFileWatcher implements AutoCloseable  {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        singleThreadExecutor.shutdown();
     }
 }
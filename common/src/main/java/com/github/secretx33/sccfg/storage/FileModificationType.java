@@ -50,7 +50,11 @@ public enum FileModificationType {
     }
 
     public boolean isModify() {
-        return this == CREATE;
+        return this == MODIFY;
+    }
+
+    public boolean isDelete() {
+        return this == DELETE;
     }
 
     public boolean isCreateOrModify() {
@@ -152,9 +152,24 @@ public final class FileWatcher extends AbstractFileWatcher {
          * Register a listener.
          *
          * @param listener the listener
+         * @return the registered listener, which can be used to unregister it later
          */
-        public void addListener(Set<FileModificationType> modificationTypes, Consumer<FileWatcherEvent>  listener) {
-            callbacks.add(new FileWatcherEventConsumer(listener, modificationTypes));
+        public FileWatcherEventConsumer addListener(Set<FileModificationType> modificationTypes, Consumer<FileWatcherEvent>  listener) {
+            final FileWatcherEventConsumer consumer = new FileWatcherEventConsumer(listener, modificationTypes);
+            callbacks.add(consumer);
+            return consumer;
+        }
+
+        /**
+         * Unregister a listener.
+         *
+         * @param listener the listener, as returned by {@link WatchedLocation#addListener(Set, Consumer)}
+         * @return true if the listener was registered
+         */
+        public boolean removeListener(FileWatcherEventConsumer listener) {
+            checkNotNull(listener, "listener");
+            recentlyConsumedFiles.remove(listener.getUniqueId());
+            return callbacks.remove(listener);
         }
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Thread safe, memoized value that is computed only once, on first need. The computation can either happen
+ * on the thread that first requests the value, or be started ahead of time on another thread through
+ * {@link Lazy#getAsync(Executor)}, in which case callers of {@link Lazy#get()} just wait for it to finish.
+ * Failures are not memoized: callers waiting on a computation that failed get its exception, and the next
+ * call after that computes the value again.
+ *
+ * @param <T> the type of the value
+ */
+public final class Lazy<T> {
+
+    private final Supplier<T> supplier;
+    private final AtomicReference<CompletableFuture<T>> value = new AtomicReference<>();
+
+    private Lazy(final Supplier<T> supplier) {
+        this.supplier = checkNotNull(supplier, "supplier");
+    }
+
+    public static <T> Lazy<T> of(final Supplier<T> supplier) {
+        return new Lazy<>(supplier);
+    }
+
+    /**
+     * Gets the value, computing it on the current thread if no other thread has started computing it yet.
+     *
+     * @return the value
+     */
+    public T get() {
+        final CompletableFuture<T> future = value.get();
+        if (future != null && future.isDone()) {
+            return join(future);
+        }
+        return join(getAsync(Runnable::run));
+    }
+
+    /**
+     * Starts computing the value on {@code executor}, if no other thread has started computing it yet.
+     *
+     * @param executor the executor in which the value should be computed
+     * @return a future that completes with the value
+     */
+    public CompletableFuture<T> getAsync(final Executor executor) {
+        checkNotNull(executor, "executor");
+        CompletableFuture<T> future = value.get();
+        if (future != null) return future;
+
+        final CompletableFuture<T> newFuture = new CompletableFuture<>();
+        while (!value.compareAndSet(null, newFuture)) {
+            // the computation that won the race may have failed and been forgotten already, so try again then
+            future = value.get();
+            if (future != null) return future;
+        }
+        executor.execute(() -> {
+            try {
+                newFuture.complete(supplier.get());
+            } catch (final Throwable t) {
+                // forget the failed computation before publishing the failure, so the next call retries it
+                value.compareAndSet(newFuture, null);
+                newFuture.completeExceptionally(t);
+            }
+        });
+        return newFuture;
+    }
+
+    public boolean isInitialized() {
+        final CompletableFuture<T> future = value.get();
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+}
@@ -15,11 +15,9 @@
  */
 package com.github.secretx33.sccfg.util;
 
-import com.github.secretx33.sccfg.api.annotation.Configuration;
 import com.github.secretx33.sccfg.exception.MissingConfigAnnotationException;
 import com.github.secretx33.sccfg.exception.MissingNoArgsConstructorException;
-
-import java.util.Arrays;
+import com.github.secretx33.sccfg.scanner.ConfigClassMetadata;
 
 import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
 
@@ -30,19 +28,13 @@ public final class Valid {
     public static boolean isConfigClass(final Class<?> clazz) {
         checkNotNull(clazz, "clazz");
 
-        final Configuration annotation = clazz.getDeclaredAnnotation(Configuration.class);
-        if (annotation == null) {
-            return false;
-        }
-
-        final boolean hasDefaultConstructor = Arrays.stream(clazz.getDeclaredConstructors()).anyMatch(c -> c.getParameterCount() == 0);
-        return hasDefaultConstructor;
+        final ConfigClassMetadata metadata = ConfigClassMetadata.of(clazz);
+        return metadata.isConfigClass() && metadata.hasNoArgsConstructor();
     }
 
     public static void validateConfigClass(final Class<?> clazz) {
         checkNotNull(clazz, "clazz");
-        final Configuration annotation = clazz.getDeclaredAnnotation(Configuration.class);
-        if (annotation == null) {
+        if (!ConfigClassMetadata.of(clazz).isConfigClass()) {
             throw new MissingConfigAnnotationException(clazz);
         }
     }
@@ -55,8 +47,7 @@ public final class Valid {
 
     private static void validateClassHasDefaultConstructor(final Class<?> clazz) {
         checkNotNull(clazz, "clazz");
-        final boolean hasDefaultConstructor = Arrays.stream(clazz.getDeclaredConstructors()).anyMatch(c -> c.getParameterCount() == 0);
-        if (!hasDefaultConstructor) {
+        if (!ConfigClassMetadata.of(clazz).hasNoArgsConstructor()) {
             throw new MissingNoArgsConstructorException(clazz);
         }
     }
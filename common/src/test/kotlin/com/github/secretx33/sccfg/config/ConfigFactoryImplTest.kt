@@ -0,0 +1,883 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.config
+
+import com.github.secretx33.sccfg.api.FileType
+import com.github.secretx33.sccfg.api.annotation.AfterReload
+import com.github.secretx33.sccfg.api.annotation.Comment
+import com.github.secretx33.sccfg.api.annotation.ConfigDirectory
+import com.github.secretx33.sccfg.api.annotation.Configuration
+import com.github.secretx33.sccfg.api.annotation.Keyed
+import com.github.secretx33.sccfg.api.annotation.Path as ConfigPath
+import com.github.secretx33.sccfg.exception.ConfigCircularLoadException
+import com.github.secretx33.sccfg.exception.ConfigException
+import com.github.secretx33.sccfg.exception.ConfigInstanceOverrideException
+import com.github.secretx33.sccfg.exception.ConfigSerializationException
+import com.github.secretx33.sccfg.scanner.BaseScanner
+import com.github.secretx33.sccfg.serialization.codec.ValueCodec
+import com.github.secretx33.sccfg.serialization.gson.GsonFactoryImpl
+import com.github.secretx33.sccfg.storage.FileWatcher
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.junit.jupiter.api.io.TempDir
+import org.mockito.kotlin.mock
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.logging.Logger
+import kotlin.streams.toList
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class ConfigFactoryImplTest {
+
+    @TempDir
+    lateinit var basePath: Path
+
+    private lateinit var factory: ConfigFactoryImpl
+    private lateinit var fileWatcher: FileWatcher
+
+    @BeforeEach
+    fun setup() {
+        val logger = Logger.getLogger("sc-cfg")
+        val scanner = BaseScanner("com.github.secretx33.sccfg.config", emptySet())
+        fileWatcher = FileWatcher(basePath)
+        factory = ConfigFactoryImpl(logger, GsonFactoryImpl(logger, scanner), basePath, scanner, fileWatcher, mock())
+        currentFactory = factory
+    }
+
+    @AfterEach
+    fun tearDown() {
+        factory.shutdown()
+        fileWatcher.close()
+    }
+
+    /**
+     * Replaces the factory by a new one, so the configs are read from their files again.
+     */
+    private fun restart() {
+        tearDown()
+        setup()
+    }
+
+    @Test
+    fun `given config class when getting wrapper twice then return the same wrapper`() {
+        val wrapper = factory.getWrapper(SimpleConfig::class.java)
+
+        assertSame(wrapper, factory.getWrapper(SimpleConfig::class.java))
+        assertTrue(Files.exists(basePath.resolve("simple.json")))
+    }
+
+    @Test
+    fun `given evicted config when getting wrapper then discard the old wrapper and load a new one`() {
+        val wrapper = factory.getWrapper(SimpleConfig::class.java)
+
+        assertTrue(factory.evictInstance(SimpleConfig::class.java))
+
+        assertTrue(wrapper.isDiscarded)
+        val newWrapper = factory.getWrapper(SimpleConfig::class.java)
+        assertFalse(newWrapper.isDiscarded)
+        assertNotSame(wrapper.instance, newWrapper.instance)
+        assertFalse(factory.evictInstance(OtherConfig::class.java))
+    }
+
+    @Test
+    fun `given reloaded instances of one class then share a single descriptor`() {
+        val first = factory.getWrapper(HookedConfig::class.java) as ConfigWrapperImpl<*>
+        factory.evictInstance(HookedConfig::class.java)
+        val second = factory.getWrapper(HookedConfig::class.java) as ConfigWrapperImpl<*>
+
+        assertNotSame(first, second)
+        assertSame(first.descriptor, second.descriptor)
+        assertEquals(first.descriptor.properties, second.properties.map { (it as PropertyWrapperImpl).descriptor }.toSet())
+        assertEquals(listOf("onReload"), first.runAfterReloadSyncMethods.map { it.method.name })
+        assertEquals(listOf("onReloadAsync"), first.runAfterReloadAsyncMethods.map { it.method.name })
+    }
+
+    @Test
+    fun `given reloaded instances of one class then share its property paths`() {
+        val first = factory.getWrapper(SimpleConfig::class.java) as ConfigWrapperImpl<*>
+        val paths = first.descriptor.propertyPaths
+        factory.evictInstance(SimpleConfig::class.java)
+        val second = factory.getWrapper(SimpleConfig::class.java) as ConfigWrapperImpl<*>
+
+        assertSame(paths, second.descriptor.propertyPaths)
+        second.properties.forEach { assertSame(it, second.getProperty((it as PropertyWrapperImpl).descriptor)) }
+    }
+
+    @Test
+    fun `given loaded config when reloading, updating or saving it then change its version`() {
+        val wrapper = factory.getWrapper(SimpleConfig::class.java)
+        val versions = mutableListOf(wrapper.version)
+
+        factory.reloadInstance(SimpleConfig::class.java)
+        versions += wrapper.version
+        factory.updateInstance(SimpleConfig::class.java) { it.value = 2 }
+        versions += wrapper.version
+        factory.saveInstance(SimpleConfig::class.java)
+        versions += wrapper.version
+        factory.saveInstanceAsync(SimpleConfig::class.java)
+        versions += wrapper.version
+        factory.saveAll(false)
+        versions += wrapper.version
+
+        assertEquals(versions.size, versions.distinct().size)
+        assertFalse(factory.isDirty(SimpleConfig::class.java))
+    }
+
+    @Test
+    fun `given config that requests itself while loading then throw circular load exception`() {
+        assertThrows<ConfigCircularLoadException> { factory.getWrapper(SelfReferencingConfig::class.java) }
+    }
+
+    @Test
+    fun `given configs that request each other while loading on different threads then throw circular load exception`() {
+        loadBarrier = CyclicBarrier(2)
+        val executor = Executors.newFixedThreadPool(2)
+        try {
+            val first = CompletableFuture.supplyAsync({ factory.getWrapper(CrossLoadingConfig::class.java) }, executor)
+            val second = CompletableFuture.supplyAsync({ factory.getWrapper(OtherCrossLoadingConfig::class.java) }, executor)
+
+            listOf(first, second).forEach {
+                val e = assertThrows<ExecutionException> { it.get(10, TimeUnit.SECONDS) }
+                assertTrue(e.cause is ConfigCircularLoadException, "expected circular load exception, but got ${e.cause}")
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    @Test
+    fun `given config whose load failed when getting wrapper again then load it again`() {
+        failingLoads = 1
+
+        assertThrows<ConfigException> { factory.getWrapper(FailingOnceConfig::class.java) }
+
+        assertEquals(0, factory.getWrapper(FailingOnceConfig::class.java).instance.value)
+    }
+
+    @Test
+    fun `given many instances when registering them then load all of them and reject duplicates`() {
+        val simple = SimpleConfig()
+        val other = OtherConfig()
+
+        factory.registerInstances(simple, other)
+
+        assertSame(simple, factory.getWrapper(SimpleConfig::class.java).instance)
+        assertSame(other, factory.getWrapper(OtherConfig::class.java).instance)
+        assertThrows<ConfigInstanceOverrideException> { factory.registerInstances(SimpleConfig(), OtherConfig()) }
+    }
+
+    @Test
+    fun `given keys when getting keyed wrappers then store each key in its own file`() {
+        val desert = factory.getWrapper(ArenaConfig::class.java, "desert")
+        val jungle = factory.getWrapper(ArenaConfig::class.java, "jungle")
+
+        assertNotSame(desert.instance, jungle.instance)
+        assertSame(desert, factory.getWrapper(ArenaConfig::class.java, "desert"))
+        assertEquals(basePath.resolve("arenas/desert.json"), desert.destination)
+        assertTrue(Files.exists(basePath.resolve("arenas/jungle.json")))
+    }
+
+    @Test
+    fun `given more keys than max resident then evict the least recently used`() {
+        val first = factory.getWrapper(ArenaConfig::class.java, "first")
+        factory.getWrapper(ArenaConfig::class.java, "second")
+        factory.getWrapper(ArenaConfig::class.java, "first")
+        factory.getWrapper(ArenaConfig::class.java, "third")
+
+        // "second" was the least recently used, so it's the evicted one
+        assertSame(first, factory.getWrapper(ArenaConfig::class.java, "first"))
+        assertFalse(factory.evictInstance(ArenaConfig::class.java, "second"))
+        assertTrue(factory.evictInstance(ArenaConfig::class.java, "first"))
+        assertNotSame(first, factory.getWrapper(ArenaConfig::class.java, "first"))
+    }
+
+    @Test
+    fun `given modified or queued keyed instances when exceeding max resident then keep them loaded`() {
+        val first = factory.getWrapper(ArenaConfig::class.java, "first")
+        val second = factory.getWrapper(ArenaConfig::class.java, "second")
+        first.instance.maxPlayers = 20
+        factory.saveInstanceAsync(ArenaConfig::class.java, "second")
+
+        val third = factory.getWrapper(ArenaConfig::class.java, "third")
+
+        assertFalse(first.isDiscarded)
+        assertFalse(second.isDiscarded)
+        assertSame(first, factory.getWrapper(ArenaConfig::class.java, "first"))
+        assertSame(second, factory.getWrapper(ArenaConfig::class.java, "second"))
+        assertSame(third, factory.getWrapper(ArenaConfig::class.java, "third"))
+    }
+
+    @Test
+    fun `given invalid key then throw illegal argument exception`() {
+        assertThrows<IllegalArgumentException> { factory.getWrapper(ArenaConfig::class.java, "../escape") }
+        assertThrows<IllegalArgumentException> { factory.getWrapper(ArenaConfig::class.java, "") }
+    }
+
+    @Test
+    fun `given config directory field then keep the map in sync with the folder files`() {
+        val arenasFolder = Files.createDirectories(basePath.resolve("arenas"))
+        Files.write(arenasFolder.resolve("desert.json"), """{"maxPlayers": 4}""".toByteArray())
+        Files.write(arenasFolder.resolve("ignored.yml"), "maxPlayers: 8".toByteArray())
+
+        val arenas = factory.getWrapper(ArenasConfig::class.java).instance.arenas
+        assertEquals(setOf("desert"), arenas.keys)
+        assertEquals(4, arenas.getValue("desert").maxPlayers)
+
+        Files.write(arenasFolder.resolve("jungle.json"), """{"maxPlayers": 6}""".toByteArray())
+        awaitUntil { arenas["jungle"]?.maxPlayers == 6 }
+
+        Files.delete(arenasFolder.resolve("desert.json"))
+        awaitUntil { "desert" !in arenas }
+    }
+
+    @Test
+    fun `given json file with unknown keys when loading it then read only the bound values`() {
+        Files.write(basePath.resolve("nested.json"), """
+            {
+              "unknown": {"deep": [1, 2, {"deeper": true}]},
+              "settings": {"rolls": 5, "other": "x"},
+              // lenient files are accepted
+              "drops": {"diamond": 0.5}
+            }
+        """.trimIndent().toByteArray())
+
+        val config = factory.getWrapper(NestedJsonConfig::class.java).instance
+        assertEquals(mapOf("diamond" to 0.5), config.drops)
+        assertEquals(5, config.rolls)
+    }
+
+    @Test
+    fun `given json file cut in the middle when reloading it then keep all the previous values`() {
+        Files.write(basePath.resolve("nested.json"), """{"settings": {"rolls": 5}, "drops": {"diamond": 0.5}}""".toByteArray())
+        val wrapper = factory.getWrapper(NestedJsonConfig::class.java)
+
+        Files.write(basePath.resolve("nested.json"), """{"settings": {"rolls": 7}, "drops": {"diamond": 0.""".toByteArray())
+        factory.reloadInstance(wrapper)
+
+        assertEquals(5, wrapper.instance.rolls)
+        assertEquals(mapOf("diamond" to 0.5), wrapper.instance.drops)
+    }
+
+    @Test
+    fun `given reload listener when reloading config then notify it and keep snapshots untouched`() {
+        val config = factory.getWrapper(NestedJsonConfig::class.java).instance
+        val snapshot = factory.getSnapshot(NestedJsonConfig::class.java)
+        val reloaded = mutableListOf<NestedJsonConfig>()
+        factory.addReloadListener(NestedJsonConfig::class.java) { reloaded += it }
+        Files.write(basePath.resolve("nested.json"), """{"settings": {"rolls": 7}}""".toByteArray())
+
+        factory.reloadInstance(NestedJsonConfig::class.java)
+
+        assertEquals(listOf(config), reloaded)
+        assertEquals(7, config.rolls)
+        assertNotSame(config, snapshot)
+        assertEquals(1, snapshot.rolls)
+    }
+
+    @Test
+    fun `given yaml file with unbound sections when loading it then read only the bound values`() {
+        Files.write(basePath.resolve("nested.yml"), """
+            other-plugin:
+              data: &shared [1, 2, {deep: true}]
+              more: *shared
+            settings:
+              other: x
+              rolls: 5
+            drops:
+              diamond: 0.5
+        """.trimIndent().toByteArray())
+
+        val config = factory.getWrapper(NestedYamlConfig::class.java).instance
+        assertEquals(mapOf("diamond" to 0.5), config.drops)
+        assertEquals(5, config.rolls)
+    }
+
+    @Test
+    fun `given yaml file with empty entries when loading it then keep the default of these entries`() {
+        Files.write(basePath.resolve("nested.yml"), """
+            drops:
+            settings:
+              rolls: 4
+        """.trimIndent().toByteArray())
+
+        val config = factory.getWrapper(NestedYamlConfig::class.java).instance
+        assertEquals(emptyMap(), config.drops)
+        assertEquals(4, config.rolls)
+    }
+
+    @Test
+    fun `given yaml file with alias to unbound anchor when loading it then still resolve the alias`() {
+        Files.write(basePath.resolve("nested.yml"), """
+            defaults: &defaults
+              diamond: 0.25
+            drops: *defaults
+        """.trimIndent().toByteArray())
+
+        assertEquals(mapOf("diamond" to 0.25), factory.getWrapper(NestedYamlConfig::class.java).instance.drops)
+    }
+
+    @Test
+    fun `given cbor config when saving and loading it again then keep its values`() {
+        val config = factory.getWrapper(CborConfig::class.java).instance
+        config.drops = mapOf("diamond" to 0.01, "stone" to 0.9)
+        config.rolls = 3
+        factory.saveInstance(CborConfig::class.java)
+        restart()
+
+        val loaded = factory.getWrapper(CborConfig::class.java).instance
+        assertEquals(mapOf("diamond" to 0.01, "stone" to 0.9), loaded.drops)
+        assertEquals(3, loaded.rolls)
+    }
+
+    @Test
+    fun `given cbor file cut in the middle when reloading it then keep all the previous values`() {
+        val wrapper = factory.getWrapper(CborConfig::class.java)
+        wrapper.instance.drops = mapOf("diamond" to 0.01)
+        wrapper.instance.rolls = 3
+        factory.saveInstance(CborConfig::class.java)
+        val file = basePath.resolve("loot.cbor")
+        val bytes = Files.readAllBytes(file)
+        wrapper.instance.drops = emptyMap()
+        wrapper.instance.rolls = 1
+
+        Files.write(file, bytes.copyOf(bytes.size - 2))
+        factory.reloadInstance(wrapper)
+
+        assertEquals(emptyMap(), wrapper.instance.drops)
+        assertEquals(1, wrapper.instance.rolls)
+    }
+
+    @Test
+    fun `given streamed configs with snapshots enabled when loading them then store their values in snapshots`(@TempDir snapshots: Path) {
+        System.setProperty("sccfg.snapshot.dir", snapshots.toString())
+        try {
+            Files.write(basePath.resolve("snapshotted.json"), """{"settings": {"rolls": 4}}""".toByteArray())
+            restart()
+            assertEquals(4, factory.getWrapper(SnapshotJsonConfig::class.java).instance.rolls)
+            // the cbor file is only created here, so its values are read (and snapshotted) on the next load
+            factory.getWrapper(SnapshotCborConfig::class.java).instance.rolls = 2
+            factory.saveInstance(SnapshotCborConfig::class.java)
+            restart()
+
+            assertEquals(2, factory.getWrapper(SnapshotCborConfig::class.java).instance.rolls)
+            assertEquals(2, Files.list(snapshots).use { it.count() })
+            restart()
+            assertEquals(4, factory.getWrapper(SnapshotJsonConfig::class.java).instance.rolls)
+            assertEquals(2, factory.getWrapper(SnapshotCborConfig::class.java).instance.rolls)
+        } finally {
+            System.clearProperty("sccfg.snapshot.dir")
+        }
+    }
+
+    @Test
+    fun `given many async saves within the save window then merge them into one write of the latest values`() {
+        factory.getWrapper(SlowSaveConfig::class.java)
+        val first = factory.updateInstance(SlowSaveConfig::class.java) { it.joins++ }
+        val second = factory.updateInstance(SlowSaveConfig::class.java) { it.joins++ }
+        assertSame(first, second)
+        assertFalse(first.isDone)
+
+        factory.flushPendingSaves()
+
+        assertTrue(first.isDone)
+        restart()
+        assertEquals(2, factory.getWrapper(SlowSaveConfig::class.java).instance.joins)
+    }
+
+    @Test
+    fun `given data class config when merging saves then keep tracking the queued save while its values change`() {
+        factory.getWrapper(DataConfig::class.java)
+        val first = factory.updateInstance(DataConfig::class.java) { it.value = 1 }
+        val second = factory.updateInstance(DataConfig::class.java) { it.value = 2 }
+        assertSame(first, second)
+
+        factory.flushPendingSaves()
+
+        assertTrue(first.isDone)
+        restart()
+        assertEquals(2, factory.getWrapper(DataConfig::class.java).instance.value)
+    }
+
+    @Test
+    fun `given queued saves when shutting down then write them and write later saves right away`() {
+        factory.getWrapper(SlowSaveConfig::class.java)
+        val queued = factory.updateInstance(SlowSaveConfig::class.java) { it.joins++ }
+
+        factory.shutdown()
+
+        assertTrue(queued.isDone)
+        val later = factory.updateInstance(SlowSaveConfig::class.java) { it.joins++ }
+        assertTrue(later.isDone)
+        val content = String(Files.readAllBytes(basePath.resolve("slow-save.json")))
+        assertTrue(Regex(""""joins"\s*:\s*2""").containsMatchIn(content), content)
+    }
+
+    @Test
+    fun `given update in progress when reloading config then wait for the update to finish`() {
+        val wrapper = factory.getWrapper(NestedJsonConfig::class.java)
+        val updating = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val executor = Executors.newFixedThreadPool(2)
+        try {
+            val update = CompletableFuture.runAsync({
+                factory.updateInstance(NestedJsonConfig::class.java) {
+                    updating.countDown()
+                    release.await(10, TimeUnit.SECONDS)
+                    it.rolls = 9
+                }
+            }, executor)
+            assertTrue(updating.await(10, TimeUnit.SECONDS))
+            Files.write(basePath.resolve("nested.json"), """{"settings": {"rolls": 7}}""".toByteArray())
+
+            val reload = CompletableFuture.runAsync({ factory.reloadInstance(wrapper) }, executor)
+
+            assertThrows<TimeoutException> { reload.get(300, TimeUnit.MILLISECONDS) }
+            release.countDown()
+            update.get(10, TimeUnit.SECONDS)
+            reload.get(10, TimeUnit.SECONDS)
+            assertEquals(7, wrapper.instance.rolls)
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    @Test
+    fun `given yaml config with comments when saving it then replace the file at once with the commented content`() {
+        val config = factory.getWrapper(CommentedYamlConfig::class.java).instance
+        config.rolls = 7
+        factory.saveInstance(CommentedYamlConfig::class.java)
+
+        val lines = Files.readAllLines(basePath.resolve("commented.yml"))
+        assertEquals(listOf("# How many times the loot is rolled", "rolls: 7"), lines)
+        Files.list(basePath).use { files -> assertEquals(listOf("commented.yml"), files.map { it.fileName.toString() }.toList()) }
+    }
+
+    @Test
+    fun `given config without file when loading it then write its defaults without reading them back`() {
+        val wrapper = factory.getWrapper(NestedJsonConfig::class.java)
+
+        assertSame(emptyMap<String, Double>(), wrapper.instance.drops)
+        assertTrue(Files.isRegularFile(basePath.resolve("nested.json")))
+        assertFalse(factory.isDirty(NestedJsonConfig::class.java))
+        assertEquals(mapOf("drops" to emptyMap<String, Any>(), "settings" to mapOf("rolls" to 1)), wrapper.defaults)
+    }
+
+    @Test
+    fun `given config not modified since loaded when saving it then do not rewrite its file`() {
+        val config = factory.getWrapper(SimpleConfig::class.java).instance
+        val file = basePath.resolve("simple.json")
+        Files.write(file, "{\"value\": 1, \"stale\": true}".toByteArray())
+        assertFalse(factory.isDirty(SimpleConfig::class.java))
+
+        factory.saveInstance(SimpleConfig::class.java)
+        assertEquals("{\"value\": 1, \"stale\": true}", String(Files.readAllBytes(file)))
+
+        config.value = 2
+        assertTrue(factory.isDirty(SimpleConfig::class.java))
+        factory.saveInstance(SimpleConfig::class.java)
+        assertFalse(factory.isDirty(SimpleConfig::class.java))
+        assertFalse(String(Files.readAllBytes(file)).contains("stale"))
+    }
+
+    @Test
+    fun `given data class config when its values change then keep tracking what was last saved`() {
+        val config = factory.getWrapper(DataConfig::class.java).instance
+        assertFalse(factory.isDirty(DataConfig::class.java))
+
+        config.value = 2
+        assertTrue(factory.isDirty(DataConfig::class.java))
+        factory.saveInstance(DataConfig::class.java)
+        assertFalse(factory.isDirty(DataConfig::class.java))
+
+        config.value = 3
+        assertTrue(factory.isDirty(DataConfig::class.java))
+        config.value = 2
+        assertFalse(factory.isDirty(DataConfig::class.java))
+    }
+
+    @Test
+    fun `given value that cannot be serialized when checking if dirty then always consider the config dirty`() {
+        val config = factory.getWrapper(RatioConfig::class.java).instance
+        assertFalse(factory.isDirty(RatioConfig::class.java))
+
+        config.ratio = Double.NaN
+
+        assertTrue(factory.isDirty(RatioConfig::class.java))
+        assertThrows<ConfigSerializationException> { factory.saveInstance(RatioConfig::class.java) }
+        assertTrue(factory.isDirty(RatioConfig::class.java))
+    }
+
+    @Test
+    fun `given map with the same entries in another order when checking if dirty then consider the config dirty`() {
+        Files.write(basePath.resolve("nested.json"), """{"drops": {"diamond": 0.5, "stone": 0.9}, "settings": {"rolls": 1}}""".toByteArray())
+        val config = factory.getWrapper(NestedJsonConfig::class.java).instance
+        assertFalse(factory.isDirty(NestedJsonConfig::class.java))
+
+        config.drops = linkedMapOf("stone" to 0.9, "diamond" to 0.5)
+
+        assertTrue(factory.isDirty(NestedJsonConfig::class.java))
+    }
+
+    @Test
+    fun `given loaded configs when saving all of them then write only the modified ones and report each one`() {
+        factory.getWrapper(SimpleConfig::class.java).instance.value = 5
+        factory.getWrapper(NestedJsonConfig::class.java)
+
+        val report = factory.saveAll(true)
+
+        assertTrue(report.isSuccessful)
+        assertEquals(mapOf(SimpleConfig::class.java to true, NestedJsonConfig::class.java to false), report.entries.associate { it.configClass to it.isWritten })
+        restart()
+        assertEquals(5, factory.getWrapper(SimpleConfig::class.java).instance.value)
+    }
+
+    @Test
+    fun `given config that cannot be saved when saving a batch then report its failure and still save the others`() {
+        factory.getWrapper(SimpleConfig::class.java).instance.value = 7
+        factory.getWrapper(RatioConfig::class.java).instance.ratio = Double.NaN
+
+        val report = factory.saveInstances(listOf(SimpleConfig::class.java, RatioConfig::class.java), true)
+
+        assertFalse(report.isSuccessful)
+        val failure = report.failures.single()
+        assertEquals(RatioConfig::class.java, failure.configClass)
+        assertTrue(failure.failure is ConfigSerializationException)
+        assertTrue(report.entries.single { it.configClass == SimpleConfig::class.java }.isWritten)
+        assertTrue(factory.isDirty(RatioConfig::class.java))
+        restart()
+        assertEquals(7, factory.getWrapper(SimpleConfig::class.java).instance.value)
+    }
+
+    @Test
+    fun `given yaml file missing new keys when loading config then insert only these keys with their comments`() {
+        val file = basePath.resolve("merged.yml")
+        val original = "# tuned by hand\nsettings:\n  rolls: 3   # keep it low\nother: [a, b]\n"
+        Files.write(file, original.toByteArray())
+
+        val config = factory.getWrapper(MergedYamlConfig::class.java).instance
+
+        val lineSeparator = System.lineSeparator()
+        assertEquals(3, config.rolls)
+        assertEquals(
+            "# tuned by hand\nsettings:\n  rolls: 3   # keep it low\n  # Chance of a bonus roll$lineSeparator  bonusChance: 0.5\nother: [a, b]\n# Whether drops are announced${lineSeparator}announce: true\n".replace(lineSeparator, "\n"),
+            String(Files.readAllBytes(file)),
+        )
+        assertFalse(factory.isDirty(MergedYamlConfig::class.java))
+    }
+
+    @Test
+    fun `given json file missing new keys when loading config then insert only these keys`() {
+        val file = basePath.resolve("merged.json")
+        Files.write(file, "{\n  \"settings\": {\n    \"rolls\": 3\n  },\n  \"drops\": {}\n}".toByteArray())
+
+        factory.getWrapper(MergedJsonConfig::class.java)
+
+        assertEquals(
+            "{\n  \"settings\": {\n    \"rolls\": 3,\n    \"bonusChance\": 0.5\n  },\n  \"drops\": {},\n  \"announce\": true\n}",
+            String(Files.readAllBytes(file)),
+        )
+    }
+
+    @Test
+    fun `given hand formatted yaml file when saving patched config then replace only the changed values`() {
+        val file = basePath.resolve("patched.yml")
+        Files.write(file, "# my notes\nsettings:\n  rolls: 3   # keep it low\n  bonusChance: 0.5\nother: [a, b]\ndrops:\n    gold: 1\n".toByteArray())
+        // start watching after the file was written, so it is not reloaded over the changes below
+        restart()
+        val config = factory.getWrapper(PatchedYamlConfig::class.java).instance
+
+        config.rolls = 4
+        config.drops = mapOf("gold" to 2, "iron" to 5)
+        factory.saveInstance(PatchedYamlConfig::class.java)
+
+        assertEquals(
+            "# my notes\nsettings:\n  rolls: 4   # keep it low\n  bonusChance: 0.5\nother: [a, b]\ndrops:\n    gold: 2\n    iron: 5\n",
+            String(Files.readAllBytes(file)).replace(System.lineSeparator(), "\n"),
+        )
+    }
+
+    @Test
+    fun `given compact json file when saving patched config then keep it compact and its numbers as integers`() {
+        val file = basePath.resolve("patched.json")
+        Files.write(file, """{"ids": [1], "settings": {"rolls": 3}, "drops": {}}""".toByteArray())
+        restart()
+        val config = factory.getWrapper(PatchedJsonConfig::class.java).instance
+
+        config.ids = listOf(3, 4)
+        config.rolls = 5
+        factory.saveInstance(PatchedJsonConfig::class.java)
+
+        assertEquals("""{"ids": [3,4], "settings": {"rolls": 5}, "drops": {}}""", String(Files.readAllBytes(file)))
+    }
+
+    @Test
+    fun `given pretty json file when saving patched config then indent the changed values like the file`() {
+        val file = basePath.resolve("patched.json")
+        Files.write(file, "{\n    \"ids\": [],\n    \"settings\": {\n        \"rolls\": 3\n    },\n    \"drops\": {}\n}\n".toByteArray())
+        restart()
+        val config = factory.getWrapper(PatchedJsonConfig::class.java).instance
+
+        config.ids = listOf(3)
+        config.drops = mapOf("gold" to 2)
+        factory.saveInstance(PatchedJsonConfig::class.java)
+
+        assertEquals(
+            "{\n    \"ids\": [\n        3\n    ],\n    \"settings\": {\n        \"rolls\": 3\n    },\n    \"drops\": {\n        \"gold\": 2\n    }\n}\n",
+            String(Files.readAllBytes(file)),
+        )
+    }
+
+    @Test
+    fun `given hand formatted hocon file when saving patched config then replace only the changed values`() {
+        val file = basePath.resolve("patched.conf")
+        Files.write(file, "# my notes\nsettings {\n  rolls = 3 # keep it low\n  ids = [1]\n}\ndrops {\n  gold = 1\n}\n".toByteArray())
+        restart()
+        val config = factory.getWrapper(PatchedHoconConfig::class.java).instance
+
+        config.rolls = 4
+        config.ids = listOf(3, 4)
+        config.drops = mapOf("gold" to 2, "iron" to 5)
+        factory.saveInstance(PatchedHoconConfig::class.java)
+
+        assertEquals(
+            "# my notes\nsettings {\n  rolls = 4 # keep it low\n  ids = [\n    3,\n    4\n  ]\n}\ndrops {\n  gold=2\n  iron=5\n}\n",
+            String(Files.readAllBytes(file)),
+        )
+    }
+
+    @Test
+    fun `given value codec discovered on classpath when loading and saving config then convert its values with the codec`() {
+        val file = basePath.resolve("points.json")
+        Files.write(file, "{\n  \"spawn\": \"3,4\"\n}".toByteArray())
+        restart()
+        val config = factory.getWrapper(PointConfig::class.java).instance
+
+        assertEquals(Point(3, 4), config.spawn)
+
+        config.spawn = Point(5, 6)
+        factory.saveInstance(PointConfig::class.java)
+
+        assertEquals("{\n  \"spawn\": \"5,6\"\n}", String(Files.readAllBytes(file)).replace(System.lineSeparator(), "\n"))
+    }
+
+    private fun awaitUntil(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + 10_000
+        while (!condition()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition was not met in time")
+            Thread.sleep(50)
+        }
+    }
+
+    @Configuration("simple", type = FileType.JSON)
+    class SimpleConfig {
+        @JvmField var value = 1
+    }
+
+    @Configuration("other", type = FileType.JSON)
+    class OtherConfig {
+        @JvmField var value = 2
+    }
+
+    @Configuration("hooked", type = FileType.JSON)
+    class HookedConfig {
+        @JvmField var value = 3
+
+        @AfterReload
+        fun onReload() {}
+
+        @AfterReload(async = true)
+        fun onReloadAsync() {}
+    }
+
+    @Configuration("self", type = FileType.JSON)
+    class SelfReferencingConfig {
+        init {
+            currentFactory.getWrapper(SelfReferencingConfig::class.java)
+        }
+    }
+
+    @Configuration("cross", type = FileType.JSON)
+    class CrossLoadingConfig {
+        init {
+            loadBarrier.await(10, TimeUnit.SECONDS)
+            currentFactory.getWrapper(OtherCrossLoadingConfig::class.java)
+        }
+    }
+
+    @Configuration("other-cross", type = FileType.JSON)
+    class OtherCrossLoadingConfig {
+        init {
+            loadBarrier.await(10, TimeUnit.SECONDS)
+            currentFactory.getWrapper(CrossLoadingConfig::class.java)
+        }
+    }
+
+    @Configuration("failing-once", type = FileType.JSON)
+    class FailingOnceConfig {
+        @JvmField var value = 0
+
+        init {
+            check(failingLoads-- <= 0) { "failed on purpose" }
+        }
+    }
+
+    @Keyed(maxResident = 2)
+    @Configuration("arenas", type = FileType.JSON)
+    class ArenaConfig {
+        @JvmField var maxPlayers = 10
+    }
+
+    @Configuration("arenas-main", type = FileType.JSON)
+    class ArenasConfig {
+        @ConfigDirectory("arenas")
+        @JvmField var arenas: Map<String, ArenaConfig> = emptyMap()
+    }
+
+    @Configuration("nested", type = FileType.JSON)
+    class NestedJsonConfig {
+        @JvmField var drops: Map<String, Double> = emptyMap()
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+    }
+
+    @Configuration("ratio", type = FileType.JSON)
+    class RatioConfig {
+        @JvmField var ratio = 0.5
+    }
+
+    @Configuration("nested", type = FileType.YAML)
+    class NestedYamlConfig {
+        @JvmField var drops: Map<String, Double> = emptyMap()
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+    }
+
+    @Configuration("commented", type = FileType.YAML)
+    class CommentedYamlConfig {
+        @Comment("How many times the loot is rolled")
+        @JvmField var rolls = 1
+    }
+
+    @Configuration("merged", type = FileType.YAML, mergeMissingKeys = true)
+    class MergedYamlConfig {
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+        @Comment("Chance of a bonus roll")
+        @ConfigPath("settings")
+        @JvmField var bonusChance = 0.5
+        @Comment("Whether drops are announced")
+        @JvmField var announce = true
+    }
+
+    @Configuration("merged", type = FileType.JSON, mergeMissingKeys = true)
+    class MergedJsonConfig {
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+        @ConfigPath("settings")
+        @JvmField var bonusChance = 0.5
+        @JvmField var drops: Map<String, Double> = emptyMap()
+        @JvmField var announce = true
+    }
+
+    @Configuration("patched", type = FileType.YAML, patchOnSave = true)
+    class PatchedYamlConfig {
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+        @ConfigPath("settings")
+        @JvmField var bonusChance = 0.5
+        @JvmField var drops: Map<String, Int> = emptyMap()
+    }
+
+    @Configuration("patched", type = FileType.JSON, patchOnSave = true)
+    class PatchedJsonConfig {
+        @JvmField var ids: List<Int> = listOf(1)
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+        @JvmField var drops: Map<String, Int> = emptyMap()
+    }
+
+    @Configuration("patched", type = FileType.HOCON, patchOnSave = true)
+    class PatchedHoconConfig {
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+        @ConfigPath("settings")
+        @JvmField var ids: List<Int> = listOf(1)
+        @JvmField var drops: Map<String, Int> = emptyMap()
+    }
+
+    @Configuration("slow-save", type = FileType.JSON, saveWindow = 60_000)
+    class SlowSaveConfig {
+        @JvmField var joins = 0
+    }
+
+    @Configuration("data", type = FileType.JSON, saveWindow = 50)
+    data class DataConfig(var value: Int = 0)
+
+    @Configuration("loot", type = FileType.CBOR)
+    class CborConfig {
+        @JvmField var drops: Map<String, Double> = emptyMap()
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+    }
+
+    @Configuration("snapshotted", type = FileType.JSON, snapshot = true)
+    class SnapshotJsonConfig {
+        @ConfigPath("settings")
+        @JvmField var rolls = 1
+    }
+
+    @Configuration("snapshotted", type = FileType.CBOR, snapshot = true)
+    class SnapshotCborConfig {
+        @JvmField var rolls = 1
+    }
+
+    @Configuration("points", type = FileType.JSON)
+    class PointConfig {
+        @JvmField var spawn = Point(0, 0)
+    }
+
+    data class Point(val x: Int, val y: Int)
+
+    class PointCodec : ValueCodec {
+        override fun supports(property: PropertyWrapper) = property.ownerClass == PointConfig::class.java && property.type == Point::class.java
+
+        override fun decode(property: PropertyWrapper, fileValue: Any): Any {
+            val (x, y) = fileValue.toString().split(",").map { it.trim().toInt() }
+            return Point(x, y)
+        }
+
+        override fun encode(property: PropertyWrapper, value: Any?) = (value as Point).let { "${it.x},${it.y}" }
+    }
+
+    private companion object {
+        lateinit var currentFactory: ConfigFactoryImpl
+        lateinit var loadBarrier: CyclicBarrier
+        var failingLoads = 0
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.scanner
+
+import com.github.secretx33.sccfg.api.annotation.AfterReload
+import com.github.secretx33.sccfg.api.annotation.BeforeReload
+import com.github.secretx33.sccfg.api.annotation.Comment
+import com.github.secretx33.sccfg.api.annotation.Configuration
+import com.github.secretx33.sccfg.api.annotation.IgnoreField
+import com.github.secretx33.sccfg.api.annotation.Keyed
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class ConfigClassMetadataTest {
+
+    @Test
+    fun `given same class when getting metadata twice then return the cached instance`() {
+        assertSame(ConfigClassMetadata.of(ChildConfig::class.java), ConfigClassMetadata.of(ChildConfig::class.java))
+    }
+
+    @Test
+    fun `given config class when getting metadata then collect fields from the whole hierarchy`() {
+        val metadata = ConfigClassMetadata.of(ChildConfig::class.java)
+
+        val fieldNames = metadata.configurationFields.map { it.name }
+        assertEquals(listOf("childValue", "parentValue"), fieldNames)
+        assertEquals(listOf("ignoredValue"), metadata.ignoredFields.map { it.name })
+        assertTrue(metadata.configurationFields.all { it.isAccessible })
+        assertNotNull(metadata.fields.first { it.field.name == "childValue" }.comment)
+    }
+
+    @Test
+    fun `given config class when getting metadata then collect reload hooks only once`() {
+        val metadata = ConfigClassMetadata.of(ChildConfig::class.java)
+
+        assertEquals(listOf("beforeReload"), metadata.beforeReloadMethods.map { it.method.name })
+        assertEquals(listOf("afterReload"), metadata.afterReloadMethods.map { it.method.name })
+        assertTrue(metadata.afterReloadMethods.single().isAsync)
+    }
+
+    @Test
+    fun `given class without configuration annotation then do not scan its members`() {
+        val metadata = ConfigClassMetadata.of(String::class.java)
+
+        assertFalse(metadata.isConfigClass)
+        assertNull(metadata.configAnnotation)
+        assertTrue(metadata.fields.isEmpty())
+        assertTrue(metadata.beforeReloadMethods.isEmpty())
+    }
+
+    @Test
+    fun `given keyed config class when getting metadata then keep its keyed annotation`() {
+        assertEquals(3, ConfigClassMetadata.of(KeyedConfig::class.java).keyedAnnotation?.maxResident)
+        assertNull(ConfigClassMetadata.of(ChildConfig::class.java).keyedAnnotation)
+    }
+
+    open class ParentConfig {
+        @JvmField var parentValue = 1
+        @Transient @JvmField var transientValue = 2
+
+        @AfterReload(async = false)
+        open fun afterReload() {}
+    }
+
+    @Configuration
+    class ChildConfig : ParentConfig() {
+        @Comment("child")
+        @JvmField var childValue = "value"
+        @field:IgnoreField var ignoredValue = 3
+
+        @BeforeReload
+        fun beforeReload() {}
+
+        @AfterReload(async = true)
+        override fun afterReload() {}
+
+        companion object {
+            @JvmField var staticValue = 4
+        }
+    }
+
+    @Keyed(maxResident = 3)
+    @Configuration
+    class KeyedConfig
+}
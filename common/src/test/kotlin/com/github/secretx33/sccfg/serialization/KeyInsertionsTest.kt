@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization
+
+import com.github.secretx33.sccfg.config.PropertyWrapper
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import kotlin.test.assertEquals
+
+class KeyInsertionsTest {
+
+    @Test
+    fun `given missing properties when planning insertions then insert each one into the deepest map of its path`() {
+        val settings = section(listOf("settings"), end = 20, "rolls")
+        val root = section(emptyList(), end = 40, "name").apply { addKey("settings", settings) }
+        val chance = property("settings", "bonus", "chance")
+        val other = property("other")
+        val values = mapOf("settings" to mapOf("rolls" to 3, "bonus" to mapOf("chance" to 0.5)), "other" to true)
+
+        val insertions = KeyInsertions.plan(root, linkedSetOf(chance, other), values)
+
+        assertEquals(listOf(settings, root), insertions.map { it.section })
+        assertEquals(mapOf("bonus" to mapOf("chance" to 0.5)), insertions[0].entries)
+        assertEquals(setOf(chance), insertions[0].properties)
+        assertEquals(mapOf("other" to true), insertions[1].entries)
+    }
+
+    @Test
+    fun `given properties already on file or inside inline maps when planning insertions then leave them out`() {
+        val inline = section(listOf("inline"), end = 10, appendable = false)
+        val root = section(emptyList(), end = 40, "rolls").apply { addKey("inline", inline) }
+        val values = mapOf("rolls" to 3, "inline" to mapOf("chance" to 0.5))
+
+        val insertions = KeyInsertions.plan(root, setOf(property("rolls"), property("inline", "chance")), values)
+
+        assertEquals(emptyList(), insertions)
+    }
+
+    @Test
+    fun `given maps ending on the same spot when planning insertions then insert into the inner maps first`() {
+        val bonus = section(listOf("settings", "bonus"), end = 40, "chance")
+        val settings = section(listOf("settings"), end = 40, "rolls").apply { addKey("bonus", bonus) }
+        val root = section(emptyList(), end = 40, "name").apply { addKey("settings", settings) }
+        val values = mapOf("other" to 1, "settings" to mapOf("amount" to 2, "bonus" to mapOf("max" to 3)))
+
+        val insertions = KeyInsertions.plan(root, linkedSetOf(property("other"), property("settings", "amount"), property("settings", "bonus", "max")), values)
+
+        assertEquals(listOf(bonus, settings, root), insertions.map { it.section })
+    }
+
+    @Test
+    fun `given insertions when applying them then insert what the format renders at the end of each section`() {
+        val content = "settings:\n  rolls: 3\nname: loot\n"
+        val settings = section(listOf("settings"), end = 21, "rolls")
+        val root = section(emptyList(), end = content.length, "name").apply { addKey("settings", settings) }
+        val values = mapOf("settings" to mapOf("chance" to 0.5), "other" to true)
+        val insertions = KeyInsertions.plan(root, setOf(property("settings", "chance"), property("other")), values)
+        val format = object : KeyInsertions.Format {
+            override fun parse(content: String) = root
+
+            override fun render(content: String, insertion: KeyInsertions.Insertion) =
+                insertion.entries.entries.joinToString("") { (key, value) -> " ".repeat(insertion.section.path.size * 2) + "$key: $value\n" }
+        }
+
+        assertEquals("settings:\n  rolls: 3\n  chance: 0.5\nname: loot\nother: true\n", KeyInsertions.apply(content, insertions, format))
+    }
+
+    private fun section(path: List<String>, end: Int, vararg keys: String, appendable: Boolean = true) =
+        KeyInsertions.Section(path, appendable).apply {
+            this.end = end
+            keys.forEach { addKey(it, null) }
+        }
+
+    private fun property(vararg path: String): PropertyWrapper = mock {
+        on { fullPathSegments } doReturn path.toList()
+    }
+}
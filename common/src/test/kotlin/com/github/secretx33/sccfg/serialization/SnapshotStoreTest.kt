@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization
+
+import com.github.secretx33.sccfg.api.FileType
+import com.github.secretx33.sccfg.config.ConfigWrapper
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.logging.Logger
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class SnapshotStoreTest {
+
+    @TempDir
+    lateinit var tempDir: Path
+
+    private lateinit var store: SnapshotStore
+    private lateinit var source: Path
+    private lateinit var wrapper: ConfigWrapper<*>
+
+    @BeforeEach
+    fun setup() {
+        store = SnapshotStore(Logger.getLogger("sc-cfg"), tempDir.resolve("snapshots"))
+        source = Files.write(tempDir.resolve("loot.yml"), "chance: 0.5".toByteArray())
+        wrapper = mock {
+            on { destination } doReturn source
+            on { fileType } doReturn FileType.YAML
+            on { properties } doReturn emptySet()
+        }
+    }
+
+    @Test
+    fun `given unchanged source when reading snapshot then return the stored values`() {
+        val values = mapOf("chance" to 0.5, "drops" to listOf("a", 1, 2L, null), "nested" to mapOf(1 to true))
+        store.write(wrapper, assertNotNull(store.stamp(wrapper)), values)
+
+        assertEquals(values, store.read(wrapper, assertNotNull(store.stamp(wrapper))))
+    }
+
+    @Test
+    fun `given modified source when reading snapshot then return null`() {
+        store.write(wrapper, assertNotNull(store.stamp(wrapper)), mapOf("chance" to 0.5))
+        Files.write(source, "chance: 0.7".toByteArray())
+
+        assertNull(store.read(wrapper, assertNotNull(store.stamp(wrapper))))
+    }
+
+    @Test
+    fun `given corrupt snapshot when reading it then return null`() {
+        store.write(wrapper, assertNotNull(store.stamp(wrapper)), mapOf("chance" to 0.5))
+        Files.list(tempDir.resolve("snapshots")).use { files ->
+            files.forEach { Files.write(it, byteArrayOf(1, 2, 3)) }
+        }
+
+        assertNull(store.read(wrapper, assertNotNull(store.stamp(wrapper))))
+    }
+}
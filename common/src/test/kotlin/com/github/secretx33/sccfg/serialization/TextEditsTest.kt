@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization
+
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import kotlin.test.assertEquals
+
+class TextEditsTest {
+
+    @Test
+    fun `given many edits when applying them then use the indexes of the original content`() {
+        val edits = TextEdits("rolls: 3\nchance: 0.5\n")
+        edits.replace(17, 20, "0.75")
+        edits.replace(7, 8, "10")
+        edits.insert(9, "# loot\n")
+
+        assertEquals("rolls: 10\n# loot\nchance: 0.75\n", edits.apply())
+    }
+
+    @Test
+    fun `given texts inserted at the same index when applying them then keep the order they were added in`() {
+        val edits = TextEdits("a\n")
+        edits.insert(2, "b\n")
+        edits.insert(2, "c\n")
+
+        assertEquals("a\nb\nc\n", edits.apply())
+    }
+
+    @Test
+    fun `given content without trailing line break when inserting at its end then put the text on a new line`() {
+        val edits = TextEdits("a: 1\r\nb: 2")
+        edits.insert(10, "c: 3\r\n")
+        edits.insert(10, "d: 4\r\n")
+
+        assertEquals("a: 1\r\nb: 2\r\nc: 3\r\nd: 4\r\n", edits.apply())
+    }
+
+    @Test
+    fun `given overlapping replacements when applying them then throw illegal state exception`() {
+        val edits = TextEdits("rolls: 3")
+        edits.replace(0, 5, "amount")
+        edits.replace(3, 8, "x")
+
+        assertThrows<IllegalStateException> { edits.apply() }
+    }
+
+    @Test
+    fun `given range outside of the content then throw illegal argument exception`() {
+        val edits = TextEdits("rolls: 3")
+
+        assertThrows<IllegalArgumentException> { edits.replace(5, 9, "x") }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization.gson
+
+import com.github.secretx33.sccfg.config.PropertyDescriptor
+import com.github.secretx33.sccfg.scanner.BaseScanner
+import com.google.gson.JsonPrimitive
+import com.google.gson.JsonSerializer
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.util.UUID
+import java.util.logging.Logger
+import kotlin.test.assertEquals
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+class GsonFactoryImplTest {
+
+    private lateinit var factory: GsonFactoryImpl
+
+    @BeforeEach
+    fun setup() {
+        val logger = Logger.getLogger("sc-cfg")
+        factory = GsonFactoryImpl(logger, BaseScanner("com.github.secretx33.sccfg.config", emptySet()))
+    }
+
+    @Test
+    fun `given registered type adapters when getting gson then build it once per version`() {
+        val gson = factory.getInstance()
+        assertSame(gson, factory.getInstance())
+
+        factory.addTypeAdapters(mapOf(UUID::class.java to JsonSerializer<UUID> { _, _, _ -> JsonPrimitive("uuid") }))
+
+        assertEquals(1, factory.version)
+        assertNotSame(gson, factory.getInstance())
+        assertEquals("\"uuid\"", factory.getInstance().toJson(UUID.randomUUID()))
+    }
+
+    @Test
+    fun `given frozen type adapters when registering another one then throw and keep the same gson`() {
+        val gson = factory.getInstance()
+        factory.freeze()
+
+        assertThrows<IllegalStateException> { factory.addTypeAdapter(UUID::class.java, JsonSerializer<UUID> { _, _, _ -> JsonPrimitive("uuid") }) }
+        assertSame(gson, factory.getInstance())
+        assertEquals(0, factory.version)
+    }
+
+    @Test
+    fun `given a property when resolving its type adapter then reuse it until the type adapters change`() {
+        val descriptor = PropertyDescriptor(Holder::class.java.getDeclaredField("id").apply { isAccessible = true }, "id", "", emptyArray())
+        val adapter = descriptor.getTypeAdapter(factory.getInstance())
+        assertSame(adapter, descriptor.getTypeAdapter(factory.getInstance()))
+
+        factory.addTypeAdapters(mapOf(UUID::class.java to JsonSerializer<UUID> { _, _, _ -> JsonPrimitive("uuid") }))
+
+        assertNotSame(adapter, descriptor.getTypeAdapter(factory.getInstance()))
+        assertEquals(JsonPrimitive("uuid"), descriptor.getTypeAdapter(factory.getInstance()).toJsonTree(UUID.randomUUID()))
+    }
+
+    @Test
+    fun `given a type hierarchy adapter when serializing a subclass as object then use the adapter`() {
+        factory.addTypeHierarchyAdapter(Shape::class.java, JsonSerializer<Shape> { shape, _, _ -> JsonPrimitive(shape.name) })
+
+        assertEquals("[\"circle\"]", factory.getInstance().toJson(listOf<Any>(Circle())))
+        assertEquals(1, factory.version)
+    }
+
+    private class Holder(val id: UUID)
+
+    private open class Shape(val name: String)
+
+    private class Circle : Shape("circle") {
+        @Suppress("unused")
+        private val radius = 1.0
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.util
+
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class LazyTest {
+
+    @Test
+    fun `given lazy when getting value many times then compute it only once`() {
+        val computations = AtomicInteger()
+        val lazy = Lazy.of { Any().also { computations.incrementAndGet() } }
+
+        val value = lazy.get()
+
+        assertSame(value, lazy.get())
+        assertEquals(1, computations.get())
+        assertTrue(lazy.isInitialized)
+    }
+
+    @Test
+    fun `given computation that fails once when getting value again then retry the computation`() {
+        val computations = AtomicInteger()
+        val lazy = Lazy.of {
+            if (computations.incrementAndGet() == 1) throw IllegalStateException("transient failure")
+            "value"
+        }
+
+        assertThrows<IllegalStateException> { lazy.get() }
+        assertFalse(lazy.isInitialized)
+        assertEquals("value", lazy.get())
+        assertEquals(2, computations.get())
+    }
+
+    @Test
+    fun `given async computation that fails when getting value then retry it on the current thread`() {
+        val computations = AtomicInteger()
+        val lazy = Lazy.of {
+            if (computations.incrementAndGet() == 1) throw IllegalStateException("transient failure")
+            Thread.currentThread()
+        }
+        val executor = Executors.newSingleThreadExecutor()
+        try {
+            val future: CompletableFuture<Thread> = lazy.getAsync(executor)
+            assertThrows<Exception> { future.get(5, TimeUnit.SECONDS) }
+
+            assertSame(Thread.currentThread(), lazy.get())
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+}
@@ -1,4 +1,5 @@
 dependencies {
     compileOnly(project(":sccfg-common"))
     implementation("org.spongepowered:configurate-hocon:4.1.2")
+    testImplementation(project(":sccfg-common"))
 }
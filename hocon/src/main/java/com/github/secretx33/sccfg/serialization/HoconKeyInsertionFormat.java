@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.ConfigWrapper;
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigUtil;
+import com.typesafe.config.ConfigValueFactory;
+import com.typesafe.config.parser.ConfigDocument;
+import com.typesafe.config.parser.ConfigDocumentFactory;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.hocon.HoconConfigurationLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Appends the missing keys of a HOCON file to its end, under their full path, since HOCON merges objects
+ * that are defined more than once. Files whose root object is enclosed in braces are not supported, because
+ * nothing can be written after the closing brace of the root object.<br><br>
+ *
+ * Values are patched through a {@link ConfigDocument}, which replaces only the text of the patched values.
+ * Inserted and patched values are rendered like a full save renders them, but indented like the rest of the
+ * file. Since {@link ConfigDocument} keeps the lines of a patched value as they are, each value is patched as
+ * a placeholder first, which is then replaced by the value indented like the line it ended up on.
+ */
+final class HoconKeyInsertionFormat implements KeyInsertions.Format, ValuePatches.Patcher {
+
+    /** The indentation of each nested object on the rendered values. */
+    private static final int RENDERED_INDENT = 4;
+    private static final ConfigRenderOptions RENDER_OPTIONS = ConfigRenderOptions.defaults().setOriginComments(false).setJson(false);
+    private static final String RENDERED_KEY = "k";
+    private static final String PLACEHOLDER = "sc-cfg-patched-value-";
+
+    private final HoconSerializer serializer;
+    private final ConfigWrapper<?> configWrapper;
+
+    HoconKeyInsertionFormat(final HoconSerializer serializer, final ConfigWrapper<?> configWrapper) {
+        this.serializer = checkNotNull(serializer, "serializer");
+        this.configWrapper = checkNotNull(configWrapper, "configWrapper");
+    }
+
+    @Override
+    @Nullable
+    public KeyInsertions.Section parse(final String content) {
+        checkNotNull(content, "content");
+        if (startsWithBrace(content)) return null;
+        final ConfigurationNode root;
+        try {
+            root = HoconConfigurationLoader.builder().buildAndLoadString(content);
+        } catch (final ConfigurateException e) {
+            return null;
+        }
+        return section(root, Collections.emptyList(), content.length());
+    }
+
+    private KeyInsertions.Section section(final ConfigurationNode node, final List<String> path, final int end) {
+        final KeyInsertions.Section section = new KeyInsertions.Section(path, true);
+        section.setEnd(end);
+        node.childrenMap().forEach((key, child) -> {
+            final String name = String.valueOf(key);
+            if (!child.isMap()) {
+                section.addKey(name, null);
+                return;
+            }
+            final List<String> childPath = new ArrayList<>(path);
+            childPath.add(name);
+            section.addKey(name, section(child, childPath, end));
+        });
+        return section;
+    }
+
+    @Override
+    public String render(final String content, final KeyInsertions.Insertion insertion) {
+        checkNotNull(content, "content");
+        checkNotNull(insertion, "insertion");
+        final List<String> path = insertion.getSection().getPath();
+
+        Map<String, Object> values = insertion.getEntries();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            final Map<String, Object> parent = new LinkedHashMap<>();
+            parent.put(path.get(i), values);
+            values = parent;
+        }
+        return reindent(serializer.renderValues(configWrapper, values), indentStep(content));
+    }
+
+    @Override
+    @Nullable
+    public String patch(final String content, final Set<PropertyWrapper> properties, final Map<String, Object> values) {
+        checkNotNull(content, "content");
+        checkNotNull(properties, "properties");
+        checkNotNull(values, "values");
+        if (content.contains(PLACEHOLDER)) return null;
+        try {
+            ConfigDocument document = ConfigDocumentFactory.parseString(content);
+            final int indentStep = indentStep(content);
+            final List<String> renderedValues = new ArrayList<>();
+            final Set<PropertyWrapper> missingProperties = new HashSet<>();
+
+            for (final PropertyWrapper property : properties) {
+                final String path = ConfigUtil.joinPath(property.getFullPathSegments());
+                if (!document.hasPath(path)) {
+                    missingProperties.add(property);
+                    continue;
+                }
+                final Object value = KeyInsertions.valueAt(values, property.getFullPathSegments());
+                if (value == null) return null;
+                document = document.withValueText(path, placeholder(renderedValues, render(value, indentStep)));
+            }
+            final String patched = insertMissing(document, missingProperties, values, renderedValues, indentStep);
+            return patched != null ? fillPlaceholders(patched, renderedValues) : null;
+        } catch (final ConfigException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Inserts the missing properties together with their comments, or right into their objects if that's not
+     * possible (e.g. the root object is enclosed in braces).
+     */
+    @Nullable
+    private String insertMissing(ConfigDocument document, final Set<PropertyWrapper> missingProperties, final Map<String, Object> values, final List<String> renderedValues, final int indentStep) {
+        final String content = document.render();
+        if (missingProperties.isEmpty()) return content;
+
+        final KeyInsertions.Section root = parse(content);
+        if (root != null) {
+            final List<KeyInsertions.Insertion> insertions = KeyInsertions.plan(root, missingProperties, values);
+            if (insertions.stream().mapToInt(insertion -> insertion.getProperties().size()).sum() == missingProperties.size()) {
+                return KeyInsertions.apply(content, insertions, this);
+            }
+        }
+        for (final PropertyWrapper property : missingProperties) {
+            final Object value = KeyInsertions.valueAt(values, property.getFullPathSegments());
+            if (value == null) return null;
+            document = document.withValueText(ConfigUtil.joinPath(property.getFullPathSegments()), placeholder(renderedValues, render(value, indentStep)));
+        }
+        return document.render();
+    }
+
+    /**
+     * Renders {@code value} like a full save renders it, indenting each nested object by {@code indentStep}
+     * spaces.
+     */
+    private static String render(final Object value, final int indentStep) {
+        // render the value as an entry, otherwise objects would be rendered as the root object, without braces
+        final String entry = ConfigValueFactory.fromAnyRef(Collections.singletonMap(RENDERED_KEY, value)).render(RENDER_OPTIONS).trim();
+        String rendered = entry.substring(RENDERED_KEY.length());
+        if (rendered.startsWith("=") || rendered.startsWith(" ")) {
+            rendered = rendered.substring(1);
+        }
+        return reindent(rendered, indentStep);
+    }
+
+    private static String placeholder(final List<String> renderedValues, final String renderedValue) {
+        renderedValues.add(renderedValue);
+        return "\"" + PLACEHOLDER + (renderedValues.size() - 1) + "\"";
+    }
+
+    /**
+     * Replaces each placeholder by its rendered value, indenting the lines of the value like the line the
+     * placeholder is on.
+     */
+    @Nullable
+    private static String fillPlaceholders(final String content, final List<String> renderedValues) {
+        final String lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
+        final TextEdits edits = new TextEdits(content);
+        for (int i = 0; i < renderedValues.size(); i++) {
+            final String placeholder = "\"" + PLACEHOLDER + i + "\"";
+            final int start = content.indexOf(placeholder);
+            if (start == -1) return null;
+            final int lineStart = content.lastIndexOf('\n', start - 1) + 1;
+            int indentEnd = lineStart;
+            while (indentEnd < start && (content.charAt(indentEnd) == ' ' || content.charAt(indentEnd) == '\t')) {
+                indentEnd++;
+            }
+            final String lineIndent = content.substring(lineStart, indentEnd);
+            edits.replace(start, start + placeholder.length(), renderedValues.get(i).replace("\n", lineSeparator + lineIndent));
+        }
+        return edits.apply();
+    }
+
+    /**
+     * Replaces the indentation of each line of {@code text}, rendered with {@link HoconKeyInsertionFormat#RENDERED_INDENT}
+     * spaces per nested object, by {@code indentStep} spaces per nested object.
+     */
+    private static String reindent(final String text, final int indentStep) {
+        if (indentStep == RENDERED_INDENT) return text;
+        final StringBuilder reindented = new StringBuilder(text.length());
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int indent = 0;
+            while (lineStart + indent < text.length() && text.charAt(lineStart + indent) == ' ') {
+                indent++;
+            }
+            final int lineBreak = text.indexOf('\n', lineStart);
+            final int lineEnd = lineBreak == -1 ? text.length() : lineBreak + 1;
+            reindented.append(spaces(indent / RENDERED_INDENT * indentStep + indent % RENDERED_INDENT)).append(text, lineStart + indent, lineEnd);
+            lineStart = lineEnd;
+        }
+        return reindented.toString();
+    }
+
+    /**
+     * Finds how many spaces each nested object or list of the file is indented by, taken from the first one
+     * whose content is on the lines below its opening bracket.
+     */
+    private static int indentStep(final String content) {
+        int openerIndent = -1;
+        for (final String line : content.split("\r?\n")) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("//")) continue;
+            final int indent = line.length() - line.replaceFirst("^ +", "").length();
+            if (openerIndent >= 0 && indent > openerIndent) return indent - openerIndent;
+            openerIndent = trimmed.endsWith("{") || trimmed.endsWith("[") ? indent : -1;
+        }
+        return RENDERED_INDENT;
+    }
+
+    private static String spaces(final int count) {
+        return String.join("", Collections.nCopies(count, " "));
+    }
+
+    /**
+     * Checks if the first thing on the file, except for whitespaces and comments, is an opening brace.
+     */
+    private static boolean startsWithBrace(final String content) {
+        int i = 0;
+        while (i < content.length()) {
+            final char c = content.charAt(i);
+            if (Character.isWhitespace(c) || c == '\uFEFF') {
+                i++;
+            } else if (c == '#' || content.startsWith("//", i)) {
+                final int lineBreak = content.indexOf('\n', i);
+                if (lineBreak == -1) return false;
+                i = lineBreak + 1;
+            } else {
+                return c == '{';
+            }
+        }
+        return false;
+    }
+}
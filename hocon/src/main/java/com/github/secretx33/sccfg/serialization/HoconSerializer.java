@@ -41,4 +41,14 @@ public final class HoconSerializer extends AbstractConfigurateSerializer<HoconCo
                 .defaultOptions(opts -> opts.header(configWrapper != null ? configWrapper.getHeader() : null)
                         .shouldCopyDefaults(false).serializers(TypeSerializerCollection.defaults()));
     }
+
+    @Override
+    KeyInsertions.Format keyInsertionFormat(final ConfigWrapper<?> configWrapper) {
+        return new HoconKeyInsertionFormat(this, configWrapper);
+    }
+
+    @Override
+    ValuePatches.Patcher valuePatcher(final ConfigWrapper<?> configWrapper) {
+        return new HoconKeyInsertionFormat(this, configWrapper);
+    }
 }
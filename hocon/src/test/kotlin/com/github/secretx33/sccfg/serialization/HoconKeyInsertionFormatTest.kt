@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization
+
+import com.github.secretx33.sccfg.config.ConfigWrapper
+import com.github.secretx33.sccfg.config.PropertyWrapper
+import com.github.secretx33.sccfg.scanner.BaseScanner
+import com.github.secretx33.sccfg.serialization.gson.GsonFactoryImpl
+import com.typesafe.config.ConfigFactory
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import java.util.logging.Logger
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class HoconKeyInsertionFormatTest {
+
+    private lateinit var format: HoconKeyInsertionFormat
+
+    @BeforeEach
+    fun setup() {
+        val logger = Logger.getLogger("sc-cfg")
+        val serializer = HoconSerializer(logger, GsonFactoryImpl(logger, BaseScanner("com.github.secretx33.sccfg.serialization", emptySet())))
+        format = HoconKeyInsertionFormat(serializer, mock<ConfigWrapper<*>>())
+    }
+
+    @Test
+    fun `given nested objects when parsing file then find their keys and append to the end of the file`() {
+        val content = "name = loot\nsettings {\n  rolls = 3\n  bonus.chance = 0.5\n}\n"
+
+        val root = assertNotNull(format.parse(content))
+
+        assertEquals(content.length, root.end)
+        val settings = assertNotNull(root.getSection("settings"))
+        assertEquals(listOf("settings"), settings.path)
+        assertEquals(content.length, settings.end)
+        assertEquals(listOf("settings", "bonus"), assertNotNull(settings.getSection("bonus")).path)
+    }
+
+    @Test
+    fun `given root enclosed in braces when parsing file then return null`() {
+        assertNull(format.parse("# loot table\n{\n  rolls = 3\n}\n"))
+        assertNull(format.parse("{ rolls = 3 }"))
+    }
+
+    @Test
+    fun `given missing nested key when inserting it then append it under its full path`() {
+        val content = "settings {\n  rolls = 3\n}\n"
+
+        val merged = insert(content, mapOf("settings" to mapOf("bonus" to mapOf("chance" to 0.5))), listOf("settings", "bonus", "chance"))
+
+        assertEquals(content, merged.substring(0, content.length))
+        assertEquals(mapOf("rolls" to 3, "bonus" to mapOf("chance" to 0.5)), read(merged)["settings"])
+    }
+
+    @Test
+    fun `given root enclosed in braces when patching missing nested key then insert it into the root object`() {
+        val content = "# loot table\n{\n  settings {\n    rolls = 3\n  }\n}\n"
+        val chance = property("settings", "chance")
+        val other = property("other")
+
+        val patched = assertNotNull(format.patch(content, setOf(chance, other), mapOf("settings" to mapOf("chance" to 0.5), "other" to "x")))
+
+        assertEquals(mapOf("settings" to mapOf("rolls" to 3, "chance" to 0.5), "other" to "x"), read(patched))
+        assertEquals("# loot table\n{", patched.substring(0, 14))
+    }
+
+    @Test
+    fun `given indented file when patching nested values then render them like a full save indented like the file`() {
+        val content = "settings {\n  rolls = 3 # keep it low\n  drops {\n    gold = 1\n  }\n}\nids = [1]\n"
+        val values = mapOf("settings" to mapOf("rolls" to 4, "drops" to mapOf("gold" to 2, "iron" to 5)), "ids" to listOf(3, 4))
+
+        val patched = format.patch(content, setOf(property("settings", "rolls"), property("settings", "drops"), property("ids")), values)
+
+        assertEquals("settings {\n  rolls = 4 # keep it low\n  drops {\n    gold=2\n    iron=5\n  }\n}\nids = [\n  3,\n  4\n]\n", patched)
+    }
+
+    @Test
+    fun `given file holding the placeholder text when patching values then do not patch the file`() {
+        assertNull(format.patch("name = \"sc-cfg-patched-value-0\"\nrolls = 3\n", setOf(property("rolls")), mapOf("rolls" to 4)))
+    }
+
+    private fun insert(content: String, values: Map<String, Any>, vararg paths: List<String>): String {
+        val properties = paths.map { property(*it.toTypedArray()) }.toSet()
+        val insertions = KeyInsertions.plan(assertNotNull(format.parse(content)), properties, values)
+        return KeyInsertions.apply(content, insertions, format)
+    }
+
+    private fun property(vararg path: String): PropertyWrapper = mock {
+        on { fullPathSegments } doReturn path.toList()
+    }
+
+    private fun read(content: String): Map<String, Any> = ConfigFactory.parseString(content).root().unwrapped()
+}
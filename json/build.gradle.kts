@@ -1,4 +1,6 @@
 dependencies {
     compileOnly(project(":sccfg-common"))
-    implementation("org.spongepowered:configurate-gson:4.1.2")
+    compileOnly("com.google.code.gson:gson:2.8.8")
+    testImplementation(project(":sccfg-common"))
+    testImplementation("com.google.code.gson:gson:2.8.8")
 }
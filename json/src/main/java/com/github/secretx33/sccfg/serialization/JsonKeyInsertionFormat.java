@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Finds where the entries and objects of a JSON file are, so values can be replaced right where they are, and
+ * missing keys can be inserted right after the last entry of their object. The file is scanned with the same leniency the file is read with (unquoted and single
+ * quoted strings, comments, {@code =} as name separator and {@code ;} as value separator).
+ */
+final class JsonKeyInsertionFormat implements ValuePatches.Format {
+
+    /** The indentation of each nested object, used when the file has no indented object to take it from. */
+    private static final int INDENT = 2;
+
+    private final Gson gson;
+
+    JsonKeyInsertionFormat(final Gson gson) {
+        this.gson = checkNotNull(gson, "gson");
+    }
+
+    @Override
+    @Nullable
+    public KeyInsertions.Section parse(final String content) {
+        checkNotNull(content, "content");
+        try {
+            return new Scan(content).document();
+        } catch (final MalformedJsonException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String render(final String content, final KeyInsertions.Insertion insertion) {
+        checkNotNull(content, "content");
+        checkNotNull(insertion, "insertion");
+        final KeyInsertions.Section section = insertion.getSection();
+        final StringBuilder rendered = new StringBuilder();
+
+        if (section.hasKeys() && isInline(content, section)) {
+            // keep objects written on a single line on a single line
+            insertion.getEntries().forEach((key, value) -> rendered.append(", ").append(gson.toJson(key)).append(": ").append(toJson(value, 0)));
+            return rendered.toString();
+        }
+        final String lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
+        final String indent = spaces(section.getKeyIndent());
+        final int indentStep = indentStep(section);
+
+        boolean first = !section.hasKeys();
+        for (final Map.Entry<String, Object> entry : insertion.getEntries().entrySet()) {
+            if (!first) {
+                rendered.append(',');
+            }
+            first = false;
+            rendered.append(lineSeparator).append(indent).append(gson.toJson(entry.getKey())).append(": ")
+                .append(toJson(entry.getValue(), indentStep).replace("\n", lineSeparator + indent));
+        }
+        if (!section.hasKeys()) {
+            // the object was empty, so put its closing brace back on its own line
+            rendered.append(lineSeparator).append(spaces(section.getKeyIndent() - indentStep));
+        }
+        return rendered.toString();
+    }
+
+    @Override
+    public ValuePatches.Replacement replace(final String content, final KeyInsertions.Section section, final String key, final KeyInsertions.Span span, final Object value) {
+        checkNotNull(content, "content");
+        checkNotNull(span, "span");
+        checkNotNull(value, "value");
+        final int lineStart = content.lastIndexOf('\n', span.getKeyStart() - 1) + 1;
+        // entries that share their line with something else are part of an object written on a single line
+        if (!content.substring(lineStart, span.getKeyStart()).trim().isEmpty()) {
+            return new ValuePatches.Replacement(span.getValueStart(), span.getValueEnd(), toJson(value, 0));
+        }
+        final String lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
+        final String rendered = toJson(value, indentStep(section)).replace("\n", lineSeparator + spaces(span.getKeyStart() - lineStart));
+        return new ValuePatches.Replacement(span.getValueStart(), span.getValueEnd(), rendered);
+    }
+
+    /**
+     * Checks if the closing brace of {@code section} is on the same line as its last entry.
+     */
+    private static boolean isInline(final String content, final KeyInsertions.Section section) {
+        for (int i = section.getEnd(); i < content.length(); i++) {
+            final char c = content.charAt(i);
+            if (c == '}') return true;
+            if (c != ' ' && c != '\t' && c != ',' && c != ';') return false;
+        }
+        return false;
+    }
+
+    private static int indentStep(final KeyInsertions.Section section) {
+        return section.getIndentStep() > 0 ? section.getIndentStep() : INDENT;
+    }
+
+    /**
+     * Renders {@code value} as JSON, indenting each nested value by {@code indentStep} spaces, or all on a
+     * single line if {@code indentStep} is zero.
+     */
+    private String toJson(final Object value, final int indentStep) {
+        final StringWriter output = new StringWriter();
+        try (final JsonWriter writer = new JsonWriter(output)) {
+            writer.setIndent(spaces(indentStep));
+            writer.setSerializeNulls(gson.serializeNulls());
+            gson.toJson(gson.toJsonTree(value), writer);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+
+    private static String spaces(final int count) {
+        return String.join("", Collections.nCopies(Math.max(count, 0), " "));
+    }
+
+    private static final class Scan {
+
+        private static final String LITERAL_DELIMITERS = "{}[]:=,;#/\\\"' \t\r\n\f";
+
+        private final String content;
+        private final List<KeyInsertions.Section> sections = new ArrayList<>();
+        private final Map<KeyInsertions.Section, Integer> emptySections = new IdentityHashMap<>();
+        private int indentStep = -1;
+        private int pos;
+
+        Scan(final String content) {
+            this.content = content;
+        }
+
+        @Nullable
+        KeyInsertions.Section document() {
+            skipWhitespaces();
+            if (pos >= content.length() || content.charAt(pos) != '{') return null;
+            final KeyInsertions.Section root = object(Collections.emptyList());
+            skipWhitespaces();
+            if (pos < content.length()) return null;
+            sections.forEach(section -> section.setIndentStep(indentStep));
+            // the keys of empty objects go one step further than their opening brace
+            emptySections.forEach((section, braceLineIndent) -> section.setKeyIndent(braceLineIndent + (indentStep > 0 ? indentStep : INDENT)));
+            return root;
+        }
+
+        private KeyInsertions.Section object(final List<String> path) {
+            final int braceLineIndent = lineIndent(pos);
+            pos++;
+            final KeyInsertions.Section section = new KeyInsertions.Section(path, true);
+            sections.add(section);
+            int end = pos;
+
+            while (true) {
+                skipWhitespaces();
+                if (peek() == '}') {
+                    pos++;
+                    break;
+                }
+                if (section.getKeyIndent() < 0) {
+                    section.setKeyIndent(pos - lineStart(pos));
+                    if (indentStep < 0 && lineIndent(pos) == section.getKeyIndent() && section.getKeyIndent() > braceLineIndent) {
+                        indentStep = section.getKeyIndent() - braceLineIndent;
+                    }
+                }
+                final int keyStart = pos;
+                final String key = string();
+                skipWhitespaces();
+                final char separator = next();
+                if (separator == '=') {
+                    if (peek() == '>') pos++;
+                } else if (separator != ':') {
+                    throw new MalformedJsonException();
+                }
+                skipWhitespaces();
+                final int valueStart = pos;
+                final char valueFirst = peek();
+                KeyInsertions.Section child = null;
+                if (valueFirst == '{') {
+                    final List<String> childPath = new ArrayList<>(path);
+                    childPath.add(key);
+                    child = object(childPath);
+                } else {
+                    skipValue();
+                }
+                section.addKey(key, child, new KeyInsertions.Span(keyStart, valueStart, pos, pos, valueFirst != '{' && valueFirst != '['));
+                end = pos;
+                skipWhitespaces();
+                final char delimiter = peek();
+                if (delimiter == ',' || delimiter == ';') {
+                    pos++;
+                } else if (delimiter != '}') {
+                    throw new MalformedJsonException();
+                }
+            }
+            if (section.getKeyIndent() < 0) {
+                emptySections.put(section, braceLineIndent);
+            }
+            section.setEnd(end);
+            return section;
+        }
+
+        private void skipValue() {
+            final char c = peek();
+            if (c == '{') {
+                object(Collections.emptyList());
+            } else if (c == '[') {
+                pos++;
+                while (true) {
+                    skipWhitespaces();
+                    if (peek() == ']') {
+                        pos++;
+                        return;
+                    }
+                    skipValue();
+                    skipWhitespaces();
+                    final char delimiter = peek();
+                    if (delimiter == ',' || delimiter == ';') {
+                        pos++;
+                    } else if (delimiter != ']') {
+                        throw new MalformedJsonException();
+                    }
+                }
+            } else {
+                string();
+            }
+        }
+
+        /**
+         * Reads a quoted string, or an unquoted literal.
+         */
+        private String string() {
+            final char quote = peek();
+            if (quote != '"' && quote != '\'') {
+                final int start = pos;
+                while (pos < content.length() && LITERAL_DELIMITERS.indexOf(content.charAt(pos)) == -1) {
+                    pos++;
+                }
+                if (start == pos) throw new MalformedJsonException();
+                return content.substring(start, pos);
+            }
+            pos++;
+            final StringBuilder value = new StringBuilder();
+            while (true) {
+                final char c = next();
+                if (c == quote) return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                final char escaped = next();
+                switch (escaped) {
+                    case 'u':
+                        if (pos + 4 > content.length()) throw new MalformedJsonException();
+                        try {
+                            value.append((char) Integer.parseInt(content.substring(pos, pos + 4), 16));
+                        } catch (final NumberFormatException e) {
+                            throw new MalformedJsonException();
+                        }
+                        pos += 4;
+                        break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'f': value.append('\f'); break;
+                    default: value.append(escaped);
+                }
+            }
+        }
+
+        private void skipWhitespaces() {
+            while (pos < content.length()) {
+                final char c = content.charAt(pos);
+                if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\uFEFF') {
+                    pos++;
+                } else if (c == '#' || content.startsWith("//", pos)) {
+                    final int lineBreak = content.indexOf('\n', pos);
+                    pos = lineBreak == -1 ? content.length() : lineBreak + 1;
+                } else if (content.startsWith("/*", pos)) {
+                    final int commentEnd = content.indexOf("*/", pos + 2);
+                    if (commentEnd == -1) throw new MalformedJsonException();
+                    pos = commentEnd + 2;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private char peek() {
+            if (pos >= content.length()) throw new MalformedJsonException();
+            return content.charAt(pos);
+        }
+
+        private char next() {
+            final char c = peek();
+            pos++;
+            return c;
+        }
+
+        private int lineStart(final int index) {
+            return content.lastIndexOf('\n', index - 1) + 1;
+        }
+
+        private int lineIndent(final int index) {
+            final int lineStart = lineStart(index);
+            int i = lineStart;
+            while (i < content.length() && (content.charAt(i) == ' ' || content.charAt(i) == '\t')) {
+                i++;
+            }
+            return i - lineStart;
+        }
+    }
+
+    private static final class MalformedJsonException extends RuntimeException {
+
+        MalformedJsonException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -17,26 +17,45 @@ package com.github.secretx33.sccfg.serialization;
 
 import com.github.secretx33.sccfg.config.ConfigWrapper;
 import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
-import org.jetbrains.annotations.Nullable;
-import org.spongepowered.configurate.gson.GsonConfigurationLoader;
-import org.spongepowered.configurate.loader.AbstractConfigurationLoader;
-import org.spongepowered.configurate.loader.HeaderMode;
-import org.spongepowered.configurate.serialize.TypeSerializerCollection;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Logger;
 
+/**
+ * Streams JSON config files with Gson, reading each value straight into its field and skipping anything
+ * on the file that is not bound to a property, instead of parsing the whole file into a node tree first.
+ */
 @SuppressWarnings("unused")
-public final class JsonSerializer extends AbstractConfigurateSerializer<GsonConfigurationLoader.Builder, GsonConfigurationLoader> {
+public final class JsonSerializer extends AbstractStreamingSerializer {
+
+    private static final String INDENT = "  ";
 
     public JsonSerializer(final Logger logger, final GsonFactory gsonFactory) {
         super(logger, gsonFactory);
     }
 
     @Override
-    protected AbstractConfigurationLoader.Builder<GsonConfigurationLoader.Builder, GsonConfigurationLoader> fileBuilder(@Nullable final ConfigWrapper<?> configWrapper) {
-        return GsonConfigurationLoader.builder()
-                .headerMode(HeaderMode.PRESET)
-                .defaultOptions(opts -> opts.header(configWrapper != null ? configWrapper.getHeader() : null)
-                        .shouldCopyDefaults(false).serializers(TypeSerializerCollection.defaults()));
+    JsonReader newReader(final InputStream input) {
+        return new JsonReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    JsonWriter newWriter(final OutputStream output) {
+        // JsonWriter writes token by token, so buffer chars too, not only bytes, otherwise each token is encoded separately
+        final JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        writer.setIndent(INDENT);
+        return writer;
+    }
+
+    @Override
+    KeyInsertions.Format keyInsertionFormat(final ConfigWrapper<?> configWrapper) {
+        return new JsonKeyInsertionFormat(gsonFactory.getInstance());
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization
+
+import com.github.secretx33.sccfg.config.PropertyWrapper
+import com.google.gson.Gson
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class JsonKeyInsertionFormatTest {
+
+    private val format = JsonKeyInsertionFormat(Gson())
+
+    @Test
+    fun `given nested objects when parsing file then find their keys, indentation and end`() {
+        val content = "{\n    \"name\": \"loot\",\n    \"settings\": {\n        \"rolls\": 3\n    }\n}\n"
+
+        val root = assertNotNull(format.parse(content))
+
+        assertEquals(4, root.keyIndent)
+        assertEquals(content.indexOf("\n}"), root.end)
+        val settings = assertNotNull(root.getSection("settings"))
+        assertEquals(listOf("settings"), settings.path)
+        assertEquals(8, settings.keyIndent)
+        assertEquals(content.indexOf("3") + 1, settings.end)
+    }
+
+    @Test
+    fun `given lenient json when parsing file then read it like the file is read`() {
+        val content = "// loot table\n{\n  name = 'loot'; /* the name */\n  rolls: 3,\n  # chances\n  drops: [1, {a: 2}]\n}"
+
+        val root = assertNotNull(format.parse(content))
+
+        assertTrue(root.hasKey("name") && root.hasKey("rolls") && root.hasKey("drops"))
+        assertNull(root.getSection("drops"))
+    }
+
+    @Test
+    fun `given file that is not a single object when parsing file then return null`() {
+        assertNull(format.parse("[1, 2]"))
+        assertNull(format.parse("{\"rolls\": 3} {}"))
+        assertNull(format.parse("{\"rolls\": 3"))
+    }
+
+    @Test
+    fun `given missing nested keys when inserting them then use the indentation of their object`() {
+        val content = "{\n    \"settings\": {\n        \"rolls\": 3\n    }\n}\n"
+
+        assertEquals("{\n    \"settings\": {\n        \"rolls\": 3,\n        \"chance\": 0.5\n    },\n    \"other\": true\n}\n",
+            insert(content, mapOf("settings" to mapOf("chance" to 0.5), "other" to true), listOf("settings", "chance"), listOf("other")))
+    }
+
+    @Test
+    fun `given empty object when inserting keys then put its closing brace back on its own line`() {
+        assertEquals("{\n  \"rolls\": 3\n}", insert("{}", mapOf("rolls" to 3), listOf("rolls")))
+    }
+
+    @Test
+    fun `given object written on a single line when patching values then keep the object on a single line`() {
+        val content = "{\"ids\": [1], \"settings\": {\"rolls\": 3}}"
+
+        assertEquals("{\"ids\": [3,4], \"settings\": {\"rolls\": 3, \"chance\": 0.5}}",
+            patch(content, mapOf("ids" to listOf(3, 4), "settings" to mapOf("chance" to 0.5)), listOf("ids"), listOf("settings", "chance")))
+    }
+
+    @Test
+    fun `given indented file when patching nested values then indent them like the file`() {
+        val content = "{\n    \"settings\": {\n        \"drops\": {}\n    },\n    \"ids\": []\n}"
+
+        assertEquals("{\n    \"settings\": {\n        \"drops\": {\n            \"gold\": 2\n        },\n        \"bonus\": {\n            \"chance\": 0.5\n        }\n    },\n    \"ids\": [\n        3\n    ]\n}",
+            patch(content, mapOf("settings" to mapOf("drops" to mapOf("gold" to 2), "bonus" to mapOf("chance" to 0.5)), "ids" to listOf(3)),
+                listOf("settings", "drops"), listOf("settings", "bonus", "chance"), listOf("ids")))
+    }
+
+    private fun patch(content: String, values: Map<String, Any>, vararg paths: List<String>): String? {
+        val properties = paths.map { path -> mock<PropertyWrapper> { on { fullPathSegments } doReturn path } }.toSet()
+        return ValuePatches.of(format).patch(content, properties, values)
+    }
+
+    private fun insert(content: String, values: Map<String, Any>, vararg paths: List<String>): String {
+        val properties = paths.map { path -> mock<PropertyWrapper> { on { fullPathSegments } doReturn path } }.toSet()
+        val insertions = KeyInsertions.plan(assertNotNull(format.parse(content)), properties, values)
+        return KeyInsertions.apply(content, insertions, format)
+    }
+}
@@ -1,3 +1,7 @@
+plugins {
+    kotlin("plugin.serialization")
+}
+
 repositories {
     maven("https://hub.spigotmc.org/nexus/content/repositories/snapshots/")
 }
@@ -5,4 +9,11 @@ repositories {
 dependencies {
     compileOnly(project(":sccfg-common"))
     compileOnly(kotlin("stdlib"))
+    compileOnly("org.jetbrains.kotlinx:kotlinx-serialization-core:1.3.0")
+    compileOnly("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.5.2")
+    testImplementation(project(":sccfg-common"))
+    testImplementation(project(":sccfg-json"))
+    testImplementation("com.google.code.gson:gson:2.8.8")
+    testImplementation("org.jetbrains.kotlinx:kotlinx-serialization-core:1.3.0")
+    testImplementation("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.5.2")
 }
@@ -16,6 +16,7 @@
 package com.github.secretx33.sccfg
 
 import com.github.secretx33.sccfg.api.annotation.Configuration
+import com.github.secretx33.sccfg.config.SaveReport
 import com.github.secretx33.sccfg.exception.ConfigDeserializationException
 import com.github.secretx33.sccfg.exception.ConfigException
 import com.github.secretx33.sccfg.exception.ConfigInstanceOverrideException
@@ -24,6 +25,7 @@ import com.github.secretx33.sccfg.exception.ConfigSerializationException
 import com.github.secretx33.sccfg.exception.MissingConfigAnnotationException
 import com.github.secretx33.sccfg.exception.MissingNoArgsConstructorException
 import java.lang.reflect.Type
+import java.util.concurrent.CompletableFuture
 import kotlin.reflect.KClass
 
 
@@ -100,6 +102,54 @@ fun saveConfig(config: Any) = Config.saveConfig(config)
  */
 inline fun <reified T : Any> saveConfig() = Config.saveConfig(T::class.java)
 
+/**
+ * Extension to queue a save of a config instance, which is written to the disk on a background thread.
+ * All saves of the same config requested within its [Configuration.saveWindow] are merged into a single
+ * write of the latest values.
+ *
+ * @param config Any the config instance
+ * @return CompletableFuture<Void> a future that completes once the instance is written to the disk
+ * @throws MissingConfigAnnotationException if `config` class is not annotated with [Configuration]
+ * @throws ConfigNotInitializedException if `config` is an instance of a class that was not
+ * initiated or registered yet
+ */
+fun saveConfigAsync(config: Any): CompletableFuture<Void> = Config.saveConfigAsync(config)
+
+/**
+ * Extension to queue a save of the instance of config class [T], see [saveConfigAsync].
+ *
+ * @param T the class of the config instance that needs to be persisted
+ * @return CompletableFuture<Void> a future that completes once the instance is written to the disk
+ * @throws MissingConfigAnnotationException if config class `T` is not annotated with [Configuration]
+ * @throws ConfigNotInitializedException if config class `T` was not initiated or registered yet
+ */
+inline fun <reified T : Any> saveConfigAsync(): CompletableFuture<Void> = Config.saveConfigAsync(T::class.java)
+
+/**
+ * Extension to check if the instance of config class [T] was modified since it was last loaded from, or
+ * saved to, its file, see [Config.isDirty].
+ *
+ * @param T the class of the config instance
+ * @return Boolean true if saving the instance would change its file
+ * @throws MissingConfigAnnotationException if config class `T` is not annotated with [Configuration]
+ * @throws ConfigNotInitializedException if config class `T` was not initiated or registered yet
+ */
+inline fun <reified T : Any> isConfigDirty(): Boolean = Config.isDirty(T::class.java)
+
+/**
+ * Extension to modify the instance of config [T] and then queue a save of it, see [Config.update].
+ *
+ * ```
+ * updateConfig<PlayerStats> { joins++ }
+ * ```
+ *
+ * @param update the modifications to apply to the instance
+ * @return CompletableFuture<Void> a future that completes once the updated instance is written to the disk
+ * @throws MissingConfigAnnotationException if config class `T` is not annotated with [Configuration]
+ */
+inline fun <reified T : Any> updateConfig(crossinline update: T.() -> Unit): CompletableFuture<Void> =
+    Config.update(T::class.java) { it.update() }
+
 /**
  * Extension to persist multiple config class to the disk (save the current values of passed instances
  * to the disk).
@@ -108,11 +158,29 @@ inline fun <reified T : Any> saveConfig() = Config.saveConfig(T::class.java)
  * @throws MissingConfigAnnotationException if any instance class is not annotated with [Configuration]
  * @throws ConfigNotInitializedException if any of the passed instances is an instance of
  * non-registered config class
- * @throws ConfigSerializationException if serializer could not serialize a config entry
- * (that happens when sc-cfg is missing a Type Adapter for that specific type)
- * @throws ConfigException if an error occurs while saving the config to the disk
  */
-fun saveConfigs(vararg config: Any) = Config.saveConfigs(config)
+fun saveConfigs(vararg config: Any) = Config.saveConfigs(*config)
+
+/**
+ * Extension to persist multiple config instances to the disk, in parallel, see [Config.saveBatch]. Configs
+ * that could not be saved are reported in the returned [SaveReport].
+ *
+ * @param config Array<out Any> the config instances that need to be persisted
+ * @param sync Boolean if true, the written files are synced to the disk before returning
+ * @return SaveReport a summary of the time taken to save each config, and of the configs that failed to be saved
+ * @throws MissingConfigAnnotationException if any instance class is not annotated with [Configuration]
+ * @throws ConfigNotInitializedException if any of the passed instances is an instance of
+ * non-registered config class
+ */
+fun saveConfigsBatch(vararg config: Any, sync: Boolean = false): SaveReport = Config.saveBatch(sync, *config)
+
+/**
+ * Extension to persist all loaded config instances to the disk, in parallel, see [Config.saveAll].
+ *
+ * @param sync Boolean if true, the written files are synced to the disk before returning
+ * @return SaveReport a summary of the time taken to save each config, and of the configs that failed to be saved
+ */
+fun saveAllConfigs(sync: Boolean = false): SaveReport = Config.saveAll(sync)
 
 /**
  * Save the default values of this config instance to the disk.
@@ -179,3 +247,17 @@ fun registerTypeAdapter(type: Type, typeAdapter: Any) = Config.registerTypeAdapt
  */
 fun registerTypeAdapters(typeAdapters: Map<out Type, Any>) = Config.registerTypeAdapters(typeAdapters)
 
+/**
+ * Extension to register a Gson type adapter for a given class and all of its subclasses.
+ *
+ * @param baseType Class<*> the base class of the types which `typeAdapter` serializes and/or deserializes
+ * @param typeAdapter Any an instance of a `JsonSerializer`, `JsonDeserializer` or `TypeAdapter`
+ * @throws IllegalArgumentException if `typeAdapter` is not an instance of a Gson type hierarchy adapter
+ */
+fun registerTypeHierarchyAdapter(baseType: Class<*>, typeAdapter: Any) = Config.registerTypeHierarchyAdapter(baseType, typeAdapter)
+
+/**
+ * Extension to freeze the registered type adapters, rejecting any type adapter registered afterwards.
+ */
+fun freezeTypeAdapters() = Config.freezeTypeAdapters()
+
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg
+
+import com.github.secretx33.sccfg.api.annotation.Configuration
+import com.github.secretx33.sccfg.exception.MissingConfigAnnotationException
+import com.github.secretx33.sccfg.exception.MissingNoArgsConstructorException
+import kotlin.properties.ReadOnlyProperty
+import kotlin.reflect.KProperty
+
+/**
+ * Delegate for a value projected from the singleton instance of config [T], which is computed once and then
+ * cached until the values of [T] change, so reading it costs about the same as reading a field. This method
+ * is thread safe.
+ *
+ * ```
+ * val maxPlayers by configValue<ArenaConfig, Int> { it.maxPlayers }
+ * ```
+ *
+ * **Note:** the values of [T] change when it's reloaded, updated through [Config.update] or saved, so changes
+ * made by code directly on the config instance are only seen after it's saved. Since the properties read by
+ * [selector] are unknown, any of these changes computes the value again, but while the computed value is
+ * equal to the cached one, the cached instance keeps being returned.
+ *
+ * @param selector (T) -> R the projection of the config instance, it should not have side effects
+ * @return ReadOnlyProperty<Any?, R> delegate of the value projected from the singleton instance of config T
+ * @throws [MissingConfigAnnotationException] if `T` class is not annotated with [Configuration]
+ * @throws [MissingNoArgsConstructorException] if `T` class does not have a no-args constructor
+ */
+inline fun <reified T : Any, R> configValue(noinline selector: (T) -> R): ReadOnlyProperty<Any?, R> =
+    ConfigValue(T::class.java, selector)
+
+/**
+ * Caches the value projected by [selector] together with the version of [configClass] it was computed on
+ * (see [Config.getVersion]), and computes it again only when that version changes.
+ */
+@PublishedApi
+internal class ConfigValue<T : Any, R>(
+    private val configClass: Class<T>,
+    private val selector: (T) -> R,
+) : ReadOnlyProperty<Any?, R> {
+
+    @Volatile
+    private var cached: Cached<R>? = null
+
+    override fun getValue(thisRef: Any?, property: KProperty<*>): R {
+        // read the version before computing the value, so a change that happens in between is never missed
+        val version = Config.getVersion(configClass)
+        val cached = cached
+        if (cached != null && cached.version == version) return cached.value
+
+        val computed = selector(Config.getConfig(configClass))
+        val value = if (cached != null && cached.value == computed) cached.value else computed
+        this.cached = Cached(version, value)
+        return value
+    }
+
+    private class Cached<R>(val version: Int, val value: R)
+}
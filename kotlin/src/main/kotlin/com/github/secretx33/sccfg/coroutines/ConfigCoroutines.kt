@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.coroutines
+
+import com.github.secretx33.sccfg.Config
+import com.github.secretx33.sccfg.api.annotation.AfterReload
+import com.github.secretx33.sccfg.exception.ConfigException
+import com.github.secretx33.sccfg.exception.ConfigNotInitializedException
+import com.github.secretx33.sccfg.exception.MissingConfigAnnotationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.dropWhile
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Extension for getting a [StateFlow] of config [T], which holds a snapshot of the singleton instance of
+ * [T] (see [Config.getSnapshot]) and emits a new one every time that instance is reloaded.
+ *
+ * @return StateFlow<T> the flow of snapshots of config T
+ * @throws [MissingConfigAnnotationException] if `T` class is not annotated with `@Configuration`
+ */
+inline fun <reified T : Any> configFlow(): StateFlow<T> = configFlow(T::class.java)
+
+/**
+ * Gets a [StateFlow] of config [configClass], which holds a snapshot of the singleton instance of
+ * [configClass] and emits a new one every time that instance is reloaded, until it's released by
+ * [releaseConfigFlow] or [releaseConfigFlows].
+ *
+ * @param configClass Class<T> the config class
+ * @return StateFlow<T> the flow of snapshots of config T
+ * @throws [MissingConfigAnnotationException] if `configClass` is not annotated with `@Configuration`
+ */
+fun <T : Any> configFlow(configClass: Class<T>): StateFlow<T> = ConfigFlows.of(configClass)
+
+/**
+ * Extension for reloading config [T] from its file, running its reload methods and listeners. It suspends
+ * until the config is reloaded, doing all the I/O on [Dispatchers.IO].
+ *
+ * @throws [MissingConfigAnnotationException] if `T` class is not annotated with `@Configuration`
+ * @throws [ConfigNotInitializedException] if `T` was not initialized or registered yet
+ */
+suspend inline fun <reified T : Any> reloadConfig() = withContext(Dispatchers.IO) { Config.reloadConfig(T::class.java) }
+
+/**
+ * Extension for saving config [T] to its file. It suspends until the config is saved, doing all the I/O
+ * on [Dispatchers.IO].
+ *
+ * @throws [MissingConfigAnnotationException] if `T` class is not annotated with `@Configuration`
+ * @throws [ConfigNotInitializedException] if `T` was not initialized or registered yet
+ * @throws [ConfigException] if an error occurs while saving the config to the disk
+ */
+suspend inline fun <reified T : Any> saveConfig() = withContext(Dispatchers.IO) { Config.saveConfig(T::class.java) }
+
+/**
+ * Extension for saving a config instance to its file. It suspends until the config is saved, doing all
+ * the I/O on [Dispatchers.IO].
+ *
+ * @param config Any the config instance
+ * @throws [MissingConfigAnnotationException] if `config` class is not annotated with `@Configuration`
+ * @throws [ConfigNotInitializedException] if `config` was not initialized or registered yet
+ * @throws [ConfigException] if an error occurs while saving the config to the disk
+ */
+suspend fun saveConfig(config: Any) = withContext(Dispatchers.IO) { Config.saveConfig(config) }
+
+/**
+ * Extension for running [block] with a snapshot of config [T] every time it's reloaded, as a coroutine of
+ * this scope, so it stops once the scope is cancelled. Unlike [AfterReload] methods, [block] can suspend,
+ * and it's always run on the dispatcher of this scope.
+ *
+ * @param block suspend (T) -> Unit the block that receives each reloaded snapshot
+ * @return Job the job of the coroutine running [block], cancel it to stop listening to reloads
+ * @throws [MissingConfigAnnotationException] if `T` class is not annotated with `@Configuration`
+ */
+inline fun <reified T : Any> CoroutineScope.onConfigReload(noinline block: suspend (T) -> Unit): Job {
+    val flow = configFlow<T>()
+    // skip only the snapshot taken before listening, a reload done before the coroutine starts collecting is not lost
+    val initial = flow.value
+    return launch { flow.dropWhile { it === initial }.collect { block(it) } }
+}
+
+/**
+ * Extension for releasing the [StateFlow] of config [T], unregistering the reload listener that updates it.
+ * Flows of [T] already obtained stop receiving new snapshots, and the next [configFlow] call creates a new one.
+ *
+ * @return Boolean true if there was a flow of config T to release
+ */
+inline fun <reified T : Any> releaseConfigFlow(): Boolean = releaseConfigFlow(T::class.java)
+
+/**
+ * Releases the [StateFlow] of config [configClass], unregistering the reload listener that updates it.
+ * Flows of [configClass] already obtained stop receiving new snapshots, and the next [configFlow] call
+ * creates a new one.
+ *
+ * @param configClass Class<*> the config class
+ * @return Boolean true if there was a flow of config configClass to release
+ */
+fun releaseConfigFlow(configClass: Class<*>): Boolean = ConfigFlows.release(configClass)
+
+/**
+ * Releases the [StateFlow]s of all config classes, unregistering the reload listeners that update them, so
+ * they don't keep the config classes loaded. Call it when your plugin is disabled, together with
+ * [Config.shutdown], if your plugin uses [configFlow] or [onConfigReload].
+ */
+fun releaseConfigFlows() = ConfigFlows.releaseAll()
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.coroutines
+
+import com.github.secretx33.sccfg.Config
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.Consumer
+
+/**
+ * Holds a single [StateFlow] per config class, updated by a reload listener of that class until it's released.
+ */
+internal object ConfigFlows {
+
+    private val flows = ConcurrentHashMap<Class<*>, ConfigFlow<*>>()
+
+    @Suppress("UNCHECKED_CAST")
+    fun <T : Any> of(configClass: Class<T>): StateFlow<T> {
+        flows[configClass]?.let { return it.flow as StateFlow<T> }
+
+        val configFlow = ConfigFlow(configClass)
+        // catch up with any reload that finished before the listener was registered
+        configFlow.state.value = Config.getSnapshot(configClass)
+        val previous = flows.putIfAbsent(configClass, configFlow)
+        if (previous != null) {
+            configFlow.unregister()
+            return previous.flow as StateFlow<T>
+        }
+        return configFlow.flow
+    }
+
+    fun release(configClass: Class<*>): Boolean {
+        val configFlow = flows.remove(configClass) ?: return false
+        configFlow.unregister()
+        return true
+    }
+
+    fun releaseAll() = flows.keys.forEach { release(it) }
+
+    private class ConfigFlow<T : Any>(private val configClass: Class<T>) {
+
+        val state = MutableStateFlow(Config.getSnapshot(configClass))
+        val flow = state.asStateFlow()
+        private val listener = Consumer<T> { state.value = Config.getSnapshot(configClass) }
+
+        init {
+            Config.addReloadListener(configClass, listener)
+        }
+
+        fun unregister() {
+            Config.removeReloadListener(configClass, listener)
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization.codec
+
+import com.github.secretx33.sccfg.config.PropertyWrapper
+
+/**
+ * [ValueCodec] that converts the property values of Kotlin configs using the `KSerializer`s generated by the
+ * kotlinx.serialization compiler plugin, so the objects held by these properties are created by the generated code
+ * instead of by Gson reflection, respecting their constructor default values and non-null types.
+ *
+ * It handles every property of config classes annotated with `@Serializable`, and properties of any other config
+ * whose type is annotated with `@Serializable`. When kotlinx.serialization is not on the classpath, this codec
+ * doesn't support any property.
+ *
+ * This codec works on the properties only, the config instance itself is still created through its no-args
+ * constructor, so a `@Serializable` config class must give a default value to every constructor parameter, which
+ * makes Kotlin generate that constructor.
+ */
+class KotlinxValueCodec : ValueCodec {
+
+    override fun supports(property: PropertyWrapper): Boolean =
+        isAvailable && KotlinxValues.supports(property.ownerClass, property.type, property.genericType)
+
+    override fun decode(property: PropertyWrapper, fileValue: Any): Any? =
+        KotlinxValues.decode(property.genericType, fileValue)
+
+    override fun encode(property: PropertyWrapper, value: Any?): Any? =
+        value?.let { KotlinxValues.encode(property.genericType, it) }
+
+    private companion object {
+        // only touch kotlinx.serialization classes after making sure they exist
+        val isAvailable: Boolean = try {
+            Class.forName("kotlinx.serialization.KSerializer", false, KotlinxValueCodec::class.java.classLoader)
+            true
+        } catch (e: ClassNotFoundException) {
+            false
+        }
+    }
+}
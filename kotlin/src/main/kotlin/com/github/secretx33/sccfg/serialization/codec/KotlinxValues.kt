@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@file:OptIn(ExperimentalSerializationApi::class)
+
+package com.github.secretx33.sccfg.serialization.codec
+
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.KSerializer
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.SerializationException
+import kotlinx.serialization.descriptors.SerialDescriptor
+import kotlinx.serialization.descriptors.StructureKind
+import kotlinx.serialization.encoding.AbstractDecoder
+import kotlinx.serialization.encoding.AbstractEncoder
+import kotlinx.serialization.encoding.CompositeDecoder
+import kotlinx.serialization.encoding.CompositeEncoder
+import kotlinx.serialization.modules.EmptySerializersModule
+import kotlinx.serialization.modules.SerializersModule
+import kotlinx.serialization.serializerOrNull
+import java.lang.reflect.Type
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Converts values between the value tree read from config files (maps, lists, strings, numbers and booleans) and
+ * Kotlin objects, walking the tree directly with the `KSerializer` of each type, without any intermediate json.
+ */
+internal object KotlinxValues {
+
+    private val serializers = ConcurrentHashMap<Type, KSerializer<Any?>>()
+
+    fun supports(ownerClass: Class<*>, type: Class<*>, genericType: Type): Boolean {
+        if (!ownerClass.isAnnotationPresent(Serializable::class.java) && !type.isAnnotationPresent(Serializable::class.java)) return false
+        return serializerFor(genericType) != null
+    }
+
+    fun decode(genericType: Type, fileValue: Any): Any? {
+        val serializer = serializerFor(genericType) ?: throw SerializationException("there is no serializer for type $genericType")
+        return serializer.deserialize(ValueDecoder(fileValue))
+    }
+
+    fun encode(genericType: Type, value: Any): Any? {
+        val serializer = serializerFor(genericType) ?: throw SerializationException("there is no serializer for type $genericType")
+        return ValueEncoder().also { serializer.serialize(it, value) }.value
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun serializerFor(genericType: Type): KSerializer<Any?>? {
+        serializers[genericType]?.let { return it }
+        val serializer = try {
+            serializerOrNull(genericType) as KSerializer<Any?>?
+        } catch (e: IllegalArgumentException) {
+            null
+        } ?: return null
+        return serializers.putIfAbsent(genericType, serializer) ?: serializer
+    }
+}
+
+/**
+ * Decodes the values of a node of the value tree.
+ */
+private abstract class TreeDecoder : AbstractDecoder() {
+
+    override val serializersModule: SerializersModule = EmptySerializersModule
+
+    /**
+     * The value that should be decoded now.
+     */
+    abstract fun current(): Any?
+
+    private fun currentValue(): Any = current() ?: throw SerializationException("expected a value, but found null")
+
+    private fun currentScalar(): String = when (val value = currentValue()) {
+        is String, is Number, is Boolean -> value.toString()
+        else -> throw SerializationException("expected a single value, but found $value")
+    }
+
+    private fun currentNumber(): Number = currentValue().let {
+        it as? Number ?: currentScalar().toBigDecimalOrNull() ?: throw SerializationException("expected a number, but found '$it'")
+    }
+
+    override fun decodeNotNullMark(): Boolean = current() != null
+
+    override fun decodeNull(): Nothing? = null
+
+    override fun decodeBoolean(): Boolean = currentValue().let { it as? Boolean ?: currentScalar().toBooleanStrict() }
+
+    override fun decodeByte(): Byte = currentNumber().toByte()
+
+    override fun decodeShort(): Short = currentNumber().toShort()
+
+    override fun decodeInt(): Int = currentNumber().toInt()
+
+    override fun decodeLong(): Long = currentNumber().toLong()
+
+    override fun decodeFloat(): Float = currentNumber().toFloat()
+
+    override fun decodeDouble(): Double = currentNumber().toDouble()
+
+    override fun decodeChar(): Char = currentScalar().singleOrNull() ?: throw SerializationException("expected a single character, but found '${currentScalar()}'")
+
+    override fun decodeString(): String = currentScalar()
+
+    override fun decodeEnum(enumDescriptor: SerialDescriptor): Int {
+        val name = currentScalar()
+        val index = enumDescriptor.getElementIndex(name)
+        if (index == CompositeDecoder.UNKNOWN_NAME) {
+            throw SerializationException("'$name' is not one of ${(0 until enumDescriptor.elementsCount).joinToString { enumDescriptor.getElementName(it) }}")
+        }
+        return index
+    }
+
+    override fun beginStructure(descriptor: SerialDescriptor): CompositeDecoder = when (descriptor.kind) {
+        StructureKind.LIST -> ListDecoder(currentValue() as? List<*> ?: throw SerializationException("expected a list, but found ${currentValue()}"))
+        StructureKind.MAP -> MapDecoder(currentMap())
+        else -> ClassDecoder(currentMap())
+    }
+
+    private fun currentMap(): Map<*, *> = currentValue() as? Map<*, *> ?: throw SerializationException("expected a section, but found ${currentValue()}")
+}
+
+private class ValueDecoder(private val value: Any) : TreeDecoder() {
+
+    override fun current(): Any = value
+
+    override fun decodeElementIndex(descriptor: SerialDescriptor): Int = CompositeDecoder.DECODE_DONE
+}
+
+/**
+ * Decodes only the properties that are present on the section, so the missing ones keep their default values.
+ */
+private class ClassDecoder(private val values: Map<*, *>) : TreeDecoder() {
+
+    private var index = -1
+    private var current: Any? = null
+
+    override fun current(): Any? = current
+
+    override fun decodeElementIndex(descriptor: SerialDescriptor): Int {
+        while (++index < descriptor.elementsCount) {
+            val value = values[descriptor.getElementName(index)]
+            // null values are skipped as well, unless null is a valid value for the property
+            if (value != null || (values.containsKey(descriptor.getElementName(index)) && descriptor.getElementDescriptor(index).isNullable)) {
+                current = value
+                return index
+            }
+        }
+        return CompositeDecoder.DECODE_DONE
+    }
+}
+
+private class ListDecoder(private val values: List<*>) : TreeDecoder() {
+
+    private var index = -1
+
+    override fun current(): Any? = values[index]
+
+    override fun decodeCollectionSize(descriptor: SerialDescriptor): Int = values.size
+
+    override fun decodeElementIndex(descriptor: SerialDescriptor): Int =
+        if (++index < values.size) index else CompositeDecoder.DECODE_DONE
+}
+
+/**
+ * Decodes maps as their keys and values interleaved, the way map serializers expect them.
+ */
+private class MapDecoder(values: Map<*, *>) : TreeDecoder() {
+
+    private val entries = values.entries.toList()
+    private var index = -1
+
+    override fun current(): Any? = entries[index / 2].let { if (index % 2 == 0) it.key else it.value }
+
+    override fun decodeCollectionSize(descriptor: SerialDescriptor): Int = entries.size
+
+    override fun decodeElementIndex(descriptor: SerialDescriptor): Int =
+        if (++index < entries.size * 2) index else CompositeDecoder.DECODE_DONE
+}
+
+/**
+ * Encodes values into a node of the value tree.
+ */
+private abstract class TreeEncoder : AbstractEncoder() {
+
+    override val serializersModule: SerializersModule = EmptySerializersModule
+
+    /**
+     * Puts an encoded value into this node.
+     */
+    abstract fun put(value: Any?)
+
+    override fun encodeValue(value: Any) = put(value)
+
+    override fun encodeNull() = put(null)
+
+    // the file formats only deal with ints, longs and doubles
+    override fun encodeByte(value: Byte) = put(value.toInt())
+
+    override fun encodeShort(value: Short) = put(value.toInt())
+
+    override fun encodeFloat(value: Float) = put(value.toDouble())
+
+    override fun encodeChar(value: Char) = put(value.toString())
+
+    override fun encodeEnum(enumDescriptor: SerialDescriptor, index: Int) = put(enumDescriptor.getElementName(index))
+
+    override fun shouldEncodeElementDefault(descriptor: SerialDescriptor, index: Int): Boolean = true
+
+    override fun beginStructure(descriptor: SerialDescriptor): CompositeEncoder = when (descriptor.kind) {
+        StructureKind.LIST -> ListEncoder(::put)
+        StructureKind.MAP -> MapEncoder(::put)
+        else -> ClassEncoder(::put)
+    }
+}
+
+private class ValueEncoder : TreeEncoder() {
+
+    var value: Any? = null
+        private set
+
+    override fun put(value: Any?) {
+        this.value = value
+    }
+}
+
+private class ClassEncoder(private val parent: (Any?) -> Unit) : TreeEncoder() {
+
+    private val values = LinkedHashMap<String, Any>()
+    private var name = ""
+
+    override fun encodeElement(descriptor: SerialDescriptor, index: Int): Boolean {
+        name = descriptor.getElementName(index)
+        return true
+    }
+
+    override fun put(value: Any?) {
+        // null properties are left out of the file, like Gson does
+        if (value != null) values[name] = value
+    }
+
+    override fun endStructure(descriptor: SerialDescriptor) = parent(values)
+}
+
+private class ListEncoder(private val parent: (Any?) -> Unit) : TreeEncoder() {
+
+    private val values = ArrayList<Any?>()
+
+    override fun put(value: Any?) {
+        values += value
+    }
+
+    override fun endStructure(descriptor: SerialDescriptor) = parent(values)
+}
+
+private class MapEncoder(private val parent: (Any?) -> Unit) : TreeEncoder() {
+
+    private val values = LinkedHashMap<String, Any?>()
+    private var key = ""
+    private var isKey = false
+
+    override fun encodeElement(descriptor: SerialDescriptor, index: Int): Boolean {
+        isKey = index % 2 == 0
+        return true
+    }
+
+    override fun put(value: Any?) {
+        if (isKey) key = value.toString() else values[key] = value
+    }
+
+    override fun endStructure(descriptor: SerialDescriptor) = parent(values)
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg
+
+import com.github.secretx33.sccfg.api.FileType
+import com.github.secretx33.sccfg.api.annotation.Configuration
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+
+class ConfigValueTest {
+
+    private var computations = 0
+    private val names by configValue<ValueConfig, List<String>> {
+        computations++
+        it.names.toList()
+    }
+
+    @BeforeEach
+    fun setup() {
+        Config.getConfig(ValueConfig::class.java).names = mutableListOf("a")
+        Config.saveConfig(ValueConfig::class.java)
+    }
+
+    @Test
+    fun `given unchanged config when reading value many times then compute it only once`() {
+        repeat(3) { assertEquals(listOf("a"), names) }
+
+        assertEquals(1, computations)
+    }
+
+    @Test
+    fun `given config reloaded from a changed file when reading value then compute it again`() {
+        assertEquals(listOf("a"), names)
+        Config.getConfig(ValueConfig::class.java).names = mutableListOf("b")
+        Config.saveConfig(ValueConfig::class.java)
+        Config.getConfig(ValueConfig::class.java).names = mutableListOf("c")
+
+        Config.reloadConfig(ValueConfig::class.java)
+
+        assertEquals(listOf("b"), names)
+    }
+
+    @Test
+    fun `given updated config when reading value then see the update`() {
+        assertEquals(listOf("a"), names)
+
+        Config.update(ValueConfig::class.java) { it.names.add("b") }
+
+        assertEquals(listOf("a", "b"), names)
+    }
+
+    @Test
+    fun `given config changed directly when reading value then see the change only after it's saved`() {
+        assertEquals(listOf("a"), names)
+
+        Config.getConfig(ValueConfig::class.java).names.add("b")
+        assertEquals(listOf("a"), names)
+        Config.saveConfig(ValueConfig::class.java)
+
+        assertEquals(listOf("a", "b"), names)
+    }
+
+    @Test
+    fun `given config change that keeps the value equal when reading value then return the cached instance`() {
+        val value = names
+
+        Config.reloadConfig(ValueConfig::class.java)
+
+        assertSame(value, names)
+        assertEquals(2, computations)
+    }
+
+    @Configuration("value", type = FileType.JSON)
+    class ValueConfig {
+        @JvmField var names = mutableListOf("a")
+    }
+}
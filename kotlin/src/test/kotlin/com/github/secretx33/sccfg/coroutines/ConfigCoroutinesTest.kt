@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.coroutines
+
+import com.github.secretx33.sccfg.Config
+import com.github.secretx33.sccfg.api.FileType
+import com.github.secretx33.sccfg.api.annotation.Configuration
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class ConfigCoroutinesTest {
+
+    @AfterEach
+    fun tearDown() {
+        releaseConfigFlows()
+    }
+
+    @Test
+    fun `given config flow when config is reloaded then hold a snapshot with the reloaded values`() = runBlocking {
+        val flow = configFlow<FlowConfig>()
+
+        reloadWithValue(2)
+
+        assertEquals(2, flow.value.value)
+        assertNotSame(Config.getConfig(FlowConfig::class.java), flow.value)
+    }
+
+    @Test
+    fun `given config flow when getting it again then return the same flow`() {
+        assertSame(configFlow<FlowConfig>(), configFlow<FlowConfig>())
+    }
+
+    @Test
+    fun `given reload that happens before the listener starts collecting then still run block with it`() = runBlocking {
+        val received = CompletableDeferred<FlowConfig>()
+        val job = onConfigReload<FlowConfig> { received.complete(it) }
+
+        // runBlocking only starts the listener coroutine once this one suspends, so it misses the reload itself
+        Config.getConfig(FlowConfig::class.java).value = 3
+        Config.saveConfig(FlowConfig::class.java)
+        Config.reloadConfig(FlowConfig::class.java)
+
+        assertEquals(3, withTimeout(5000) { received.await() }.value)
+        job.cancel()
+    }
+
+    @Test
+    fun `given released flow when config is reloaded then stop updating it and create a new flow afterwards`() = runBlocking {
+        val flow = configFlow<FlowConfig>()
+        val snapshot = flow.value
+
+        assertTrue(releaseConfigFlow<FlowConfig>())
+        assertFalse(releaseConfigFlow<FlowConfig>())
+        reloadWithValue(4)
+
+        assertSame(snapshot, flow.value)
+        val newFlow = configFlow<FlowConfig>()
+        assertNotSame(flow, newFlow)
+        assertEquals(4, newFlow.value.value)
+    }
+
+    @Test
+    fun `given config changed after being saved when reloading it then read back the saved values`() = runBlocking {
+        val config = Config.getConfig(FlowConfig::class.java)
+        config.value = 6
+
+        saveConfig(config)
+        config.value = 0
+        reloadConfig<FlowConfig>()
+
+        assertEquals(6, config.value)
+    }
+
+    private suspend fun reloadWithValue(value: Int) {
+        Config.getConfig(FlowConfig::class.java).value = value
+        saveConfig<FlowConfig>()
+        reloadConfig<FlowConfig>()
+    }
+
+    @Configuration("flow", type = FileType.JSON)
+    class FlowConfig {
+        @JvmField var value = 1
+    }
+}
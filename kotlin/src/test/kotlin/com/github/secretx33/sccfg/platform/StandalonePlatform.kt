@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.platform
+
+import com.github.secretx33.sccfg.config.MethodWrapper
+import com.github.secretx33.sccfg.executor.SyncExecutor
+import com.github.secretx33.sccfg.scanner.BaseScanner
+import com.github.secretx33.sccfg.scanner.Scanner
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
+import java.util.logging.Logger
+
+/**
+ * Minimal platform used by the tests, storing all config files inside a temporary folder and running
+ * "sync" methods on the calling thread.
+ */
+@Suppress("unused")
+class StandalonePlatform : AbstractPlatform() {
+
+    private val logger = Logger.getLogger("sc-cfg")
+    private val folder = Files.createTempDirectory("sccfg-test")
+
+    override fun getLogger(): Logger = logger
+
+    override fun getBasePath(): Path = folder
+
+    override fun createScanner(): Scanner = BaseScanner("com.github.secretx33.sccfg", emptySet())
+
+    override fun createSyncExecutor(): SyncExecutor = object : SyncExecutor {
+        override fun runMethodsSync(instance: Any, tasks: Set<MethodWrapper>) =
+            tasks.forEach { it.method.invoke(instance) }
+
+        override fun runMethodsSyncWithLatch(instance: Any, tasks: Set<MethodWrapper>, latch: CountDownLatch) =
+            tasks.forEach {
+                try {
+                    it.method.invoke(instance)
+                } finally {
+                    latch.countDown()
+                }
+            }
+    }
+}
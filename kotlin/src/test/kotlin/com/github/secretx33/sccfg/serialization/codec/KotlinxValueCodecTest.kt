@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization.codec
+
+import com.github.secretx33.sccfg.config.PropertyWrapper
+import kotlinx.serialization.SerializationException
+import kotlinx.serialization.Serializable
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class KotlinxValueCodecTest {
+
+    private val codec = KotlinxValueCodec()
+
+    @Test
+    fun `given serializable config or serializable type when checking support then support the property`() {
+        assertTrue(codec.supports(property<LootConfig>("name")))
+        assertTrue(codec.supports(property<LootConfig>("drops")))
+        assertTrue(codec.supports(property<PlainConfig>("drop")))
+        assertFalse(codec.supports(property<PlainConfig>("tags")))
+    }
+
+    @Test
+    fun `given section with missing keys when decoding then keep the constructor default values`() {
+        val drops = codec.decode(property<LootConfig>("drops"), listOf(mapOf("item" to "gold"), mapOf("item" to "iron", "chance" to 0.5)))
+
+        assertEquals(listOf(Drop("gold"), Drop("iron", chance = 0.5)), drops)
+    }
+
+    @Test
+    fun `given whole numbers read as doubles when decoding then convert them to the property type`() {
+        val drop = codec.decode(property<PlainConfig>("drop"), mapOf("item" to "gold", "amount" to 3.0))
+        val weights = codec.decode(property<LootConfig>("weights"), mapOf("common" to 10.0, "rare" to 2.0))
+
+        assertEquals(Drop("gold", amount = 3), drop)
+        assertEquals(mapOf("common" to 10, "rare" to 2), weights)
+    }
+
+    @Test
+    fun `given null value for non-null property when decoding then keep its default value`() {
+        val drop = codec.decode(property<PlainConfig>("drop"), mapOf("item" to "gold", "amount" to null))
+
+        assertEquals(Drop("gold"), drop)
+    }
+
+    @Test
+    fun `given section missing a required key when decoding then throw`() {
+        assertFailsWith<SerializationException> { codec.decode(property<PlainConfig>("drop"), mapOf("amount" to 2)) }
+    }
+
+    @Test
+    fun `given values of the wrong kind when decoding then throw`() {
+        assertFailsWith<SerializationException> { codec.decode(property<PlainConfig>("drop"), mapOf("item" to "gold", "amount" to "many")) }
+        assertFailsWith<SerializationException> { codec.decode(property<LootConfig>("drops"), mapOf("item" to "gold")) }
+        assertFailsWith<SerializationException> { codec.decode(property<LootConfig>("rarity"), "LEGENDARY") }
+    }
+
+    @Test
+    fun `given enum and nullable values when decoding then read them`() {
+        assertEquals(Rarity.RARE, codec.decode(property<LootConfig>("rarity"), "RARE"))
+        assertEquals("common loot", codec.decode(property<LootConfig>("note"), "common loot"))
+    }
+
+    @Test
+    fun `given serializable values when encoding then produce the value tree of the file`() {
+        val drops = codec.encode(property<LootConfig>("drops"), listOf(Drop("gold", 2, 0.5)))
+        val rarity = codec.encode(property<LootConfig>("rarity"), Rarity.RARE)
+
+        assertEquals(listOf(mapOf("item" to "gold", "amount" to 2, "chance" to 0.5)), drops)
+        assertEquals("RARE", rarity)
+        assertNull(codec.encode(property<LootConfig>("note"), null))
+    }
+
+    @Test
+    fun `given encoded values when decoding them then get the same values back`() {
+        val config = LootConfig()
+
+        for (name in listOf("name", "drops", "weights", "rarity")) {
+            val property = property<LootConfig>(name)
+            val value = property.ownerClass.getDeclaredField(name).apply { isAccessible = true }.get(config)
+            assertEquals(value, codec.decode(property, codec.encode(property, value)!!))
+        }
+    }
+
+    private inline fun <reified T> property(name: String): PropertyWrapper {
+        val field = T::class.java.getDeclaredField(name)
+        return mock {
+            on { ownerClass } doReturn T::class.java
+            on { type } doReturn field.type
+            on { genericType } doReturn field.genericType
+        }
+    }
+
+    @Serializable
+    class LootConfig {
+        val name = "loot"
+        val drops = listOf(Drop("gold", 2))
+        val weights = mapOf("common" to 10)
+        val rarity = Rarity.COMMON
+        val note: String? = null
+    }
+
+    class PlainConfig {
+        val drop = Drop("iron")
+        val tags = listOf("rare")
+    }
+
+    @Serializable
+    data class Drop(val item: String, val amount: Int = 1, val chance: Double = 1.0)
+
+    enum class Rarity { COMMON, RARE }
+}
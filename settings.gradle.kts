@@ -1,6 +1,6 @@
 rootProject.name = "sc-cfg"
 
-listOf("api", "bukkit", "bungee", "common", "hocon", "json", "kotlin", "yaml")
+listOf("api", "bukkit", "bungee", "cbor", "common", "hocon", "json", "kotlin", "yaml")
     .forEach {
         include(it)
         findProject(":$it")?.name = "sccfg-$it"
@@ -18,16 +18,14 @@ package com.github.secretx33.sccfg.serialization;
 import com.github.secretx33.sccfg.config.ConfigWrapper;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.BufferedReader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
 
@@ -43,24 +41,26 @@ class YamlCommentManager {
     private static final Pattern KEY_PATTERN = Pattern.compile("^\\s*([\\w\\d\\-!@#$%^&*+]+?):.*$");
     private static final Pattern LIST_PATTERN = Pattern.compile("^\\s*-\\s?[\"']?(.+)[\"']?.*$");
     private static final Pattern DEPTH_PATTERN = Pattern.compile("^(\\s+)[^\\s]+");
-    private static final Charset UTF8_CHARSET = StandardCharsets.UTF_8;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
 
-    private final Path file;
     private final Map<String, String[]> comments;
 
     YamlCommentManager(final ConfigWrapper<?> configWrapper) {
         checkNotNull(configWrapper, "configWrapper");
-        this.file = configWrapper.getDestination();
         this.comments = configWrapper.getComments();
     }
 
     /**
-     * Save the {@link YamlCommentManager#comments} extracted from the {@link ConfigWrapper} to the
-     * {@link YamlCommentManager#file}.
+     * Add the {@link YamlCommentManager#comments} extracted from the {@link ConfigWrapper} to the content
+     * of its YAML file.
+     *
+     * @param fileContent the content of the YAML file
+     * @return the content of the YAML file with the comments
      */
-    public void saveComments() throws IOException {
-        if (comments.isEmpty()) return;
-        final List<String> lines = Files.readAllLines(file, UTF8_CHARSET);
+    public String addComments(final String fileContent) {
+        checkNotNull(fileContent, "fileContent");
+        if (comments.isEmpty()) return fileContent;
+        final List<String> lines = new BufferedReader(new StringReader(fileContent)).lines().collect(Collectors.toList());
 
         for (final Map.Entry<String, String[]> stringEntry : comments.entrySet()) {
             final String key = stringEntry.getKey();
@@ -70,7 +70,9 @@ class YamlCommentManager {
             final int lineDepth = lineDepth(lines.get(index));
             lines.addAll(index, toYamlComment(comment, lineDepth));
         }
-        Files.write(file, lines, UTF8_CHARSET);
+        final StringBuilder content = new StringBuilder(fileContent.length() + 64 * comments.size());
+        lines.forEach(line -> content.append(line).append(LINE_SEPARATOR));
+        return content.toString();
     }
 
     private int findKey(final List<String> lines, final String key) {
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.PropertyWrapper;
+import com.github.secretx33.sccfg.util.Maps;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Reads the values of a YAML file straight from the events of the SnakeYAML parser, building nodes only for
+ * the values bound to a property, and skipping everything else without building anything for it, so the
+ * cost of reading a file depends on how much of it is bound to properties, and not on its size.<br><br>
+ *
+ * Values that depend on other parts of the file (aliases to anchors outside of the bound values, and merge
+ * keys on the way to a bound value) cannot be read that way, in which case the file should be read fully.
+ */
+final class YamlEventReader {
+
+    private static final String MERGE_KEY = "<<";
+
+    private final Parser parser;
+    private final Resolver resolver = new Resolver();
+    private final ValueConstructor constructor = new ValueConstructor();
+    private final Map<String, Node> anchors = new HashMap<>();
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    private YamlEventReader(final Reader reader) {
+        this.parser = new ParserImpl(new StreamReader(reader));
+    }
+
+    /**
+     * Reads the values of all properties that are on {@code paths}.
+     *
+     * @param reader the contents of the YAML file
+     * @param paths the paths of the properties of the config
+     * @return a map of the property names to their values, or null if the file needs to be read fully
+     * @throws org.yaml.snakeyaml.error.YAMLException if the file is not a valid YAML
+     */
+    @Nullable
+    static Map<String, Object> read(final Reader reader, final PropertyPaths<?> paths) {
+        checkNotNull(reader, "reader");
+        checkNotNull(paths, "paths");
+        try {
+            return new YamlEventReader(reader).readDocument(paths);
+        } catch (final NeedsFullReadException e) {
+            return null;
+        }
+    }
+
+    private <P> Map<String, Object> readDocument(final PropertyPaths<P> paths) {
+        parser.getEvent(); // stream start
+        if (parser.checkEvent(Event.ID.StreamEnd)) return Maps.of(values);
+        parser.getEvent(); // document start
+        if (parser.checkEvent(Event.ID.MappingStart)) {
+            readMapping(paths, paths.root());
+        }
+        return Maps.of(values);
+    }
+
+    private <P> void readMapping(final PropertyPaths<P> paths, final PathTrie<P> node) {
+        register(parser.getEvent(), null);
+        while (!parser.checkEvent(Event.ID.MappingEnd)) {
+            final Event keyEvent = parser.peekEvent();
+            if (!(keyEvent instanceof ScalarEvent)) {
+                if (keyEvent instanceof AliasEvent) throw new NeedsFullReadException();
+                skipValue();
+                skipValue();
+                continue;
+            }
+            parser.getEvent();
+            final String key = ((ScalarEvent) keyEvent).getValue();
+            if (MERGE_KEY.equals(key)) throw new NeedsFullReadException();
+
+            final PathTrie<P> child = node.child(key);
+            final PropertyWrapper property = child != null ? paths.property(child) : null;
+            if (property != null) {
+                final Object value = constructor.construct(composeNode());
+                if (value != null) {
+                    values.put(property.getName(), value);
+                }
+            } else if (child != null && parser.checkEvent(Event.ID.MappingStart)) {
+                readMapping(paths, child);
+            } else {
+                skipValue();
+            }
+        }
+        parser.getEvent();
+    }
+
+    /**
+     * Skips the next value without building anything for it.
+     */
+    private void skipValue() {
+        int depth = 0;
+        do {
+            final Event event = parser.getEvent();
+            if (event instanceof NodeEvent && !(event instanceof AliasEvent)) {
+                register(event, null);
+            }
+            if (event instanceof CollectionStartEvent) {
+                depth++;
+            } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Builds the node for the next value, the same way the SnakeYAML composer would.
+     */
+    private Node composeNode() {
+        final Event event = parser.getEvent();
+
+        if (event instanceof AliasEvent) {
+            final Node node = anchors.get(((AliasEvent) event).getAnchor());
+            if (node == null) throw new NeedsFullReadException();
+            return node;
+        }
+        if (event instanceof ScalarEvent) {
+            final ScalarEvent scalar = (ScalarEvent) event;
+            final Tag tag = resolveTag(scalar.getTag(), NodeId.scalar, scalar.getValue(), scalar.getImplicit().canOmitTagInPlainScalar());
+            return register(event, new ScalarNode(tag, scalar.getValue(), event.getStartMark(), event.getEndMark(), scalar.getScalarStyle()));
+        }
+        final CollectionStartEvent start = (CollectionStartEvent) event;
+        if (event.is(Event.ID.SequenceStart)) {
+            final List<Node> children = new ArrayList<>();
+            final SequenceNode node = register(event, new SequenceNode(resolveTag(start.getTag(), NodeId.sequence, null, start.getImplicit()), children, start.getFlowStyle()));
+            while (!parser.checkEvent(Event.ID.SequenceEnd)) {
+                children.add(composeNode());
+            }
+            parser.getEvent();
+            return node;
+        }
+        final List<NodeTuple> children = new ArrayList<>();
+        final MappingNode node = register(event, new MappingNode(resolveTag(start.getTag(), NodeId.mapping, null, start.getImplicit()), children, start.getFlowStyle()));
+        while (!parser.checkEvent(Event.ID.MappingEnd)) {
+            children.add(new NodeTuple(composeNode(), composeNode()));
+        }
+        parser.getEvent();
+        return node;
+    }
+
+    private Tag resolveTag(@Nullable final String tag, final NodeId nodeId, @Nullable final String value, final boolean implicit) {
+        if (tag == null || "!".equals(tag)) {
+            return resolver.resolve(nodeId, value, implicit);
+        }
+        return new Tag(tag);
+    }
+
+    private <N extends Node> N register(final Event event, @Nullable final N node) {
+        final String anchor = ((NodeEvent) event).getAnchor();
+        if (anchor != null) {
+            // anchors outside of the bound values are not built, so aliases to them cannot be resolved
+            if (node == null) {
+                anchors.remove(anchor);
+            } else {
+                anchors.put(anchor, node);
+            }
+        }
+        return node;
+    }
+
+    private static final class ValueConstructor extends SafeConstructor {
+
+        Object construct(final Node node) {
+            return constructDocument(node);
+        }
+    }
+
+    private static final class NeedsFullReadException extends RuntimeException {
+
+        NeedsFullReadException() {
+            super(null, null, false, false);
+        }
+    }
+}
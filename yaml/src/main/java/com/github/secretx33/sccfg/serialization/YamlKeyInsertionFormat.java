@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization;
+
+import com.github.secretx33.sccfg.config.ConfigWrapper;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.secretx33.sccfg.util.Preconditions.checkNotNull;
+
+/**
+ * Finds where the entries and block mappings of a YAML file are, so values can be replaced right where they
+ * are, and the missing keys of each mapping can be inserted right after its last entry, with the same
+ * indentation as its other keys.<br><br>
+ *
+ * Only files holding a single document whose root is a block mapping are supported, and keys are never
+ * inserted into flow mappings (the ones written inline, like {@code {key: value}}). Values holding anchors
+ * are never replaced, since other parts of the file may refer to them.
+ */
+final class YamlKeyInsertionFormat implements ValuePatches.Format {
+
+    /** The indentation of each nested mapping, used when the file has no nested mapping to take it from. */
+    private static final int SPACES_PER_DEPTH = 2;
+    private static final String SCALAR_KEY = "k";
+
+    private final YamlSerializer serializer;
+    private final ConfigWrapper<?> configWrapper;
+
+    YamlKeyInsertionFormat(final YamlSerializer serializer, final ConfigWrapper<?> configWrapper) {
+        this.serializer = checkNotNull(serializer, "serializer");
+        this.configWrapper = checkNotNull(configWrapper, "configWrapper");
+    }
+
+    @Override
+    @Nullable
+    public KeyInsertions.Section parse(final String content) {
+        checkNotNull(content, "content");
+        try {
+            final KeyInsertions.Section root = new Scan(content).document();
+            if (root != null) {
+                root.setEnd(content.length());
+            }
+            return root;
+        } catch (final YAMLException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public String render(final String content, final KeyInsertions.Insertion insertion) {
+        checkNotNull(content, "content");
+        checkNotNull(insertion, "insertion");
+        final KeyInsertions.Section section = insertion.getSection();
+        final List<String> path = section.getPath();
+
+        // render the entries from the root, so their comments can be found by their full path
+        Map<String, Object> values = insertion.getEntries();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            final Map<String, Object> parent = new LinkedHashMap<>();
+            parent.put(path.get(i), values);
+            values = parent;
+        }
+        final int indentStep = indentStep(section);
+        final String[] lines = serializer.renderValues(configWrapper, values, serializer.fileBuilder(null, indentStep)).split("\r?\n");
+
+        final String lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
+        final String indent = spaces(Math.max(section.getKeyIndent(), 0));
+        final int renderedIndent = path.size() * indentStep;
+        final StringBuilder rendered = new StringBuilder();
+        // the first lines are the keys of the section and its parents, which are already on the file
+        for (int i = path.size(); i < lines.length; i++) {
+            final String line = lines[i];
+            if (line.isEmpty()) continue;
+            int start = 0;
+            while (start < renderedIndent && start < line.length() && line.charAt(start) == ' ') {
+                start++;
+            }
+            rendered.append(indent).append(line, start, line.length()).append(lineSeparator);
+        }
+        return rendered.toString();
+    }
+
+    @Override
+    @Nullable
+    public ValuePatches.Replacement replace(final String content, final KeyInsertions.Section section, final String key, final KeyInsertions.Span span, final Object value) {
+        checkNotNull(content, "content");
+        checkNotNull(section, "section");
+        checkNotNull(key, "key");
+        checkNotNull(span, "span");
+        checkNotNull(value, "value");
+
+        if (span.isScalar()) {
+            // scalars rendered on a single line replace only the old scalar, keeping anything after it on its line
+            final String[] lines = serializer.renderValues(Collections.singletonMap(SCALAR_KEY, value)).split("\r?\n");
+            final String prefix = SCALAR_KEY + ": ";
+            if (lines.length == 1 && lines[0].startsWith(prefix)) {
+                final boolean needsSpace = span.getValueStart() == span.getValueEnd() && content.charAt(span.getValueStart() - 1) != ' ';
+                return new ValuePatches.Replacement(span.getValueStart(), span.getValueEnd(), (needsSpace ? " " : "") + lines[0].substring(prefix.length()));
+            }
+        }
+        // flow mappings cannot hold block values
+        if (!section.isAppendable()) return null;
+
+        final String lineSeparator = content.contains("\r\n") ? "\r\n" : "\n";
+        final int keyColumn = span.getKeyStart() - (content.lastIndexOf('\n', span.getKeyStart() - 1) + 1);
+        final String indent = spaces(keyColumn);
+        // a mapping being replaced keeps its own indentation
+        final KeyInsertions.Section oldValue = section.getSection(key);
+        final int indentStep = oldValue != null && oldValue.isAppendable() && oldValue.getKeyIndent() > keyColumn ? oldValue.getKeyIndent() - keyColumn : indentStep(section);
+        final String[] lines = serializer.renderValues(Collections.singletonMap(key, value), serializer.fileBuilder(null, indentStep)).split("\r?\n");
+        final StringBuilder entry = new StringBuilder(lines[0]).append(lineSeparator);
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].isEmpty()) continue;
+            entry.append(indent).append(lines[i]).append(lineSeparator);
+        }
+        return new ValuePatches.Replacement(span.getKeyStart(), span.getEntryEnd(), entry.toString());
+    }
+
+    private static int indentStep(final KeyInsertions.Section section) {
+        return section.getIndentStep() > 0 ? section.getIndentStep() : SPACES_PER_DEPTH;
+    }
+
+    private static String spaces(final int count) {
+        return String.join("", Collections.nCopies(count, " "));
+    }
+
+    /**
+     * Walks through the events of the parser, keeping track of where the last value of the file ends.
+     */
+    private static final class Scan {
+
+        private final String content;
+        private final boolean onlyBasicChars;
+        private final Parser parser;
+        private final Deque<Boolean> flowCollections = new ArrayDeque<>();
+        private final List<KeyInsertions.Section> sections = new ArrayList<>();
+        private int indentStep = -1;
+        private int lastValueEnd;
+        private int anchorCount;
+
+        Scan(final String content) {
+            this.content = content;
+            this.onlyBasicChars = content.length() == content.codePointCount(0, content.length());
+            this.parser = new ParserImpl(new StreamReader(content));
+        }
+
+        @Nullable
+        KeyInsertions.Section document() {
+            next(); // stream start
+            if (parser.checkEvent(Event.ID.StreamEnd)) {
+                // file without any content (except for comments)
+                final KeyInsertions.Section root = new KeyInsertions.Section(Collections.emptyList(), true);
+                root.setKeyIndent(0);
+                return root;
+            }
+            next(); // document start
+            if (!parser.checkEvent(Event.ID.MappingStart) || ((CollectionStartEvent) parser.peekEvent()).isFlow()) return null;
+            final KeyInsertions.Section root = mapping(Collections.emptyList());
+            // anything after the root mapping would end up after the inserted keys
+            if (((DocumentEndEvent) next()).getExplicit() || !parser.checkEvent(Event.ID.StreamEnd)) return null;
+            sections.forEach(section -> section.setIndentStep(indentStep));
+            return root;
+        }
+
+        private KeyInsertions.Section mapping(final List<String> path) {
+            final boolean flow = ((CollectionStartEvent) next()).isFlow();
+            final KeyInsertions.Section section = new KeyInsertions.Section(path, !flow);
+            sections.add(section);
+
+            while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                if (!(parser.peekEvent() instanceof ScalarEvent)) {
+                    // complex key
+                    skipValue();
+                    skipValue();
+                    continue;
+                }
+                // anchors on the key would also be lost when the entry is replaced
+                final int anchorsBefore = anchorCount;
+                final Event keyEvent = next();
+                final String key = ((ScalarEvent) keyEvent).getValue();
+                if (section.getKeyIndent() < 0) {
+                    section.setKeyIndent(keyEvent.getStartMark().getColumn());
+                }
+                final Event valueEvent = parser.peekEvent();
+                KeyInsertions.Section child = null;
+                if (parser.checkEvent(Event.ID.MappingStart)) {
+                    final List<String> childPath = new ArrayList<>(path);
+                    childPath.add(key);
+                    child = mapping(childPath);
+                    if (indentStep < 0 && child.isAppendable() && child.getKeyIndent() > section.getKeyIndent()) {
+                        indentStep = child.getKeyIndent() - section.getKeyIndent();
+                    }
+                } else {
+                    skipValue();
+                }
+                KeyInsertions.Span span = null;
+                if (anchorCount == anchorsBefore && !(valueEvent instanceof AliasEvent)) {
+                    final int valueStart = index(valueEvent.getStartMark());
+                    span = new KeyInsertions.Span(index(keyEvent.getStartMark()), valueStart, Math.max(valueStart, lastValueEnd), lineEnd(Math.max(valueStart, lastValueEnd)), isInlineScalar(valueEvent));
+                }
+                section.addKey(key, child, span);
+            }
+            next();
+            section.setEnd(lineEnd(lastValueEnd));
+            return section;
+        }
+
+        private boolean isInlineScalar(final Event event) {
+            if (!(event instanceof ScalarEvent)) return false;
+            final ScalarEvent scalar = (ScalarEvent) event;
+            return scalar.getTag() == null && scalar.getScalarStyle() != DumperOptions.ScalarStyle.LITERAL && scalar.getScalarStyle() != DumperOptions.ScalarStyle.FOLDED;
+        }
+
+        private void skipValue() {
+            int depth = 0;
+            do {
+                final Event event = next();
+                if (event instanceof CollectionStartEvent) {
+                    depth++;
+                } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                    depth--;
+                }
+            } while (depth > 0);
+        }
+
+        private Event next() {
+            final Event event = parser.getEvent();
+            if (event instanceof NodeEvent && !(event instanceof AliasEvent) && ((NodeEvent) event).getAnchor() != null) {
+                anchorCount++;
+            }
+            if (event instanceof CollectionStartEvent) {
+                flowCollections.push(((CollectionStartEvent) event).isFlow());
+            } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                // the end of block collections is only marked when the next token is found, which may be many lines below
+                if (flowCollections.pop()) {
+                    lastValueEnd = index(event.getEndMark());
+                }
+            } else if (event instanceof ScalarEvent || event instanceof AliasEvent) {
+                lastValueEnd = index(event.getEndMark());
+            }
+            return event;
+        }
+
+        private int index(final Mark mark) {
+            // marks count code points, not chars
+            return onlyBasicChars ? mark.getIndex() : content.offsetByCodePoints(0, mark.getIndex());
+        }
+
+        /**
+         * Gets the start of the line after the one {@code index} is on, unless {@code index} is already
+         * at the start of a line (block scalars end after their line breaks).
+         */
+        private int lineEnd(final int index) {
+            int lineStart = index;
+            while (lineStart > 0 && content.charAt(lineStart - 1) == ' ') {
+                lineStart--;
+            }
+            if (lineStart > 0 && content.charAt(lineStart - 1) == '\n') return lineStart;
+            final int lineBreak = content.indexOf('\n', index);
+            return lineBreak == -1 ? content.length() : lineBreak + 1;
+        }
+    }
+}
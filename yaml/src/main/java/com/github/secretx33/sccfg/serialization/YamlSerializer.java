@@ -18,33 +18,69 @@ package com.github.secretx33.sccfg.serialization;
 import com.github.secretx33.sccfg.config.ConfigWrapper;
 import com.github.secretx33.sccfg.serialization.gson.GsonFactory;
 import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.error.YAMLException;
 import org.spongepowered.configurate.loader.AbstractConfigurationLoader;
 import org.spongepowered.configurate.loader.HeaderMode;
 import org.spongepowered.configurate.serialize.TypeSerializerCollection;
 import org.spongepowered.configurate.yaml.NodeStyle;
 import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
 import java.util.logging.Logger;
 
 @SuppressWarnings("unused")
 public final class YamlSerializer extends AbstractConfigurateSerializer<YamlConfigurationLoader.Builder, YamlConfigurationLoader> {
 
+    private static final int INDENT = 2;
+
     public YamlSerializer(final Logger logger, final GsonFactory gsonFactory) {
         super(logger, gsonFactory);
     }
 
     @Override
     protected AbstractConfigurationLoader.Builder<YamlConfigurationLoader.Builder, YamlConfigurationLoader> fileBuilder(@Nullable final ConfigWrapper<?> configWrapper) {
-        return YamlConfigurationLoader.builder().indent(2).nodeStyle(NodeStyle.BLOCK)
+        return fileBuilder(configWrapper, INDENT);
+    }
+
+    /**
+     * Same as {@link YamlSerializer#fileBuilder(ConfigWrapper)}, but indenting nested values by {@code indent}
+     * spaces, so values can be rendered with the indentation of an existing file.
+     */
+    YamlConfigurationLoader.Builder fileBuilder(@Nullable final ConfigWrapper<?> configWrapper, final int indent) {
+        return YamlConfigurationLoader.builder().indent(indent).nodeStyle(NodeStyle.BLOCK)
                 .headerMode(HeaderMode.PRESET)
                 .defaultOptions(opts -> opts.header(configWrapper != null ? configWrapper.getHeader() : null)
                         .shouldCopyDefaults(false).serializers(TypeSerializerCollection.defaults()));
     }
 
+    /**
+     * Reads only the values bound to properties, straight from the YAML parser events, falling back to
+     * reading the whole file through Configurate when that's not possible, or when the file could not be
+     * parsed (so that errors are reported as usual).
+     */
     @Override
-    protected void afterSave(final ConfigWrapper<?> configWrapper) throws IOException {
+    protected Map<String, Object> loadFromFile(final ConfigWrapper<?> configWrapper) {
+        try (final BufferedReader reader = Files.newBufferedReader(configWrapper.getDestination(), StandardCharsets.UTF_8)) {
+            final Map<String, Object> values = YamlEventReader.read(reader, PropertyPaths.of(configWrapper));
+            if (values != null) return values;
+        } catch (final IOException | YAMLException e) {
+            // let the full read report the error
+        }
+        return super.loadFromFile(configWrapper);
+    }
+
+    @Override
+    protected String decorateFile(final ConfigWrapper<?> configWrapper, final String fileContent) {
         final YamlCommentManager commentManager = new YamlCommentManager(configWrapper);
-        commentManager.saveComments();
+        return commentManager.addComments(fileContent);
+    }
+
+    @Override
+    KeyInsertions.Format keyInsertionFormat(final ConfigWrapper<?> configWrapper) {
+        return new YamlKeyInsertionFormat(this, configWrapper);
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 SecretX <notyetmidnight@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.secretx33.sccfg.serialization
+
+import com.github.secretx33.sccfg.config.ConfigWrapper
+import com.github.secretx33.sccfg.config.PropertyWrapper
+import com.github.secretx33.sccfg.scanner.BaseScanner
+import com.github.secretx33.sccfg.serialization.gson.GsonFactoryImpl
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import java.util.logging.Logger
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class YamlKeyInsertionFormatTest {
+
+    private lateinit var format: YamlKeyInsertionFormat
+
+    @BeforeEach
+    fun setup() {
+        val logger = Logger.getLogger("sc-cfg")
+        val serializer = YamlSerializer(logger, GsonFactoryImpl(logger, BaseScanner("com.github.secretx33.sccfg.serialization", emptySet())))
+        format = YamlKeyInsertionFormat(serializer, mock<ConfigWrapper<*>>())
+    }
+
+    @Test
+    fun `given block mappings when parsing file then find their keys, indentation and end`() {
+        val content = "name: loot\nsettings:\n    rolls: 3\n    bonus:\n        chance: 0.5\nother: [a, b]\n"
+
+        val root = assertNotNull(format.parse(content))
+
+        assertEquals(0, root.keyIndent)
+        assertEquals(content.length, root.end)
+        val settings = assertNotNull(root.getSection("settings"))
+        assertEquals(listOf("settings"), settings.path)
+        assertEquals(4, settings.keyIndent)
+        assertEquals(content.indexOf("other"), settings.end)
+        assertTrue(settings.hasKey("bonus"))
+        assertEquals(8, assertNotNull(settings.getSection("bonus")).keyIndent)
+        assertNull(root.getSection("other"))
+    }
+
+    @Test
+    fun `given flow mapping when parsing file then do not allow inserting keys into it`() {
+        val root = assertNotNull(format.parse("settings: {rolls: 3}\n"))
+
+        assertFalse(assertNotNull(root.getSection("settings")).isAppendable)
+    }
+
+    @Test
+    fun `given file layouts that cannot hold inserted keys when parsing file then return null`() {
+        assertNull(format.parse("{rolls: 3}\n"))
+        assertNull(format.parse("- a\n- b\n"))
+        assertNull(format.parse("rolls: 3\n---\nrolls: 4\n"))
+        assertNull(format.parse("rolls: 3\n...\n"))
+    }
+
+    @Test
+    fun `given file with only comments when parsing file then allow inserting keys at its root`() {
+        val root = assertNotNull(format.parse("# nothing here yet\n"))
+
+        assertTrue(root.isAppendable)
+        assertFalse(root.hasKeys())
+    }
+
+    @Test
+    fun `given missing nested keys when inserting them then use the indentation of their mapping`() {
+        val content = "settings:\n    rolls: 3\nname: loot\n"
+
+        assertEquals("settings:\n    rolls: 3\n    bonus:\n        chance: 0.5\nname: loot\nother: true\n",
+            insert(content, mapOf("settings" to mapOf("bonus" to mapOf("chance" to 0.5)), "other" to true), listOf("settings", "bonus", "chance"), listOf("other")))
+    }
+
+    @Test
+    fun `given file with windows line breaks when inserting keys then keep its line breaks`() {
+        assertEquals("rolls: 3\r\nchance: 0.5\r\n", insert("rolls: 3\r\n", mapOf("chance" to 0.5), listOf("chance")))
+    }
+
+    @Test
+    fun `given indented file when patching values then keep ints as ints and indent block values like the file`() {
+        val content = "settings:\n    rolls: 3   # keep it low\n    drops:\n        gold: 1\nids: [1]\n"
+
+        assertEquals("settings:\n    rolls: 4   # keep it low\n    drops:\n        gold: 2\n        iron: 5\nids:\n- 3\n- 4\n",
+            patch(content, mapOf("settings" to mapOf("rolls" to 4, "drops" to mapOf("gold" to 2, "iron" to 5)), "ids" to listOf(3, 4)),
+                listOf("settings", "rolls"), listOf("settings", "drops"), listOf("ids")))
+    }
+
+    private fun patch(content: String, values: Map<String, Any>, vararg paths: List<String>): String? {
+        val properties = paths.map { path -> mock<PropertyWrapper> { on { fullPathSegments } doReturn path } }.toSet()
+        return ValuePatches.of(format).patch(content, properties, values)
+    }
+
+    private fun insert(content: String, values: Map<String, Any>, vararg paths: List<String>): String {
+        val properties = paths.map { path -> mock<PropertyWrapper> { on { fullPathSegments } doReturn path } }.toSet()
+        val insertions = KeyInsertions.plan(assertNotNull(format.parse(content)), properties, values)
+        return KeyInsertions.apply(content, insertions, format)
+    }
+}